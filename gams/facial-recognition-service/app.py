@@ -3,7 +3,7 @@ from flask_cors import CORS
 import face_recognition
 import numpy as np
 import base64
-import json
+import struct
 import mysql.connector
 from PIL import Image
 import io
@@ -62,6 +62,25 @@ def detect_single_face(image):
     return face_locations, None
 
 
+# Formato de rostros_biometricos.encoding (igual que EncodingRostroConverter en
+# Java): 1 byte de versión + 128 float32 little-endian
+ENCODING_VERSION = 1
+ENCODING_FORMAT  = "<B128f"
+
+
+def encoding_to_bytes(encoding):
+    """Vector de 128 floats → valor binario de la columna encoding."""
+    return struct.pack(ENCODING_FORMAT, ENCODING_VERSION, *encoding.tolist())
+
+
+def encoding_from_bytes(data):
+    """Valor binario de la columna encoding → numpy array de 128 floats."""
+    version, *values = struct.unpack(ENCODING_FORMAT, bytes(data))
+    if version != ENCODING_VERSION:
+        raise ValueError(f"Versión de encoding desconocida: {version}")
+    return np.array(values)
+
+
 def get_encoding(image, face_locations):
     """
     Extrae el vector de 128 dimensiones del rostro.
@@ -133,12 +152,11 @@ def register_face():
                     )
                 }), 400
 
-            foto_numero   = count + 1
-            encoding_json = json.dumps(encoding.tolist())
+            foto_numero = count + 1
 
             cursor.execute(
                 "INSERT INTO rostros_biometricos (username, foto_numero, encoding) VALUES (%s, %s, %s)",
-                (username, foto_numero, encoding_json)
+                (username, foto_numero, encoding_to_bytes(encoding))
             )
             conn.commit()
             new_count = count + 1
@@ -163,6 +181,39 @@ def register_face():
         return jsonify({"success": False, "message": f"Error interno: {str(e)}"}), 500
 
 
+@app.route("/encode", methods=["POST"])
+def encode_face():
+    """
+    Devuelve solo el encoding (128 floats) del rostro de la imagen. La
+    comparación contra los rostros registrados la hace el backend Java.
+    Body JSON: { "image": "<base64>" }
+    """
+    try:
+        data         = request.get_json()
+        image_base64 = data.get("image")
+
+        if not image_base64:
+            return jsonify({"success": False, "message": "Imagen requerida"}), 400
+
+        image = decode_image(image_base64)
+        if image is None:
+            return jsonify({"success": False, "message": "Error al decodificar la imagen"}), 400
+
+        face_locations, error = detect_single_face(image)
+        if error:
+            return jsonify({"success": False, "message": error}), 400
+
+        encoding, error = get_encoding(image, face_locations)
+        if error:
+            return jsonify({"success": False, "message": error}), 400
+
+        return jsonify({"success": True, "encoding": encoding.tolist()})
+
+    except Exception as e:
+        import traceback; traceback.print_exc()
+        return jsonify({"success": False, "message": f"Error interno: {str(e)}"}), 500
+
+
 @app.route("/recognize", methods=["POST"])
 def recognize_face():
     """
@@ -203,10 +254,10 @@ def recognize_face():
 
         # Agrupar encodings por usuario
         known = {}
-        for username, encoding_json in rows:
+        for username, encoding_bin in rows:
             if username not in known:
                 known[username] = []
-            known[username].append(np.array(json.loads(encoding_json)))
+            known[username].append(encoding_from_bytes(encoding_bin))
 
         # Buscar la menor distancia entre todos los usuarios
         best_match    = None
@@ -0,0 +1,156 @@
+package com.example.gams.bench;
+
+import com.example.gams.GamsApplication;
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.Venta;
+import com.example.gams.services.VentaService;
+import com.example.gams.support.DatosPrueba;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cobro del POS bajo carga: registrarVenta y anularVenta contra H2 en modo
+ * MySQL (perfil "test") con un catálogo de tienda real: 60 productos de 20
+ * variantes cada uno. Cada hilo de JMH es un cajero; los carritos toman
+ * variantes al azar del catálogo, así que los cajeros compiten por las filas
+ * como en caja.
+ *
+ * Mide throughput (ops/ms) y la distribución de latencias (SampleTime, con
+ * p99). La cantidad de cajeros se fija desde {@link CobroBenchmarkRunner}.
+ *
+ * Los turnos de venta quedan como en producción (8 con el pool de 10, ver
+ * TurnosVentaService), pero la espera por un turno se alarga para que ningún
+ * cajero se rechace con "Hay muchas ventas en curso". Por eso, con más de 8
+ * cajeros el throughput es el de 8 transacciones a la vez, y el p99 incluye
+ * la cola por un turno: con 32 cajeros, cada venta espera a unas 3 por
+ * delante. Las métricas no se comparan contra 1 o 8 cajeros como si hubiera
+ * 32 transacciones en paralelo.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CobroBenchmark {
+
+    private static final int PRODUCTOS = 60;
+    private static final int VARIANTES_POR_PRODUCTO = 20;
+    // Stock holgado: la medición no debe terminar en "Stock insuficiente"
+    private static final int STOCK_INICIAL = 10_000_000;
+    private static final long ESPERA_TURNO_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({"1", "5", "20"})
+    public int lineas;
+
+    private ConfigurableApplicationContext contexto;
+    private VentaService ventaService;
+    private List<Integer> catalogo;
+    private String vendedor;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(GamsApplication.class)
+                .profiles("test")
+                // Web como la aplicación (la seguridad arma sus filtros sobre Spring
+                // MVC), en un puerto libre: las ventas se llaman directo al servicio
+                .web(WebApplicationType.SERVLET)
+                .properties("logging.level.root=WARN", "spring.jpa.show-sql=false", "server.port=0",
+                        // 32 cajeros con 8 turnos: que esperen en la cola, no que fallen
+                        "gams.ventas.espera-turno-ms=" + ESPERA_TURNO_MS)
+                .run();
+        ventaService = contexto.getBean(VentaService.class);
+
+        DatosPrueba datos = contexto.getBean(DatosPrueba.class);
+        vendedor = datos.vendedorConCajaAbierta();
+        catalogo = new ArrayList<>(PRODUCTOS * VARIANTES_POR_PRODUCTO);
+        for (int i = 0; i < PRODUCTOS; i++) {
+            catalogo.addAll(datos.variantes(VARIANTES_POR_PRODUCTO, STOCK_INICIAL));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    // ==================== ESTADO POR CAJERO ====================
+
+    @State(Scope.Thread)
+    public static class Cajero {
+        private final SplittableRandom azar = new SplittableRandom();
+
+        @Setup(Level.Trial)
+        public void entrar(CobroBenchmark benchmark) {
+            DatosPrueba.autenticar(benchmark.vendedor);
+        }
+
+        @TearDown(Level.Trial)
+        public void salir() {
+            SecurityContextHolder.clearContext();
+        }
+
+        /** Carrito de "lineas" variantes al azar, de 1 a 3 unidades cada una */
+        VentaDTO carrito(CobroBenchmark benchmark) {
+            List<VentaDTO.ItemVentaDTO> items = new ArrayList<>(benchmark.lineas);
+            for (int i = 0; i < benchmark.lineas; i++) {
+                VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+                item.setVarianteId(benchmark.catalogo.get(azar.nextInt(benchmark.catalogo.size())));
+                item.setCantidad(1 + azar.nextInt(3));
+                items.add(item);
+            }
+
+            VentaDTO dto = new VentaDTO();
+            dto.setMetodoPago("TARJETA");
+            dto.setItems(items);
+            return dto;
+        }
+    }
+
+    /**
+     * Venta recién registrada para que anularVenta tenga qué anular. Queda fuera
+     * del tiempo medido, pero no de las asignaciones: el bytes/op de anularVenta
+     * incluye el de esa venta
+     */
+    @State(Scope.Thread)
+    public static class VentaPorAnular {
+        private Integer ventaId;
+
+        @Setup(Level.Invocation)
+        public void registrar(CobroBenchmark benchmark, Cajero cajero) {
+            ventaId = benchmark.ventaService.registrarVenta(cajero.carrito(benchmark)).getId();
+        }
+    }
+
+    // ==================== OPERACIONES ====================
+
+    @Benchmark
+    public Venta registrarVenta(Cajero cajero) {
+        return ventaService.registrarVenta(cajero.carrito(this));
+    }
+
+    @Benchmark
+    public Venta anularVenta(VentaPorAnular venta) {
+        return ventaService.anularVenta(venta.ventaId, "Benchmark");
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.gams.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Corre {@link CobroBenchmark} con 1, 8 y 32 cajeros a la vez (o los que se
+ * pasen como segundo argumento, separados por coma) y el GCProfiler para las
+ * asignaciones por operación. Deja un JSON por cantidad de cajeros en el
+ * directorio del primer argumento y al final imprime un resumen:
+ *
+ *   mvn -Pbench test-compile exec:exec
+ *
+ * Con 32 cajeros solo 8 tienen la transacción abierta a la vez (los turnos de
+ * venta); ver la nota en {@link CobroBenchmark} antes de leer esas filas.
+ *
+ * Para comparar contra una línea base se guardan los JSON de antes del cambio
+ * y se cargan junto a los nuevos en cualquier visor de JMH.
+ */
+public class CobroBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        File directorio = new File(args.length > 0 ? args[0] : "target/jmh");
+        String cajeros = args.length > 1 ? args[1] : "1,8,32";
+        directorio.mkdirs();
+
+        List<String> resumen = new ArrayList<>();
+        resumen.add(String.format("%-16s %8s %7s %14s %12s %14s",
+                "operación", "cajeros", "líneas", "ops/ms", "p99 (ms)", "bytes/op"));
+
+        for (String valor : cajeros.split(",")) {
+            int hilos = Integer.parseInt(valor.trim());
+            Options opciones = new OptionsBuilder()
+                    .include(CobroBenchmark.class.getName())
+                    .threads(hilos)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(directorio, "cobro-" + hilos + "-cajeros.json").getPath())
+                    .build();
+
+            resumir(new Runner(opciones).run(), hilos, resumen);
+        }
+
+        System.out.println();
+        resumen.forEach(System.out::println);
+    }
+
+    // Junta los modos Throughput y SampleTime de cada operación en una fila
+    private static void resumir(Collection<RunResult> resultados, int hilos, List<String> resumen) {
+        for (RunResult throughput : resultados) {
+            if (throughput.getParams().getMode() != Mode.Throughput) {
+                continue;
+            }
+            String operacion = throughput.getParams().getBenchmark()
+                    .substring(throughput.getParams().getBenchmark().lastIndexOf('.') + 1);
+            String lineas = throughput.getParams().getParam("lineas");
+
+            double p99 = resultados.stream()
+                    .filter(r -> r.getParams().getMode() == Mode.SampleTime)
+                    .filter(r -> r.getParams().getBenchmark().equals(throughput.getParams().getBenchmark()))
+                    .filter(r -> lineas.equals(r.getParams().getParam("lineas")))
+                    .map(r -> r.getPrimaryResult().getStatistics().getPercentile(99))
+                    .findFirst()
+                    .orElse(Double.NaN);
+
+            Result<?> asignaciones = throughput.getSecondaryResults().get("gc.alloc.rate.norm");
+
+            resumen.add(String.format("%-16s %8d %7s %14.3f %12.3f %14.0f",
+                    operacion, hilos, lineas,
+                    throughput.getPrimaryResult().getScore(),
+                    p99,
+                    asignaciones != null ? asignaciones.getScore() : Double.NaN));
+        }
+    }
+}
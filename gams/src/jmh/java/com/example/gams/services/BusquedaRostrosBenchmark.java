@@ -0,0 +1,124 @@
+package com.example.gams.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login facial: tiempo por búsqueda de la comparación exacta
+ * (GaleriaRostros, todas las fotos) y del índice HNSW (IndiceHnsw, con los
+ * parámetros por defecto de ReconocimientoFacialService) sobre las mismas
+ * fotos. Cada usuario tiene 4 fotos parecidas entre sí y la sonda es otra foto
+ * de un usuario al azar, como en un login. Que el HNSW devuelva lo mismo que
+ * la búsqueda exacta lo exige IndiceHnswTest; aquí solo se mide.
+ *
+ * Está en el paquete de services porque las dos clases son internas. Con
+ * 100 000 fotos, armar el índice en el setup tarda algunos minutos.
+ *
+ * Corrida de referencia (1 vCPU Xeon, JDK 21.0.1, JMH 1.37), µs por búsqueda:
+ *
+ *      fotos    exacta     hnsw
+ *        100         9       30
+ *      2 000       207      160
+ *     10 000       915      313
+ *     20 000     1 426      404
+ *    100 000    11 275      827
+ *
+ *   mvn -Pbench test-compile exec:exec -Dbench.runner=com.example.gams.services.BusquedaRostrosBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BusquedaRostrosBenchmark {
+
+    private static final int FOTOS_POR_USUARIO = 4;
+    private static final int SONDAS = 1024;
+
+    @Param({"100", "2000", "10000", "20000", "100000"})
+    public int fotos;
+
+    private GaleriaRostros galeria;
+    private IndiceHnsw indice;
+    private float[][] sondas;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        Random azar = new Random(42);
+        float[][] centros = new float[fotos / FOTOS_POR_USUARIO][GaleriaRostros.DIMENSION];
+        for (float[] centro : centros) {
+            for (int j = 0; j < centro.length; j++) {
+                centro[j] = (float) (azar.nextGaussian() * 0.09);
+            }
+        }
+
+        galeria = new GaleriaRostros(fotos);
+        for (int i = 0; i < fotos; i++) {
+            galeria.agregar(i + 1, "usuario" + i % centros.length, foto(azar, centros[i % centros.length]));
+        }
+        indice = new IndiceHnsw(16, 200);
+        galeria.recorrer(indice::agregar);
+
+        sondas = new float[SONDAS][];
+        for (int i = 0; i < SONDAS; i++) {
+            sondas[i] = foto(azar, centros[azar.nextInt(centros.length)]);
+        }
+    }
+
+    // ==================== OPERACIONES ====================
+
+    @Benchmark
+    public GaleriaRostros.Coincidencia exacta() {
+        return galeria.masCercano(sonda());
+    }
+
+    @Benchmark
+    public GaleriaRostros.Coincidencia hnsw() {
+        return indice.masCercano(sonda(), 64);
+    }
+
+    // Las sondas se recorren en ronda: un solo hilo por benchmark
+    private float[] sonda() {
+        return sondas[siguiente++ & (SONDAS - 1)];
+    }
+
+    // Otra foto del mismo rostro: el centro con algo de ruido
+    private static float[] foto(Random azar, float[] centro) {
+        float[] foto = new float[centro.length];
+        for (int j = 0; j < centro.length; j++) {
+            foto[j] = (float) (centro[j] + azar.nextGaussian() * 0.03);
+        }
+        return foto;
+    }
+
+    /** Corre el benchmark y deja el JSON en el directorio del primer argumento */
+    public static void main(String[] args) throws RunnerException {
+        File directorio = new File(args.length > 0 ? args[0] : "target/jmh");
+        directorio.mkdirs();
+        new Runner(new OptionsBuilder()
+                .include(BusquedaRostrosBenchmark.class.getName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(directorio, "busqueda-rostros.json").getPath())
+                .build()).run();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.gams.config;
+
+import com.example.gams.entities.GeneradorIdPorBloques;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Pool chico y aparte para reservar bloques de ids (GeneradorIdPorBloques),
+ * contra la misma BD que spring.datasource. Cada generador hace una reserva a
+ * la vez (una fila, muy corta), así que con gams.ids.conexiones igual al
+ * número de tablas con @IdPorBloques (2) nadie espera una conexión aquí.
+ *
+ * No se publica como bean DataSource (eso reemplazaría al DataSource de la
+ * aplicación): se le pasa a Hibernate en sus propiedades.
+ */
+@Component
+public class ConexionesIds implements HibernatePropertiesCustomizer, DisposableBean {
+
+    private final HikariDataSource conexiones;
+
+    public ConexionesIds(DataSourceProperties propiedades,
+                         @Value("${gams.ids.conexiones:2}") int tamano) {
+        this.conexiones = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.conexiones.setPoolName("gams-ids");
+        this.conexiones.setMaximumPoolSize(Math.max(1, tamano));
+        this.conexiones.setMinimumIdle(0);
+        this.conexiones.setAutoCommit(false);
+    }
+
+    @Override
+    public void customize(Map<String, Object> propiedades) {
+        propiedades.put(GeneradorIdPorBloques.CONEXIONES, conexiones);
+    }
+
+    @Override
+    public void destroy() {
+        conexiones.close();
+    }
+}
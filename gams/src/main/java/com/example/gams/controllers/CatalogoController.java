@@ -1,8 +1,10 @@
 package com.example.gams.controllers;
 
 import com.example.gams.entities.*;
+import com.example.gams.services.CacheCatalogos;
 import com.example.gams.services.CatalogoService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
@@ -24,10 +26,7 @@ public class CatalogoController {
 
     @GetMapping("/categorias")
     public ResponseEntity<List<Categoria>> listarCategorias(@RequestParam(required = false) Boolean activo) {
-        List<Categoria> categorias = activo != null && activo ? 
-            catalogoService.listarCategoriasActivasOrdenadas() : 
-            catalogoService.listarCategorias();
-        return ResponseEntity.ok(categorias);
+        return conVersion(catalogoService.listaCategorias(Boolean.TRUE.equals(activo)));
     }
 
     @GetMapping("/categorias/{id}")
@@ -97,10 +96,7 @@ public class CatalogoController {
 
     @GetMapping("/marcas")
     public ResponseEntity<List<Marca>> listarMarcas(@RequestParam(required = false) Boolean activo) {
-        List<Marca> marcas = activo != null && activo ? 
-            catalogoService.listarMarcasActivasOrdenadas() : 
-            catalogoService.listarMarcas();
-        return ResponseEntity.ok(marcas);
+        return conVersion(catalogoService.listaMarcas(Boolean.TRUE.equals(activo)));
     }
 
     @GetMapping("/marcas/{id}")
@@ -170,10 +166,7 @@ public class CatalogoController {
 
     @GetMapping("/colores")
     public ResponseEntity<List<Color>> listarColores(@RequestParam(required = false) Boolean activo) {
-        List<Color> colores = activo != null && activo ? 
-            catalogoService.listarColoresActivosOrdenados() : 
-            catalogoService.listarColores();
-        return ResponseEntity.ok(colores);
+        return conVersion(catalogoService.listaColores(Boolean.TRUE.equals(activo)));
     }
 
     @GetMapping("/colores/{id}")
@@ -245,17 +238,7 @@ public class CatalogoController {
     public ResponseEntity<List<Talla>> listarTallas(
             @RequestParam(required = false) Boolean activo,
             @RequestParam(required = false) Talla.TipoTalla tipo) {
-        List<Talla> tallas;
-        
-        if (tipo != null) {
-            tallas = catalogoService.listarTallasPorTipoOrdenadas(tipo);
-        } else if (activo != null && activo) {
-            tallas = catalogoService.listarTallasOrdenadasPorOrden();
-        } else {
-            tallas = catalogoService.listarTallas();
-        }
-        
-        return ResponseEntity.ok(tallas);
+        return conVersion(catalogoService.listaTallas(tipo, Boolean.TRUE.equals(activo)));
     }
 
     @GetMapping("/tallas/{id}")
@@ -312,4 +295,20 @@ public class CatalogoController {
                 .body("Error al eliminar la talla: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // ============================================
+    // UTILIDADES
+    // ============================================
+
+    /**
+     * Lista con su ETag. El navegador guarda la respuesta y la revalida en cada
+     * carga (no-cache) con If-None-Match: si no cambió, Spring responde 304 sin
+     * cuerpo y la lista sale de memoria, sin ir a la BD
+     */
+    private static <T> ResponseEntity<List<T>> conVersion(CacheCatalogos.Lista<T> lista) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(lista.getEtag())
+                .body(lista.getDatos());
+    }
+}
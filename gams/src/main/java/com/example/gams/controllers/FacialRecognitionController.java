@@ -2,17 +2,18 @@ package com.example.gams.controllers;
 
 import com.example.gams.entities.Usuario;
 import com.example.gams.repositories.UsuarioRepository;
+import com.example.gams.services.ClienteReconocimientoFacial;
 import com.example.gams.services.CustomUserDetailsService;
+import com.example.gams.services.MetricasService;
+import com.example.gams.services.ReconocimientoFacialService;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,36 +29,24 @@ public class FacialRecognitionController {
 
     private final CustomUserDetailsService userDetailsService;
     private final UsuarioRepository usuarioRepository;
-
-    private final RestTemplate restTemplate = new RestTemplate();
-    private static final String PYTHON_SERVICE_URL = "http://localhost:5000";
+    private final MetricasService metricas;
+    private final ReconocimientoFacialService reconocimiento;
+    private final ClienteReconocimientoFacial servicioPython;
 
     // ──────────────────────────────────────────────
     // Helpers privados
     // ──────────────────────────────────────────────
 
-    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
-            new ParameterizedTypeReference<>() {};
-
-    /** POST al servicio Python con payload JSON. */
-   
-    private Map<String, Object> postToPython( String endpoint, Map<String, String> payload) throws Exception {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<Map<String, String>> entity = new HttpEntity<>(payload, headers);
-        return restTemplate.exchange(PYTHON_SERVICE_URL + endpoint, HttpMethod.POST, entity, MAP_TYPE).getBody();
-    }
-
-    /** GET al servicio Python. */
-    
-    private Map<String, Object> getFromPython(String endpoint) throws Exception {
-        return restTemplate.exchange(PYTHON_SERVICE_URL + endpoint, HttpMethod.GET, null, MAP_TYPE).getBody();
-    }
-
-    /** DELETE al servicio Python — devuelve el body real en vez de descartarlo. */
-    
-    private Map<String, Object> deleteFromPython(String endpoint) throws Exception {
-        return restTemplate.exchange(PYTHON_SERVICE_URL + endpoint, HttpMethod.DELETE, null, MAP_TYPE).getBody();
+    /** Encoding devuelto por Python (lista JSON de números) como float[]. */
+    private float[] aEncoding(Object valor) {
+        if (!(valor instanceof List<?> lista)) {
+            throw new RuntimeException("El servicio de reconocimiento facial no devolvió el encoding");
+        }
+        float[] encoding = new float[lista.size()];
+        for (int i = 0; i < encoding.length; i++) {
+            encoding[i] = ((Number) lista.get(i)).floatValue();
+        }
+        return encoding;
     }
 
     /** Respuesta de error estándar {success: false, message: "..."}. */
@@ -68,6 +57,11 @@ public class FacialRecognitionController {
         return resp;
     }
 
+    /** 503 con el mensaje del rechazo: el servicio Python no atendió la llamada. */
+    private ResponseEntity<Map<String, Object>> noDisponible(ClienteReconocimientoFacial.NoDisponibleException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse(e.getMessage()));
+    }
+
     // ──────────────────────────────────────────────
     // Endpoints
     // ──────────────────────────────────────────────
@@ -83,11 +77,29 @@ public class FacialRecognitionController {
                 return ResponseEntity.badRequest().body(errorResponse("No se recibió imagen"));
             }
 
+            // Python solo calcula el encoding de la foto; la comparación se hace aquí
             String base64Image = Base64.getEncoder().encodeToString(image.getBytes());
-            Map<String, Object> pythonResult = postToPython("/recognize", Map.of("image", base64Image));
+            Map<String, Object> pythonResult = servicioPython.post("codificar", "/encode", Map.of("image", base64Image));
+            if (pythonResult == null || !Boolean.TRUE.equals(pythonResult.get("success"))) {
+                metricas.contar("gams.facial.reconocimiento", "resultado", "no_reconocido");
+                String message = pythonResult != null
+                        ? (String) pythonResult.get("message")
+                        : "Error en el servicio de reconocimiento facial";
+                return ResponseEntity.ok(errorResponse(message));
+            }
+
+            ReconocimientoFacialService.Resultado resultado = metricas.medir("gams.facial.comparacion",
+                    () -> reconocimiento.reconocer(aEncoding(pythonResult.get("encoding"))));
+            if (resultado == null) {
+                metricas.contar("gams.facial.reconocimiento", "resultado", "no_reconocido");
+                return ResponseEntity.ok(errorResponse("No hay rostros registrados en el sistema."));
+            }
+
+            boolean reconocido = resultado.reconocido();
+            metricas.contar("gams.facial.reconocimiento", "resultado", reconocido ? "reconocido" : "no_reconocido");
 
-            if (pythonResult != null && Boolean.TRUE.equals(pythonResult.get("success"))) {
-                String recognizedUsername = (String) pythonResult.get("username");
+            if (reconocido) {
+                String recognizedUsername = resultado.username();
 
                 Usuario usuario = userDetailsService.findUsuarioByUsername(recognizedUsername);
                 if (usuario == null) {
@@ -133,17 +145,19 @@ public class FacialRecognitionController {
                         "name",     usuario.getNombreCompleto(),
                         "role",     rolesString,
                         "username", usuario.getUsername()));
-                response.put("confidence", pythonResult.get("confidence"));
+                response.put("confidence", resultado.confianza());
                 response.put("redirectUrl", "/");
                 return ResponseEntity.ok(response);
 
             } else {
-                String message = pythonResult != null
-                        ? (String) pythonResult.get("message")
-                        : "Error en el servicio de reconocimiento facial";
-                return ResponseEntity.ok(errorResponse(message));
+                Map<String, Object> response = errorResponse("Rostro no reconocido. Intenta en mejor iluminación.");
+                response.put("distance", Math.round(resultado.distancia() * 10000) / 10000.0);
+                response.put("threshold", reconocimiento.getUmbral());
+                return ResponseEntity.ok(response);
             }
 
+        } catch (ClienteReconocimientoFacial.NoDisponibleException e) {
+            return noDisponible(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(errorResponse("Error procesando imagen: " + e.getMessage()));
@@ -164,9 +178,12 @@ public class FacialRecognitionController {
 
             String base64Image = Base64.getEncoder().encodeToString(image.getBytes());
             Map<String, String> payload = Map.of("username", username, "image", base64Image);
-            Map<String, Object> result = postToPython("/register", payload);
+            Map<String, Object> result = servicioPython.post("registrar", "/register", payload);
+            reconocimiento.usuarioRegistrado(username);
             return ResponseEntity.ok(result);
 
+        } catch (ClienteReconocimientoFacial.NoDisponibleException e) {
+            return noDisponible(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(errorResponse("Error registrando rostro: " + e.getMessage()));
@@ -177,7 +194,9 @@ public class FacialRecognitionController {
     @GetMapping("/facial-recognition/status/{username}")
     public ResponseEntity<Map<String, Object>> getFaceStatus(@PathVariable String username) {
         try {
-            return ResponseEntity.ok(getFromPython("/status/" + username));
+            return ResponseEntity.ok(servicioPython.get("estado", "/status/" + username));
+        } catch (ClienteReconocimientoFacial.NoDisponibleException e) {
+            return noDisponible(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(errorResponse("Error consultando estado: " + e.getMessage()));
@@ -188,7 +207,11 @@ public class FacialRecognitionController {
     @DeleteMapping("/facial-recognition/encodings/{username}")
     public ResponseEntity<Map<String, Object>> deleteFaceEncodings(@PathVariable String username) {
         try {
-            return ResponseEntity.ok(deleteFromPython("/delete-user/" + username));
+            Map<String, Object> result = servicioPython.delete("eliminar", "/delete-user/" + username);
+            reconocimiento.usuarioEliminado(username);
+            return ResponseEntity.ok(result);
+        } catch (ClienteReconocimientoFacial.NoDisponibleException e) {
+            return noDisponible(e);
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(errorResponse("Error eliminando encodings: " + e.getMessage()));
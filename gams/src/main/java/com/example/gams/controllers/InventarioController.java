@@ -3,7 +3,6 @@ package com.example.gams.controllers;
 import com.example.gams.dto.MovimientoDTO;
 import com.example.gams.dto.VarianteDTO;
 import com.example.gams.entities.MovimientoInventario;
-import com.example.gams.entities.ProductoVariante;
 import com.example.gams.services.InventarioService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -17,7 +16,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @RestController
@@ -40,7 +38,7 @@ public class InventarioController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
         
-        List<MovimientoInventario> movimientos;
+        List<MovimientoDTO> movimientos;
         
         if (varianteId != null) {
             movimientos = inventarioService.listarMovimientosPorVariante(varianteId);
@@ -58,11 +56,7 @@ public class InventarioController {
             movimientos = inventarioService.listarUltimosMovimientos();
         }
         
-        List<MovimientoDTO> movimientosDTO = movimientos.stream()
-            .map(MovimientoDTO::new)
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(movimientosDTO);
+        return ResponseEntity.ok(movimientos);
     }
   
     @GetMapping("/movimientos/{id}")
@@ -74,33 +68,21 @@ public class InventarioController {
 
     @GetMapping("/movimientos/hoy")
     public ResponseEntity<List<MovimientoDTO>> listarMovimientosHoy() {
-        List<MovimientoInventario> movimientos = inventarioService.listarMovimientosHoy();
-        List<MovimientoDTO> movimientosDTO = movimientos.stream()
-            .map(MovimientoDTO::new)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(movimientosDTO);
+        return ResponseEntity.ok(inventarioService.listarMovimientosHoy());
     }
 
     @GetMapping("/movimientos/entradas")
     public ResponseEntity<List<MovimientoDTO>> listarEntradas(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
-        List<MovimientoInventario> movimientos = inventarioService.listarEntradasEntreFechas(inicio, fin);
-        List<MovimientoDTO> movimientosDTO = movimientos.stream()
-            .map(MovimientoDTO::new)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(movimientosDTO);
+        return ResponseEntity.ok(inventarioService.listarEntradasEntreFechas(inicio, fin));
     }
 
     @GetMapping("/movimientos/salidas")
     public ResponseEntity<List<MovimientoDTO>> listarSalidas(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
-        List<MovimientoInventario> movimientos = inventarioService.listarSalidasEntreFechas(inicio, fin);
-        List<MovimientoDTO> movimientosDTO = movimientos.stream()
-            .map(MovimientoDTO::new)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(movimientosDTO);
+        return ResponseEntity.ok(inventarioService.listarSalidasEntreFechas(inicio, fin));
     }
 
     // ============================================
@@ -196,11 +178,8 @@ public class InventarioController {
     public ResponseEntity<Map<String, Object>> obtenerAlertas() {
         Map<String, Object> alertas = new HashMap<>();
         
-        List<VarianteDTO> stockBajo = inventarioService.obtenerAlertasStockBajo()
-            .stream().map(VarianteDTO::new).collect(Collectors.toList());
-        
-        List<VarianteDTO> sinStock = inventarioService.obtenerVariantesSinStock()
-            .stream().map(VarianteDTO::new).collect(Collectors.toList());
+        List<VarianteDTO> stockBajo = inventarioService.obtenerAlertasStockBajo();
+        List<VarianteDTO> sinStock = inventarioService.obtenerVariantesSinStock();
         
         alertas.put("stockBajo", stockBajo);
         alertas.put("sinStock", sinStock);
@@ -227,11 +206,7 @@ public class InventarioController {
 
     @GetMapping("/historial/{varianteId}")
     public ResponseEntity<List<MovimientoDTO>> obtenerHistorialVariante(@PathVariable Integer varianteId) {
-        List<MovimientoInventario> movimientos = inventarioService.obtenerHistorialVariante(varianteId);
-        List<MovimientoDTO> movimientosDTO = movimientos.stream()
-            .map(MovimientoDTO::new)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(movimientosDTO);
+        return ResponseEntity.ok(inventarioService.obtenerHistorialVariante(varianteId));
     }
 
     @GetMapping("/validar-stock/{varianteId}")
@@ -254,13 +229,7 @@ public class InventarioController {
         Map<String, Object> response = new HashMap<>();
         
         Long stockTotal = inventarioService.obtenerStockTotalProducto(productoId);
-        List<ProductoVariante> variantes = inventarioService.obtenerVariantesConStock();
-        
-        // Filtrar variantes del producto específico
-        List<VarianteDTO> variantesProducto = variantes.stream()
-            .filter(v -> v.getProducto().getId().equals(productoId))
-            .map(VarianteDTO::new)
-            .collect(Collectors.toList());
+        List<VarianteDTO> variantesProducto = inventarioService.obtenerVariantesConStock(productoId);
         
         response.put("productoId", productoId);
         response.put("stockTotal", stockTotal);
@@ -276,20 +245,22 @@ public class InventarioController {
         
         Map<String, Object> reporte = new HashMap<>();
         
-        List<MovimientoInventario> movimientos = inventarioService.listarMovimientosPorFechas(inicio, fin);
-        List<MovimientoInventario> entradas = inventarioService.listarEntradasEntreFechas(inicio, fin);
-        List<MovimientoInventario> salidas = inventarioService.listarSalidasEntreFechas(inicio, fin);
+        List<MovimientoDTO> movimientos = inventarioService.listarMovimientosPorFechas(inicio, fin);
         
-        // Calcular totales
-        int totalEntradas = entradas.stream().mapToInt(MovimientoInventario::getCantidad).sum();
-        int totalSalidas = salidas.stream().mapToInt(MovimientoInventario::getCantidad).sum();
+        // Calcular totales (entradas y salidas salen del mismo listado)
+        int totalEntradas = movimientos.stream()
+            .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.ENTRADA)
+            .mapToInt(MovimientoDTO::getCantidad).sum();
+        int totalSalidas = movimientos.stream()
+            .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.SALIDA)
+            .mapToInt(MovimientoDTO::getCantidad).sum();
         
         reporte.put("periodo", Map.of("inicio", inicio, "fin", fin));
         reporte.put("totalMovimientos", movimientos.size());
         reporte.put("totalEntradas", totalEntradas);
         reporte.put("totalSalidas", totalSalidas);
         reporte.put("diferencia", totalEntradas - totalSalidas);
-        reporte.put("movimientos", movimientos.stream().map(MovimientoDTO::new).collect(Collectors.toList()));
+        reporte.put("movimientos", movimientos);
         
         return ResponseEntity.ok(reporte);
     }
@@ -1,18 +1,26 @@
 package com.example.gams.controllers;
 
+import com.example.gams.dto.CursorMovimiento;
 import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.dto.TotalesMovimiento;
 import com.example.gams.entities.MovimientoInventario;
 import com.example.gams.services.MovimientoInventarioService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @RestController
@@ -21,8 +29,12 @@ public class MovimientoInventarioController {
 
     private final MovimientoInventarioService movimientoService;
 
+    private static final int TAMANO_MAXIMO_PAGINA = 200;
+
     /**
-     * Listar todos los movimientos con filtros combinables
+     * Historial con filtros combinables, paginado por keyset: devuelve una
+     * página (del más reciente al más antiguo), el total del filtro y el
+     * cursor de la página siguiente (null si no hay más)
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> listarMovimientos(
@@ -32,80 +44,82 @@ public class MovimientoInventarioController {
             @RequestParam(required = false) String tipo,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
-            @RequestParam(required = false, defaultValue = "false") Boolean hoy) {
+            @RequestParam(required = false, defaultValue = "false") Boolean hoy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
 
         try {
-            List<MovimientoInventario> movimientos;
-
-            // Empezar con todos los movimientos
-            movimientos = movimientoService.listarTodosMovimientos();
-
-            // Aplicar filtro por variante específica
-            if (varianteId != null) {
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getVariante() != null && m.getVariante().getId().equals(varianteId))
-                    .collect(Collectors.toList());
-            }
-
-            // Aplicar filtro por producto
-            if (productoId != null) {
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getVariante() != null && 
-                                 m.getVariante().getProducto().getId().equals(productoId))
-                    .collect(Collectors.toList());
-            }
-
-            // Aplicar filtro por usuario
-            if (usuarioId != null) {
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getUsuario().getId().equals(usuarioId))
-                    .collect(Collectors.toList());
-            }
-
-            // Aplicar filtro por tipo
-            if (tipo != null) {
-                MovimientoInventario.TipoMovimiento tipoMovimiento = 
-                    MovimientoInventario.TipoMovimiento.valueOf(tipo.toUpperCase());
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getTipo().equals(tipoMovimiento))
-                    .collect(Collectors.toList());
+            MovimientoInventario.TipoMovimiento tipoMovimiento = tipoMovimiento(tipo);
+            LocalDateTime desde = desde(hoy, fechaInicio, fechaFin);
+            LocalDateTime hasta = hasta(hoy, fechaInicio, fechaFin);
+            int limite = Math.min(Math.max(tamano, 1), TAMANO_MAXIMO_PAGINA);
+
+            // Se pide uno de más solo para saber si hay página siguiente
+            List<MovimientoDTO> movimientos = movimientoService.buscarMovimientosDesde(varianteId, productoId,
+                    usuarioId, tipoMovimiento, desde, hasta, CursorMovimiento.decodificar(cursor), limite + 1);
+            boolean hayMas = movimientos.size() > limite;
+            if (hayMas) {
+                movimientos = movimientos.subList(0, limite);
             }
 
-            // Aplicar filtro por fecha (hoy tiene prioridad)
-            if (hoy) {
-                LocalDateTime inicioDia = LocalDateTime.now().toLocalDate().atStartOfDay();
-                LocalDateTime finDia = inicioDia.plusDays(1);
-                final LocalDateTime finalInicioDia = inicioDia;
-                final LocalDateTime finalFinDia = finDia;
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getFecha().isAfter(finalInicioDia) && m.getFecha().isBefore(finalFinDia))
-                    .collect(Collectors.toList());
-            } else if (fechaInicio != null && fechaFin != null) {
-                final LocalDateTime finalFechaInicio = fechaInicio;
-                final LocalDateTime finalFechaFin = fechaFin;
-                movimientos = movimientos.stream()
-                    .filter(m -> m.getFecha().isAfter(finalFechaInicio) && m.getFecha().isBefore(finalFechaFin))
-                    .collect(Collectors.toList());
-            }
-
-            // Convertir a DTO
-            List<MovimientoDTO> movimientosDTO = movimientos.stream()
-                    .map(MovimientoDTO::new)
-                    .collect(Collectors.toList());
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("movimientos", movimientosDTO);
-            response.put("total", movimientosDTO.size());
+            response.put("movimientos", movimientos);
+            response.put("total", movimientoService.contarMovimientos(varianteId, productoId, usuarioId,
+                    tipoMovimiento, desde, hasta));
+            response.put("siguienteCursor", hayMas
+                    ? CursorMovimiento.despuesDe(movimientos.get(movimientos.size() - 1)).codificar()
+                    : null);
 
             return ResponseEntity.ok(response);
 
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
+            // Tipo o cursor inválidos
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
             error.put("message", "Error al listar movimientos: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Exportar a CSV todos los movimientos del filtro (mismos filtros que el
+     * listado). Se escribe a la respuesta por lotes, sin armar el archivo en
+     * memoria. Los filtros se validan antes de escribir nada: un tipo inválido
+     * responde 400 con el mensaje, como el listado
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<Map<String, Object>> exportarMovimientos(
+            @RequestParam(required = false) Integer varianteId,
+            @RequestParam(required = false) Integer productoId,
+            @RequestParam(required = false) Integer usuarioId,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(required = false, defaultValue = "false") Boolean hoy,
+            HttpServletResponse response) throws IOException {
+
+        MovimientoInventario.TipoMovimiento tipoMovimiento;
+        try {
+            tipoMovimiento = tipoMovimiento(tipo);
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Error al exportar movimientos: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         }
+
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("movimientos-" + LocalDate.now() + ".csv").build().toString());
+
+        Writer salida = response.getWriter();
+        salida.write('\uFEFF'); // BOM: Excel abre el archivo como UTF-8 (tildes y ñ)
+        movimientoService.exportarCsv(varianteId, productoId, usuarioId, tipoMovimiento,
+                desde(hoy, fechaInicio, fechaFin), hasta(hoy, fechaInicio, fechaFin), salida);
+        // El CSV ya está en la respuesta: sin cuerpo que agregar
+        return null;
     }
 
     /**
@@ -117,37 +131,26 @@ public class MovimientoInventarioController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
 
         try {
-            List<MovimientoInventario> movimientos;
-
-            if (fechaInicio != null && fechaFin != null) {
-                movimientos = movimientoService.listarMovimientosPorFechas(fechaInicio, fechaFin);
-            } else {
-                movimientos = movimientoService.listarMovimientosHoy();
-            }
-
-            // Calcular estadísticas
-            long totalEntradas = movimientos.stream()
-                    .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.ENTRADA)
-                    .count();
-
-            long totalSalidas = movimientos.stream()
-                    .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.SALIDA)
-                    .count();
-
-            long totalAjustes = movimientos.stream()
-                    .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.AJUSTE)
-                    .count();
-
-            long totalDevoluciones = movimientos.stream()
-                    .filter(m -> m.getTipo() == MovimientoInventario.TipoMovimiento.DEVOLUCION)
-                    .count();
+            // Agregados por tipo (resumen diario + extremos del rango), sin cargar
+            // movimientos. Sin rango completo: los del día
+            boolean hoy = fechaInicio == null || fechaFin == null;
+            Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> porTipo = movimientoService.resumirPorTipo(
+                    desde(hoy, fechaInicio, fechaFin), hasta(hoy, fechaInicio, fechaFin));
+            TotalesMovimiento entradas = porTipo.get(MovimientoInventario.TipoMovimiento.ENTRADA);
+            TotalesMovimiento salidas = porTipo.get(MovimientoInventario.TipoMovimiento.SALIDA);
+            TotalesMovimiento ajustes = porTipo.get(MovimientoInventario.TipoMovimiento.AJUSTE);
+            TotalesMovimiento devoluciones = porTipo.get(MovimientoInventario.TipoMovimiento.DEVOLUCION);
 
             Map<String, Object> estadisticas = new HashMap<>();
-            estadisticas.put("totalMovimientos", movimientos.size());
-            estadisticas.put("totalEntradas", totalEntradas);
-            estadisticas.put("totalSalidas", totalSalidas);
-            estadisticas.put("totalAjustes", totalAjustes);
-            estadisticas.put("totalDevoluciones", totalDevoluciones);
+            estadisticas.put("totalMovimientos", porTipo.values().stream().mapToLong(TotalesMovimiento::getMovimientos).sum());
+            estadisticas.put("totalEntradas", entradas.getMovimientos());
+            estadisticas.put("totalSalidas", salidas.getMovimientos());
+            estadisticas.put("totalAjustes", ajustes.getMovimientos());
+            estadisticas.put("totalDevoluciones", devoluciones.getMovimientos());
+            estadisticas.put("unidadesEntradas", entradas.getUnidades());
+            estadisticas.put("unidadesSalidas", salidas.getUnidades());
+            estadisticas.put("unidadesAjustes", ajustes.getUnidades());
+            estadisticas.put("unidadesDevoluciones", devoluciones.getUnidades());
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -162,4 +165,34 @@ public class MovimientoInventarioController {
             return ResponseEntity.internalServerError().body(error);
         }
     }
+
+    // ============================================
+    // UTILIDADES
+    // ============================================
+
+    private static MovimientoInventario.TipoMovimiento tipoMovimiento(String tipo) {
+        if (tipo == null || tipo.isBlank()) {
+            return null;
+        }
+        try {
+            return MovimientoInventario.TipoMovimiento.valueOf(tipo.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Tipo de movimiento inválido: " + tipo);
+        }
+    }
+
+    // Rango de fechas del filtro: hoy tiene prioridad sobre fechaInicio/fechaFin
+    private static LocalDateTime desde(Boolean hoy, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        if (Boolean.TRUE.equals(hoy)) {
+            return LocalDate.now().atStartOfDay();
+        }
+        return fechaInicio != null && fechaFin != null ? fechaInicio : null;
+    }
+
+    private static LocalDateTime hasta(Boolean hoy, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        if (Boolean.TRUE.equals(hoy)) {
+            return LocalDate.now().atStartOfDay().plusDays(1).minusNanos(1);
+        }
+        return fechaInicio != null && fechaFin != null ? fechaFin : null;
+    }
 }
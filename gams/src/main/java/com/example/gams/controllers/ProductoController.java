@@ -1,9 +1,13 @@
 package com.example.gams.controllers;
 
+import com.example.gams.dto.CursorProducto;
+import com.example.gams.dto.PaginaProductos;
 import com.example.gams.dto.ProductoDTO;
+import com.example.gams.dto.ResumenStockProducto;
 import com.example.gams.dto.VarianteDTO;
 import com.example.gams.entities.Producto;
 import com.example.gams.entities.ProductoVariante;
+import com.example.gams.services.EscanerVariantesService;
 import com.example.gams.services.ProductoService;
 import com.example.gams.services.MovimientoInventarioService;
 import lombok.RequiredArgsConstructor;
@@ -25,6 +29,9 @@ public class ProductoController {
 
     private final ProductoService productoService;
     private final MovimientoInventarioService movimientoService;
+    private final EscanerVariantesService escanerService;
+
+    private static final int TAMANO_MAXIMO_PAGINA = 100;
 
     // ============================================
     // PRODUCTOS
@@ -39,29 +46,67 @@ public class ProductoController {
 
         List<Producto> productos = productoService.filtrarProductos(buscar, categoriaId, marcaId, activo);
 
-        // Convertir a DTO con información adicional
-        List<ProductoDTO> productosDTO = productos.stream().map(producto -> {
-            ProductoDTO dto = new ProductoDTO(producto);
-            dto.setStockTotal(productoService.calcularStockTotalProducto(producto.getId()));
-            dto.setCantidadVariantes((int) productoService.contarVariantesPorProducto(producto.getId()));
-            dto.setVariantesConStockBajo((int) productoService.contarVariantesStockBajoPorProducto(producto.getId()));
-            dto.setVariantesSinStock((int) productoService.contarVariantesSinStockPorProducto(producto.getId()));
-            return dto;
-        }).collect(Collectors.toList());
+        // Convertir a DTO con las estadísticas de stock (una sola consulta para todos)
+        Map<Integer, ResumenStockProducto> stock = productoService.resumirStockPorProducto(
+                productos.stream().map(Producto::getId).collect(Collectors.toList()));
+        List<ProductoDTO> productosDTO = productos.stream()
+                .map(producto -> new ProductoDTO(producto, stock.get(producto.getId())))
+                .collect(Collectors.toList());
 
         return ResponseEntity.ok(productosDTO);
     }
 
+    /**
+     * Catálogo paginado por keyset (nombre, id): devuelve una página de
+     * productos y el cursor de la siguiente (null si no hay más). El costo de
+     * cada página no depende del tamaño del catálogo ni de la página pedida.
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<Map<String, Object>> listarProductosPaginado(
+            @RequestParam(required = false) Boolean activo,
+            @RequestParam(required = false) Integer categoriaId,
+            @RequestParam(required = false) Integer marcaId,
+            @RequestParam(required = false) String buscar,
+            @RequestParam(defaultValue = "false") boolean soloConVariantes,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "40") int tamano) {
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int limite = Math.min(Math.max(tamano, 1), TAMANO_MAXIMO_PAGINA);
+
+            // Se pide uno de más solo para saber si hay página siguiente
+            PaginaProductos pagina = productoService.filtrarProductosDesde(buscar, categoriaId, marcaId, activo,
+                    soloConVariantes, CursorProducto.decodificar(cursor), limite + 1);
+            List<Producto> productos = pagina.getProductos();
+            boolean hayMas = productos.size() > limite;
+            if (hayMas) {
+                productos = productos.subList(0, limite);
+            }
+
+            Map<Integer, ResumenStockProducto> stock = productoService.resumirStockPorProducto(
+                    productos.stream().map(Producto::getId).collect(Collectors.toList()));
+            response.put("productos", productos.stream()
+                    .map(producto -> new ProductoDTO(producto, stock.get(producto.getId())))
+                    .collect(Collectors.toList()));
+            response.put("siguienteCursor", hayMas
+                    ? pagina.cursorDespuesDe(productos.get(productos.size() - 1)).codificar()
+                    : null);
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductoDTO> obtenerProducto(@PathVariable @NonNull Integer id) {
         Optional<Producto> producto = productoService.buscarProductoPorId(id);
         if (producto.isPresent()) {
-            ProductoDTO dto = new ProductoDTO(producto.get());
-            dto.setStockTotal(productoService.calcularStockTotalProducto(id));
-            dto.setCantidadVariantes((int) productoService.contarVariantesPorProducto(id));
-            dto.setVariantesConStockBajo((int) productoService.contarVariantesStockBajoPorProducto(id));
-            dto.setVariantesSinStock((int) productoService.contarVariantesSinStockPorProducto(id));
-            return ResponseEntity.ok(dto);
+            ResumenStockProducto stock = productoService.resumirStockPorProducto(List.of(id)).get(id);
+            return ResponseEntity.ok(new ProductoDTO(producto.get(), stock));
         }
         return ResponseEntity.notFound().build();
     }
@@ -202,11 +247,7 @@ public class ProductoController {
 
     @GetMapping("/{productoId}/variantes")
     public ResponseEntity<List<VarianteDTO>> listarVariantesDeProducto(@PathVariable @NonNull Integer productoId) {
-        List<ProductoVariante> variantes = productoService.buscarVariantesPorProducto(productoId);
-        List<VarianteDTO> variantesDTO = variantes.stream()
-                .map(VarianteDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(variantesDTO);
+        return ResponseEntity.ok(productoService.buscarVariantesPorProducto(productoId));
     }
 
     @GetMapping("/variantes")
@@ -217,7 +258,7 @@ public class ProductoController {
             @RequestParam(required = false) Integer colorId,
             @RequestParam(required = false) Integer tallaId) {
 
-        List<ProductoVariante> variantes;
+        List<VarianteDTO> variantes;
 
         if (bajoStock != null && bajoStock) {
             variantes = productoService.buscarVariantesConStockBajo();
@@ -233,11 +274,7 @@ public class ProductoController {
             variantes = productoService.listarVariantes();
         }
 
-        List<VarianteDTO> variantesDTO = variantes.stream()
-                .map(VarianteDTO::new)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(variantesDTO);
+        return ResponseEntity.ok(variantes);
     }
 
     @GetMapping("/variantes/{id}")
@@ -261,10 +298,16 @@ public class ProductoController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Flujo del escáner (POS e inventario): solo variantes ACTIVAS, como
+     * siempre; una variante desactivada responde 404 igual que un código que
+     * no existe. Para verla se busca su producto en el listado.
+     */
     @GetMapping("/variantes/buscar/{codigo}")
     public ResponseEntity<VarianteDTO> buscarVariantePorCodigo(@PathVariable String codigo) {
-        Optional<ProductoVariante> variante = productoService.buscarVariantePorSkuOCodigoBarras(codigo);
-        return variante.map(v -> ResponseEntity.ok(new VarianteDTO(v)))
+        // Ficha en memoria + stock leído al momento
+        return escanerService.buscar(codigo)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -410,11 +453,8 @@ public class ProductoController {
     public ResponseEntity<Map<String, Object>> obtenerAlertasStock() {
         Map<String, Object> alertas = new HashMap<>();
 
-        List<VarianteDTO> stockBajo = productoService.buscarVariantesConStockBajo()
-                .stream().map(VarianteDTO::new).collect(Collectors.toList());
-
-        List<VarianteDTO> sinStock = productoService.buscarVariantesSinStock()
-                .stream().map(VarianteDTO::new).collect(Collectors.toList());
+        List<VarianteDTO> stockBajo = productoService.buscarVariantesConStockBajo();
+        List<VarianteDTO> sinStock = productoService.buscarVariantesSinStock();
 
         alertas.put("stockBajo", stockBajo);
         alertas.put("sinStock", sinStock);
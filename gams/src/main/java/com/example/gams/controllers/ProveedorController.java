@@ -1,8 +1,10 @@
 package com.example.gams.controllers;
 
 import com.example.gams.entities.Proveedor;
+import com.example.gams.services.CacheCatalogos;
 import com.example.gams.services.ProveedorService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
@@ -20,10 +22,12 @@ public class ProveedorController {
 
     @GetMapping
     public ResponseEntity<List<Proveedor>> listarProveedores(@RequestParam(required = false) Boolean activo) {
-        List<Proveedor> proveedores = activo != null && activo ?
-            proveedorService.listarProveedoresActivosOrdenados() :
-            proveedorService.listarProveedores();
-        return ResponseEntity.ok(proveedores);
+        // Lista cacheada con ETag: una recarga sin cambios responde 304 (ver CacheCatalogos)
+        CacheCatalogos.Lista<Proveedor> lista = proveedorService.listaProveedores(Boolean.TRUE.equals(activo));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(lista.getEtag())
+                .body(lista.getDatos());
     }
 
     @GetMapping("/{id}")
@@ -5,6 +5,7 @@ import com.example.gams.entities.Usuario;
 import com.example.gams.repositories.RolRepository;
 import com.example.gams.repositories.RostroBiometricoRepository;
 import com.example.gams.repositories.UsuarioRepository;
+import com.example.gams.services.ReconocimientoFacialService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +27,7 @@ public class UsuarioController {
     private final RolRepository rolRepository;
     private final RostroBiometricoRepository rostroBiometricoRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ReconocimientoFacialService reconocimiento;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> listarUsuarios() {
@@ -333,7 +335,11 @@ public class UsuarioController {
                 return ResponseEntity.notFound().build();
             }
             
+            // Sus fotos biométricas también: si no, el login facial lo seguiría reconociendo
+            String username = usuarioOpt.get().getUsername();
+            rostroBiometricoRepository.deleteAll(rostroBiometricoRepository.findByUsername(username));
             usuarioRepository.deleteById(id);
+            reconocimiento.usuarioEliminado(username);
             
             response.put("success", true);
             response.put("message", "Usuario eliminado exitosamente");
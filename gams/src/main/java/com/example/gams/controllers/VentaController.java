@@ -5,7 +5,6 @@ import com.example.gams.dto.VentaResponseDTO;
 import com.example.gams.entities.Venta;
 import com.example.gams.services.VentaService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -16,9 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @RestController
@@ -28,26 +25,19 @@ public class VentaController {
     private final VentaService ventaService;
 
     /**
-     * Registrar una venta desde el POS
+     * Registrar una venta desde el POS. Con la cabecera Idempotency-Key, un
+     * reintento con la misma clave devuelve la venta original
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> registrarVenta(@RequestBody VentaDTO dto) {
+    public ResponseEntity<Map<String, Object>> registrarVenta(
+            @RequestBody VentaDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
         Map<String, Object> response = new HashMap<>();
         try {
-            // Dos cobros exactamente simultáneos pueden generar el mismo correlativo;
-            // el UNIQUE de la BD rechaza al segundo y aquí se reintenta (cada intento
-            // es una transacción nueva que regenera el código)
-            Venta venta = null;
-            for (int intento = 1; venta == null; intento++) {
-                try {
-                    venta = ventaService.registrarVenta(dto);
-                } catch (DataIntegrityViolationException e) {
-                    if (intento >= 3) {
-                        throw new RuntimeException(
-                                "No se pudo generar el comprobante por alta concurrencia, intenta de nuevo");
-                    }
-                }
+            if (claveIdempotencia != null && (claveIdempotencia.isBlank() || claveIdempotencia.length() > 100)) {
+                throw new RuntimeException("Idempotency-Key inválida (máximo 100 caracteres)");
             }
+            Venta venta = ventaService.registrarVenta(dto, claveIdempotencia);
 
             response.put("success", true);
             response.put("message", "Venta " + venta.getCodigo() + " registrada correctamente");
@@ -92,14 +82,11 @@ public class VentaController {
                     ? Venta.EstadoVenta.valueOf(estado.toUpperCase())
                     : null;
 
-            Page<Venta> pagina = ventaService.listarPaginado(desde, hasta, vendedorId, estadoVenta, page, size);
-
-            List<VentaResponseDTO> ventasDTO = pagina.getContent().stream()
-                    .map(VentaResponseDTO::new)
-                    .collect(Collectors.toList());
+            Page<VentaResponseDTO> pagina = ventaService.listarPaginado(desde, hasta, vendedorId, estadoVenta,
+                    page, size);
 
             response.put("success", true);
-            response.put("ventas", ventasDTO);
+            response.put("ventas", pagina.getContent());
             response.put("total", pagina.getTotalElements());
             response.put("page", pagina.getNumber());
             response.put("totalPages", pagina.getTotalPages());
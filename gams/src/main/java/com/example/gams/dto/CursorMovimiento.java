@@ -0,0 +1,57 @@
+package com.example.gams.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en el historial de movimientos paginado por keyset: la última
+ * (fecha, id) de la página anterior, del más reciente al más antiguo. Viaja al
+ * cliente como un token opaco (Base64 URL de "id:fecha").
+ */
+public class CursorMovimiento {
+
+    private final LocalDateTime fecha;
+    private final Integer id;
+
+    // Constructores
+    public CursorMovimiento(LocalDateTime fecha, Integer id) {
+        this.fecha = fecha;
+        this.id = id;
+    }
+
+    public static CursorMovimiento despuesDe(MovimientoDTO movimiento) {
+        return new CursorMovimiento(movimiento.getFecha(), movimiento.getId());
+    }
+
+    /** Token para el cliente */
+    public String codificar() {
+        String valor = id + ":" + fecha;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Cursor desde el token del cliente; null si no envió ninguno (primera página) */
+    public static CursorMovimiento decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(':');
+            return new CursorMovimiento(LocalDateTime.parse(valor.substring(separador + 1)),
+                    Integer.valueOf(valor.substring(0, separador)));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new RuntimeException("Cursor de página inválido");
+        }
+    }
+
+    // Getters
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.gams.dto;
+
+import com.example.gams.entities.Producto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición en el catálogo paginado por keyset: el último (nombre, id) de la
+ * página anterior y el camino que la resolvió (índice en memoria o BD). Viaja
+ * al cliente como un token opaco (Base64 URL de "I:id:nombre" o "B:id:nombre")
+ * que este devuelve tal cual para pedir la página siguiente.
+ *
+ * El índice ordena por el nombre sin tildes ni mayúsculas y la BD por su
+ * collation: el mismo (nombre, id) no cae en el mismo lugar de los dos
+ * órdenes, así que la página siguiente debe salir del mismo camino.
+ */
+public class CursorProducto {
+
+    private static final String INDICE = "I";
+    private static final String BD = "B";
+
+    private final String nombre;
+    private final Integer id;
+    private final boolean delIndice;
+
+    // Constructores
+    public CursorProducto(String nombre, Integer id, boolean delIndice) {
+        this.nombre = nombre;
+        this.id = id;
+        this.delIndice = delIndice;
+    }
+
+    public static CursorProducto despuesDe(Producto producto, boolean delIndice) {
+        return new CursorProducto(producto.getNombre(), producto.getId(), delIndice);
+    }
+
+    /** Token para el cliente */
+    public String codificar() {
+        String valor = (delIndice ? INDICE : BD) + ":" + id + ":" + nombre;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Cursor desde el token del cliente; null si no envió ninguno (primera página) */
+    public static CursorProducto decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] partes = valor.split(":", 3);
+            if (partes.length < 3 || !(partes[0].equals(INDICE) || partes[0].equals(BD))) {
+                throw new IllegalArgumentException(token);
+            }
+            return new CursorProducto(partes[2], Integer.valueOf(partes[1]), partes[0].equals(INDICE));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor de página inválido");
+        }
+    }
+
+    // Getters
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public boolean isDelIndice() {
+        return delIndice;
+    }
+}
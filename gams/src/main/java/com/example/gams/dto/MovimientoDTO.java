@@ -1,6 +1,7 @@
 package com.example.gams.dto;
 
 import com.example.gams.entities.MovimientoInventario;
+import com.example.gams.entities.Usuario;
 import java.time.LocalDateTime;
 
 public class MovimientoDTO {
@@ -55,6 +56,32 @@ public class MovimientoDTO {
             this.tallaNombre = movimiento.getTallaNombre();
         }
     }
+
+    /**
+     * Proyección directa desde JPQL (SELECT new ...). La consulta ya resuelve
+     * SKU y nombres: los de la variante si existe, si no los desnormalizados
+     */
+    public MovimientoDTO(Integer id, Integer varianteId, String varianteSku, String productoNombre,
+                         String colorNombre, String tallaNombre, MovimientoInventario.TipoMovimiento tipo,
+                         Integer cantidad, Integer stockAnterior, Integer stockNuevo, String motivo,
+                         String referencia, Integer usuarioId, String usuarioNombre,
+                         String usuarioApellidoPaterno, String usuarioApellidoMaterno, LocalDateTime fecha) {
+        this.id = id;
+        this.varianteId = varianteId;
+        this.varianteSku = varianteSku;
+        this.productoNombre = productoNombre;
+        this.colorNombre = colorNombre;
+        this.tallaNombre = tallaNombre;
+        this.tipo = tipo;
+        this.cantidad = cantidad;
+        this.stockAnterior = stockAnterior;
+        this.stockNuevo = stockNuevo;
+        this.motivo = motivo;
+        this.referencia = referencia;
+        this.usuarioId = usuarioId;
+        this.usuarioNombre = Usuario.nombreCompleto(usuarioNombre, usuarioApellidoPaterno, usuarioApellidoMaterno);
+        this.fecha = fecha;
+    }
     
     // Getters y Setters
     public Integer getId() {
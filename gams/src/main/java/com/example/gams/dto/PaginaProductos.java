@@ -0,0 +1,35 @@
+package com.example.gams.dto;
+
+import com.example.gams.entities.Producto;
+
+import java.util.List;
+
+/**
+ * Una página del catálogo y el camino que la resolvió: el índice en memoria
+ * (BuscadorProductosService) o la BD. El cursor de la página siguiente lo
+ * recuerda para seguir por el mismo (ver CursorProducto).
+ */
+public class PaginaProductos {
+
+    private final List<Producto> productos;
+    private final boolean delIndice;
+
+    public PaginaProductos(List<Producto> productos, boolean delIndice) {
+        this.productos = productos;
+        this.delIndice = delIndice;
+    }
+
+    /** Cursor para pedir lo que sigue después del producto */
+    public CursorProducto cursorDespuesDe(Producto producto) {
+        return CursorProducto.despuesDe(producto, delIndice);
+    }
+
+    // Getters
+    public List<Producto> getProductos() {
+        return productos;
+    }
+
+    public boolean isDelIndice() {
+        return delIndice;
+    }
+}
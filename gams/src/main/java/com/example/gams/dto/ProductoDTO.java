@@ -69,6 +69,15 @@ public class ProductoDTO {
             this.proveedorNombre = producto.getProveedor().getNombre();
         }
     }
+
+    // Constructor desde entidad con sus estadísticas de stock (null = sin variantes activas)
+    public ProductoDTO(Producto producto, ResumenStockProducto stock) {
+        this(producto);
+        this.stockTotal = stock != null ? stock.getStockTotal() : 0L;
+        this.cantidadVariantes = stock != null ? stock.getCantidadVariantes().intValue() : 0;
+        this.variantesConStockBajo = stock != null ? stock.getVariantesConStockBajo().intValue() : 0;
+        this.variantesSinStock = stock != null ? stock.getVariantesSinStock().intValue() : 0;
+    }
     
     // Getters y Setters
     public Integer getId() {
@@ -0,0 +1,18 @@
+package com.example.gams.dto;
+
+/**
+ * Estadísticas de stock de un producto sobre sus variantes activas, calculadas
+ * en una sola consulta agrupada (ver ProductoVarianteRepository.resumirStockPorProducto)
+ */
+public interface ResumenStockProducto {
+
+    Integer getProductoId();
+
+    Long getStockTotal();
+
+    Long getCantidadVariantes();
+
+    Long getVariantesConStockBajo();
+
+    Long getVariantesSinStock();
+}
@@ -0,0 +1,26 @@
+package com.example.gams.dto;
+
+/**
+ * Cantidad de movimientos de un tipo y la suma de sus unidades, para las
+ * estadísticas del historial
+ */
+public class TotalesMovimiento {
+
+    private long movimientos;
+    private long unidades;
+
+    // Acumular un tramo del rango (resumen diario o movimientos sueltos)
+    public void sumar(long movimientos, long unidades) {
+        this.movimientos += movimientos;
+        this.unidades += unidades;
+    }
+
+    // Getters
+    public long getMovimientos() {
+        return movimientos;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+}
@@ -61,6 +61,42 @@ public class VarianteDTO {
         this.bajoStock = variante.esBajoStock();
         this.sinStock = !variante.tieneStock();
     }
+
+    /**
+     * Proyección directa desde JPQL (SELECT new ...): los listados arman el DTO
+     * con las columnas que necesitan, sin cargar la variante ni sus asociaciones
+     */
+    public VarianteDTO(Integer id, Integer productoId, String productoCodigo, String productoNombre,
+                       String categoriaNombre, String marcaNombre, Integer colorId, String colorNombre,
+                       String colorCodigoHex, Integer tallaId, String tallaNombre, String sku,
+                       String codigoBarras, String ubicacion, Integer stockActual, Integer stockMinimo,
+                       Integer stockMaximo, Boolean activo, LocalDateTime fechaCreacion,
+                       LocalDateTime fechaActualizacion, BigDecimal precioVenta, BigDecimal precioCompra) {
+        this.id = id;
+        this.productoId = productoId;
+        this.productoCodigo = productoCodigo;
+        this.productoNombre = productoNombre;
+        this.categoriaNombre = categoriaNombre;
+        this.marcaNombre = marcaNombre;
+        this.colorId = colorId;
+        this.colorNombre = colorNombre;
+        this.colorCodigoHex = colorCodigoHex;
+        this.tallaId = tallaId;
+        this.tallaNombre = tallaNombre;
+        this.sku = sku;
+        this.codigoBarras = codigoBarras;
+        this.ubicacion = ubicacion;
+        this.stockActual = stockActual;
+        this.stockMinimo = stockMinimo;
+        this.stockMaximo = stockMaximo;
+        this.activo = activo;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaActualizacion = fechaActualizacion;
+        this.precioVenta = precioVenta;
+        this.precioCompra = precioCompra;
+        this.bajoStock = stockActual != null && stockMinimo != null && stockActual <= stockMinimo;
+        this.sinStock = stockActual == null || stockActual <= 0;
+    }
     
     // Getters y Setters
     public Integer getId() {
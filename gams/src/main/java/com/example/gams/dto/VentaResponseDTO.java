@@ -1,10 +1,13 @@
 package com.example.gams.dto;
 
 import com.example.gams.entities.DetalleVenta;
+import com.example.gams.entities.Usuario;
 import com.example.gams.entities.Venta;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,6 +39,7 @@ public class VentaResponseDTO {
     private List<DetalleDTO> detalles;
 
     public static class DetalleDTO {
+        private Integer ventaId;
         private Integer varianteId;
         private String sku;
         private String descripcion;
@@ -52,6 +56,25 @@ public class VentaResponseDTO {
             this.subtotal = detalle.getSubtotal();
         }
 
+        // Proyección desde JPQL (DetalleVentaRepository.findDTOByVentaIds)
+        public DetalleDTO(Integer ventaId, Integer varianteId, String sku, String productoNombre,
+                          String colorNombre, String tallaNombre, Integer cantidad,
+                          BigDecimal precioUnitario, BigDecimal subtotal) {
+            this.ventaId = ventaId;
+            this.varianteId = varianteId;
+            this.sku = sku;
+            this.descripcion = DetalleVenta.descripcion(productoNombre, colorNombre, tallaNombre);
+            this.cantidad = cantidad;
+            this.precioUnitario = precioUnitario;
+            this.subtotal = subtotal;
+        }
+
+        // Solo para agrupar las líneas de una página por venta; no va al frontend
+        @JsonIgnore
+        public Integer getVentaId() {
+            return ventaId;
+        }
+
         public Integer getVarianteId() {
             return varianteId;
         }
@@ -103,6 +126,44 @@ public class VentaResponseDTO {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Proyección desde JPQL (VentaRepository.buscarVentasDTO): la cabecera con
+     * los nombres ya resueltos. Los detalles se asignan después con setDetalles
+     */
+    public VentaResponseDTO(Integer id, String codigo, LocalDateTime fecha,
+                            String vendedorNombre, String vendedorApellidoPaterno, String vendedorApellidoMaterno,
+                            String clienteNombre, String clienteDocumento,
+                            Venta.EstadoVenta estado, Venta.MetodoPago metodoPago,
+                            BigDecimal subtotal, BigDecimal descuento, BigDecimal total,
+                            BigDecimal montoRecibido, BigDecimal vuelto,
+                            String observaciones, LocalDateTime fechaAnulacion,
+                            String anulacionNombre, String anulacionApellidoPaterno,
+                            String anulacionApellidoMaterno, String motivoAnulacion) {
+        this.id = id;
+        this.codigo = codigo;
+        this.fecha = fecha;
+        this.vendedor = vendedorNombre != null
+                ? Usuario.nombreCompleto(vendedorNombre, vendedorApellidoPaterno, vendedorApellidoMaterno) : null;
+        this.cliente = clienteNombre != null ? clienteNombre : Venta.CLIENTE_VARIOS;
+        this.clienteDocumento = clienteDocumento;
+        this.estado = estado.name();
+        this.metodoPago = metodoPago.name();
+        this.subtotal = subtotal;
+        this.descuento = descuento;
+        this.total = total;
+        this.montoRecibido = montoRecibido;
+        this.vuelto = vuelto;
+        // Calculados en Venta, no son columnas
+        this.operacionGravada = Venta.operacionGravada(total);
+        this.igv = Venta.igv(total);
+        this.observaciones = observaciones;
+        this.fechaAnulacion = fechaAnulacion;
+        this.usuarioAnulacion = anulacionNombre != null
+                ? Usuario.nombreCompleto(anulacionNombre, anulacionApellidoPaterno, anulacionApellidoMaterno) : null;
+        this.motivoAnulacion = motivoAnulacion;
+        this.detalles = new ArrayList<>();
+    }
+
     // Getters
     public Integer getId() {
         return id;
@@ -183,4 +244,8 @@ public class VentaResponseDTO {
     public List<DetalleDTO> getDetalles() {
         return detalles;
     }
+
+    public void setDetalles(List<DetalleDTO> detalles) {
+        this.detalles = detalles;
+    }
 }
\ No newline at end of file
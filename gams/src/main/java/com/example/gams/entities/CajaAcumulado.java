@@ -0,0 +1,122 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Una franja de los acumulados de la caja abierta. Los acumulados del turno
+ * se reparten en FRANJAS filas por sesión y cada venta suma en una al azar,
+ * dentro de su transacción: así son exactos en todo momento (confirman o se
+ * revierten junto con la venta) sin que todas las ventas hagan fila detrás de
+ * la misma fila bloqueada. Los totales del turno son la suma de sus franjas.
+ *
+ * Las franjas existen solo mientras la caja está abierta: el cierre las suma,
+ * congela el resultado en la sesión y las borra.
+ */
+@Entity
+@Table(name = "cajas_acumulados",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "caja_id", "franja" }))
+public class CajaAcumulado {
+
+    // Franjas por sesión: más que las ventas que pueden estar a la vez en su
+    // transacción (ver TurnosVentaService), para que casi nunca coincidan
+    public static final int FRANJAS = 16;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "caja_id", nullable = false)
+    private Integer cajaId;
+
+    @Column(nullable = false)
+    private Integer franja;
+
+    @Column(name = "ventas_cantidad", nullable = false)
+    private Integer ventasCantidad = 0;
+
+    @Column(name = "ventas_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTotal = BigDecimal.ZERO;
+
+    @Column(name = "ventas_efectivo", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasEfectivo = BigDecimal.ZERO;
+
+    @Column(name = "ventas_tarjeta", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTarjeta = BigDecimal.ZERO;
+
+    @Column(name = "ventas_yape", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasYape = BigDecimal.ZERO;
+
+    @Column(name = "ventas_plin", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasPlin = BigDecimal.ZERO;
+
+    @Column(name = "ventas_transferencia", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTransferencia = BigDecimal.ZERO;
+
+    /** Las franjas en cero de una sesión recién abierta */
+    public static List<CajaAcumulado> franjasDe(CajaSesion caja) {
+        List<CajaAcumulado> franjas = new ArrayList<>(FRANJAS);
+        for (int i = 0; i < FRANJAS; i++) {
+            CajaAcumulado franja = new CajaAcumulado();
+            franja.cajaId = caja.getId();
+            franja.franja = i;
+            franjas.add(franja);
+        }
+        return franjas;
+    }
+
+    // Acumulado de la franja para un método de pago
+    public BigDecimal ventasPorMetodo(Venta.MetodoPago metodo) {
+        return switch (metodo) {
+            case EFECTIVO -> ventasEfectivo;
+            case TARJETA -> ventasTarjeta;
+            case YAPE -> ventasYape;
+            case PLIN -> ventasPlin;
+            case TRANSFERENCIA -> ventasTransferencia;
+        };
+    }
+
+    public void setVentasPorMetodo(Venta.MetodoPago metodo, BigDecimal monto) {
+        switch (metodo) {
+            case EFECTIVO -> ventasEfectivo = monto;
+            case TARJETA -> ventasTarjeta = monto;
+            case YAPE -> ventasYape = monto;
+            case PLIN -> ventasPlin = monto;
+            case TRANSFERENCIA -> ventasTransferencia = monto;
+        }
+    }
+
+    // Constructores
+    public CajaAcumulado() {}
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getCajaId() {
+        return cajaId;
+    }
+
+    public Integer getFranja() {
+        return franja;
+    }
+
+    public Integer getVentasCantidad() {
+        return ventasCantidad;
+    }
+
+    public void setVentasCantidad(Integer ventasCantidad) {
+        this.ventasCantidad = ventasCantidad;
+    }
+
+    public BigDecimal getVentasTotal() {
+        return ventasTotal;
+    }
+
+    public void setVentasTotal(BigDecimal ventasTotal) {
+        this.ventasTotal = ventasTotal;
+    }
+}
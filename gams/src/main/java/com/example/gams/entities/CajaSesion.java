@@ -17,7 +17,7 @@ public class CajaSesion {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_apertura_id", nullable = false)
     private Usuario usuarioApertura;
 
@@ -32,7 +32,7 @@ public class CajaSesion {
     @Column(nullable = false, length = 20)
     private EstadoCaja estado = EstadoCaja.ABIERTA;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_cierre_id")
     private Usuario usuarioCierre;
 
@@ -61,6 +61,30 @@ public class CajaSesion {
     @Column(columnDefinition = "TEXT")
     private String observaciones;
 
+    // Acumulados del turno (ventas COMPLETADAS), congelados al cerrar. Con la
+    // caja abierta viven repartidos en sus franjas (CajaAcumulado), que cada
+    // venta y cada anulación actualizan en su misma transacción
+    @Column(name = "ventas_cantidad", nullable = false)
+    private Integer ventasCantidad = 0;
+
+    @Column(name = "ventas_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTotal = BigDecimal.ZERO;
+
+    @Column(name = "ventas_efectivo", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasEfectivo = BigDecimal.ZERO;
+
+    @Column(name = "ventas_tarjeta", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTarjeta = BigDecimal.ZERO;
+
+    @Column(name = "ventas_yape", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasYape = BigDecimal.ZERO;
+
+    @Column(name = "ventas_plin", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasPlin = BigDecimal.ZERO;
+
+    @Column(name = "ventas_transferencia", nullable = false, precision = 12, scale = 2)
+    private BigDecimal ventasTransferencia = BigDecimal.ZERO;
+
     public enum EstadoCaja {
         ABIERTA,
         CERRADA
@@ -77,6 +101,27 @@ public class CajaSesion {
         return estado == EstadoCaja.ABIERTA;
     }
 
+    // Acumulado del turno para un método de pago
+    public BigDecimal ventasPorMetodo(Venta.MetodoPago metodo) {
+        return switch (metodo) {
+            case EFECTIVO -> ventasEfectivo;
+            case TARJETA -> ventasTarjeta;
+            case YAPE -> ventasYape;
+            case PLIN -> ventasPlin;
+            case TRANSFERENCIA -> ventasTransferencia;
+        };
+    }
+
+    public void setVentasPorMetodo(Venta.MetodoPago metodo, BigDecimal monto) {
+        switch (metodo) {
+            case EFECTIVO -> ventasEfectivo = monto;
+            case TARJETA -> ventasTarjeta = monto;
+            case YAPE -> ventasYape = monto;
+            case PLIN -> ventasPlin = monto;
+            case TRANSFERENCIA -> ventasTransferencia = monto;
+        }
+    }
+
     // Constructores
     public CajaSesion() {
     }
@@ -190,4 +235,40 @@ public class CajaSesion {
     public void setObservaciones(String observaciones) {
         this.observaciones = observaciones;
     }
-}
\ No newline at end of file
+
+    public Integer getVentasCantidad() {
+        return ventasCantidad;
+    }
+
+    public void setVentasCantidad(Integer ventasCantidad) {
+        this.ventasCantidad = ventasCantidad;
+    }
+
+    public BigDecimal getVentasTotal() {
+        return ventasTotal;
+    }
+
+    public void setVentasTotal(BigDecimal ventasTotal) {
+        this.ventasTotal = ventasTotal;
+    }
+
+    public BigDecimal getVentasEfectivo() {
+        return ventasEfectivo;
+    }
+
+    public BigDecimal getVentasTarjeta() {
+        return ventasTarjeta;
+    }
+
+    public BigDecimal getVentasYape() {
+        return ventasYape;
+    }
+
+    public BigDecimal getVentasPlin() {
+        return ventasPlin;
+    }
+
+    public BigDecimal getVentasTransferencia() {
+        return ventasTransferencia;
+    }
+}
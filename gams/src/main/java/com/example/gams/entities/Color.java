@@ -1,9 +1,11 @@
 package com.example.gams.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "colores")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Color {
     
     @Id
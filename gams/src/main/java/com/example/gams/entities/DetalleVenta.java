@@ -7,8 +7,10 @@ import java.math.BigDecimal;
 @Table(name = "detalles_venta")
 public class DetalleVenta {
 
+    // Ids por bloques desde la tabla secuencias_id (no IDENTITY): así Hibernate
+    // puede agrupar los INSERT de una venta en un solo batch JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdPorBloques(tabla = "detalles_venta")
     private Integer id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -16,7 +18,7 @@ public class DetalleVenta {
     private Venta venta;
 
     // Permitir NULL para conservar el historial si se elimina la variante
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "variante_id", nullable = true)
     private ProductoVariante variante;
 
@@ -69,6 +71,10 @@ public class DetalleVenta {
     // Descripción legible de la línea, ej. "Polo Básico (Rojo / M)"
     @Transient
     public String getDescripcion() {
+        return descripcion(productoNombre, colorNombre, tallaNombre);
+    }
+
+    public static String descripcion(String productoNombre, String colorNombre, String tallaNombre) {
         StringBuilder sb = new StringBuilder(productoNombre != null ? productoNombre : "");
         if (colorNombre != null || tallaNombre != null) {
             sb.append(" (");
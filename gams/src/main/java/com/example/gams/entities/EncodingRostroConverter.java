@@ -0,0 +1,55 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encoding de un rostro (128 floats) en la columna binaria
+ * rostros_biometricos.encoding: un byte de versión y luego los floats en
+ * float32 little-endian (513 bytes; como JSON eran unos 2.5 KB y había que
+ * parsearlos en cada lectura). El servicio Python escribe el mismo formato.
+ */
+@Converter
+public class EncodingRostroConverter implements AttributeConverter<float[], byte[]> {
+
+    public static final int DIMENSION = 128;
+
+    // Versión 1: 128 x float32 little-endian
+    public static final byte VERSION_FLOAT32 = 1;
+
+    public static final int BYTES = 1 + DIMENSION * Float.BYTES;
+
+    @Override
+    public byte[] convertToDatabaseColumn(float[] encoding) {
+        return encoding == null ? null : codificar(encoding);
+    }
+
+    @Override
+    public float[] convertToEntityAttribute(byte[] columna) {
+        return columna == null ? null : decodificar(columna);
+    }
+
+    public static byte[] codificar(float[] encoding) {
+        if (encoding.length != DIMENSION) {
+            throw new IllegalArgumentException("El encoding del rostro debe tener " + DIMENSION + " valores");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.put(VERSION_FLOAT32);
+        bytes.asFloatBuffer().put(encoding);
+        return bytes.array();
+    }
+
+    public static float[] decodificar(byte[] columna) {
+        if (columna.length != BYTES || columna[0] != VERSION_FLOAT32) {
+            throw new IllegalArgumentException("Encoding de rostro con formato desconocido (" + columna.length
+                    + " bytes, versión " + (columna.length > 0 ? columna[0] : "-") + ")");
+        }
+        float[] encoding = new float[DIMENSION];
+        ByteBuffer.wrap(columna, 1, DIMENSION * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer().get(encoding);
+        return encoding;
+    }
+}
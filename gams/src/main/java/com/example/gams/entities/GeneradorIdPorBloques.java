@@ -0,0 +1,119 @@
+package com.example.gams.entities;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.IdentifierGenerator;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Genera los ids de {@link IdPorBloques}: cada nodo reserva en secuencias_id
+ * un bloque de ids en una transacción propia y corta, y luego los reparte
+ * desde memoria.
+ *
+ * La reserva NO usa el pool de la aplicación. Con @TableGenerator, Hibernate
+ * la hacía en una segunda conexión del mismo pool mientras la venta tenía la
+ * suya abierta con las variantes bloqueadas: con todas las conexiones en manos
+ * de ventas (o ajustes de inventario) esperando un bloque, nadie avanzaba.
+ * Aquí va por un DataSource chico y aparte (ver config.ConexionesIds), así que
+ * una escritura nunca ocupa más de una conexión del pool principal.
+ *
+ * La fila guarda lo mismo que con el optimizador "pooled" de @TableGenerator
+ * (ver V3__secuencias_id.sql): el valor leído es el último id del bloque.
+ */
+public class GeneradorIdPorBloques implements IdentifierGenerator, AnnotationBasedGenerator<IdPorBloques> {
+
+    /** Propiedad de Hibernate con el DataSource de las reservas */
+    public static final String CONEXIONES = "gams.ids.datasource";
+
+    private static final int MAX_INTENTOS_RESERVA = 3;
+
+    private String tabla;
+    private int bloque;
+
+    // Bloque vigente de este nodo (protegido por el monitor de la instancia)
+    private long siguiente;
+    private long ultimo = -1;
+
+    @Override
+    public void initialize(IdPorBloques config, Member miembro, GeneratorCreationContext contexto) {
+        this.tabla = config.tabla();
+        this.bloque = Math.max(1, config.bloque());
+    }
+
+    @Override
+    public synchronized Object generate(SharedSessionContractImplementor session, Object entidad) {
+        if (siguiente > ultimo) {
+            long finBloque = reservarBloque(conexiones(session));
+            siguiente = finBloque - bloque + 1;
+            ultimo = finBloque;
+        }
+        return Math.toIntExact(siguiente++);
+    }
+
+    // ==================== UTILIDADES ====================
+
+    /** Reserva el siguiente bloque y devuelve su último id */
+    private long reservarBloque(DataSource conexiones) {
+        for (int intento = 1; ; intento++) {
+            try (Connection conexion = conexiones.getConnection()) {
+                try {
+                    long finBloque = reservarBloque(conexion);
+                    conexion.commit();
+                    return finBloque;
+                } catch (SQLException e) {
+                    conexion.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                // Otro nodo creó la fila al mismo tiempo: volver a leerla
+                if (intento >= MAX_INTENTOS_RESERVA) {
+                    throw new RuntimeException("No se pudieron reservar ids para " + tabla + ", intenta de nuevo", e);
+                }
+            }
+        }
+    }
+
+    private long reservarBloque(Connection conexion) throws SQLException {
+        long finBloque;
+        try (PreparedStatement leer = conexion.prepareStatement(
+                "SELECT siguiente_id FROM secuencias_id WHERE tabla = ? FOR UPDATE")) {
+            leer.setString(1, tabla);
+            try (ResultSet fila = leer.executeQuery()) {
+                finBloque = fila.next() ? fila.getLong(1) : -1;
+            }
+        }
+
+        if (finBloque < 0) {
+            // Primera reserva (BD sin la fila sembrada por V3): el bloque 1..bloque
+            try (PreparedStatement crear = conexion.prepareStatement(
+                    "INSERT INTO secuencias_id (tabla, siguiente_id) VALUES (?, ?)")) {
+                crear.setString(1, tabla);
+                crear.setLong(2, 2L * bloque);
+                crear.executeUpdate();
+            }
+            return bloque;
+        }
+
+        try (PreparedStatement avanzar = conexion.prepareStatement(
+                "UPDATE secuencias_id SET siguiente_id = ? WHERE tabla = ?")) {
+            avanzar.setLong(1, finBloque + bloque);
+            avanzar.setString(2, tabla);
+            avanzar.executeUpdate();
+        }
+        return finBloque;
+    }
+
+    private static DataSource conexiones(SharedSessionContractImplementor session) {
+        if (session.getFactory().getProperties().get(CONEXIONES) instanceof DataSource conexiones) {
+            return conexiones;
+        }
+        throw new IllegalStateException("No está configurado el DataSource de los bloques de ids (" + CONEXIONES + ")");
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.gams.entities;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id tomado de un bloque reservado en la tabla secuencias_id (no IDENTITY):
+ * así Hibernate puede agrupar los INSERT de una venta en un solo batch JDBC.
+ * Ver GeneradorIdPorBloques.
+ */
+@IdGeneratorType(GeneradorIdPorBloques.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface IdPorBloques {
+
+    // Fila de secuencias_id (por convención, el nombre de la tabla)
+    String tabla();
+
+    // Ids que se reservan por viaje a la BD
+    int bloque() default 50;
+}
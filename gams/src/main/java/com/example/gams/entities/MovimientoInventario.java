@@ -5,13 +5,26 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "movimientos_inventario")
+// Listado: lo que muestra MovimientoDTO (usuario y variante con producto, color y talla)
+@NamedEntityGraph(name = MovimientoInventario.GRAFO_LISTADO, attributeNodes = {
+        @NamedAttributeNode(value = "variante", subgraph = "variante"),
+        @NamedAttributeNode("usuario")
+}, subgraphs = @NamedSubgraph(name = "variante", attributeNodes = {
+        @NamedAttributeNode("producto"),
+        @NamedAttributeNode("color"),
+        @NamedAttributeNode("talla")
+}))
 public class MovimientoInventario {
+
+    public static final String GRAFO_LISTADO = "MovimientoInventario.listado";
     
+    // Ids por bloques desde la tabla secuencias_id (no IDENTITY): así Hibernate
+    // puede agrupar los INSERT de una venta en un solo batch JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdPorBloques(tabla = "movimientos_inventario")
     private Integer id;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "variante_id", nullable = true)  // Permitir NULL para conservar historial
     private ProductoVariante variante;
     
@@ -47,13 +60,17 @@ public class MovimientoInventario {
     @Column(length = 100)
     private String referencia;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
     
     @Column(nullable = false)
     private LocalDateTime fecha;
     
+    // Ya sumado a movimientos_resumen_diario (ver DiarioMovimientosService)
+    @Column(nullable = false)
+    private boolean resumido;
+    
     public enum TipoMovimiento {
         ENTRADA,      // Compra o ingreso de mercadería
         SALIDA,       // Venta, salida o eliminación de variante
@@ -63,7 +80,9 @@ public class MovimientoInventario {
     
     @PrePersist
     protected void onCreate() {
-        fecha = LocalDateTime.now();
+        if (fecha == null) {
+            fecha = LocalDateTime.now();
+        }
     }
     
     // Constructores
@@ -161,6 +180,10 @@ public class MovimientoInventario {
         this.fecha = fecha;
     }
     
+    public boolean isResumido() {
+        return resumido;
+    }
+    
     public String getVarianteSku() {
         return varianteSku;
     }
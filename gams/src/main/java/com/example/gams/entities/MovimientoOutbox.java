@@ -0,0 +1,77 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Movimientos de inventario pendientes de pasar a movimientos_inventario.
+ * Una fila por operación (p.ej. todas las líneas de una venta), escrita en la
+ * misma transacción que la operación: si esta confirma, los movimientos no se
+ * pierden aunque el proceso caiga antes de drenarlos.
+ */
+@Entity
+@Table(name = "movimientos_outbox")
+public class MovimientoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    // Lista de movimientos en JSON (MovimientoDTO)
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String contenido;
+
+    // Motivo por el que el drenado no pudo leer la fila; null = pendiente
+    @Column(length = 500)
+    private String error;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fecha == null) {
+            fecha = LocalDateTime.now();
+        }
+    }
+
+    // Constructores
+    public MovimientoOutbox() {}
+
+    public MovimientoOutbox(String contenido) {
+        this.contenido = contenido;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    public String getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(String contenido) {
+        this.contenido = contenido;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Movimientos de inventario acumulados por día, tipo y producto. El diario de
+ * movimientos suma aquí cada cierto tiempo los movimientos que aún no están
+ * (resumido = false), fuera de la transacción que los insertó; las
+ * estadísticas de rangos largos leen estas filas más esos pendientes en vez
+ * de todos los movimientos.
+ */
+@Entity
+@Table(name = "movimientos_resumen_diario",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "fecha", "tipo", "producto_id" }))
+public class MovimientoResumenDiario {
+
+    // Producto de los movimientos sin variante (variante eliminada)
+    public static final int SIN_PRODUCTO = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MovimientoInventario.TipoMovimiento tipo;
+
+    @Column(name = "producto_id", nullable = false)
+    private Integer productoId;
+
+    // Cantidad de movimientos
+    @Column(nullable = false)
+    private Long movimientos;
+
+    // Suma de la cantidad de los movimientos
+    @Column(nullable = false)
+    private Long unidades;
+
+    // Constructores
+    public MovimientoResumenDiario() {}
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public MovimientoInventario.TipoMovimiento getTipo() {
+        return tipo;
+    }
+
+    public Integer getProductoId() {
+        return productoId;
+    }
+
+    public Long getMovimientos() {
+        return movimientos;
+    }
+
+    public Long getUnidades() {
+        return unidades;
+    }
+}
@@ -1,13 +1,23 @@
 package com.example.gams.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "productos")
+// Categoría, marca y proveedor: lo que muestra ProductoDTO (listado y detalle)
+@NamedEntityGraph(name = Producto.GRAFO_CATALOGOS, attributeNodes = {
+        @NamedAttributeNode("categoria"),
+        @NamedAttributeNode("marca"),
+        @NamedAttributeNode("proveedor")
+})
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Producto {
 
+    public static final String GRAFO_CATALOGOS = "Producto.catalogos";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -21,15 +31,15 @@ public class Producto {
     @Column(columnDefinition = "TEXT")
     private String descripcion;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "categoria_id", nullable = false)
     private Categoria categoria;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "marca_id")
     private Marca marca;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "proveedor_id")
     private Proveedor proveedor;
 
@@ -1,26 +1,46 @@
 package com.example.gams.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "productos_variantes", uniqueConstraints = @UniqueConstraint(columnNames = { "producto_id", "color_id",
         "talla_id" }))
+// Detalle: todo lo que muestra VarianteDTO (producto con categoría y marca, color y talla)
+@NamedEntityGraph(name = ProductoVariante.GRAFO_DETALLE, attributeNodes = {
+        @NamedAttributeNode(value = "producto", subgraph = "producto"),
+        @NamedAttributeNode("color"),
+        @NamedAttributeNode("talla")
+}, subgraphs = @NamedSubgraph(name = "producto", attributeNodes = {
+        @NamedAttributeNode("categoria"),
+        @NamedAttributeNode("marca")
+}))
+// Cobro: precio del producto y nombres para los movimientos de inventario
+@NamedEntityGraph(name = ProductoVariante.GRAFO_COBRO, attributeNodes = {
+        @NamedAttributeNode("producto"),
+        @NamedAttributeNode("color"),
+        @NamedAttributeNode("talla")
+})
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class ProductoVariante {
 
+    public static final String GRAFO_DETALLE = "ProductoVariante.detalle";
+    public static final String GRAFO_COBRO = "ProductoVariante.cobro";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = false)
     private Producto producto;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "color_id", nullable = false)
     private Color color;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "talla_id", nullable = false)
     private Talla talla;
 
@@ -1,10 +1,12 @@
 package com.example.gams.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "proveedores")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Proveedor {
     
     @Id
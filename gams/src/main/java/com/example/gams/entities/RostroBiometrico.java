@@ -17,9 +17,10 @@ public class RostroBiometrico {
     @Column(name = "foto_numero", nullable = false)
     private Integer fotoNumero;
 
-    /** Vector de 128 floats serializado como JSON por el servicio Python. */
-    @Column(nullable = false, columnDefinition = "JSON")
-    private String encoding;
+    /** Vector de 128 floats en binario (ver EncodingRostroConverter). */
+    @Convert(converter = EncodingRostroConverter.class)
+    @Column(nullable = false, columnDefinition = "VARBINARY(513)")
+    private float[] encoding;
 
     @Column(name = "fecha_registro")
     private LocalDateTime fechaRegistro;
@@ -35,8 +36,8 @@ public class RostroBiometrico {
     public Integer getFotoNumero() { return fotoNumero; }
     public void setFotoNumero(Integer fotoNumero) { this.fotoNumero = fotoNumero; }
 
-    public String getEncoding() { return encoding; }
-    public void setEncoding(String encoding) { this.encoding = encoding; }
+    public float[] getEncoding() { return encoding; }
+    public void setEncoding(float[] encoding) { this.encoding = encoding; }
 
     public LocalDateTime getFechaRegistro() { return fechaRegistro; }
     public void setFechaRegistro(LocalDateTime fechaRegistro) { this.fechaRegistro = fechaRegistro; }
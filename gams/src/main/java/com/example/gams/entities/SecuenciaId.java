@@ -0,0 +1,33 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Fila de secuencias_id: el último id ya reservado (entregado a algún nodo)
+ * para una tabla con {@link IdPorBloques}. GeneradorIdPorBloques la lee y la
+ * avanza por JDBC en su propia conexión; la entidad solo declara la tabla.
+ */
+@Entity
+@Table(name = "secuencias_id")
+public class SecuenciaId {
+
+    @Id
+    @Column(length = 64)
+    private String tabla;
+
+    @Column(name = "siguiente_id", nullable = false)
+    private Long siguienteId;
+
+    // Constructores
+    public SecuenciaId() {
+    }
+
+    // Getters
+    public String getTabla() {
+        return tabla;
+    }
+
+    public Long getSiguienteId() {
+        return siguienteId;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Contador del correlativo de ventas por año (V-AAAA-NNNNN).
+ * Cada nodo reserva bloques de números sobre esta fila en una transacción
+ * corta e independiente, así las ventas no compiten por el correlativo.
+ */
+@Entity
+@Table(name = "secuencias_venta")
+public class SecuenciaVenta {
+
+    @Id
+    private Integer anio;
+
+    // Último número ya reservado (entregado a algún nodo) en el año
+    @Column(name = "ultimo_numero", nullable = false)
+    private Long ultimoNumero;
+
+    // Constructores
+    public SecuenciaVenta() {
+    }
+
+    public SecuenciaVenta(Integer anio, Long ultimoNumero) {
+        this.anio = anio;
+        this.ultimoNumero = ultimoNumero;
+    }
+
+    // Getters y Setters
+    public Integer getAnio() {
+        return anio;
+    }
+
+    public void setAnio(Integer anio) {
+        this.anio = anio;
+    }
+
+    public Long getUltimoNumero() {
+        return ultimoNumero;
+    }
+
+    public void setUltimoNumero(Long ultimoNumero) {
+        this.ultimoNumero = ultimoNumero;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.gams.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -7,6 +8,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "usuarios")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Usuario {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -54,7 +56,8 @@ public class Usuario {
     @Column(name = "bloqueado_hasta")
     private LocalDateTime bloqueadoHasta;
     
-    @ManyToMany(fetch = FetchType.EAGER)
+    // LAZY: las consultas que usan los roles los piden con @EntityGraph (UsuarioRepository)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "usuarios_roles",
         joinColumns = @JoinColumn(name = "usuario_id"),
@@ -99,6 +102,11 @@ public class Usuario {
     public void setDni(String dni) { this.dni = dni; }
 
     public String getNombreCompleto() {
+        return nombreCompleto(nombre, apellidoPaterno, apellidoMaterno);
+    }
+
+    // También para las proyecciones que traen solo las columnas del nombre
+    public static String nombreCompleto(String nombre, String apellidoPaterno, String apellidoMaterno) {
         return (apellidoMaterno != null && !apellidoMaterno.isBlank())
             ? nombre + " " + apellidoPaterno + " " + apellidoMaterno
             : nombre + " " + apellidoPaterno;
@@ -9,8 +9,27 @@ import java.util.List;
 
 @Entity
 @Table(name = "ventas")
+// Resumen: vendedor, cliente y usuario de anulación (lo que muestra VentaResponseDTO
+// fuera de los detalles). Sin colecciones: para los listados de ventas
+@NamedEntityGraph(name = Venta.GRAFO_RESUMEN, attributeNodes = {
+        @NamedAttributeNode("vendedor"),
+        @NamedAttributeNode("cliente"),
+        @NamedAttributeNode("usuarioAnulacion")
+})
+// Comprobante: el resumen más sus detalles (una venta)
+@NamedEntityGraph(name = Venta.GRAFO_COMPROBANTE, attributeNodes = {
+        @NamedAttributeNode("vendedor"),
+        @NamedAttributeNode("cliente"),
+        @NamedAttributeNode("usuarioAnulacion"),
+        @NamedAttributeNode("detalles")
+})
 public class Venta {
 
+    public static final String GRAFO_RESUMEN = "Venta.resumen";
+    public static final String GRAFO_COMPROBANTE = "Venta.comprobante";
+
+    public static final String CLIENTE_VARIOS = "Cliente Varios";
+
     // Tasa de IGV vigente en Perú (18%). Solo se usa para el desglose
     // informativo del comprobante: los precios de venta ya incluyen IGV.
     private static final BigDecimal FACTOR_IGV = new BigDecimal("1.18");
@@ -27,12 +46,12 @@ public class Venta {
     private LocalDateTime fecha;
 
     // Vendedor que registró la venta
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vendedor_id", nullable = false)
     private Usuario vendedor;
 
     // Cliente opcional: NULL representa la venta rápida de mostrador ("Cliente Varios")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cliente_id")
     private Cliente cliente;
 
@@ -68,7 +87,7 @@ public class Venta {
     @Column(name = "fecha_anulacion")
     private LocalDateTime fechaAnulacion;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_anulacion_id")
     private Usuario usuarioAnulacion;
 
@@ -122,18 +141,27 @@ public class Venta {
     // Desglose informativo del IGV: el total ya lo incluye
     @Transient
     public BigDecimal getOperacionGravada() {
+        return operacionGravada(total);
+    }
+
+    @Transient
+    public BigDecimal getIgv() {
+        return igv(total);
+    }
+
+    // Mismo desglose a partir del total (las proyecciones JPQL no tienen la entidad)
+    public static BigDecimal operacionGravada(BigDecimal total) {
         if (total == null || total.compareTo(BigDecimal.ZERO) == 0) {
             return BigDecimal.ZERO;
         }
         return total.divide(FACTOR_IGV, 2, RoundingMode.HALF_UP);
     }
 
-    @Transient
-    public BigDecimal getIgv() {
+    public static BigDecimal igv(BigDecimal total) {
         if (total == null) {
             return BigDecimal.ZERO;
         }
-        return total.subtract(getOperacionGravada());
+        return total.subtract(operacionGravada(total));
     }
 
     @Transient
@@ -146,7 +174,7 @@ public class Venta {
     // Nombre a mostrar en el ticket cuando no se registró cliente
     @Transient
     public String getNombreCliente() {
-        return cliente != null ? cliente.getNombre() : "Cliente Varios";
+        return cliente != null ? cliente.getNombre() : CLIENTE_VARIOS;
     }
 
     // Constructores
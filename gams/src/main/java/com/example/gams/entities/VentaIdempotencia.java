@@ -0,0 +1,54 @@
+package com.example.gams.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Clave de idempotencia (cabecera Idempotency-Key) de un POST /api/ventas.
+ * La fila se inserta al inicio de la transacción de la venta: un reintento con
+ * la misma clave choca con la PK y devuelve la venta original en vez de
+ * registrar otra.
+ */
+@Entity
+@Table(name = "ventas_idempotencia")
+public class VentaIdempotencia {
+
+    @Id
+    @Column(length = 100)
+    private String clave;
+
+    // NULL mientras la venta que reclamó la clave aún no confirma
+    @Column(name = "venta_id")
+    private Integer ventaId;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    // Constructores
+    public VentaIdempotencia() {}
+
+    // Getters y Setters
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public Integer getVentaId() {
+        return ventaId;
+    }
+
+    public void setVentaId(Integer ventaId) {
+        this.ventaId = ventaId;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gams.repositories;
+
+import com.example.gams.entities.CajaAcumulado;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface CajaAcumuladoRepository extends JpaRepository<CajaAcumulado, Long> {
+
+    // Franjas de una sesión (estado de la caja en vivo)
+    List<CajaAcumulado> findByCajaIdOrderByFranja(Integer cajaId);
+
+    // Franjas de una sesión BLOQUEADAS, en orden (cierre y conciliación: esperan
+    // a las ventas que ya sumaron en alguna y frenan a las que llegan después)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM CajaAcumulado a WHERE a.cajaId = :cajaId ORDER BY a.franja")
+    List<CajaAcumulado> findByCajaIdForUpdate(@Param("cajaId") Integer cajaId);
+
+    // Sumar una venta a una franja (valores negativos para anularla). UPDATE
+    // relativo: no lee la fila antes. Devuelve 0 si la sesión ya se cerró
+    // (sus franjas ya no existen)
+    @Modifying
+    @Query("UPDATE CajaAcumulado a SET a.ventasCantidad = a.ventasCantidad + :cantidad, " +
+           "a.ventasTotal = a.ventasTotal + :total, " +
+           "a.ventasEfectivo = a.ventasEfectivo + :efectivo, " +
+           "a.ventasTarjeta = a.ventasTarjeta + :tarjeta, " +
+           "a.ventasYape = a.ventasYape + :yape, " +
+           "a.ventasPlin = a.ventasPlin + :plin, " +
+           "a.ventasTransferencia = a.ventasTransferencia + :transferencia " +
+           "WHERE a.cajaId = :cajaId AND a.franja = :franja")
+    int acumular(@Param("cajaId") Integer cajaId,
+                 @Param("franja") int franja,
+                 @Param("cantidad") int cantidad,
+                 @Param("total") BigDecimal total,
+                 @Param("efectivo") BigDecimal efectivo,
+                 @Param("tarjeta") BigDecimal tarjeta,
+                 @Param("yape") BigDecimal yape,
+                 @Param("plin") BigDecimal plin,
+                 @Param("transferencia") BigDecimal transferencia);
+}
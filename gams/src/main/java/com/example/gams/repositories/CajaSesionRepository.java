@@ -1,7 +1,11 @@
 package com.example.gams.repositories;
 
 import com.example.gams.entities.CajaSesion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -9,8 +13,16 @@ import java.util.Optional;
 public interface CajaSesionRepository extends JpaRepository<CajaSesion, Integer> {
 
     // Sesión abierta actual (solo puede haber una a la vez)
+    @EntityGraph(attributePaths = "usuarioApertura")
     Optional<CajaSesion> findFirstByEstado(CajaSesion.EstadoCaja estado);
 
+    // Sesiones abiertas BLOQUEANDO la fila (cierre y conciliación: un segundo
+    // cierre espera al primero)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CajaSesion c WHERE c.estado = 'ABIERTA' ORDER BY c.id")
+    List<CajaSesion> findAbiertasForUpdate();
+
     // Historial de sesiones, la más reciente primero
+    @EntityGraph(attributePaths = { "usuarioApertura", "usuarioCierre" })
     List<CajaSesion> findAllByOrderByFechaAperturaDesc();
-}
\ No newline at end of file
+}
@@ -1,11 +1,13 @@
 package com.example.gams.repositories;
 
+import com.example.gams.dto.VentaResponseDTO;
 import com.example.gams.entities.DetalleVenta;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Integer> {
@@ -13,6 +15,13 @@ public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Inte
     // Líneas de una venta
     List<DetalleVenta> findByVentaId(Integer ventaId);
 
+    // Líneas de varias ventas (una página del historial) proyectadas al DTO
+    @Query("SELECT new com.example.gams.dto.VentaResponseDTO$DetalleDTO(" +
+           "d.venta.id, v.id, d.varianteSku, d.productoNombre, d.colorNombre, d.tallaNombre, " +
+           "d.cantidad, d.precioUnitario, d.subtotal) " +
+           "FROM DetalleVenta d LEFT JOIN d.variante v WHERE d.venta.id IN :ventaIds ORDER BY d.id")
+    List<VentaResponseDTO.DetalleDTO> findDTOByVentaIds(@Param("ventaIds") Collection<Integer> ventaIds);
+
     // Productos más vendidos (unidades) en un rango de fechas, solo ventas COMPLETADAS
     @Query("SELECT d.productoNombre, SUM(d.cantidad) AS unidades FROM DetalleVenta d " +
            "WHERE d.venta.estado = 'COMPLETADA' AND d.venta.fecha BETWEEN :desde AND :hasta " +
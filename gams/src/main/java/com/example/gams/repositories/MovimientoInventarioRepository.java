@@ -1,59 +1,180 @@
 package com.example.gams.repositories;
 
+import com.example.gams.dto.MovimientoDTO;
 import com.example.gams.entities.MovimientoInventario;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MovimientoInventarioRepository extends JpaRepository<MovimientoInventario, Integer> {
+
+    // Las asociaciones del movimiento son LAZY: los listados (MovimientoDTO)
+    // traen usuario y variante con producto, color y talla en la misma consulta
+    @Override
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
+    Optional<MovimientoInventario> findById(Integer id);
+
+    @Override
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
+    List<MovimientoInventario> findAll();
     
     // Listar movimientos de una variante
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByVarianteIdOrderByFechaDesc(Integer varianteId);
     
     // Listar movimientos por tipo
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByTipoOrderByFechaDesc(MovimientoInventario.TipoMovimiento tipo);
     
     // Listar movimientos por usuario
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByUsuarioIdOrderByFechaDesc(Integer usuarioId);
     
     // Listar movimientos por referencia (número de venta, compra, etc.)
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByReferenciaOrderByFechaDesc(String referencia);
     
     // Movimientos entre fechas
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByFechaBetweenOrderByFechaDesc(
         LocalDateTime fechaInicio, LocalDateTime fechaFin);
     
-    // Movimientos de hoy
-    @Query("SELECT m FROM MovimientoInventario m WHERE DATE(m.fecha) = CURRENT_DATE ORDER BY m.fecha DESC")
-    List<MovimientoInventario> findMovimientosHoy();
+    // Movimientos de un período [desde, antesDe), p. ej. un día completo. Rango
+    // sobre la columna (sin DATE(m.fecha)) para que use el índice de fecha
+    @Query("SELECT m FROM MovimientoInventario m WHERE m.fecha >= :desde AND m.fecha < :antesDe " +
+           "ORDER BY m.fecha DESC")
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
+    List<MovimientoInventario> findMovimientosEntre(@Param("desde") LocalDateTime desde,
+                                                    @Param("antesDe") LocalDateTime antesDe);
     
     // Últimos movimientos
     @Query("SELECT m FROM MovimientoInventario m ORDER BY m.fecha DESC")
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findUltimosMovimientos();
     
     // Movimientos por producto (todas sus variantes)
     @Query("SELECT m FROM MovimientoInventario m WHERE m.variante.producto.id = :productoId ORDER BY m.fecha DESC")
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findByProductoId(@Param("productoId") Integer productoId);
     
     // Entradas entre fechas
     @Query("SELECT m FROM MovimientoInventario m WHERE m.tipo = 'ENTRADA' AND m.fecha BETWEEN :inicio AND :fin ORDER BY m.fecha DESC")
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findEntradasBetween(
         @Param("inicio") LocalDateTime inicio, 
         @Param("fin") LocalDateTime fin);
     
     // Salidas entre fechas
     @Query("SELECT m FROM MovimientoInventario m WHERE m.tipo = 'SALIDA' AND m.fecha BETWEEN :inicio AND :fin ORDER BY m.fecha DESC")
+    @EntityGraph(MovimientoInventario.GRAFO_LISTADO)
     List<MovimientoInventario> findSalidasBetween(
         @Param("inicio") LocalDateTime inicio, 
         @Param("fin") LocalDateTime fin);
     
+    // ==================== LISTADOS (MovimientoDTO) ====================
+
+    // Proyección directa al DTO. Si la variante ya no existe quedan el SKU y
+    // los nombres guardados en el movimiento
+    String SELECT_MOVIMIENTO_DTO = "SELECT new com.example.gams.dto.MovimientoDTO(" +
+           "m.id, v.id, COALESCE(v.sku, m.varianteSku), COALESCE(p.nombre, m.productoNombre), " +
+           "COALESCE(c.nombre, m.colorNombre), COALESCE(t.nombre, m.tallaNombre), m.tipo, m.cantidad, " +
+           "m.stockAnterior, m.stockNuevo, m.motivo, m.referencia, " +
+           "u.id, u.nombre, u.apellidoPaterno, u.apellidoMaterno, m.fecha) " +
+           "FROM MovimientoInventario m JOIN m.usuario u " +
+           "LEFT JOIN m.variante v LEFT JOIN v.producto p LEFT JOIN v.color c LEFT JOIN v.talla t ";
+
+    // Filtros combinables (NULL = sin filtro), comunes al listado, al conteo y a la página
+    String FILTRO_MOVIMIENTOS = "(:varianteId IS NULL OR v.id = :varianteId) AND " +
+           "(:productoId IS NULL OR p.id = :productoId) AND " +
+           "(:usuarioId IS NULL OR u.id = :usuarioId) AND " +
+           "(:tipo IS NULL OR m.tipo = :tipo) AND " +
+           "(:referencia IS NULL OR m.referencia = :referencia) AND " +
+           "(:desde IS NULL OR m.fecha >= :desde) AND " +
+           "(:hasta IS NULL OR m.fecha <= :hasta) ";
+
+    @Query(SELECT_MOVIMIENTO_DTO + "WHERE " + FILTRO_MOVIMIENTOS + "ORDER BY m.fecha DESC, m.id DESC")
+    List<MovimientoDTO> buscarMovimientosDTO(@Param("varianteId") Integer varianteId,
+                                             @Param("productoId") Integer productoId,
+                                             @Param("usuarioId") Integer usuarioId,
+                                             @Param("tipo") MovimientoInventario.TipoMovimiento tipo,
+                                             @Param("referencia") String referencia,
+                                             @Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta);
+
+    // Una página del historial por keyset: los movimientos anteriores a
+    // (cursorFecha, cursorId), del más reciente al más antiguo. El índice de
+    // fecha lleva directo al inicio de la página, sin saltarse las anteriores
+    @Query(SELECT_MOVIMIENTO_DTO + "WHERE " + FILTRO_MOVIMIENTOS + "AND " +
+           "(:cursorFecha IS NULL OR m.fecha < :cursorFecha OR (m.fecha = :cursorFecha AND m.id < :cursorId)) " +
+           "ORDER BY m.fecha DESC, m.id DESC")
+    List<MovimientoDTO> buscarMovimientosDTODesde(@Param("varianteId") Integer varianteId,
+                                                  @Param("productoId") Integer productoId,
+                                                  @Param("usuarioId") Integer usuarioId,
+                                                  @Param("tipo") MovimientoInventario.TipoMovimiento tipo,
+                                                  @Param("referencia") String referencia,
+                                                  @Param("desde") LocalDateTime desde,
+                                                  @Param("hasta") LocalDateTime hasta,
+                                                  @Param("cursorFecha") LocalDateTime cursorFecha,
+                                                  @Param("cursorId") Integer cursorId,
+                                                  Pageable pagina);
+
+    @Query("SELECT COUNT(m) FROM MovimientoInventario m JOIN m.usuario u " +
+           "LEFT JOIN m.variante v LEFT JOIN v.producto p WHERE " + FILTRO_MOVIMIENTOS)
+    long contarMovimientos(@Param("varianteId") Integer varianteId,
+                           @Param("productoId") Integer productoId,
+                           @Param("usuarioId") Integer usuarioId,
+                           @Param("tipo") MovimientoInventario.TipoMovimiento tipo,
+                           @Param("referencia") String referencia,
+                           @Param("desde") LocalDateTime desde,
+                           @Param("hasta") LocalDateTime hasta);
+
+    // Movimientos y unidades por tipo en un rango (estadísticas del reporte).
+    // antesDe es un límite exclusivo, para los tramos que completan el resumen diario
+    @Query("SELECT m.tipo, COUNT(m), SUM(m.cantidad) FROM MovimientoInventario m " +
+           "WHERE (:desde IS NULL OR m.fecha >= :desde) AND (:hasta IS NULL OR m.fecha <= :hasta) " +
+           "AND (:antesDe IS NULL OR m.fecha < :antesDe) " +
+           "GROUP BY m.tipo")
+    List<Object[]> resumirPorTipo(@Param("desde") LocalDateTime desde,
+                                  @Param("hasta") LocalDateTime hasta,
+                                  @Param("antesDe") LocalDateTime antesDe);
+
+    // Lo mismo, solo de los movimientos que aún no se sumaron al resumen diario
+    // (completa el resumen en los días que este cubre). antesDe es exclusivo
+    @Query("SELECT m.tipo, COUNT(m), SUM(m.cantidad) FROM MovimientoInventario m " +
+           "WHERE m.resumido = false " +
+           "AND (:desde IS NULL OR m.fecha >= :desde) AND (:antesDe IS NULL OR m.fecha < :antesDe) " +
+           "GROUP BY m.tipo")
+    List<Object[]> resumirPendientesPorTipo(@Param("desde") LocalDateTime desde,
+                                            @Param("antesDe") LocalDateTime antesDe);
+
+    // Lote de movimientos sin sumar al resumen diario, BLOQUEADOS y saltando los
+    // que otro nodo ya está sumando (FOR UPDATE SKIP LOCKED). Sin joins: solo
+    // se bloquean las filas de movimientos, nunca las variantes que cobra una venta
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MovimientoInventario m WHERE m.resumido = false ORDER BY m.id")
+    List<MovimientoInventario> findPendientesDeResumenForUpdate(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE MovimientoInventario m SET m.resumido = true WHERE m.id IN :ids")
+    int marcarResumidos(@Param("ids") Collection<Integer> ids);
+
     // Contar movimientos por tipo
     long countByTipo(MovimientoInventario.TipoMovimiento tipo);
     
-    // Contar movimientos de hoy
-    @Query("SELECT COUNT(m) FROM MovimientoInventario m WHERE DATE(m.fecha) = CURRENT_DATE")
-    long countMovimientosHoy();
+    // Contar movimientos de un período [desde, antesDe)
+    @Query("SELECT COUNT(m) FROM MovimientoInventario m WHERE m.fecha >= :desde AND m.fecha < :antesDe")
+    long countMovimientosEntre(@Param("desde") LocalDateTime desde, @Param("antesDe") LocalDateTime antesDe);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.gams.repositories;
+
+import com.example.gams.entities.MovimientoOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
+
+public interface MovimientoOutboxRepository extends JpaRepository<MovimientoOutbox, Long> {
+
+    // Lote de pendientes más antiguos, BLOQUEADOS y saltando los que otro nodo
+    // ya está drenando (FOR UPDATE SKIP LOCKED) y los marcados con error
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM MovimientoOutbox o WHERE o.error IS NULL ORDER BY o.id")
+    List<MovimientoOutbox> findPendientesForUpdate(Pageable pageable);
+}
@@ -0,0 +1,35 @@
+package com.example.gams.repositories;
+
+import com.example.gams.entities.MovimientoResumenDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface MovimientoResumenDiarioRepository extends JpaRepository<MovimientoResumenDiario, Long> {
+
+    // Sumar movimientos a la fila (fecha, tipo, producto), creándola si no
+    // existe: un solo INSERT ... ON DUPLICATE KEY UPDATE, sin SELECT previo.
+    // El UPDATE suma los mismos parámetros en vez de VALUES(col), obsoleto en
+    // MySQL 8; el alias de fila (INSERT ... AS nuevo) no lo entiende H2
+    @Modifying
+    @Query(value = "INSERT INTO movimientos_resumen_diario (fecha, tipo, producto_id, movimientos, unidades) " +
+                   "VALUES (:fecha, :tipo, :productoId, :movimientos, :unidades) " +
+                   "ON DUPLICATE KEY UPDATE movimientos = movimientos + :movimientos, " +
+                   "unidades = unidades + :unidades",
+           nativeQuery = true)
+    void acumular(@Param("fecha") LocalDate fecha,
+                  @Param("tipo") String tipo,
+                  @Param("productoId") Integer productoId,
+                  @Param("movimientos") long movimientos,
+                  @Param("unidades") long unidades);
+
+    // Movimientos y unidades por tipo entre dos días, ambos incluidos (null = sin límite)
+    @Query("SELECT r.tipo, SUM(r.movimientos), SUM(r.unidades) FROM MovimientoResumenDiario r " +
+           "WHERE (:desde IS NULL OR r.fecha >= :desde) AND (:hasta IS NULL OR r.fecha <= :hasta) " +
+           "GROUP BY r.tipo")
+    List<Object[]> resumirPorTipo(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
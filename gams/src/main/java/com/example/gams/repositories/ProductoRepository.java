@@ -1,6 +1,8 @@
 package com.example.gams.repositories;
 
 import com.example.gams.entities.Producto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,47 +12,73 @@ import java.util.List;
 import java.util.Optional;
 
 public interface ProductoRepository extends JpaRepository<Producto, Integer> {
+
+    // Las asociaciones de Producto son LAZY: las lecturas que terminan en un
+    // ProductoDTO traen categoría, marca y proveedor en la misma consulta
+    @Override
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
+    Optional<Producto> findById(Integer id);
+
+    @Override
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
+    List<Producto> findAll();
+
+    @Override
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
+    List<Producto> findAllById(Iterable<Integer> ids);
     
     // Buscar por código
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     Optional<Producto> findByCodigo(String codigo);
     
     // Verificar si existe por código
     boolean existsByCodigo(String codigo);
     
     // Listar productos activos
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByActivoTrue();
     
     // Listar por categoría
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByCategoriaIdAndActivoTrue(Integer categoriaId);
     
     // Listar por marca
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByMarcaIdAndActivoTrue(Integer marcaId);
     
     // Listar por género
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByGeneroAndActivoTrue(Producto.Genero genero);
     
     // Listar por temporada
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByTemporadaAndActivoTrue(Producto.Temporada temporada);
     
     // Buscar por nombre que contenga
     @Query("SELECT p FROM Producto p WHERE LOWER(p.nombre) LIKE LOWER(CONCAT('%', :searchTerm, '%')) AND p.activo = true")
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> searchByNombre(@Param("searchTerm") String searchTerm);
     
     // Buscar por código o nombre
     @Query("SELECT p FROM Producto p WHERE (LOWER(p.codigo) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(p.nombre) LIKE LOWER(CONCAT('%', :search, '%'))) AND p.activo = true")
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> searchByCodigoOrNombre(@Param("search") String search);
     
     // Buscar por rango de precio
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByPrecioVentaBetweenAndActivoTrue(BigDecimal precioMin, BigDecimal precioMax);
     
     // Productos ordenados por nombre
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByActivoTrueOrderByNombreAsc();
     
     // Productos ordenados por precio
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findByActivoTrueOrderByPrecioVentaAsc();
     
     // Productos más recientes
     @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.fechaCreacion DESC")
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> findRecientes();
     
     // Contar productos activos
@@ -78,8 +106,39 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
            "(:marcaId IS NULL OR p.marca.id = :marcaId) AND " +
            "(:activo IS NULL OR p.activo = :activo) " +
            "ORDER BY p.nombre ASC")
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
     List<Producto> filtrarProductos(@Param("buscar") String buscar,
                                     @Param("categoriaId") Integer categoriaId,
                                     @Param("marcaId") Integer marcaId,
                                     @Param("activo") Boolean activo);
+
+    // Campos de búsqueda de todos los productos (para el índice en memoria):
+    // id, codigo, nombre, categoria_id, marca_id, activo
+    @Query("SELECT p.id, p.codigo, p.nombre, c.id, m.id, p.activo FROM Producto p " +
+           "LEFT JOIN p.categoria c LEFT JOIN p.marca m")
+    List<Object[]> findCamposBusqueda();
+
+    // Página del catálogo por keyset sobre (nombre, id): los mismos filtros, más
+    // "solo con variantes activas", desde el cursor (null = primera página). El
+    // tamaño lo da el Pageable; con el índice (nombre, id) la BD lee solo la
+    // página pedida, sin importar en qué página se esté
+    @Query("SELECT p FROM Producto p WHERE " +
+           "(:buscar IS NULL OR LOWER(p.codigo) LIKE LOWER(CONCAT('%', :buscar, '%')) OR LOWER(p.nombre) LIKE LOWER(CONCAT('%', :buscar, '%')) " +
+           "OR EXISTS (SELECT 1 FROM ProductoVariante v WHERE v.producto = p AND v.activo = true " +
+           "AND LOWER(v.ubicacion) LIKE LOWER(CONCAT('%', :buscar, '%')))) AND " +
+           "(:categoriaId IS NULL OR p.categoria.id = :categoriaId) AND " +
+           "(:marcaId IS NULL OR p.marca.id = :marcaId) AND " +
+           "(:activo IS NULL OR p.activo = :activo) AND " +
+           "(:soloConVariantes = false OR EXISTS (SELECT 1 FROM ProductoVariante va WHERE va.producto = p AND va.activo = true)) AND " +
+           "(:cursorNombre IS NULL OR p.nombre > :cursorNombre OR (p.nombre = :cursorNombre AND p.id > :cursorId)) " +
+           "ORDER BY p.nombre ASC, p.id ASC")
+    @EntityGraph(Producto.GRAFO_CATALOGOS)
+    List<Producto> filtrarProductosDesde(@Param("buscar") String buscar,
+                                         @Param("categoriaId") Integer categoriaId,
+                                         @Param("marcaId") Integer marcaId,
+                                         @Param("activo") Boolean activo,
+                                         @Param("soloConVariantes") boolean soloConVariantes,
+                                         @Param("cursorNombre") String cursorNombre,
+                                         @Param("cursorId") Integer cursorId,
+                                         Pageable pagina);
 }
\ No newline at end of file
@@ -1,18 +1,35 @@
 package com.example.gams.repositories;
 
+import com.example.gams.dto.ResumenStockProducto;
+import com.example.gams.dto.VarianteDTO;
 import com.example.gams.entities.ProductoVariante;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductoVarianteRepository extends JpaRepository<ProductoVariante, Integer> {
+public interface ProductoVarianteRepository extends JpaRepository<ProductoVariante, Integer>,
+        ProductoVarianteStockRepository {
+
+    // Las asociaciones de ProductoVariante son LAZY: las lecturas que terminan
+    // en un VarianteDTO usan el grafo de detalle (producto con categoría y
+    // marca, color y talla) en la misma consulta
+    @Override
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
+    Optional<ProductoVariante> findById(Integer id);
+
+    @Override
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
+    List<ProductoVariante> findAll();
 
     // Buscar por SKU
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     Optional<ProductoVariante> findBySku(String sku);
 
     // Buscar por id BLOQUEANDO la fila (para ventas: evita que dos vendedores
@@ -20,8 +37,24 @@ public interface ProductoVarianteRepository extends JpaRepository<ProductoVarian
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT v FROM ProductoVariante v WHERE v.id = :id")
     Optional<ProductoVariante> findByIdForUpdate(@Param("id") Integer id);
+
+    // Bloquear TODAS las variantes de un carrito en una sola sentencia y siempre
+    // en orden de id: dos carritos con los mismos productos en distinto orden
+    // esperan uno al otro en vez de quedar en deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM ProductoVariante v WHERE v.id IN :ids ORDER BY v.id")
+    List<ProductoVariante> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    // Producto, color y talla de las variantes del carrito, DESPUÉS de
+    // bloquearlas con findAllByIdForUpdate (ya están en el contexto de
+    // persistencia: esta consulta solo completa sus asociaciones). No va en el
+    // FOR UPDATE para no bloquear también las filas de productos, colores y tallas
+    @EntityGraph(ProductoVariante.GRAFO_COBRO)
+    @Query("SELECT v FROM ProductoVariante v WHERE v.id IN :ids")
+    List<ProductoVariante> findParaCobro(@Param("ids") Collection<Integer> ids);
     
     // Buscar por código de barras
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     Optional<ProductoVariante> findByCodigoBarras(String codigoBarras);
     
     // Verificar si existe SKU
@@ -31,39 +64,99 @@ public interface ProductoVarianteRepository extends JpaRepository<ProductoVarian
     boolean existsByCodigoBarras(String codigoBarras);
     
     // Listar variantes activas
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findByActivoTrue();
     
     // Listar variantes de un producto (solo activas)
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findByProductoIdAndActivoTrue(Integer productoId);
 
     // Listar TODAS las variantes de un producto (incluyendo inactivas)
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findByProductoId(Integer productoId);
     
     // Listar variantes por color
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findByColorIdAndActivoTrue(Integer colorId);
     
     // Listar variantes por talla
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findByTallaIdAndActivoTrue(Integer tallaId);
     
     // Buscar variante específica (producto + color + talla)
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     Optional<ProductoVariante> findByProductoIdAndColorIdAndTallaIdAndActivoTrue(
         Integer productoId, Integer colorId, Integer tallaId);
     
     // Variantes con stock bajo
     @Query("SELECT v FROM ProductoVariante v WHERE v.stockActual <= v.stockMinimo AND v.activo = true")
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findStockBajo();
     
     // Variantes sin stock
     @Query("SELECT v FROM ProductoVariante v WHERE v.stockActual = 0 AND v.activo = true")
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findSinStock();
     
     // Variantes con stock
     @Query("SELECT v FROM ProductoVariante v WHERE v.stockActual > 0 AND v.activo = true")
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     List<ProductoVariante> findConStock();
+
+    // ==================== LISTADOS (VarianteDTO) ====================
+
+    // Los listados de solo lectura se proyectan directo al DTO: sin entidades
+    // en el contexto de persistencia (ni sus copias para el dirty checking)
+    String SELECT_VARIANTE_DTO = "SELECT new com.example.gams.dto.VarianteDTO(" +
+            "v.id, p.id, p.codigo, p.nombre, cat.nombre, m.nombre, c.id, c.nombre, c.codigoHex, " +
+            "t.id, t.nombre, v.sku, v.codigoBarras, v.ubicacion, v.stockActual, v.stockMinimo, " +
+            "v.stockMaximo, v.activo, v.fechaCreacion, v.fechaActualizacion, p.precioVenta, p.precioCompra) " +
+            "FROM ProductoVariante v JOIN v.producto p JOIN p.categoria cat LEFT JOIN p.marca m " +
+            "JOIN v.color c JOIN v.talla t ";
+
+    @Query(SELECT_VARIANTE_DTO)
+    List<VarianteDTO> findTodasDTO();
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE v.activo = true")
+    List<VarianteDTO> findActivasDTO();
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE p.id = :productoId AND v.activo = true")
+    List<VarianteDTO> findActivasDTOByProductoId(@Param("productoId") Integer productoId);
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE c.id = :colorId AND v.activo = true")
+    List<VarianteDTO> findActivasDTOByColorId(@Param("colorId") Integer colorId);
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE t.id = :tallaId AND v.activo = true")
+    List<VarianteDTO> findActivasDTOByTallaId(@Param("tallaId") Integer tallaId);
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE v.stockActual <= v.stockMinimo AND v.activo = true")
+    List<VarianteDTO> findStockBajoDTO();
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE v.stockActual = 0 AND v.activo = true")
+    List<VarianteDTO> findSinStockDTO();
+
+    @Query(SELECT_VARIANTE_DTO + "WHERE p.id = :productoId AND v.stockActual > 0 AND v.activo = true")
+    List<VarianteDTO> findConStockDTOByProductoId(@Param("productoId") Integer productoId);
     
     // Buscar por SKU o código de barras
     @Query("SELECT v FROM ProductoVariante v WHERE (v.sku = :codigo OR v.codigoBarras = :codigo) AND v.activo = true")
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
     Optional<ProductoVariante> findBySkuOrCodigoBarras(@Param("codigo") String codigo);
+
+    // Variante activa por SKU / por código de barras con su detalle en una sola
+    // consulta (escáner). Cada una usa su índice único; el OR entre las dos
+    // columnas de findBySkuOrCodigoBarras no
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
+    @Query("SELECT v FROM ProductoVariante v WHERE v.sku = :sku AND v.activo = true")
+    Optional<ProductoVariante> findActivaBySkuConDetalle(@Param("sku") String sku);
+
+    @EntityGraph(ProductoVariante.GRAFO_DETALLE)
+    @Query("SELECT v FROM ProductoVariante v WHERE v.codigoBarras = :codigoBarras AND v.activo = true")
+    Optional<ProductoVariante> findActivaByCodigoBarrasConDetalle(@Param("codigoBarras") String codigoBarras);
+
+    // Solo el stock de una variante activa (lectura por PK, para el escáner)
+    @Query("SELECT v.stockActual FROM ProductoVariante v WHERE v.id = :id AND v.activo = true")
+    Optional<Integer> findStockActualActiva(@Param("id") Integer id);
     
     // Contar variantes de un producto
     long countByProductoIdAndActivoTrue(Integer productoId);
@@ -77,14 +170,11 @@ public interface ProductoVarianteRepository extends JpaRepository<ProductoVarian
     @Query("SELECT COUNT(v) FROM ProductoVariante v WHERE v.stockActual <= v.stockMinimo AND v.activo = true")
     long countStockBajo();
 
-    // Contar variantes con stock bajo (control individual) de un producto
-    @Query("SELECT COUNT(v) FROM ProductoVariante v WHERE v.producto.id = :productoId AND v.activo = true AND v.stockMinimo IS NOT NULL AND v.stockActual <= v.stockMinimo")
-    long countStockBajoByProducto(@Param("productoId") Integer productoId);
+    // Campos de búsqueda de todas las variantes (para el índice en memoria):
+    // id, producto_id, sku, codigo_barras, ubicacion, activo
+    @Query("SELECT v.id, v.producto.id, v.sku, v.codigoBarras, v.ubicacion, v.activo FROM ProductoVariante v")
+    List<Object[]> findCamposBusqueda();
 
-    // Contar variantes agotadas (stock 0) de un producto
-    @Query("SELECT COUNT(v) FROM ProductoVariante v WHERE v.producto.id = :productoId AND v.activo = true AND v.stockActual = 0")
-    long countSinStockByProducto(@Param("productoId") Integer productoId);
-    
     // Suma total de stock
     @Query("SELECT COALESCE(SUM(v.stockActual), 0) FROM ProductoVariante v WHERE v.activo = true")
     Long sumStockTotal();
@@ -92,4 +182,15 @@ public interface ProductoVarianteRepository extends JpaRepository<ProductoVarian
     // Suma de stock por producto
     @Query("SELECT COALESCE(SUM(v.stockActual), 0) FROM ProductoVariante v WHERE v.producto.id = :productoId AND v.activo = true")
     Long sumStockByProducto(@Param("productoId") Integer productoId);
+
+    // Stock total, variantes, stock bajo y agotadas de varios productos en una
+    // sola consulta agrupada (los productos sin variantes activas no aparecen)
+    @Query("SELECT v.producto.id AS productoId, " +
+           "COALESCE(SUM(v.stockActual), 0) AS stockTotal, " +
+           "COUNT(v) AS cantidadVariantes, " +
+           "SUM(CASE WHEN v.stockMinimo IS NOT NULL AND v.stockActual <= v.stockMinimo THEN 1 ELSE 0 END) AS variantesConStockBajo, " +
+           "SUM(CASE WHEN v.stockActual = 0 THEN 1 ELSE 0 END) AS variantesSinStock " +
+           "FROM ProductoVariante v WHERE v.producto.id IN :productoIds AND v.activo = true " +
+           "GROUP BY v.producto.id")
+    List<ResumenStockProducto> resumirStockPorProducto(@Param("productoIds") Collection<Integer> productoIds);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.gams.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operaciones de stock en bloque sobre productos_variantes, fuera del ciclo
+ * de vida de JPA: una sola ida a la BD (batch JDBC) para todas las líneas.
+ *
+ * Las filas deben estar ya bloqueadas por la transacción en curso
+ * (ver {@link ProductoVarianteRepository#findAllByIdForUpdate}). Las entidades
+ * cargadas en el contexto de persistencia NO se refrescan.
+ */
+public interface ProductoVarianteStockRepository {
+
+    /**
+     * Descuenta stock solo si alcanza (stock_actual >= cantidad).
+     * Devuelve los ids de variante cuyo descuento no se aplicó.
+     */
+    List<Integer> descontarStock(Map<Integer, Integer> cantidadesPorVariante);
+
+    // Suma stock (devoluciones / anulaciones)
+    void devolverStock(Map<Integer, Integer> cantidadesPorVariante);
+}
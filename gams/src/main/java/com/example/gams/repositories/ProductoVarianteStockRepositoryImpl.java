@@ -0,0 +1,65 @@
+package com.example.gams.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implementación JDBC de {@link ProductoVarianteStockRepository}. Spring Data
+ * la enlaza a {@link ProductoVarianteRepository} por el sufijo Impl.
+ */
+@RequiredArgsConstructor
+public class ProductoVarianteStockRepositoryImpl implements ProductoVarianteStockRepository {
+
+    private static final String SQL_DESCONTAR =
+            "UPDATE productos_variantes SET stock_actual = stock_actual - ?, fecha_actualizacion = ? "
+                    + "WHERE id = ? AND stock_actual >= ?";
+
+    private static final String SQL_DEVOLVER =
+            "UPDATE productos_variantes SET stock_actual = stock_actual + ?, fecha_actualizacion = ? "
+                    + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Integer> descontarStock(Map<Integer, Integer> cantidadesPorVariante) {
+        // Orden por id: mismo orden en que se tomaron los bloqueos
+        List<Integer> ids = new ArrayList<>(new TreeMap<>(cantidadesPorVariante).keySet());
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<Object[]> parametros = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Integer cantidad = cantidadesPorVariante.get(id);
+            parametros.add(new Object[] { cantidad, ahora, id, cantidad });
+        }
+
+        int[] filas = jdbcTemplate.batchUpdate(SQL_DESCONTAR, parametros);
+
+        List<Integer> sinStock = new ArrayList<>();
+        for (int i = 0; i < filas.length; i++) {
+            // SUCCESS_NO_INFO: el driver reescribió el batch y no informa filas por sentencia
+            if (filas[i] == 0 || (filas[i] < 0 && filas[i] != Statement.SUCCESS_NO_INFO)) {
+                sinStock.add(ids.get(i));
+            }
+        }
+        return sinStock;
+    }
+
+    @Override
+    public void devolverStock(Map<Integer, Integer> cantidadesPorVariante) {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<Object[]> parametros = new ArrayList<>(cantidadesPorVariante.size());
+        for (Map.Entry<Integer, Integer> e : new TreeMap<>(cantidadesPorVariante).entrySet()) {
+            parametros.add(new Object[] { e.getValue(), ahora, e.getKey() });
+        }
+
+        jdbcTemplate.batchUpdate(SQL_DEVOLVER, parametros);
+    }
+}
@@ -3,6 +3,8 @@ package com.example.gams.repositories;
 import com.example.gams.entities.RostroBiometrico;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface RostroBiometricoRepository extends JpaRepository<RostroBiometrico, Long> {
 
     /** Cuántas fotos tiene registradas un usuario (0‒MAX_FOTOS). */
@@ -10,4 +12,10 @@ public interface RostroBiometricoRepository extends JpaRepository<RostroBiometri
 
     /** True si el usuario tiene al menos una foto registrada. */
     boolean existsByUsername(String username);
+
+    /** Fotos de un usuario (para actualizar la galería en memoria tras registrar). */
+    List<RostroBiometrico> findByUsername(String username);
+
+    /** Fotos registradas después del id dado, en orden (registros de otro nodo). */
+    List<RostroBiometrico> findByIdGreaterThanOrderByIdAsc(Long id);
 }
@@ -0,0 +1,18 @@
+package com.example.gams.repositories;
+
+import com.example.gams.entities.SecuenciaVenta;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SecuenciaVentaRepository extends JpaRepository<SecuenciaVenta, Integer> {
+
+    // Contador del año BLOQUEANDO la fila (solo mientras se reserva un bloque)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SecuenciaVenta s WHERE s.anio = :anio")
+    Optional<SecuenciaVenta> findByAnioForUpdate(@Param("anio") Integer anio);
+}
@@ -1,6 +1,7 @@
 package com.example.gams.repositories;
 
 import com.example.gams.entities.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,7 +9,18 @@ import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
+
+    // Los roles son LAZY: las lecturas que los usan (sesión, permisos, listado
+    // de usuarios) los traen en la misma consulta
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    Optional<Usuario> findById(Integer id);
+
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    java.util.List<Usuario> findAll();
     
+    @EntityGraph(attributePaths = "roles")
     Optional<Usuario> findByUsername(String username);
     
     Optional<Usuario> findByEmail(String email);
@@ -22,6 +34,7 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
     @Query("SELECT u FROM Usuario u JOIN FETCH u.roles WHERE u.username = :username AND u.activo = true")
     Optional<Usuario> findByUsernameAndActivoTrue(@Param("username") String username);
     
+    @EntityGraph(attributePaths = "roles")
     @Query("SELECT u FROM Usuario u WHERE u.activo = true")
     java.util.List<Usuario> findAllActive();
 }
\ No newline at end of file
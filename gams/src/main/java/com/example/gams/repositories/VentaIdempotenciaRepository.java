@@ -0,0 +1,29 @@
+package com.example.gams.repositories;
+
+import com.example.gams.entities.VentaIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface VentaIdempotenciaRepository extends JpaRepository<VentaIdempotencia, String> {
+
+    // Reclamar una clave: INSERT directo (sin el SELECT previo de save/merge).
+    // Si otra venta ya la tiene, falla por PK duplicada
+    @Modifying
+    @Query(value = "INSERT INTO ventas_idempotencia (clave, fecha_creacion) VALUES (:clave, :fecha)",
+           nativeQuery = true)
+    void reclamar(@Param("clave") String clave, @Param("fecha") LocalDateTime fecha);
+
+    // Asociar la venta registrada a su clave
+    @Modifying
+    @Query("UPDATE VentaIdempotencia i SET i.ventaId = :ventaId WHERE i.clave = :clave")
+    void asociarVenta(@Param("clave") String clave, @Param("ventaId") Integer ventaId);
+
+    // Limpiar claves vencidas
+    @Modifying
+    @Query("DELETE FROM VentaIdempotencia i WHERE i.fechaCreacion < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+}
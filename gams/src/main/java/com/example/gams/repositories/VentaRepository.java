@@ -1,8 +1,10 @@
 package com.example.gams.repositories;
 
+import com.example.gams.dto.VentaResponseDTO;
 import com.example.gams.entities.Venta;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,42 +16,69 @@ import java.util.Optional;
 
 public interface VentaRepository extends JpaRepository<Venta, Integer> {
 
+    // Las asociaciones de la venta son LAZY. Una venta (comprobante, anulación)
+    // viene con vendedor, cliente, usuario de anulación y detalles; los listados
+    // solo con lo primero, y los detalles de toda la página llegan por lotes
+    // (hibernate.default_batch_fetch_size)
+    @Override
+    @EntityGraph(Venta.GRAFO_COMPROBANTE)
+    Optional<Venta> findById(Integer id);
+
     // Buscar por código de comprobante
+    @EntityGraph(Venta.GRAFO_COMPROBANTE)
     Optional<Venta> findByCodigo(String codigo);
 
-    // Historial paginado con filtros opcionales combinables (NULL = sin filtro)
-    @Query("SELECT v FROM Venta v WHERE " +
-           "(:desde IS NULL OR v.fecha >= :desde) AND " +
+    // Historial paginado con filtros opcionales combinables (NULL = sin filtro),
+    // proyectado directo a VentaResponseDTO (sin detalles: van aparte, por página)
+    String FILTRO_HISTORIAL = "(:desde IS NULL OR v.fecha >= :desde) AND " +
            "(:hasta IS NULL OR v.fecha <= :hasta) AND " +
            "(:vendedorId IS NULL OR v.vendedor.id = :vendedorId) AND " +
-           "(:estado IS NULL OR v.estado = :estado) " +
-           "ORDER BY v.fecha DESC")
-    Page<Venta> buscarVentas(@Param("desde") LocalDateTime desde,
-                             @Param("hasta") LocalDateTime hasta,
-                             @Param("vendedorId") Integer vendedorId,
-                             @Param("estado") Venta.EstadoVenta estado,
-                             Pageable pageable);
-
-    // Última venta registrada (para generar el siguiente correlativo)
-    Optional<Venta> findTopByOrderByIdDesc();
+           "(:estado IS NULL OR v.estado = :estado)";
+
+    @Query(value = "SELECT new com.example.gams.dto.VentaResponseDTO(" +
+           "v.id, v.codigo, v.fecha, ve.nombre, ve.apellidoPaterno, ve.apellidoMaterno, " +
+           "cl.nombre, cl.numeroDocumento, v.estado, v.metodoPago, v.subtotal, v.descuento, v.total, " +
+           "v.montoRecibido, v.vuelto, v.observaciones, v.fechaAnulacion, " +
+           "ua.nombre, ua.apellidoPaterno, ua.apellidoMaterno, v.motivoAnulacion) " +
+           "FROM Venta v LEFT JOIN v.vendedor ve LEFT JOIN v.cliente cl LEFT JOIN v.usuarioAnulacion ua " +
+           "WHERE " + FILTRO_HISTORIAL + " ORDER BY v.fecha DESC",
+           countQuery = "SELECT COUNT(v) FROM Venta v WHERE " + FILTRO_HISTORIAL)
+    Page<VentaResponseDTO> buscarVentasDTO(@Param("desde") LocalDateTime desde,
+                                           @Param("hasta") LocalDateTime hasta,
+                                           @Param("vendedorId") Integer vendedorId,
+                                           @Param("estado") Venta.EstadoVenta estado,
+                                           Pageable pageable);
+
+    // Códigos emitidos en un año, el mayor primero (para sembrar el contador de
+    // correlativos la primera vez que se usa un año). Primero por longitud porque
+    // pasado el 99999 el número crece a 6 dígitos y el orden de texto ya no sirve.
+    @Query("SELECT v.codigo FROM Venta v WHERE v.codigo LIKE :prefijo " +
+           "ORDER BY LENGTH(v.codigo) DESC, v.codigo DESC")
+    List<String> findCodigosPorPrefijo(@Param("prefijo") String prefijo, Pageable pageable);
 
     // Historial ordenado por fecha (más recientes primero)
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findAllByOrderByFechaDesc();
 
     // Ventas en un rango de fechas (para "ventas del día" y reportes)
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findByFechaBetweenOrderByFechaDesc(LocalDateTime desde, LocalDateTime hasta);
 
     // Ventas de un vendedor
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findByVendedorIdOrderByFechaDesc(Integer vendedorId);
 
     // Ventas de un vendedor en un rango de fechas
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findByVendedorIdAndFechaBetweenOrderByFechaDesc(
             Integer vendedorId, LocalDateTime desde, LocalDateTime hasta);
 
     // Ventas por estado
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findByEstadoOrderByFechaDesc(Venta.EstadoVenta estado);
 
     // Ventas de un cliente
+    @EntityGraph(Venta.GRAFO_RESUMEN)
     List<Venta> findByClienteIdOrderByFechaDesc(Integer clienteId);
 
     // Total vendido (solo COMPLETADAS) en un rango de fechas
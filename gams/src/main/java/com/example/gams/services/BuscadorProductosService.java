@@ -0,0 +1,434 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.CursorProducto;
+import com.example.gams.entities.Producto;
+import com.example.gams.entities.ProductoVariante;
+import com.example.gams.repositories.ProductoRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria para la búsqueda del POS y del inventario. El filtro de la
+ * BD busca con LIKE '%termino%' sobre código, nombre y ubicación, que ningún
+ * índice puede resolver: recorre la tabla en cada tecla. Aquí cada producto
+ * queda indexado por los trigramas de su código, nombre y, de sus variantes
+ * activas, SKU, código de barras y ubicación, sin tildes ni mayúsculas.
+ *
+ * - Términos de 3+ caracteres: se cruzan las listas de sus trigramas y se
+ *   confirma la coincidencia en los textos del producto.
+ * - Términos de 1-2 caracteres: se recorre el catálogo en orden (nombre, id)
+ *   hasta llenar la página.
+ *
+ * ProductoService avisa cada producto/variante que guarda o elimina y el
+ * cambio se aplica al confirmar la transacción. Lo que cambie otro nodo se
+ * recoge en la reconstrucción periódica (gams.productos.buscador.reconstruccion-ms),
+ * que también arma el índice al arrancar: hasta entonces la búsqueda va a la BD.
+ */
+@Service
+public class BuscadorProductosService {
+
+    private static final Logger log = LoggerFactory.getLogger(BuscadorProductosService.class);
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final int N = 3;
+
+    // Con más candidatos que esto conviene recorrer el catálogo en orden en vez de ordenarlos
+    private static final int MAXIMO_CANDIDATOS_A_ORDENAR = 512;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoVarianteRepository varianteRepository;
+
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    // null hasta la primera construcción
+    private Indice indice;
+
+    // Cambios confirmados mientras corre una reconstrucción: se reaplican sobre
+    // el índice nuevo (su lectura de la BD pudo ser anterior a ellos)
+    private List<Consumer<Indice>> cambiosDuranteReconstruccion;
+
+    public BuscadorProductosService(ProductoRepository productoRepository,
+                                    ProductoVarianteRepository varianteRepository) {
+        this.productoRepository = productoRepository;
+        this.varianteRepository = varianteRepository;
+    }
+
+    // ==================== BÚSQUEDA ====================
+
+    /**
+     * Ids de los productos que coinciden con el término y los filtros, en
+     * orden (nombre, id), después del cursor y hasta "limite". Vacío si el
+     * índice aún no está construido (el llamador debe ir a la BD).
+     */
+    public Optional<List<Integer>> buscar(String termino, Integer categoriaId, Integer marcaId, Boolean activo,
+                                          boolean soloConVariantes, CursorProducto cursor, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            if (indice == null) {
+                return Optional.empty();
+            }
+            Filtro filtro = new Filtro(normalizar(termino), categoriaId, marcaId, activo, soloConVariantes);
+            Clave desde = cursor != null ? new Clave(normalizar(cursor.getNombre()), cursor.getId()) : null;
+            return Optional.of(indice.buscar(filtro, desde, limite));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // ==================== ACTUALIZACIÓN INCREMENTAL ====================
+
+    /** El producto se guardó en la transacción actual: se reindexa al confirmar */
+    public void productoGuardado(Producto producto) {
+        DatosProducto datos = new DatosProducto(producto.getId(), producto.getCodigo(), producto.getNombre(),
+                producto.getCategoria() != null ? producto.getCategoria().getId() : null,
+                producto.getMarca() != null ? producto.getMarca().getId() : null,
+                Boolean.TRUE.equals(producto.getActivo()));
+        alConfirmar(indice -> indice.guardarProducto(datos));
+    }
+
+    /** La variante se guardó en la transacción actual: se reindexa su producto al confirmar */
+    public void varianteGuardada(ProductoVariante variante) {
+        DatosVariante datos = new DatosVariante(variante.getId(), variante.getProducto().getId(), variante.getSku(),
+                variante.getCodigoBarras(), variante.getUbicacion(), Boolean.TRUE.equals(variante.getActivo()));
+        alConfirmar(indice -> indice.guardarVariante(datos));
+    }
+
+    public void productoEliminado(Integer productoId) {
+        alConfirmar(indice -> indice.eliminarProducto(productoId));
+    }
+
+    public void varianteEliminada(Integer varianteId) {
+        alConfirmar(indice -> indice.eliminarVariante(varianteId));
+    }
+
+    // ==================== CONSTRUCCIÓN ====================
+
+    /** Arma el índice desde la BD y reemplaza al actual */
+    @Scheduled(fixedDelayString = "${gams.productos.buscador.reconstruccion-ms:300000}")
+    public void reconstruir() {
+        cerrojo.writeLock().lock();
+        try {
+            cambiosDuranteReconstruccion = new ArrayList<>();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+
+        Indice nuevo = new Indice();
+        try {
+            // Variantes agrupadas por producto: cada producto se indexa una sola vez
+            Map<Integer, Map<Integer, DatosVariante>> variantesPorProducto = new HashMap<>();
+            for (Object[] fila : varianteRepository.findCamposBusqueda()) {
+                DatosVariante variante = new DatosVariante((Integer) fila[0], (Integer) fila[1], (String) fila[2],
+                        (String) fila[3], (String) fila[4], Boolean.TRUE.equals(fila[5]));
+                variantesPorProducto.computeIfAbsent(variante.productoId(), id -> new HashMap<>())
+                        .put(variante.id(), variante);
+            }
+            for (Object[] fila : productoRepository.findCamposBusqueda()) {
+                DatosProducto producto = new DatosProducto((Integer) fila[0], (String) fila[1], (String) fila[2],
+                        (Integer) fila[3], (Integer) fila[4], Boolean.TRUE.equals(fila[5]));
+                nuevo.cargar(producto, variantesPorProducto.getOrDefault(producto.id(), new HashMap<>()));
+            }
+        } catch (RuntimeException e) {
+            cerrojo.writeLock().lock();
+            try {
+                cambiosDuranteReconstruccion = null;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            log.warn("No se pudo reconstruir el índice de búsqueda de productos", e);
+            return;
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            cambiosDuranteReconstruccion.forEach(cambio -> cambio.accept(nuevo));
+            cambiosDuranteReconstruccion = null;
+            indice = nuevo;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // ==================== UTILIDADES ====================
+
+    /** Minúsculas y sin tildes (á -> a, ñ -> n), para indexar y para buscar */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private void alConfirmar(Consumer<Indice> cambio) {
+        Runnable aplicar = () -> {
+            cerrojo.writeLock().lock();
+            try {
+                if (indice != null) {
+                    cambio.accept(indice);
+                }
+                if (cambiosDuranteReconstruccion != null) {
+                    cambiosDuranteReconstruccion.add(cambio);
+                }
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        };
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicar.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                aplicar.run();
+            }
+        });
+    }
+
+    private record DatosProducto(Integer id, String codigo, String nombre, Integer categoriaId, Integer marcaId,
+                                 boolean activo) {}
+
+    private record DatosVariante(Integer id, Integer productoId, String sku, String codigoBarras, String ubicacion,
+                                 boolean activo) {}
+
+    private record Filtro(String termino, Integer categoriaId, Integer marcaId, Boolean activo,
+                          boolean soloConVariantes) {}
+
+    // Posición de un producto en el orden del catálogo
+    private record Clave(String nombre, Integer id) implements Comparable<Clave> {
+        private static final Comparator<Clave> ORDEN =
+                Comparator.comparing(Clave::nombre).thenComparing(Clave::id);
+
+        @Override
+        public int compareTo(Clave otra) {
+            return ORDEN.compare(this, otra);
+        }
+    }
+
+    /** Producto indexado: sus datos, sus variantes y los textos donde se busca */
+    private static final class Documento {
+        private final DatosProducto producto;
+        private final Clave clave;
+        private final Map<Integer, DatosVariante> variantes;
+        private final List<String> textos = new ArrayList<>();
+        private final boolean tieneVariantesActivas;
+
+        private Documento(DatosProducto producto, Map<Integer, DatosVariante> variantes) {
+            this.producto = producto;
+            this.clave = new Clave(normalizar(producto.nombre()), producto.id());
+            this.variantes = variantes;
+
+            agregarTexto(producto.codigo());
+            agregarTexto(producto.nombre());
+            boolean activas = false;
+            for (DatosVariante variante : variantes.values()) {
+                if (variante.activo()) {
+                    activas = true;
+                    agregarTexto(variante.sku());
+                    agregarTexto(variante.codigoBarras());
+                    agregarTexto(variante.ubicacion());
+                }
+            }
+            this.tieneVariantesActivas = activas;
+        }
+
+        private void agregarTexto(String texto) {
+            String normalizado = normalizar(texto);
+            if (!normalizado.isEmpty()) {
+                textos.add(normalizado);
+            }
+        }
+
+        private Set<String> trigramas() {
+            Set<String> trigramas = new HashSet<>();
+            for (String texto : textos) {
+                for (int i = 0; i + N <= texto.length(); i++) {
+                    trigramas.add(texto.substring(i, i + N));
+                }
+            }
+            return trigramas;
+        }
+
+        private boolean coincide(Filtro filtro) {
+            if (filtro.categoriaId() != null && !filtro.categoriaId().equals(producto.categoriaId())) {
+                return false;
+            }
+            if (filtro.marcaId() != null && !filtro.marcaId().equals(producto.marcaId())) {
+                return false;
+            }
+            if (filtro.activo() != null && filtro.activo() != producto.activo()) {
+                return false;
+            }
+            if (filtro.soloConVariantes() && !tieneVariantesActivas) {
+                return false;
+            }
+            if (filtro.termino().isEmpty()) {
+                return true;
+            }
+            for (String texto : textos) {
+                if (texto.contains(filtro.termino())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Estructuras del índice; se usan siempre bajo el cerrojo del servicio */
+    private static final class Indice {
+        private final Map<Integer, Documento> documentos = new HashMap<>();
+        private final Map<String, Set<Integer>> porTrigrama = new HashMap<>();
+        private final TreeMap<Clave, Documento> orden = new TreeMap<>();
+        // Producto de cada variante indexada
+        private final Map<Integer, Integer> productoDeVariante = new HashMap<>();
+
+        private void cargar(DatosProducto producto, Map<Integer, DatosVariante> variantes) {
+            variantes.keySet().forEach(varianteId -> productoDeVariante.put(varianteId, producto.id()));
+            reemplazar(documentos.get(producto.id()), new Documento(producto, variantes));
+        }
+
+        private void guardarProducto(DatosProducto producto) {
+            Documento anterior = documentos.get(producto.id());
+            reemplazar(anterior, new Documento(producto, anterior != null ? anterior.variantes : new HashMap<>()));
+        }
+
+        private void guardarVariante(DatosVariante variante) {
+            // La variante pudo cambiar de producto: se quita del anterior
+            Integer productoAnterior = productoDeVariante.put(variante.id(), variante.productoId());
+            if (productoAnterior != null && !productoAnterior.equals(variante.productoId())) {
+                quitarVariante(productoAnterior, variante.id());
+            }
+
+            Documento anterior = documentos.get(variante.productoId());
+            if (anterior == null) {
+                // Producto de otro nodo aún no visto: llega con la próxima reconstrucción
+                return;
+            }
+            Map<Integer, DatosVariante> variantes = new HashMap<>(anterior.variantes);
+            variantes.put(variante.id(), variante);
+            reemplazar(anterior, new Documento(anterior.producto, variantes));
+        }
+
+        private void eliminarProducto(Integer productoId) {
+            Documento anterior = documentos.get(productoId);
+            if (anterior != null) {
+                anterior.variantes.keySet().forEach(productoDeVariante::remove);
+                reemplazar(anterior, null);
+            }
+        }
+
+        private void eliminarVariante(Integer varianteId) {
+            Integer productoId = productoDeVariante.remove(varianteId);
+            if (productoId != null) {
+                quitarVariante(productoId, varianteId);
+            }
+        }
+
+        private void quitarVariante(Integer productoId, Integer varianteId) {
+            Documento anterior = documentos.get(productoId);
+            if (anterior != null && anterior.variantes.containsKey(varianteId)) {
+                Map<Integer, DatosVariante> variantes = new HashMap<>(anterior.variantes);
+                variantes.remove(varianteId);
+                reemplazar(anterior, new Documento(anterior.producto, variantes));
+            }
+        }
+
+        private void reemplazar(Documento anterior, Documento nuevo) {
+            if (anterior != null) {
+                documentos.remove(anterior.producto.id());
+                orden.remove(anterior.clave);
+                for (String trigrama : anterior.trigramas()) {
+                    Set<Integer> ids = porTrigrama.get(trigrama);
+                    if (ids != null) {
+                        ids.remove(anterior.producto.id());
+                        if (ids.isEmpty()) {
+                            porTrigrama.remove(trigrama);
+                        }
+                    }
+                }
+            }
+            if (nuevo != null) {
+                documentos.put(nuevo.producto.id(), nuevo);
+                orden.put(nuevo.clave, nuevo);
+                for (String trigrama : nuevo.trigramas()) {
+                    porTrigrama.computeIfAbsent(trigrama, t -> new HashSet<>()).add(nuevo.producto.id());
+                }
+            }
+        }
+
+        private List<Integer> buscar(Filtro filtro, Clave desde, int limite) {
+            Set<Integer> candidatos = filtro.termino().length() >= N ? candidatos(filtro.termino()) : null;
+            List<Integer> resultado = new ArrayList<>();
+
+            // Pocos candidatos: se confirman y se ordenan solo esos
+            if (candidatos != null && candidatos.size() <= MAXIMO_CANDIDATOS_A_ORDENAR) {
+                List<Documento> coincidencias = new ArrayList<>();
+                for (Integer id : candidatos) {
+                    Documento documento = documentos.get(id);
+                    if (documento.coincide(filtro) && (desde == null || documento.clave.compareTo(desde) > 0)) {
+                        coincidencias.add(documento);
+                    }
+                }
+                coincidencias.sort(Comparator.comparing(documento -> documento.clave));
+                for (int i = 0; i < coincidencias.size() && resultado.size() < limite; i++) {
+                    resultado.add(coincidencias.get(i).producto.id());
+                }
+                return resultado;
+            }
+
+            // Término corto o muy común: recorrer en orden hasta llenar la página
+            Iterable<Documento> recorrido = desde != null ? orden.tailMap(desde, false).values() : orden.values();
+            for (Documento documento : recorrido) {
+                if (resultado.size() >= limite) {
+                    break;
+                }
+                if ((candidatos == null || candidatos.contains(documento.producto.id())) && documento.coincide(filtro)) {
+                    resultado.add(documento.producto.id());
+                }
+            }
+            return resultado;
+        }
+
+        // Productos que tienen todos los trigramas del término (desde la lista más corta)
+        private Set<Integer> candidatos(String termino) {
+            List<Set<Integer>> listas = new ArrayList<>();
+            for (int i = 0; i + N <= termino.length(); i++) {
+                Set<Integer> ids = porTrigrama.get(termino.substring(i, i + N));
+                if (ids == null) {
+                    return Set.of();
+                }
+                listas.add(ids);
+            }
+            listas.sort(Comparator.comparingInt(Set::size));
+
+            Set<Integer> interseccion = new HashSet<>(listas.get(0));
+            for (int i = 1; i < listas.size() && !interseccion.isEmpty(); i++) {
+                interseccion.retainAll(listas.get(i));
+            }
+            return interseccion;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.gams.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Listas de los catálogos de referencia (categorías, marcas, colores, tallas,
+ * proveedores) en memoria. Cambian unas pocas veces al mes y el inventario
+ * las pide todas cada vez que se abre.
+ *
+ * Cada lista guardada lleva su ETag, calculado sobre su contenido en JSON: el
+ * mismo contenido da el mismo ETag en cualquier nodo y tras un reinicio, así
+ * que el navegador recibe 304 sin que se consulte la BD ni se serialice nada.
+ *
+ * CatalogoService y ProveedorService invalidan el catálogo que guardan o
+ * eliminan, al confirmar la transacción. Lo que cambie otro nodo se ve al
+ * vencer la lista (gams.catalogo.cache-ttl-ms).
+ */
+@Component
+public class CacheCatalogos {
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final Map<String, Lista<?>> listas = new ConcurrentHashMap<>();
+
+    // Sube con cada invalidación: una lectura de BD que empezó antes no debe
+    // guardar una lista que ya se sabe vieja
+    private final AtomicLong version = new AtomicLong();
+
+    public CacheCatalogos(ObjectMapper objectMapper,
+                          @Value("${gams.catalogo.cache-ttl-ms:60000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Lista guardada del catálogo (p. ej. "categorias") en la variante pedida
+     * (p. ej. "activas"), o la que devuelve cargar si no hay una vigente
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Lista<T> obtener(String catalogo, String variante, Supplier<List<T>> cargar) {
+        String clave = catalogo + ":" + variante;
+        Lista<?> guardada = listas.get(clave);
+        if (guardada != null && System.currentTimeMillis() - guardada.leidaEn < ttlMillis) {
+            return (Lista<T>) guardada;
+        }
+
+        long versionLeida = version.get();
+        List<T> datos = List.copyOf(cargar.get());
+        Lista<T> nueva = new Lista<>(catalogo, datos, etag(catalogo, datos));
+        synchronized (listas) {
+            if (version.get() == versionLeida) {
+                listas.put(clave, nueva);
+            }
+        }
+        return nueva;
+    }
+
+    /** El catálogo cambió en la transacción actual: sus listas se descartan al confirmar */
+    public void invalidar(String catalogo) {
+        Runnable accion = () -> {
+            synchronized (listas) {
+                version.incrementAndGet();
+                listas.values().removeIf(lista -> lista.catalogo.equals(catalogo));
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private String etag(String catalogo, List<?> datos) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(datos));
+            return catalogo + "-" + HexFormat.of().formatHex(hash, 0, 16);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("No se pudo calcular la versión del catálogo " + catalogo, e);
+        }
+    }
+
+    /**
+     * Lista de un catálogo con su ETag. Inmutable y compartida entre hilos: las
+     * entidades que contiene son solo de lectura (se serializan, no se guardan)
+     */
+    public static final class Lista<T> {
+        private final String catalogo;
+        private final List<T> datos;
+        private final String etag;
+        private final long leidaEn = System.currentTimeMillis();
+
+        private Lista(String catalogo, List<T> datos, String etag) {
+            this.catalogo = catalogo;
+            this.datos = datos;
+            this.etag = etag;
+        }
+
+        public List<T> getDatos() {
+            return datos;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.CajaSesion;
+import com.example.gams.repositories.CajaSesionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sesión de caja abierta, en memoria. Cada venta y cada consulta del POS a
+ * /api/caja/actual preguntan si hay caja abierta; solo abrirCaja y cerrarCaja
+ * cambian la respuesta, así que no hace falta ir a la BD cada vez.
+ *
+ * Con varios nodos, un nodo no se entera de lo que abre o cierra otro: por eso
+ * la caja abierta guardada vence a los pocos segundos (gams.caja.cache-ttl-ms)
+ * y se vuelve a leer. El "no hay caja abierta" no se guarda: ese caso es raro
+ * (no se puede vender) y así un nodo ve al instante la caja que abrió otro.
+ */
+@Service
+public class CajaActualService {
+
+    private final CajaSesionRepository cajaRepository;
+    private final long ttlMillis;
+
+    // Última caja abierta conocida y cuándo se leyó (null = hay que ir a la BD)
+    private volatile Lectura lectura;
+
+    // Sube con cada apertura/cierre: una lectura de BD que empezó antes no
+    // debe pisar lo que publicó la apertura o el cierre
+    private final AtomicLong version = new AtomicLong();
+
+    public CajaActualService(CajaSesionRepository cajaRepository,
+                             @Value("${gams.caja.cache-ttl-ms:5000}") long ttlMillis) {
+        this.cajaRepository = cajaRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /** Caja abierta actual, desde memoria si la lectura aún está vigente */
+    public Optional<CajaAbierta> cajaAbierta() {
+        Lectura actual = lectura;
+        if (actual != null && System.currentTimeMillis() - actual.leidaEn < ttlMillis) {
+            return Optional.of(actual.caja);
+        }
+
+        return recargar();
+    }
+
+    /** Caja abierta leída de la BD (para cuando la de memoria resultó vencida) */
+    public Optional<CajaAbierta> recargar() {
+        long versionLeida = version.get();
+        Optional<CajaAbierta> abierta = cajaRepository.findFirstByEstado(CajaSesion.EstadoCaja.ABIERTA)
+                .map(CajaAbierta::new);
+        if (version.get() == versionLeida) {
+            lectura = abierta.map(Lectura::new).orElse(null);
+        }
+        return abierta;
+    }
+
+    /** La caja se abrió en la transacción actual: se publica al confirmar */
+    public void registrarApertura(CajaSesion caja) {
+        CajaAbierta abierta = new CajaAbierta(caja);
+        alConfirmar(() -> {
+            version.incrementAndGet();
+            lectura = new Lectura(abierta);
+        });
+    }
+
+    /** La caja se cerró en la transacción actual: se olvida al confirmar */
+    public void registrarCierre() {
+        alConfirmar(() -> {
+            version.incrementAndGet();
+            lectura = null;
+        });
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    private static final class Lectura {
+        private final CajaAbierta caja;
+        private final long leidaEn = System.currentTimeMillis();
+
+        private Lectura(CajaAbierta caja) {
+            this.caja = caja;
+        }
+    }
+
+    /**
+     * Copia inmutable de la sesión abierta (no es la entidad: se comparte
+     * entre hilos y sobrevive a la transacción que la leyó)
+     */
+    public static final class CajaAbierta {
+        private final Integer id;
+        private final LocalDateTime fechaApertura;
+        private final BigDecimal montoInicial;
+        private final String usuarioApertura;
+
+        private CajaAbierta(CajaSesion caja) {
+            this.id = caja.getId();
+            this.fechaApertura = caja.getFechaApertura();
+            this.montoInicial = caja.getMontoInicial();
+            this.usuarioApertura = caja.getUsuarioApertura() != null
+                    ? caja.getUsuarioApertura().getNombreCompleto() : null;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public LocalDateTime getFechaApertura() {
+            return fechaApertura;
+        }
+
+        public BigDecimal getMontoInicial() {
+            return montoInicial;
+        }
+
+        public String getUsuarioApertura() {
+            return usuarioApertura;
+        }
+    }
+}
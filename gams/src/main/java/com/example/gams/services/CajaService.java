@@ -1,33 +1,45 @@
 package com.example.gams.services;
 
+import com.example.gams.entities.CajaAcumulado;
 import com.example.gams.entities.CajaSesion;
 import com.example.gams.entities.Usuario;
 import com.example.gams.entities.Venta;
+import com.example.gams.repositories.CajaAcumuladoRepository;
 import com.example.gams.repositories.CajaSesionRepository;
-import com.example.gams.repositories.UsuarioRepository;
 import com.example.gams.repositories.VentaRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 public class CajaService {
 
+    private static final Logger log = LoggerFactory.getLogger(CajaService.class);
+
     private final CajaSesionRepository cajaRepository;
+    private final CajaAcumuladoRepository acumuladoRepository;
     private final VentaRepository ventaRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final UsuarioActualService usuarioActual;
+    private final CajaActualService cajaActual;
+    private final MetricasService metricas;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Abre una sesión de caja con el efectivo inicial del cajón.
@@ -43,32 +55,48 @@ public class CajaService {
             throw new RuntimeException("El monto inicial no puede ser negativo");
         }
 
-        CajaSesion caja = new CajaSesion(obtenerUsuarioActual(), montoInicial);
-        return cajaRepository.save(caja);
+        CajaSesion caja = cajaRepository.save(new CajaSesion(usuarioActual.referencia(), montoInicial));
+        acumuladoRepository.saveAll(CajaAcumulado.franjasDe(caja));
+        cajaActual.registrarApertura(caja);
+        return caja;
     }
 
     /**
-     * Cierra la sesión abierta: congela los totales del turno (calculados
-     * por rango de fechas sobre las ventas COMPLETADAS) y registra el arqueo:
+     * Cierra la sesión abierta: congela los totales del turno (la suma de sus
+     * franjas de acumulados, sin recorrer las ventas) y registra el arqueo:
      * efectivo esperado vs. efectivo contado físicamente.
      */
-    @Transactional
     public CajaSesion cerrarCaja(BigDecimal montoReal, String observaciones) {
-        CajaSesion caja = cajaRepository.findFirstByEstado(CajaSesion.EstadoCaja.ABIERTA)
+        return metricas.medir("gams.caja.cierre",
+                () -> transactionTemplate.execute(status -> cerrar(montoReal, observaciones)));
+    }
+
+    private CajaSesion cerrar(BigDecimal montoReal, String observaciones) {
+        // Fila bloqueada: una segunda solicitud de cierre espera a esta
+        CajaSesion caja = cajaRepository.findAbiertasForUpdate().stream().findFirst()
                 .orElseThrow(() -> new RuntimeException("No hay ninguna caja abierta"));
 
         if (montoReal == null || montoReal.compareTo(BigDecimal.ZERO) < 0) {
             throw new RuntimeException("Debes indicar el efectivo contado (no puede ser negativo)");
         }
 
-        LocalDateTime ahora = LocalDateTime.now();
-        BigDecimal totalVentas = ventaRepository.sumTotalVendido(caja.getFechaApertura(), ahora);
-        BigDecimal totalEfectivo = totalPorMetodo(caja.getFechaApertura(), ahora)
-                .getOrDefault(Venta.MetodoPago.EFECTIVO.name(), BigDecimal.ZERO);
+        // Franjas bloqueadas: las ventas que ya sumaron en alguna confirman
+        // antes; las que lleguen después ya no las encuentran y se rechazan
+        List<CajaAcumulado> franjas = acumuladoRepository.findByCajaIdForUpdate(caja.getId());
+        CajaAcumulado turno = sumar(franjas);
+        BigDecimal totalVentas = turno.getVentasTotal();
+        BigDecimal totalEfectivo = turno.ventasPorMetodo(Venta.MetodoPago.EFECTIVO);
+
+        caja.setVentasCantidad(turno.getVentasCantidad());
+        caja.setVentasTotal(totalVentas);
+        for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+            caja.setVentasPorMetodo(metodo, turno.ventasPorMetodo(metodo));
+        }
+        acumuladoRepository.deleteAllInBatch(franjas);
 
         caja.setEstado(CajaSesion.EstadoCaja.CERRADA);
-        caja.setFechaCierre(ahora);
-        caja.setUsuarioCierre(obtenerUsuarioActual());
+        caja.setFechaCierre(LocalDateTime.now());
+        caja.setUsuarioCierre(usuarioActual.referencia());
         caja.setTotalVentas(totalVentas);
         caja.setTotalEfectivo(totalEfectivo);
         caja.setMontoEsperado(caja.getMontoInicial().add(totalEfectivo));
@@ -76,6 +104,7 @@ public class CajaService {
         caja.setDiferencia(montoReal.subtract(caja.getMontoEsperado()));
         caja.setObservaciones(observaciones);
 
+        cajaActual.registrarCierre();
         return cajaRepository.save(caja);
     }
 
@@ -83,36 +112,126 @@ public class CajaService {
      * Estado actual de la caja para el POS: si está abierta incluye los
      * totales del turno en vivo (lo que va vendido desde la apertura).
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> estadoActual() {
         Map<String, Object> resultado = new HashMap<>();
-        Optional<CajaSesion> abierta = cajaRepository.findFirstByEstado(CajaSesion.EstadoCaja.ABIERTA);
+        Optional<CajaActualService.CajaAbierta> abierta = cajaActual.cajaAbierta();
 
         if (abierta.isEmpty()) {
             resultado.put("abierta", false);
             return resultado;
         }
 
-        CajaSesion caja = abierta.get();
-        LocalDateTime ahora = LocalDateTime.now();
-        BigDecimal totalVentas = ventaRepository.sumTotalVendido(caja.getFechaApertura(), ahora);
-        Map<String, BigDecimal> porMetodo = totalPorMetodo(caja.getFechaApertura(), ahora);
-        BigDecimal totalEfectivo = porMetodo.getOrDefault(Venta.MetodoPago.EFECTIVO.name(), BigDecimal.ZERO);
+        // Lectura por id de la sesión y sus franjas (sin recorrer las ventas)
+        CajaSesion caja = leerAbierta(abierta.get().getId());
+        if (caja == null) {
+            // La cerró otro nodo: la caja en memoria estaba vencida
+            caja = cajaActual.recargar().map(a -> leerAbierta(a.getId())).orElse(null);
+        }
+        if (caja == null) {
+            resultado.put("abierta", false);
+            return resultado;
+        }
+
+        CajaAcumulado turno = sumar(acumuladoRepository.findByCajaIdOrderByFranja(caja.getId()));
+        Map<String, BigDecimal> porMetodo = new HashMap<>();
+        for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+            if (turno.ventasPorMetodo(metodo).signum() != 0) {
+                porMetodo.put(metodo.name(), turno.ventasPorMetodo(metodo));
+            }
+        }
 
         resultado.put("abierta", true);
         resultado.put("id", caja.getId());
         resultado.put("fechaApertura", caja.getFechaApertura());
         resultado.put("usuarioApertura", caja.getUsuarioApertura().getNombreCompleto());
         resultado.put("montoInicial", caja.getMontoInicial());
-        resultado.put("totalVentas", totalVentas);
-        resultado.put("totalEfectivo", totalEfectivo);
+        resultado.put("totalVentas", turno.getVentasTotal());
+        resultado.put("totalEfectivo", turno.ventasPorMetodo(Venta.MetodoPago.EFECTIVO));
         resultado.put("porMetodoPago", porMetodo);
-        resultado.put("montoEsperado", caja.getMontoInicial().add(totalEfectivo));
-        resultado.put("cantidadVentas",
-                ventaRepository.countVentasCompletadas(caja.getFechaApertura(), ahora));
+        resultado.put("montoEsperado", caja.getMontoInicial().add(turno.ventasPorMetodo(Venta.MetodoPago.EFECTIVO)));
+        resultado.put("cantidadVentas", turno.getVentasCantidad());
 
         return resultado;
     }
 
+    // ==================== ACUMULADOS DEL TURNO ====================
+
+    /**
+     * Suma la venta a los acumulados de la caja abierta, dentro de la
+     * transacción de la venta: confirman o se revierten juntos, así que los
+     * acumulados son exactos en todo momento. Va a una franja al azar (ver
+     * CajaAcumulado) para que las ventas simultáneas no esperen por la misma
+     * fila. Si la caja se cerró mientras se cobraba, la venta se rechaza: el
+     * cierre ya congeló el turno.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acumularVenta(Venta venta) {
+        if (!aplicar(venta, 1)) {
+            throw new RuntimeException("La caja se cerró mientras se registraba la venta. "
+                    + "Abre la caja y vuelve a intentarlo.");
+        }
+    }
+
+    /**
+     * Resta la venta anulada de los acumulados (también en la transacción de
+     * la anulación), solo si es del turno abierto. Si es de un turno ya
+     * cerrado, ese arqueo queda como se cerró.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revertirVenta(Venta venta) {
+        aplicar(venta, -1);
+    }
+
+    /**
+     * Conciliación periódica: compara los acumulados de la caja abierta con la
+     * suma de sus ventas por rango de fechas y los corrige si no cuadran. Con
+     * la sesión y todas sus franjas bloqueadas ninguna venta puede confirmar
+     * a la mitad, así que las dos sumas ven exactamente las mismas ventas.
+     * Mientras dura (unas pocas consultas) las ventas esperan.
+     */
+    @Scheduled(fixedDelayString = "${gams.caja.conciliacion-ms:600000}",
+               initialDelayString = "${gams.caja.conciliacion-ms:600000}")
+    @Transactional
+    public void conciliarAcumulados() {
+        for (CajaSesion caja : cajaRepository.findAbiertasForUpdate()) {
+            List<CajaAcumulado> franjas = acumuladoRepository.findByCajaIdForUpdate(caja.getId());
+            if (franjas.isEmpty()) {
+                continue;
+            }
+            CajaAcumulado turno = sumar(franjas);
+
+            LocalDateTime ahora = LocalDateTime.now();
+            int cantidad = (int) ventaRepository.countVentasCompletadas(caja.getFechaApertura(), ahora);
+            BigDecimal total = ventaRepository.sumTotalVendido(caja.getFechaApertura(), ahora);
+            Map<String, BigDecimal> porMetodo = totalPorMetodo(caja.getFechaApertura(), ahora);
+
+            boolean cuadra = turno.getVentasCantidad() == cantidad
+                    && turno.getVentasTotal().compareTo(total) == 0;
+            for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+                BigDecimal esperado = porMetodo.getOrDefault(metodo.name(), BigDecimal.ZERO);
+                cuadra &= turno.ventasPorMetodo(metodo).compareTo(esperado) == 0;
+            }
+            if (cuadra) {
+                continue;
+            }
+
+            log.warn("Caja {}: acumulados desfasados (cantidad {} vs {}, total {} vs {}); se corrigen",
+                    caja.getId(), turno.getVentasCantidad(), cantidad, turno.getVentasTotal(), total);
+            // Lo correcto queda en la primera franja y las demás en cero
+            for (int i = 0; i < franjas.size(); i++) {
+                CajaAcumulado franja = franjas.get(i);
+                boolean primera = i == 0;
+                franja.setVentasCantidad(primera ? cantidad : 0);
+                franja.setVentasTotal(primera ? total : BigDecimal.ZERO);
+                for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+                    franja.setVentasPorMetodo(metodo,
+                            primera ? porMetodo.getOrDefault(metodo.name(), BigDecimal.ZERO) : BigDecimal.ZERO);
+                }
+            }
+        }
+    }
+
     /** Historial de sesiones cerradas (para revisar arqueos pasados) */
     public List<Map<String, Object>> historial() {
         return cajaRepository.findAllByOrderByFechaAperturaDesc().stream()
@@ -130,6 +249,58 @@ public class CajaService {
         return porMetodo;
     }
 
+    private CajaSesion leerAbierta(Integer id) {
+        return cajaRepository.findById(id).filter(CajaSesion::estaAbierta).orElse(null);
+    }
+
+    /**
+     * Aplica la venta (signo 1) o su anulación (signo -1) a una franja de la
+     * caja abierta. Si la caja en memoria ya no está abierta (la cerró otro
+     * nodo) se relee una vez de la BD. Devuelve false si no hay caja abierta o
+     * si la venta es anterior a su apertura (pertenece a un turno cerrado).
+     */
+    private boolean aplicar(Venta venta, int signo) {
+        Optional<CajaActualService.CajaAbierta> abierta = cajaActual.cajaAbierta();
+        int franja = ThreadLocalRandom.current().nextInt(CajaAcumulado.FRANJAS);
+
+        for (int intento = 0; intento < 2 && abierta.isPresent(); intento++) {
+            if (venta.getFecha().isBefore(abierta.get().getFechaApertura())) {
+                return false;
+            }
+
+            BigDecimal total = venta.getTotal().multiply(BigDecimal.valueOf(signo));
+            Map<Venta.MetodoPago, BigDecimal> porMetodo = new EnumMap<>(Venta.MetodoPago.class);
+            for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+                porMetodo.put(metodo, metodo == venta.getMetodoPago() ? total : BigDecimal.ZERO);
+            }
+
+            int filas = acumuladoRepository.acumular(abierta.get().getId(), franja, signo, total,
+                    porMetodo.get(Venta.MetodoPago.EFECTIVO),
+                    porMetodo.get(Venta.MetodoPago.TARJETA),
+                    porMetodo.get(Venta.MetodoPago.YAPE),
+                    porMetodo.get(Venta.MetodoPago.PLIN),
+                    porMetodo.get(Venta.MetodoPago.TRANSFERENCIA));
+            if (filas > 0) {
+                return true;
+            }
+            abierta = cajaActual.recargar();
+        }
+        return false;
+    }
+
+    // Totales del turno: la suma de sus franjas (una entidad sin guardar)
+    private static CajaAcumulado sumar(List<CajaAcumulado> franjas) {
+        CajaAcumulado turno = new CajaAcumulado();
+        for (CajaAcumulado franja : franjas) {
+            turno.setVentasCantidad(turno.getVentasCantidad() + franja.getVentasCantidad());
+            turno.setVentasTotal(turno.getVentasTotal().add(franja.getVentasTotal()));
+            for (Venta.MetodoPago metodo : Venta.MetodoPago.values()) {
+                turno.setVentasPorMetodo(metodo, turno.ventasPorMetodo(metodo).add(franja.ventasPorMetodo(metodo)));
+            }
+        }
+        return turno;
+    }
+
     /** Representación segura de la sesión (sin exponer la entidad Usuario) */
     private Map<String, Object> aMapa(CajaSesion caja) {
         Map<String, Object> m = new LinkedHashMap<>();
@@ -151,15 +322,4 @@ public class CajaService {
         return m;
     }
 
-    private Usuario obtenerUsuarioActual() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("No hay usuario autenticado");
-        }
-
-        return usuarioRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException(
-                        "Usuario no encontrado: " + authentication.getName()));
-    }
 }
\ No newline at end of file
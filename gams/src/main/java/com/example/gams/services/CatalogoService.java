@@ -21,13 +21,27 @@ public class CatalogoService {
     private final ColorRepository colorRepository;
     private final ProductoRepository productoRepository;
     private final ProductoVarianteRepository varianteRepository;
+    private final EscanerVariantesService escaner;
+    private final CacheCatalogos cache;
+
+    private static final String CATEGORIAS = "categorias";
+    private static final String MARCAS = "marcas";
+    private static final String TALLAS = "tallas";
+    private static final String COLORES = "colores";
 
     // ============================================
     // CATEGORÍAS
     // ============================================
 
+    // Lista cacheada con su ETag (todas, o solo las activas por nombre)
+    public CacheCatalogos.Lista<Categoria> listaCategorias(boolean soloActivas) {
+        return soloActivas
+                ? cache.obtener(CATEGORIAS, "activas", categoriaRepository::findByActivoTrueOrderByNombreAsc)
+                : cache.obtener(CATEGORIAS, "todas", categoriaRepository::findAll);
+    }
+
     public List<Categoria> listarCategorias() {
-        return categoriaRepository.findAll();
+        return listaCategorias(false).getDatos();
     }
 
     public List<Categoria> listarCategoriasActivas() {
@@ -35,7 +49,7 @@ public class CatalogoService {
     }
 
     public List<Categoria> listarCategoriasActivasOrdenadas() {
-        return categoriaRepository.findByActivoTrueOrderByNombreAsc();
+        return listaCategorias(true).getDatos();
     }
 
     public Optional<Categoria> buscarCategoriaPorId(@NonNull Integer id) {
@@ -51,6 +65,8 @@ public class CatalogoService {
     }
 
     public Categoria guardarCategoria(@NonNull Categoria categoria) {
+        escaner.catalogoCambiado();
+        cache.invalidar(CATEGORIAS);
         return categoriaRepository.save(categoria);
     }
 
@@ -61,6 +77,7 @@ public class CatalogoService {
                 "No se puede eliminar: " + productosAsociados + " producto(s) usan esta categoría. Desactívala en su lugar.");
         }
         categoriaRepository.deleteById(id);
+        cache.invalidar(CATEGORIAS);
     }
 
     public boolean existeCategoriaPorNombre(String nombre) {
@@ -75,8 +92,15 @@ public class CatalogoService {
     // MARCAS
     // ============================================
 
+    // Lista cacheada con su ETag (todas, o solo las activas por nombre)
+    public CacheCatalogos.Lista<Marca> listaMarcas(boolean soloActivas) {
+        return soloActivas
+                ? cache.obtener(MARCAS, "activas", marcaRepository::findByActivoTrueOrderByNombreAsc)
+                : cache.obtener(MARCAS, "todas", marcaRepository::findAll);
+    }
+
     public List<Marca> listarMarcas() {
-        return marcaRepository.findAll();
+        return listaMarcas(false).getDatos();
     }
 
     public List<Marca> listarMarcasActivas() {
@@ -84,7 +108,7 @@ public class CatalogoService {
     }
 
     public List<Marca> listarMarcasActivasOrdenadas() {
-        return marcaRepository.findByActivoTrueOrderByNombreAsc();
+        return listaMarcas(true).getDatos();
     }
 
     public Optional<Marca> buscarMarcaPorId(@NonNull Integer id) {
@@ -100,6 +124,8 @@ public class CatalogoService {
     }
 
     public Marca guardarMarca(@NonNull Marca marca) {
+        escaner.catalogoCambiado();
+        cache.invalidar(MARCAS);
         return marcaRepository.save(marca);
     }
 
@@ -110,6 +136,7 @@ public class CatalogoService {
                 "No se puede eliminar: " + productosAsociados + " producto(s) usan esta marca. Desactívala en su lugar.");
         }
         marcaRepository.deleteById(id);
+        cache.invalidar(MARCAS);
     }
 
     public boolean existeMarcaPorNombre(String nombre) {
@@ -124,8 +151,20 @@ public class CatalogoService {
     // TALLAS
     // ============================================
 
+    // Lista cacheada con su ETag: las activas de un tipo, todas las activas por
+    // orden, o todas
+    public CacheCatalogos.Lista<Talla> listaTallas(Talla.TipoTalla tipo, boolean soloActivas) {
+        if (tipo != null) {
+            return cache.obtener(TALLAS, "tipo:" + tipo,
+                    () -> tallaRepository.findByTipoAndActivoTrueOrderByOrdenAsc(tipo));
+        }
+        return soloActivas
+                ? cache.obtener(TALLAS, "activas", tallaRepository::findByActivoTrueOrderByOrdenAsc)
+                : cache.obtener(TALLAS, "todas", tallaRepository::findAll);
+    }
+
     public List<Talla> listarTallas() {
-        return tallaRepository.findAll();
+        return listaTallas(null, false).getDatos();
     }
 
     public List<Talla> listarTallasActivas() {
@@ -137,11 +176,11 @@ public class CatalogoService {
     }
 
     public List<Talla> listarTallasOrdenadasPorOrden() {
-        return tallaRepository.findByActivoTrueOrderByOrdenAsc();
+        return listaTallas(null, true).getDatos();
     }
 
     public List<Talla> listarTallasPorTipoOrdenadas(Talla.TipoTalla tipo) {
-        return tallaRepository.findByTipoAndActivoTrueOrderByOrdenAsc(tipo);
+        return listaTallas(tipo, true).getDatos();
     }
 
     public Optional<Talla> buscarTallaPorId(@NonNull Integer id) {
@@ -153,6 +192,8 @@ public class CatalogoService {
     }
 
     public Talla guardarTalla(@NonNull Talla talla) {
+        escaner.catalogoCambiado();
+        cache.invalidar(TALLAS);
         if (talla.getOrden() == null) {
             // Sin orden especificado: asignar al final de la lista
             Integer maxOrden = tallaRepository.findMaxOrden();
@@ -187,6 +228,7 @@ public class CatalogoService {
                 "No se puede eliminar: " + variantesAsociadas + " variante(s) usan esta talla. Desactívala en su lugar.");
         }
         tallaRepository.deleteById(id);
+        cache.invalidar(TALLAS);
     }
 
     public boolean existeTallaPorNombre(String nombre) {
@@ -205,8 +247,15 @@ public class CatalogoService {
     // COLORES
     // ============================================
 
+    // Lista cacheada con su ETag (todas, o solo las activas por nombre)
+    public CacheCatalogos.Lista<Color> listaColores(boolean soloActivas) {
+        return soloActivas
+                ? cache.obtener(COLORES, "activas", colorRepository::findByActivoTrueOrderByNombreAsc)
+                : cache.obtener(COLORES, "todas", colorRepository::findAll);
+    }
+
     public List<Color> listarColores() {
-        return colorRepository.findAll();
+        return listaColores(false).getDatos();
     }
 
     public List<Color> listarColoresActivos() {
@@ -214,7 +263,7 @@ public class CatalogoService {
     }
 
     public List<Color> listarColoresActivosOrdenados() {
-        return colorRepository.findByActivoTrueOrderByNombreAsc();
+        return listaColores(true).getDatos();
     }
 
     public Optional<Color> buscarColorPorId(@NonNull Integer id) {
@@ -234,6 +283,8 @@ public class CatalogoService {
     }
 
     public Color guardarColor(@NonNull Color color) {
+        escaner.catalogoCambiado();
+        cache.invalidar(COLORES);
         return colorRepository.save(color);
     }
 
@@ -244,6 +295,7 @@ public class CatalogoService {
                 "No se puede eliminar: " + variantesAsociadas + " variante(s) usan este color. Desactívalo en su lugar.");
         }
         colorRepository.deleteById(id);
+        cache.invalidar(COLORES);
     }
 
     public boolean existeColorPorNombre(String nombre) {
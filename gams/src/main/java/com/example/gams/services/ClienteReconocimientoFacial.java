@@ -0,0 +1,195 @@
+package com.example.gams.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Llamadas HTTP al servicio Python de reconocimiento facial. Antes cada
+ * controlador usaba un RestTemplate sin timeouts: un Python colgado dejaba
+ * colgados también los hilos de Tomcat, y con ellos el login de todos.
+ *
+ * - Conexiones: un HttpClient del JDK (HTTP/1.1) que las reutiliza
+ *   (keep-alive), con timeout de conexión y de respuesta
+ *   (gams.facial.servicio.conexion-timeout-ms / respuesta-timeout-ms).
+ * - Turnos: como mucho gams.facial.servicio.max-concurrentes llamadas a la
+ *   vez; la siguiente espera un turno hasta espera-turno-ms y si no lo
+ *   consigue se rechaza.
+ * - Circuito: tras fallos-para-abrir fallos seguidos (sin respuesta o error
+ *   5xx) se deja de llamar durante abierto-ms y cada llamada falla al
+ *   instante; después pasa una sola llamada de prueba, y si responde el
+ *   circuito se vuelve a cerrar.
+ *
+ * Los rechazos (circuito abierto, sin turno, sin respuesta) son
+ * NoDisponibleException con un mensaje para mostrar. Las respuestas 4xx de
+ * Python no son fallos: traen su {success: false, message} y se devuelven tal cual.
+ */
+@Component
+public class ClienteReconocimientoFacial {
+
+    private static final Logger log = LoggerFactory.getLogger(ClienteReconocimientoFacial.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final MetricasService metricas;
+    private final String url;
+    private final HttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final Semaphore turnos;
+    private final long esperaTurnoMillis;
+    private final int fallosParaAbrir;
+    private final long abiertoMillis;
+
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    private final AtomicBoolean probando = new AtomicBoolean();
+    // Momento hasta el que el circuito está abierto; 0 = cerrado
+    private volatile long abiertoHasta;
+
+    public ClienteReconocimientoFacial(MetricasService metricas,
+                                       @Value("${gams.facial.servicio.url:http://localhost:5000}") String url,
+                                       @Value("${gams.facial.servicio.conexion-timeout-ms:1000}") long conexionTimeoutMillis,
+                                       @Value("${gams.facial.servicio.respuesta-timeout-ms:5000}") long respuestaTimeoutMillis,
+                                       @Value("${gams.facial.servicio.max-concurrentes:8}") int maxConcurrentes,
+                                       @Value("${gams.facial.servicio.espera-turno-ms:500}") long esperaTurnoMillis,
+                                       @Value("${gams.facial.servicio.fallos-para-abrir:5}") int fallosParaAbrir,
+                                       @Value("${gams.facial.servicio.abierto-ms:30000}") long abiertoMillis) {
+        this.metricas = metricas;
+        this.url = url;
+        this.esperaTurnoMillis = esperaTurnoMillis;
+        this.fallosParaAbrir = Math.max(1, fallosParaAbrir);
+        this.abiertoMillis = abiertoMillis;
+        this.turnos = new Semaphore(Math.max(1, maxConcurrentes), true);
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(conexionTimeoutMillis))
+                .build();
+        JdkClientHttpRequestFactory fabrica = new JdkClientHttpRequestFactory(httpClient);
+        fabrica.setReadTimeout(Duration.ofMillis(respuestaTimeoutMillis));
+        this.restTemplate = new RestTemplate(fabrica);
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) throws IOException {
+                return response.getStatusCode().is5xxServerError();
+            }
+        });
+    }
+
+    // ==================== LLAMADAS ====================
+
+    /** POST con payload JSON */
+    public Map<String, Object> post(String operacion, String endpoint, Map<String, String> payload) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return llamar(operacion, endpoint, HttpMethod.POST, new HttpEntity<>(payload, headers));
+    }
+
+    public Map<String, Object> get(String operacion, String endpoint) {
+        return llamar(operacion, endpoint, HttpMethod.GET, null);
+    }
+
+    public Map<String, Object> delete(String operacion, String endpoint) {
+        return llamar(operacion, endpoint, HttpMethod.DELETE, null);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        httpClient.close();
+    }
+
+    // ==================== CIRCUITO Y TURNOS ====================
+
+    // Medida en gams.facial.llamada (la URL lleva el username: se etiqueta por operación)
+    private Map<String, Object> llamar(String operacion, String endpoint, HttpMethod method, HttpEntity<?> entity) {
+        boolean prueba = false;
+        if (abiertoHasta != 0) {
+            if (System.currentTimeMillis() < abiertoHasta || !probando.compareAndSet(false, true)) {
+                throw rechazo("circuito_abierto",
+                        "El servicio de reconocimiento facial no está disponible. Intenta de nuevo en unos segundos.");
+            }
+            prueba = true;
+        }
+        try {
+            if (!tomarTurno()) {
+                throw rechazo("sin_turno",
+                        "El servicio de reconocimiento facial está ocupado. Intenta de nuevo en unos segundos.");
+            }
+            try {
+                Map<String, Object> respuesta = metricas.medir("gams.facial.llamada",
+                        () -> restTemplate.exchange(url + endpoint, method, entity, MAP_TYPE).getBody(),
+                        "operacion", operacion);
+                fallosSeguidos.set(0);
+                abiertoHasta = 0;
+                return respuesta;
+            } catch (ResourceAccessException e) {
+                registrarFallo(operacion, e);
+                throw new NoDisponibleException(
+                        "El servicio de reconocimiento facial no responde. Intenta de nuevo en unos segundos.", e);
+            } catch (HttpServerErrorException e) {
+                registrarFallo(operacion, e);
+                throw e;
+            } finally {
+                turnos.release();
+            }
+        } finally {
+            if (prueba) {
+                probando.set(false);
+            }
+        }
+    }
+
+    private boolean tomarTurno() {
+        try {
+            return turnos.tryAcquire(esperaTurnoMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Un fallo más; al llegar a fallosParaAbrir (o si falla la llamada de prueba) se abre el circuito
+    private void registrarFallo(String operacion, RuntimeException e) {
+        if (fallosSeguidos.incrementAndGet() >= fallosParaAbrir) {
+            abiertoHasta = System.currentTimeMillis() + abiertoMillis;
+            log.warn("Servicio de reconocimiento facial: {} fallos seguidos (último en {}: {}), sin llamadas por {} ms",
+                    fallosSeguidos.get(), operacion, e.getMessage(), abiertoMillis);
+        }
+    }
+
+    private NoDisponibleException rechazo(String motivo, String mensaje) {
+        metricas.contar("gams.facial.rechazo", "motivo", motivo);
+        return new NoDisponibleException(mensaje, null);
+    }
+
+    /** El servicio Python no atendió la llamada (caído, lento, saturado o con el circuito abierto) */
+    public static class NoDisponibleException extends RuntimeException {
+
+        public NoDisponibleException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.SecuenciaVenta;
+import com.example.gams.repositories.SecuenciaVentaRepository;
+import com.example.gams.repositories.VentaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Year;
+import java.util.List;
+
+/**
+ * Entrega los correlativos de venta (V-2026-00001, V-2026-00002...) sin que
+ * las ventas compitan entre sí por el número.
+ *
+ * Cada nodo reserva en la tabla secuencias_venta un bloque de números en una
+ * transacción propia y corta (la fila se bloquea solo durante la reserva), y
+ * luego los reparte desde memoria. Dos nodos nunca reciben el mismo bloque,
+ * así que el UNIQUE de ventas.codigo deja de ser un punto de choque.
+ *
+ * La numeración es creciente dentro de cada nodo y tolera huecos: los números
+ * de una venta que falla o los que quedan sin usar al reiniciar se pierden.
+ * La numeración se reinicia cada año.
+ */
+@Service
+public class CorrelativoVentaService {
+
+    private static final int MAX_INTENTOS_RESERVA = 3;
+
+    private final SecuenciaVentaRepository secuenciaRepository;
+    private final VentaRepository ventaRepository;
+    private final TransactionTemplate transaccionNueva;
+    private final int tamanoBloque;
+
+    // Bloque vigente de este nodo (protegido por el monitor de la instancia)
+    private int anioBloque;
+    private long siguiente;
+    private long ultimo = -1;
+
+    public CorrelativoVentaService(SecuenciaVentaRepository secuenciaRepository,
+                                   VentaRepository ventaRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${gams.ventas.correlativo.tamano-bloque:20}") int tamanoBloque) {
+        this.secuenciaRepository = secuenciaRepository;
+        this.ventaRepository = ventaRepository;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tamanoBloque = Math.max(1, tamanoBloque);
+    }
+
+    /**
+     * Siguiente código de comprobante. Solo va a la BD cuando se agota el
+     * bloque reservado (o cambia el año).
+     */
+    public synchronized String siguienteCodigo() {
+        int anioActual = Year.now().getValue();
+
+        if (anioActual != anioBloque || siguiente > ultimo) {
+            long finBloque = reservarBloque(anioActual);
+            anioBloque = anioActual;
+            siguiente = finBloque - tamanoBloque + 1;
+            ultimo = finBloque;
+        }
+
+        return String.format("V-%d-%05d", anioActual, siguiente++);
+    }
+
+    // ==================== UTILIDADES ====================
+
+    /**
+     * Reserva el siguiente bloque del año y devuelve su último número.
+     * Corre en una transacción nueva: no depende de que la venta confirme.
+     */
+    private long reservarBloque(int anio) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transaccionNueva.execute(status -> {
+                    SecuenciaVenta secuencia = secuenciaRepository.findByAnioForUpdate(anio)
+                            .orElseGet(() -> secuenciaRepository.saveAndFlush(
+                                    new SecuenciaVenta(anio, ultimoNumeroEmitido(anio))));
+
+                    secuencia.setUltimoNumero(secuencia.getUltimoNumero() + tamanoBloque);
+                    return secuencia.getUltimoNumero();
+                });
+            } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+                // Otro nodo creó la fila del año al mismo tiempo: volver a leerla
+                if (intento >= MAX_INTENTOS_RESERVA) {
+                    throw new RuntimeException("No se pudo reservar el correlativo de ventas, intenta de nuevo");
+                }
+            }
+        }
+    }
+
+    /**
+     * Mayor correlativo ya emitido en el año (0 si no hay ventas). Solo se usa
+     * para sembrar el contador la primera vez que se vende en un año.
+     */
+    private long ultimoNumeroEmitido(int anio) {
+        List<String> codigos = ventaRepository.findCodigosPorPrefijo("V-" + anio + "-%", PageRequest.of(0, 1));
+        if (codigos.isEmpty()) {
+            return 0;
+        }
+
+        // Formato esperado: V-AAAA-NNNNN
+        String[] partes = codigos.get(0).split("-");
+        try {
+            return partes.length == 3 ? Long.parseLong(partes[2]) : 0;
+        } catch (NumberFormatException e) {
+            return 0; // Código con formato inesperado: se reinicia la numeración
+        }
+    }
+}
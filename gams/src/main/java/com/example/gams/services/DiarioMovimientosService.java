@@ -0,0 +1,313 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.entities.MovimientoInventario;
+import com.example.gams.entities.MovimientoOutbox;
+import com.example.gams.entities.MovimientoResumenDiario;
+import com.example.gams.entities.ProductoVariante;
+import com.example.gams.repositories.MovimientoInventarioRepository;
+import com.example.gams.repositories.MovimientoOutboxRepository;
+import com.example.gams.repositories.MovimientoResumenDiarioRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.repositories.UsuarioRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Diario de movimientos de inventario: todos los servicios le entregan aquí
+ * los movimientos que generan, y este decide cómo escribirlos
+ * (gams.inventario.diario.modo):
+ *
+ * - SINCRONO: INSERT en movimientos_inventario dentro de la transacción de la
+ *   operación (en batch JDBC cuando son varios).
+ * - OUTBOX: la operación solo escribe UNA fila en movimientos_outbox con todos
+ *   sus movimientos, en su misma transacción; el costo del cobro ya no depende
+ *   de las líneas del carrito. Un drenado periódico pasa las filas pendientes a
+ *   movimientos_inventario en lotes. Como la fila del outbox confirma junto con
+ *   la venta, y el drenado inserta y borra en una misma transacción, un
+ *   movimiento no se pierde ni se duplica si el proceso cae.
+ *
+ * En los dos modos el movimiento se inserta sin sumar al resumen diario de las
+ * estadísticas (movimientos_resumen_diario): lo suma aparte consolidarResumen,
+ * así el cobro no bloquea filas del resumen que comparte con otras ventas.
+ *
+ * En modo OUTBOX el kardex y los reportes ven los movimientos con el retraso
+ * del drenado (gams.inventario.diario.drenado-ms), y el movimiento devuelto
+ * por las operaciones individuales aún no tiene id.
+ */
+@Service
+public class DiarioMovimientosService {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioMovimientosService.class);
+
+    private static final TypeReference<List<MovimientoDTO>> LISTA_MOVIMIENTOS = new TypeReference<>() {};
+
+    public enum Modo {
+        SINCRONO,
+        OUTBOX
+    }
+
+    private final MovimientoInventarioRepository movimientoRepository;
+    private final MovimientoOutboxRepository outboxRepository;
+    private final MovimientoResumenDiarioRepository resumenRepository;
+    private final ProductoVarianteRepository varianteRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final Modo modo;
+    private final int tamanoLote;
+
+    public DiarioMovimientosService(MovimientoInventarioRepository movimientoRepository,
+                                    MovimientoOutboxRepository outboxRepository,
+                                    MovimientoResumenDiarioRepository resumenRepository,
+                                    ProductoVarianteRepository varianteRepository,
+                                    UsuarioRepository usuarioRepository,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${gams.inventario.diario.modo:SINCRONO}") Modo modo,
+                                    @Value("${gams.inventario.diario.tamano-lote:200}") int tamanoLote) {
+        this.movimientoRepository = movimientoRepository;
+        this.outboxRepository = outboxRepository;
+        this.resumenRepository = resumenRepository;
+        this.varianteRepository = varianteRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.objectMapper = objectMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.modo = modo;
+        this.tamanoLote = Math.max(1, tamanoLote);
+    }
+
+    /**
+     * Registra los movimientos de una operación. Debe llamarse dentro de la
+     * transacción de esa operación. Los movimientos ya traen variante, usuario
+     * y datos desnormalizados.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<MovimientoInventario> registrar(List<MovimientoInventario> movimientos) {
+        if (movimientos.isEmpty()) {
+            return movimientos;
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        for (MovimientoInventario movimiento : movimientos) {
+            if (movimiento.getFecha() == null) {
+                movimiento.setFecha(ahora);
+            }
+        }
+
+        if (modo == Modo.SINCRONO) {
+            return movimientoRepository.saveAll(movimientos);
+        }
+
+        List<MovimientoDTO> contenido = movimientos.stream().map(this::aDTO).collect(Collectors.toList());
+        try {
+            outboxRepository.save(new MovimientoOutbox(objectMapper.writeValueAsString(contenido)));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo registrar el movimiento de inventario", e);
+        }
+        return movimientos;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public MovimientoInventario registrar(MovimientoInventario movimiento) {
+        return registrar(List.of(movimiento)).get(0);
+    }
+
+    // ==================== DRENADO DEL OUTBOX ====================
+
+    /**
+     * Drenado periódico, solo en modo OUTBOX: en SINCRONO nadie escribe en el
+     * outbox y no hay nada que consultar cada segundo.
+     */
+    @Scheduled(fixedDelayString = "${gams.inventario.diario.drenado-ms:1000}")
+    public void drenarPeriodicamente() {
+        if (modo == Modo.OUTBOX) {
+            drenarOutbox();
+        }
+    }
+
+    /**
+     * En modo SINCRONO se drena una sola vez al arrancar: lo que quedó
+     * pendiente si antes se corrió en OUTBOX.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void drenarAlIniciar() {
+        if (modo == Modo.SINCRONO) {
+            drenarOutbox();
+        }
+    }
+
+    /**
+     * Pasa los pendientes del outbox a movimientos_inventario, un lote por
+     * transacción, hasta vaciarlo.
+     */
+    public void drenarOutbox() {
+        Integer drenadas;
+        do {
+            drenadas = transaccion.execute(status -> drenarLote());
+        } while (drenadas != null && drenadas == tamanoLote);
+    }
+
+    private int drenarLote() {
+        List<MovimientoOutbox> pendientes = outboxRepository.findPendientesForUpdate(PageRequest.of(0, tamanoLote));
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        List<MovimientoOutbox> drenadas = new ArrayList<>(pendientes.size());
+        List<MovimientoDTO> contenido = new ArrayList<>();
+        for (MovimientoOutbox pendiente : pendientes) {
+            try {
+                contenido.addAll(objectMapper.readValue(pendiente.getContenido(), LISTA_MOVIMIENTOS));
+                drenadas.add(pendiente);
+            } catch (JsonProcessingException e) {
+                // No debería pasar (lo escribió este mismo servicio). Se marca
+                // con el error: queda en la tabla para revisarla a mano y los
+                // próximos lotes ya no la traen, así no frena al resto
+                log.error("Outbox de movimientos {}: contenido ilegible, se marca y se aparta", pendiente.getId(), e);
+                pendiente.setError(recortar(String.valueOf(e.getOriginalMessage())));
+            }
+        }
+
+        // La variante pudo eliminarse mientras el movimiento esperaba: se guarda
+        // sin FK y con sus datos desnormalizados, como registrarEliminacion
+        Set<Integer> varianteIds = contenido.stream()
+                .map(MovimientoDTO::getVarianteId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Integer, ProductoVariante> variantes = varianteRepository.findAllById(varianteIds).stream()
+                .collect(Collectors.toMap(ProductoVariante::getId, Function.identity()));
+
+        List<MovimientoInventario> movimientos = new ArrayList<>(contenido.size());
+        for (MovimientoDTO dto : contenido) {
+            movimientos.add(aEntidad(dto, variantes.get(dto.getVarianteId())));
+        }
+
+        movimientoRepository.saveAll(movimientos);
+        outboxRepository.deleteAllInBatch(drenadas);
+        // Las marcadas con error también cuentan: el lote se procesó completo
+        return pendientes.size();
+    }
+
+    // ==================== RESUMEN DIARIO ====================
+
+    /**
+     * Suma a movimientos_resumen_diario los movimientos que aún no están en él
+     * y los marca como resumidos, un lote por transacción hasta agotarlos.
+     * Antes cada venta sumaba en su propia transacción y retenía hasta el
+     * commit la fila (día, SALIDA, producto): las ventas de distintas variantes
+     * de un mismo producto se esperaban entre sí. Ahora el resumen solo lo
+     * escribe este proceso, y las estadísticas le suman los pendientes para no
+     * quedar atrasadas.
+     */
+    @Scheduled(fixedDelayString = "${gams.inventario.diario.resumen-ms:60000}",
+               initialDelayString = "${gams.inventario.diario.resumen-ms:60000}")
+    public void consolidarResumen() {
+        Integer consolidados;
+        do {
+            consolidados = transaccion.execute(status -> consolidarLote());
+        } while (consolidados != null && consolidados == tamanoLote);
+    }
+
+    private int consolidarLote() {
+        List<MovimientoInventario> pendientes =
+                movimientoRepository.findPendientesDeResumenForUpdate(PageRequest.of(0, tamanoLote));
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        acumularResumen(pendientes);
+        movimientoRepository.marcarResumidos(pendientes.stream().map(MovimientoInventario::getId).toList());
+        return pendientes.size();
+    }
+
+    // Una sentencia por (día, tipo, producto) y en orden de clave, para que dos
+    // nodos que consolidan a la vez no se bloqueen en orden cruzado
+    private void acumularResumen(List<MovimientoInventario> movimientos) {
+        Map<ClaveResumen, long[]> acumulados = new TreeMap<>();
+        for (MovimientoInventario movimiento : movimientos) {
+            ClaveResumen clave = new ClaveResumen(movimiento.getFecha().toLocalDate(), movimiento.getTipo().name(),
+                    movimiento.getVariante() != null
+                            ? movimiento.getVariante().getProducto().getId()
+                            : MovimientoResumenDiario.SIN_PRODUCTO);
+            long[] totales = acumulados.computeIfAbsent(clave, c -> new long[2]);
+            totales[0]++;
+            totales[1] += movimiento.getCantidad();
+        }
+        acumulados.forEach((clave, totales) ->
+                resumenRepository.acumular(clave.fecha(), clave.tipo(), clave.productoId(), totales[0], totales[1]));
+    }
+
+    private record ClaveResumen(LocalDate fecha, String tipo, Integer productoId) implements Comparable<ClaveResumen> {
+        private static final Comparator<ClaveResumen> ORDEN = Comparator.comparing(ClaveResumen::fecha)
+                .thenComparing(ClaveResumen::tipo)
+                .thenComparing(ClaveResumen::productoId);
+
+        @Override
+        public int compareTo(ClaveResumen otra) {
+            return ORDEN.compare(this, otra);
+        }
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private MovimientoDTO aDTO(MovimientoInventario movimiento) {
+        MovimientoDTO dto = new MovimientoDTO();
+        dto.setVarianteId(movimiento.getVariante() != null ? movimiento.getVariante().getId() : null);
+        dto.setVarianteSku(movimiento.getVarianteSku());
+        dto.setProductoNombre(movimiento.getProductoNombre());
+        dto.setColorNombre(movimiento.getColorNombre());
+        dto.setTallaNombre(movimiento.getTallaNombre());
+        dto.setTipo(movimiento.getTipo());
+        dto.setCantidad(movimiento.getCantidad());
+        dto.setStockAnterior(movimiento.getStockAnterior());
+        dto.setStockNuevo(movimiento.getStockNuevo());
+        dto.setMotivo(movimiento.getMotivo());
+        dto.setReferencia(movimiento.getReferencia());
+        dto.setUsuarioId(movimiento.getUsuario().getId());
+        dto.setFecha(movimiento.getFecha());
+        return dto;
+    }
+
+    private MovimientoInventario aEntidad(MovimientoDTO dto, ProductoVariante variante) {
+        MovimientoInventario movimiento = new MovimientoInventario(variante, dto.getTipo(), dto.getCantidad(),
+                dto.getStockAnterior(), dto.getStockNuevo(), usuarioRepository.getReferenceById(dto.getUsuarioId()));
+        movimiento.setVarianteSku(dto.getVarianteSku());
+        movimiento.setProductoNombre(dto.getProductoNombre());
+        movimiento.setColorNombre(dto.getColorNombre());
+        movimiento.setTallaNombre(dto.getTallaNombre());
+        movimiento.setMotivo(dto.getMotivo());
+        movimiento.setReferencia(dto.getReferencia());
+        movimiento.setFecha(dto.getFecha());
+        return movimiento;
+    }
+
+    // El error cabe en movimientos_outbox.error (500)
+    private static String recortar(String mensaje) {
+        return mensaje.length() <= 500 ? mensaje : mensaje.substring(0, 500);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VarianteDTO;
+import com.example.gams.entities.Producto;
+import com.example.gams.entities.ProductoVariante;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Búsqueda por SKU / código de barras del escáner (POS e inventario). Cada
+ * lectura hacía un SELECT con OR entre las dos columnas únicas (que suele
+ * dejar sin usar sus índices) y arrastraba producto, catálogos y proveedor.
+ *
+ * Aquí cada código escaneado guarda en memoria una ficha inmutable de su
+ * variante (ids, nombres, precios), con tope de entradas
+ * (gams.productos.escaner.max-entradas, se descarta la menos usada). El stock
+ * NO va en la ficha: en cada escaneo se lee aparte por PK, así que la cantidad
+ * nunca está desfasada y las ventas o ajustes no tienen que invalidar nada.
+ *
+ * ProductoService y CatalogoService avisan lo que cambian y la ficha se
+ * descarta al confirmar. Lo que cambie otro nodo (precio, nombre) se ve al
+ * vencer la ficha (gams.productos.escaner.ttl-ms); una variante desactivada
+ * o eliminada en otro nodo se detecta al instante en la lectura del stock.
+ *
+ * Solo se encuentran variantes activas, lo mismo que con la consulta anterior
+ * (findBySkuOrCodigoBarras): vender o ajustar una variante desactivada desde
+ * el escáner no está permitido.
+ */
+@Service
+public class EscanerVariantesService {
+
+    private final ProductoVarianteRepository varianteRepository;
+    private final long ttlMillis;
+    private final Map<String, Ficha> fichas;
+
+    // Sube con cada invalidación: una lectura de BD que empezó antes no debe
+    // guardar una ficha que ya se sabe vieja
+    private final AtomicLong version = new AtomicLong();
+
+    public EscanerVariantesService(ProductoVarianteRepository varianteRepository,
+                                   @Value("${gams.productos.escaner.max-entradas:5000}") int maxEntradas,
+                                   @Value("${gams.productos.escaner.ttl-ms:60000}") long ttlMillis) {
+        this.varianteRepository = varianteRepository;
+        this.ttlMillis = ttlMillis;
+        int limite = Math.max(1, maxEntradas);
+        this.fichas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ficha> mayor) {
+                return size() > limite;
+            }
+        };
+    }
+
+    /** Variante activa con ese SKU o código de barras, con su stock al momento */
+    public Optional<VarianteDTO> buscar(String codigo) {
+        Ficha ficha;
+        synchronized (fichas) {
+            ficha = fichas.get(codigo);
+            if (ficha != null && System.currentTimeMillis() - ficha.leidaEn >= ttlMillis) {
+                fichas.remove(codigo);
+                ficha = null;
+            }
+        }
+
+        if (ficha != null) {
+            Optional<Integer> stock = varianteRepository.findStockActualActiva(ficha.id);
+            if (stock.isPresent()) {
+                return Optional.of(ficha.aDTO(stock.get()));
+            }
+            // Desactivada o eliminada (quizá desde otro nodo): se busca de nuevo
+            // por si el código ahora es de otra variante
+            synchronized (fichas) {
+                fichas.remove(codigo);
+            }
+        }
+
+        long versionLeida = version.get();
+        Optional<ProductoVariante> variante = varianteRepository.findActivaBySkuConDetalle(codigo)
+                .or(() -> varianteRepository.findActivaByCodigoBarrasConDetalle(codigo));
+        if (variante.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Ficha nueva = new Ficha(variante.get());
+        synchronized (fichas) {
+            if (version.get() == versionLeida) {
+                fichas.put(codigo, nueva);
+            }
+        }
+        return Optional.of(nueva.aDTO(variante.get().getStockActual()));
+    }
+
+    // ==================== INVALIDACIÓN ====================
+
+    /** La variante cambió (o se eliminó) en la transacción actual */
+    public void varianteCambiada(Integer varianteId) {
+        alConfirmar(ficha -> ficha.id.equals(varianteId));
+    }
+
+    /** El producto cambió (o se eliminó) en la transacción actual: afecta a todas sus variantes */
+    public void productoCambiado(Integer productoId) {
+        alConfirmar(ficha -> ficha.productoId.equals(productoId));
+    }
+
+    /** Cambió una categoría, marca, color o talla: los nombres de cualquier ficha pueden estar viejos */
+    public void catalogoCambiado() {
+        alConfirmar(ficha -> true);
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private void alConfirmar(Predicate<Ficha> afectada) {
+        Runnable accion = () -> {
+            synchronized (fichas) {
+                version.incrementAndGet();
+                fichas.values().removeIf(afectada);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    /** Datos de la variante que no cambian al vender o ajustar stock (inmutable) */
+    private static final class Ficha {
+        private final Integer id;
+        private final Integer productoId;
+        private final String productoCodigo;
+        private final String productoNombre;
+        private final String categoriaNombre;
+        private final String marcaNombre;
+        private final Integer colorId;
+        private final String colorNombre;
+        private final String colorCodigoHex;
+        private final Integer tallaId;
+        private final String tallaNombre;
+        private final String sku;
+        private final String codigoBarras;
+        private final String ubicacion;
+        private final Integer stockMinimo;
+        private final Integer stockMaximo;
+        private final Boolean activo;
+        private final LocalDateTime fechaCreacion;
+        private final BigDecimal precioVenta;
+        private final BigDecimal precioCompra;
+        private final long leidaEn = System.currentTimeMillis();
+
+        private Ficha(ProductoVariante variante) {
+            Producto producto = variante.getProducto();
+            this.id = variante.getId();
+            this.productoId = producto.getId();
+            this.productoCodigo = producto.getCodigo();
+            this.productoNombre = producto.getNombre();
+            this.categoriaNombre = producto.getCategoria().getNombre();
+            this.marcaNombre = producto.getMarca() != null ? producto.getMarca().getNombre() : null;
+            this.colorId = variante.getColor().getId();
+            this.colorNombre = variante.getColor().getNombre();
+            this.colorCodigoHex = variante.getColor().getCodigoHex();
+            this.tallaId = variante.getTalla().getId();
+            this.tallaNombre = variante.getTalla().getNombre();
+            this.sku = variante.getSku();
+            this.codigoBarras = variante.getCodigoBarras();
+            this.ubicacion = variante.getUbicacion();
+            this.stockMinimo = variante.getStockMinimo();
+            this.stockMaximo = variante.getStockMaximo();
+            this.activo = variante.getActivo();
+            this.fechaCreacion = variante.getFechaCreacion();
+            this.precioVenta = producto.getPrecioVenta();
+            this.precioCompra = producto.getPrecioCompra();
+        }
+
+        // Mismo contenido que new VarianteDTO(variante) con el stock indicado
+        // (fechaActualizacion queda null: cambia con cada venta)
+        private VarianteDTO aDTO(Integer stockActual) {
+            return new VarianteDTO(id, productoId, productoCodigo, productoNombre, categoriaNombre, marcaNombre,
+                    colorId, colorNombre, colorCodigoHex, tallaId, tallaNombre, sku, codigoBarras, ubicacion,
+                    stockActual, stockMinimo, stockMaximo, activo, fechaCreacion, null, precioVenta, precioCompra);
+        }
+    }
+}
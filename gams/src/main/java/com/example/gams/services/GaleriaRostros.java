@@ -0,0 +1,297 @@
+package com.example.gams.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Encodings de los rostros registrados (rostros_biometricos) fuera del heap:
+ * un FloatBuffer directo con una fila de 128 floats por foto, contiguas, más
+ * el id y el username de cada fila.
+ *
+ * Las fotos se agregan y se quitan de a una (registro y eliminación de un
+ * usuario) sin rearmar el resto: al quitar una fila, la última ocupa su lugar.
+ * Las búsquedas leen bajo un lock de lectura y no se bloquean entre sí.
+ *
+ * Puede guardarse en un archivo (snapshot) y leerse mapeándolo a memoria, para
+ * que un reinicio no vuelva a leer todos los rostros de la BD.
+ */
+final class GaleriaRostros {
+
+    static final int DIMENSION = 128;
+
+    // Cabecera del snapshot: "GRF1" y cantidad de filas
+    private static final int MAGIA = 0x47524631;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FloatBuffer encodings;
+    private long[] ids;
+    private String[] usernames;
+    private int filas;
+    private long ultimoId;
+
+    private final Map<Long, Integer> filaPorId = new HashMap<>();
+    private final Map<String, Set<Long>> idsPorUsername = new HashMap<>();
+
+    GaleriaRostros(int capacidad) {
+        int inicial = Math.max(capacidad, 16);
+        this.encodings = nuevoBuffer(inicial);
+        this.ids = new long[inicial];
+        this.usernames = new String[inicial];
+    }
+
+    // ==================== CONSULTA ====================
+
+    /** Rostro registrado más cercano a la sonda; null si no hay ninguno */
+    Coincidencia masCercano(float[] sonda) {
+        if (sonda.length != DIMENSION) {
+            throw new RuntimeException("El encoding del rostro debe tener " + DIMENSION + " valores");
+        }
+
+        lock.readLock().lock();
+        try {
+            FloatBuffer matriz = encodings;
+            float mejor = Float.MAX_VALUE;
+            int mejorFila = -1;
+            for (int fila = 0, base = 0; fila < filas; fila++, base += DIMENSION) {
+                // Cuatro acumuladores independientes: el JIT no reordena sumas de
+                // floats, así que con uno solo cada suma espera a la anterior
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int j = 0; j < DIMENSION; j += 4) {
+                    float d0 = matriz.get(base + j) - sonda[j];
+                    float d1 = matriz.get(base + j + 1) - sonda[j + 1];
+                    float d2 = matriz.get(base + j + 2) - sonda[j + 2];
+                    float d3 = matriz.get(base + j + 3) - sonda[j + 3];
+                    s0 += d0 * d0;
+                    s1 += d1 * d1;
+                    s2 += d2 * d2;
+                    s3 += d3 * d3;
+                }
+                float distancia = (s0 + s1) + (s2 + s3);
+                if (distancia < mejor) {
+                    mejor = distancia;
+                    mejorFila = fila;
+                }
+            }
+
+            // Se compara el cuadrado de la distancia; la raíz solo para el resultado
+            return mejorFila < 0 ? null : new Coincidencia(usernames[mejorFila], Math.sqrt(mejor));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int tamano() {
+        lock.readLock().lock();
+        try {
+            return filas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Mayor id de rostro agregado: los posteriores son registros nuevos */
+    long ultimoId() {
+        lock.readLock().lock();
+        try {
+            return ultimoId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Entrega cada fila (con una copia de su encoding), p. ej. para armar un IndiceHnsw */
+    void recorrer(Fila destino) {
+        lock.readLock().lock();
+        try {
+            for (int fila = 0; fila < filas; fila++) {
+                float[] encoding = new float[DIMENSION];
+                encodings.get(fila * DIMENSION, encoding);
+                destino.aceptar(ids[fila], usernames[fila], encoding);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== CAMBIOS ====================
+
+    /** Agrega una foto; si su id ya está, no hace nada */
+    void agregar(long id, String username, float[] encoding) {
+        if (encoding.length != DIMENSION) {
+            throw new RuntimeException("El encoding del rostro debe tener " + DIMENSION + " valores");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (filaPorId.containsKey(id)) {
+                return;
+            }
+            if (filas == ids.length) {
+                crecer();
+            }
+            encodings.put(filas * DIMENSION, encoding);
+            ids[filas] = id;
+            usernames[filas] = username;
+            filaPorId.put(id, filas);
+            idsPorUsername.computeIfAbsent(username, u -> new LinkedHashSet<>()).add(id);
+            ultimoId = Math.max(ultimoId, id);
+            filas++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Quita todas las fotos del usuario */
+    void quitarUsuario(String username) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> delUsuario = idsPorUsername.remove(username);
+            if (delUsuario == null) {
+                return;
+            }
+            for (Long id : delUsuario) {
+                quitarFila(filaPorId.remove(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // La última fila pasa al hueco: las filas siguen contiguas
+    private void quitarFila(int fila) {
+        int ultima = --filas;
+        if (fila != ultima) {
+            encodings.put(fila * DIMENSION, encodings, ultima * DIMENSION, DIMENSION);
+            ids[fila] = ids[ultima];
+            usernames[fila] = usernames[ultima];
+            filaPorId.put(ids[fila], fila);
+        }
+        usernames[ultima] = null;
+    }
+
+    private void crecer() {
+        int capacidad = ids.length * 2;
+        FloatBuffer mayor = nuevoBuffer(capacidad);
+        mayor.put(0, encodings, 0, filas * DIMENSION);
+        encodings = mayor;
+        ids = Arrays.copyOf(ids, capacidad);
+        usernames = Arrays.copyOf(usernames, capacidad);
+    }
+
+    private static FloatBuffer nuevoBuffer(int filas) {
+        return ByteBuffer.allocateDirect(filas * DIMENSION * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    // ==================== SNAPSHOT ====================
+
+    /**
+     * Guarda la galería en el archivo: cabecera, (id, username) de cada fila y
+     * luego la matriz tal cual. Se escribe en un temporal y se renombra, para
+     * que un reinicio a mitad de la escritura no deje un snapshot a medias
+     */
+    void guardar(Path archivo) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                byte[][] nombres = new byte[filas][];
+                int tamanoCabecera = 8;
+                for (int fila = 0; fila < filas; fila++) {
+                    nombres[fila] = usernames[fila].getBytes(StandardCharsets.UTF_8);
+                    tamanoCabecera += 12 + nombres[fila].length;
+                }
+                ByteBuffer cabecera = ByteBuffer.allocate(tamanoCabecera).order(ByteOrder.LITTLE_ENDIAN);
+                cabecera.putInt(MAGIA).putInt(filas);
+                for (int fila = 0; fila < filas; fila++) {
+                    cabecera.putLong(ids[fila]).putInt(nombres[fila].length).put(nombres[fila]);
+                }
+                escribirTodo(canal, cabecera.flip());
+
+                ByteBuffer matriz = ByteBuffer.allocateDirect(filas * DIMENSION * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                matriz.asFloatBuffer().put(0, encodings, 0, filas * DIMENSION);
+                escribirTodo(canal, matriz);
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Galería leída del snapshot (el archivo se mapea a memoria y la matriz se copia de un bloque) */
+    static GaleriaRostros leer(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            mapa.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapa.remaining() < 8 || mapa.getInt() != MAGIA) {
+                throw new IOException("Snapshot de rostros con formato desconocido: " + archivo);
+            }
+            int filas = mapa.getInt();
+
+            GaleriaRostros galeria = new GaleriaRostros(filas);
+            for (int fila = 0; fila < filas; fila++) {
+                long id = mapa.getLong();
+                byte[] username = new byte[mapa.getInt()];
+                mapa.get(username);
+                galeria.registrarFila(fila, id, new String(username, StandardCharsets.UTF_8));
+            }
+
+            FloatBuffer matriz = mapa.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            if (matriz.remaining() != filas * DIMENSION) {
+                throw new IOException("Snapshot de rostros incompleto: " + archivo);
+            }
+            galeria.encodings.put(0, matriz, 0, filas * DIMENSION);
+            galeria.filas = filas;
+            return galeria;
+        }
+    }
+
+    // Índices de una fila leída del snapshot (la matriz se copia después)
+    private void registrarFila(int fila, long id, String username) {
+        ids[fila] = id;
+        usernames[fila] = username;
+        filaPorId.put(id, fila);
+        idsPorUsername.computeIfAbsent(username, u -> new LinkedHashSet<>()).add(id);
+        ultimoId = Math.max(ultimoId, id);
+    }
+
+    private static void escribirTodo(FileChannel canal, ByteBuffer datos) throws IOException {
+        while (datos.hasRemaining()) {
+            canal.write(datos);
+        }
+    }
+
+    @FunctionalInterface
+    interface Fila {
+        void aceptar(long id, String username, float[] encoding);
+    }
+
+    /** Username del rostro más cercano y su distancia (0 = idéntico) */
+    record Coincidencia(String username, double distancia) {
+
+        // Misma escala que devolvía el servicio Python: (1 - distancia) en %, 2 decimales
+        double confianza() {
+            return Math.round((1 - distancia) * 10000) / 100.0;
+        }
+    }
+}
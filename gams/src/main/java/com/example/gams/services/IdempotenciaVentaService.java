@@ -0,0 +1,131 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.VentaIdempotencia;
+import com.example.gams.repositories.VentaIdempotenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Claves de idempotencia de POST /api/ventas (cabecera Idempotency-Key). El
+ * POS manda la misma clave si reintenta un cobro: con ella se devuelve la
+ * venta ya registrada en vez de crear otra y descontar el stock dos veces.
+ *
+ * La tabla ventas_idempotencia es la fuente de verdad (la comparten todos los
+ * nodos); las claves confirmadas en este nodo se guardan además en un LRU en
+ * memoria (gams.ventas.idempotencia.max-memoria) para responder los reintentos
+ * sin ir a la BD. Las claves vencen a las gams.ventas.idempotencia.ttl-horas:
+ * salen del LRU al consultarlas y de la tabla con la limpieza periódica.
+ */
+@Service
+public class IdempotenciaVentaService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotenciaVentaService.class);
+
+    private final VentaIdempotenciaRepository idempotenciaRepository;
+    private final long ttlMillis;
+
+    // clave -> venta registrada, en orden de acceso (el más antiguo sale primero)
+    private final Map<String, Recuerdo> recientes;
+
+    public IdempotenciaVentaService(VentaIdempotenciaRepository idempotenciaRepository,
+                                    @Value("${gams.ventas.idempotencia.ttl-horas:24}") long ttlHoras,
+                                    @Value("${gams.ventas.idempotencia.max-memoria:10000}") int maxMemoria) {
+        this.idempotenciaRepository = idempotenciaRepository;
+        this.ttlMillis = ttlHoras * 3_600_000L;
+        int limite = Math.max(1, maxMemoria);
+        this.recientes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Recuerdo> mayor) {
+                return size() > limite;
+            }
+        };
+    }
+
+    /**
+     * Id de la venta ya registrada con esta clave, si la hay: primero en
+     * memoria y luego en la BD (la pudo registrar otro nodo)
+     */
+    public Optional<Integer> ventaRegistrada(String clave) {
+        synchronized (recientes) {
+            Recuerdo recuerdo = recientes.get(clave);
+            if (recuerdo != null) {
+                if (System.currentTimeMillis() - recuerdo.guardadoEn < ttlMillis) {
+                    return Optional.of(recuerdo.ventaId);
+                }
+                recientes.remove(clave);
+            }
+        }
+
+        // En la BD no se mira el vencimiento: si la fila sigue ahí, la venta
+        // es esa (el POS genera una clave nueva por cada cobro)
+        Optional<Integer> ventaId = idempotenciaRepository.findById(clave).map(VentaIdempotencia::getVentaId);
+        ventaId.ifPresent(id -> recordar(clave, id));
+        return ventaId;
+    }
+
+    /**
+     * Reclama la clave para la venta en curso: debe ser lo primero que escribe
+     * su transacción. Si otra venta la tiene (confirmada o en curso), el INSERT
+     * espera a que esa termine y falla por PK duplicada
+     * (DataIntegrityViolationException), antes de bloquear ninguna variante.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reclamar(String clave) {
+        idempotenciaRepository.reclamar(clave, LocalDateTime.now());
+    }
+
+    /** Asocia la venta a su clave; entra al LRU cuando la venta confirma */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void asociar(String clave, Integer ventaId) {
+        idempotenciaRepository.asociarVenta(clave, ventaId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordar(clave, ventaId);
+            }
+        });
+    }
+
+    // ==================== LIMPIEZA ====================
+
+    /** Borra de la tabla las claves vencidas */
+    @Scheduled(fixedDelayString = "${gams.ventas.idempotencia.limpieza-ms:3600000}")
+    @Transactional
+    public void limpiarVencidas() {
+        int eliminadas = idempotenciaRepository.eliminarAnterioresA(
+                LocalDateTime.now().minus(Duration.ofMillis(ttlMillis)));
+        if (eliminadas > 0) {
+            log.info("Claves de idempotencia vencidas eliminadas: {}", eliminadas);
+        }
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private void recordar(String clave, Integer ventaId) {
+        synchronized (recientes) {
+            recientes.put(clave, new Recuerdo(ventaId));
+        }
+    }
+
+    private static final class Recuerdo {
+        private final Integer ventaId;
+        private final long guardadoEn = System.currentTimeMillis();
+
+        private Recuerdo(Integer ventaId) {
+            this.ventaId = ventaId;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.gams.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice aproximado de vecinos más cercanos (HNSW: grafo de varios niveles en
+ * el que cada foto se conecta con sus m más cercanas) sobre los encodings de
+ * la galería. Una búsqueda visita unos cientos de fotos en vez de todas; a
+ * cambio puede no devolver la más cercana (recall < 1), según ef.
+ *
+ * - m: vecinos por foto y nivel (2m en el nivel 0). Más = mejor recall, más memoria.
+ * - efConstruccion: candidatos al insertar. Más = mejor grafo, inserción más lenta.
+ * - ef (por búsqueda): candidatos al buscar. Más = mejor recall, búsqueda más lenta.
+ *
+ * Las fotos se agregan de a una. Al quitar un usuario sus fotos solo se marcan
+ * como eliminadas (siguen sirviendo de paso en el grafo, pero no se devuelven);
+ * cuando las eliminadas pesan demasiado conviene volver a armar el índice.
+ *
+ * Como en GaleriaRostros, los encodings van juntos en un solo arreglo y los
+ * candidatos de la búsqueda son longs (distancia y nodo) en montículos
+ * propios: la búsqueda visita pocas fotos, pero salteadas, y crear un objeto
+ * por candidato costaba más que la distancia.
+ */
+final class IndiceHnsw {
+
+    private static final int DIMENSION = GaleriaRostros.DIMENSION;
+
+    private final int m;
+    private final int mNivel0;
+    private final int efConstruccion;
+    private final double factorNivel;
+    private final Random random = new Random(42);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Nodo i: encoding en vectores[i * DIMENSION ...], vecinos[i][nivel] (los
+    // primeros cantidad[i][nivel] son válidos)
+    private float[] vectores = new float[16 * DIMENSION];
+    private final List<int[][]> vecinos = new ArrayList<>();
+    private final List<int[]> cantidad = new ArrayList<>();
+    private final List<String> usernames = new ArrayList<>();
+    private final BitSet eliminado = new BitSet();
+    private final Map<Long, Integer> nodoPorId = new HashMap<>();
+    private final Map<String, List<Integer>> nodosPorUsername = new HashMap<>();
+    private int nodos;
+    private int entrada = -1;
+    private int nivelMaximo = -1;
+    private int eliminados;
+
+    IndiceHnsw(int m, int efConstruccion) {
+        this.m = Math.max(2, m);
+        this.mNivel0 = this.m * 2;
+        this.efConstruccion = Math.max(this.m, efConstruccion);
+        this.factorNivel = 1 / Math.log(this.m);
+    }
+
+    // ==================== CONSULTA ====================
+
+    /** Foto no eliminada más cercana que encuentra la búsqueda; null si no hay ninguna */
+    GaleriaRostros.Coincidencia masCercano(float[] sonda, int ef) {
+        if (sonda.length != DIMENSION) {
+            throw new RuntimeException("El encoding del rostro debe tener " + DIMENSION + " valores");
+        }
+        lock.readLock().lock();
+        try {
+            if (entrada < 0) {
+                return null;
+            }
+            long actual = candidato(distancia(sonda, entrada), entrada);
+            for (int nivel = nivelMaximo; nivel > 0; nivel--) {
+                actual = descender(sonda, actual, nivel);
+            }
+
+            long[] encontrados = buscarEnNivel(sonda, actual, Math.max(ef, 1), 0);
+            for (long encontrado : encontrados) {
+                if (!eliminado.get(nodo(encontrado))) {
+                    return new GaleriaRostros.Coincidencia(usernames.get(nodo(encontrado)),
+                            Math.sqrt(distancia(encontrado)));
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Fotos no eliminadas */
+    int tamano() {
+        lock.readLock().lock();
+        try {
+            return nodos - eliminados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int eliminados() {
+        lock.readLock().lock();
+        try {
+            return eliminados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== CAMBIOS ====================
+
+    /** Agrega una foto; si su id ya está (y no se eliminó), no hace nada */
+    void agregar(long id, String username, float[] encoding) {
+        if (encoding.length != DIMENSION) {
+            throw new RuntimeException("El encoding del rostro debe tener " + DIMENSION + " valores");
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existente = nodoPorId.get(id);
+            if (existente != null && !eliminado.get(existente)) {
+                return;
+            }
+
+            int nivel = (int) (-Math.log(1 - random.nextDouble()) * factorNivel);
+            int nuevo = nodos;
+            if ((nuevo + 1) * DIMENSION > vectores.length) {
+                vectores = Arrays.copyOf(vectores, vectores.length * 2);
+            }
+            System.arraycopy(encoding, 0, vectores, nuevo * DIMENSION, DIMENSION);
+            int[][] listas = new int[nivel + 1][];
+            for (int n = 0; n <= nivel; n++) {
+                listas[n] = new int[n == 0 ? mNivel0 : m];
+            }
+            vecinos.add(listas);
+            cantidad.add(new int[nivel + 1]);
+            usernames.add(username);
+            nodoPorId.put(id, nuevo);
+            nodosPorUsername.computeIfAbsent(username, u -> new ArrayList<>()).add(nuevo);
+            nodos++;
+
+            if (entrada < 0) {
+                entrada = nuevo;
+                nivelMaximo = nivel;
+                return;
+            }
+
+            // Bajar por los niveles superiores al de la foto hasta su vecindad
+            long actual = candidato(distancia(encoding, entrada), entrada);
+            for (int n = nivelMaximo; n > nivel; n--) {
+                actual = descender(encoding, actual, n);
+            }
+
+            for (int n = Math.min(nivel, nivelMaximo); n >= 0; n--) {
+                long[] candidatos = buscarEnNivel(encoding, actual, efConstruccion, n);
+                long[] elegidos = seleccionar(candidatos, candidatos.length, n == 0 ? mNivel0 : m);
+                for (long vecino : elegidos) {
+                    conectar(nuevo, nodo(vecino), n);
+                    conectar(nodo(vecino), nuevo, n);
+                }
+                actual = candidatos[0];
+            }
+
+            if (nivel > nivelMaximo) {
+                entrada = nuevo;
+                nivelMaximo = nivel;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Marca como eliminadas todas las fotos del usuario */
+    void quitarUsuario(String username) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> delUsuario = nodosPorUsername.remove(username);
+            if (delUsuario == null) {
+                return;
+            }
+            for (int nodo : delUsuario) {
+                if (!eliminado.get(nodo)) {
+                    eliminado.set(nodo);
+                    eliminados++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== GRAFO ====================
+
+    // Búsqueda voraz en un nivel superior: se mueve al vecino más cercano mientras mejore
+    private long descender(float[] sonda, long desde, int nivel) {
+        long actual = desde;
+        boolean mejoro = true;
+        while (mejoro) {
+            mejoro = false;
+            int nodo = nodo(actual);
+            int[] lista = vecinos.get(nodo)[nivel];
+            for (int i = 0, total = cantidad.get(nodo)[nivel]; i < total; i++) {
+                long vecino = candidato(distancia(sonda, lista[i]), lista[i]);
+                if (vecino < actual) {
+                    actual = vecino;
+                    mejoro = true;
+                }
+            }
+        }
+        return actual;
+    }
+
+    // Los ef nodos más cercanos que alcanza la búsqueda en el nivel, del más cercano al más lejano
+    private long[] buscarEnNivel(float[] sonda, long desde, int ef, int nivel) {
+        BitSet visitados = new BitSet(nodos);
+        visitados.set(nodo(desde));
+        Monticulo porVisitar = new Monticulo(ef * 2, false);
+        Monticulo resultado = new Monticulo(ef + 1, true);
+        porVisitar.agregar(desde);
+        resultado.agregar(desde);
+
+        while (porVisitar.tamano() > 0) {
+            long candidato = porVisitar.sacar();
+            if (candidato > resultado.primero()) {
+                break;
+            }
+            int nodo = nodo(candidato);
+            int[] lista = vecinos.get(nodo)[nivel];
+            for (int i = 0, total = cantidad.get(nodo)[nivel]; i < total; i++) {
+                int vecino = lista[i];
+                if (visitados.get(vecino)) {
+                    continue;
+                }
+                visitados.set(vecino);
+                long nuevo = candidato(distancia(sonda, vecino), vecino);
+                if (resultado.tamano() < ef || nuevo < resultado.primero()) {
+                    porVisitar.agregar(nuevo);
+                    resultado.agregar(nuevo);
+                    if (resultado.tamano() > ef) {
+                        resultado.sacar();
+                    }
+                }
+            }
+        }
+        return resultado.ordenados();
+    }
+
+    // Heurística de HNSW: de los candidatos (ordenados), se queda con los que
+    // están más cerca de la foto que de cualquier vecino ya elegido, para que
+    // los vecinos cubran direcciones distintas y no un solo grupo
+    private long[] seleccionar(long[] candidatos, int total, int maximo) {
+        long[] elegidos = new long[Math.min(total, maximo)];
+        int cuantos = 0;
+        for (int i = 0; i < total && cuantos < maximo; i++) {
+            int nodo = nodo(candidatos[i]);
+            float hastaFoto = distancia(candidatos[i]);
+            boolean cubierto = false;
+            for (int j = 0; j < cuantos; j++) {
+                if (distanciaEntre(nodo, nodo(elegidos[j])) < hastaFoto) {
+                    cubierto = true;
+                    break;
+                }
+            }
+            if (!cubierto) {
+                elegidos[cuantos++] = candidatos[i];
+            }
+        }
+        return Arrays.copyOf(elegidos, cuantos);
+    }
+
+    // Agrega el vecino; si el nodo ya tiene el máximo, vuelve a elegir entre todos
+    private void conectar(int origen, int destino, int nivel) {
+        int[] lista = vecinos.get(origen)[nivel];
+        int[] cantidades = cantidad.get(origen);
+        if (cantidades[nivel] < lista.length) {
+            lista[cantidades[nivel]++] = destino;
+            return;
+        }
+
+        long[] candidatos = new long[lista.length + 1];
+        for (int i = 0; i < lista.length; i++) {
+            candidatos[i] = candidato(distanciaEntre(origen, lista[i]), lista[i]);
+        }
+        candidatos[lista.length] = candidato(distanciaEntre(origen, destino), destino);
+        Arrays.sort(candidatos);
+        long[] elegidos = seleccionar(candidatos, candidatos.length, lista.length);
+        for (int i = 0; i < elegidos.length; i++) {
+            lista[i] = nodo(elegidos[i]);
+        }
+        cantidades[nivel] = elegidos.length;
+    }
+
+    private float distancia(float[] sonda, int nodo) {
+        return distancia(sonda, 0, vectores, nodo * DIMENSION);
+    }
+
+    private float distanciaEntre(int a, int b) {
+        return distancia(vectores, a * DIMENSION, vectores, b * DIMENSION);
+    }
+
+    // Cuadrado de la distancia euclidiana (mismo orden que la distancia)
+    private static float distancia(float[] a, int baseA, float[] b, int baseB) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int j = 0; j < DIMENSION; j += 4) {
+            float d0 = a[baseA + j] - b[baseB + j];
+            float d1 = a[baseA + j + 1] - b[baseB + j + 1];
+            float d2 = a[baseA + j + 2] - b[baseB + j + 2];
+            float d3 = a[baseA + j + 3] - b[baseB + j + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Un candidato es un long: distancia (float >= 0, sus bits ordenan igual)
+    // arriba y nodo abajo, así que comparar los longs compara las distancias
+    private static long candidato(float distancia, int nodo) {
+        return (long) Float.floatToRawIntBits(distancia) << 32 | nodo;
+    }
+
+    private static int nodo(long candidato) {
+        return (int) candidato;
+    }
+
+    private static float distancia(long candidato) {
+        return Float.intBitsToFloat((int) (candidato >>> 32));
+    }
+
+    /** Montículo binario de candidatos: el primero es el menor, o el mayor si maximo */
+    private static final class Monticulo {
+        private final boolean maximo;
+        private long[] datos;
+        private int tamano;
+
+        private Monticulo(int capacidad, boolean maximo) {
+            this.datos = new long[Math.max(capacidad, 4)];
+            this.maximo = maximo;
+        }
+
+        private int tamano() {
+            return tamano;
+        }
+
+        private long primero() {
+            return datos[0];
+        }
+
+        private void agregar(long valor) {
+            if (tamano == datos.length) {
+                datos = Arrays.copyOf(datos, tamano * 2);
+            }
+            int i = tamano++;
+            while (i > 0) {
+                int padre = (i - 1) >>> 1;
+                if (!antes(valor, datos[padre])) {
+                    break;
+                }
+                datos[i] = datos[padre];
+                i = padre;
+            }
+            datos[i] = valor;
+        }
+
+        private long sacar() {
+            long primero = datos[0];
+            long ultimo = datos[--tamano];
+            int i = 0;
+            while (true) {
+                int hijo = 2 * i + 1;
+                if (hijo >= tamano) {
+                    break;
+                }
+                if (hijo + 1 < tamano && antes(datos[hijo + 1], datos[hijo])) {
+                    hijo++;
+                }
+                if (!antes(datos[hijo], ultimo)) {
+                    break;
+                }
+                datos[i] = datos[hijo];
+                i = hijo;
+            }
+            datos[i] = ultimo;
+            return primero;
+        }
+
+        // Contenido de menor a mayor
+        private long[] ordenados() {
+            long[] copia = Arrays.copyOf(datos, tamano);
+            Arrays.sort(copia);
+            return copia;
+        }
+
+        private boolean antes(long a, long b) {
+            return maximo ? a > b : a < b;
+        }
+    }
+}
@@ -1,18 +1,18 @@
 package com.example.gams.services;
 
+import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.dto.VarianteDTO;
 import com.example.gams.entities.MovimientoInventario;
 import com.example.gams.entities.ProductoVariante;
 import com.example.gams.entities.Usuario;
 import com.example.gams.repositories.MovimientoInventarioRepository;
 import com.example.gams.repositories.ProductoVarianteRepository;
-import com.example.gams.repositories.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +24,9 @@ public class InventarioService {
 
     private final MovimientoInventarioRepository movimientoRepository;
     private final ProductoVarianteRepository varianteRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final UsuarioActualService usuarioActual;
+    private final DiarioMovimientosService diario;
+    private final MetricasService metricas;
 
     // ============================================
     // MOVIMIENTOS DE INVENTARIO
@@ -34,44 +36,64 @@ public class InventarioService {
         return movimientoRepository.findAll();
     }
 
-    public List<MovimientoInventario> listarUltimosMovimientos() {
-        return movimientoRepository.findUltimosMovimientos();
+    // Los listados se proyectan directo a MovimientoDTO con una sola consulta
+    // de filtros combinables, en transacciones de solo lectura
+
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarUltimosMovimientos() {
+        return buscarMovimientos(null, null, null, null, null, null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorVariante(Integer varianteId) {
+        return buscarMovimientos(varianteId, null, null, null, null, null, null);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorVariante(Integer varianteId) {
-        return movimientoRepository.findByVarianteIdOrderByFechaDesc(varianteId);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorProducto(Integer productoId) {
+        return buscarMovimientos(null, productoId, null, null, null, null, null);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorProducto(Integer productoId) {
-        return movimientoRepository.findByProductoId(productoId);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorTipo(MovimientoInventario.TipoMovimiento tipo) {
+        return buscarMovimientos(null, null, null, tipo, null, null, null);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorTipo(MovimientoInventario.TipoMovimiento tipo) {
-        return movimientoRepository.findByTipoOrderByFechaDesc(tipo);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorUsuario(Integer usuarioId) {
+        return buscarMovimientos(null, null, usuarioId, null, null, null, null);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorUsuario(Integer usuarioId) {
-        return movimientoRepository.findByUsuarioIdOrderByFechaDesc(usuarioId);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorReferencia(String referencia) {
+        return buscarMovimientos(null, null, null, null, referencia, null, null);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorReferencia(String referencia) {
-        return movimientoRepository.findByReferenciaOrderByFechaDesc(referencia);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosPorFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        return buscarMovimientos(null, null, null, null, null, fechaInicio, fechaFin);
     }
 
-    public List<MovimientoInventario> listarMovimientosPorFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        return movimientoRepository.findByFechaBetweenOrderByFechaDesc(fechaInicio, fechaFin);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarMovimientosHoy() {
+        return buscarMovimientos(null, null, null, null, null, LocalDate.now().atStartOfDay(), null);
     }
 
-    public List<MovimientoInventario> listarMovimientosHoy() {
-        return movimientoRepository.findMovimientosHoy();
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarEntradasEntreFechas(LocalDateTime inicio, LocalDateTime fin) {
+        return buscarMovimientos(null, null, null, MovimientoInventario.TipoMovimiento.ENTRADA, null, inicio, fin);
     }
 
-    public List<MovimientoInventario> listarEntradasEntreFechas(LocalDateTime inicio, LocalDateTime fin) {
-        return movimientoRepository.findEntradasBetween(inicio, fin);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> listarSalidasEntreFechas(LocalDateTime inicio, LocalDateTime fin) {
+        return buscarMovimientos(null, null, null, MovimientoInventario.TipoMovimiento.SALIDA, null, inicio, fin);
     }
 
-    public List<MovimientoInventario> listarSalidasEntreFechas(LocalDateTime inicio, LocalDateTime fin) {
-        return movimientoRepository.findSalidasBetween(inicio, fin);
+    private List<MovimientoDTO> buscarMovimientos(Integer varianteId, Integer productoId, Integer usuarioId,
+                                                  MovimientoInventario.TipoMovimiento tipo, String referencia,
+                                                  LocalDateTime desde, LocalDateTime hasta) {
+        return movimientoRepository.buscarMovimientosDTO(varianteId, productoId, usuarioId, tipo, referencia,
+                desde, hasta);
     }
 
     public Optional<MovimientoInventario> buscarMovimientoPorId(@NonNull Integer id) {
@@ -124,12 +146,19 @@ public class InventarioService {
      */
     private MovimientoInventario registrarMovimiento(@NonNull Integer varianteId, MovimientoInventario.TipoMovimiento tipo,
                                                      Integer cantidad, String motivo, String referencia) {
+        return metricas.medir("gams.inventario.movimiento",
+                () -> aplicarMovimiento(varianteId, tipo, cantidad, motivo, referencia),
+                "tipo", tipo.name());
+    }
+
+    private MovimientoInventario aplicarMovimiento(@NonNull Integer varianteId, MovimientoInventario.TipoMovimiento tipo,
+                                                   Integer cantidad, String motivo, String referencia) {
         // Buscar variante
         ProductoVariante variante = varianteRepository.findById(varianteId)
             .orElseThrow(() -> new RuntimeException("Variante no encontrada con id: " + varianteId));
 
         // Obtener usuario del contexto de seguridad — nunca del request
-        Usuario usuario = obtenerUsuarioActual();
+        Usuario usuario = usuarioActual.referencia();
 
         // Obtener stock actual
         Integer stockAnterior = variante.getStockActual();
@@ -177,19 +206,7 @@ public class InventarioService {
         movimiento.setColorNombre(variante.getColor().getNombre());
         movimiento.setTallaNombre(variante.getTalla().getNombre());
 
-        return movimientoRepository.save(movimiento);
-    }
-
-    /**
-     * Obtiene el usuario autenticado actualmente desde el contexto de seguridad de Spring.
-     */
-    private Usuario obtenerUsuarioActual() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("No hay usuario autenticado");
-        }
-        return usuarioRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + authentication.getName()));
+        return diario.registrar(movimiento);
     }
 
     // ============================================
@@ -199,8 +216,9 @@ public class InventarioService {
     /**
      * Obtiene el historial completo de una variante
      */
-    public List<MovimientoInventario> obtenerHistorialVariante(Integer varianteId) {
-        return movimientoRepository.findByVarianteIdOrderByFechaDesc(varianteId);
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> obtenerHistorialVariante(Integer varianteId) {
+        return listarMovimientosPorVariante(varianteId);
     }
 
     /**
@@ -218,22 +236,25 @@ public class InventarioService {
     /**
      * Obtiene alertas de stock bajo
      */
-    public List<ProductoVariante> obtenerAlertasStockBajo() {
-        return varianteRepository.findStockBajo();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> obtenerAlertasStockBajo() {
+        return varianteRepository.findStockBajoDTO();
     }
 
     /**
      * Obtiene variantes sin stock
      */
-    public List<ProductoVariante> obtenerVariantesSinStock() {
-        return varianteRepository.findSinStock();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> obtenerVariantesSinStock() {
+        return varianteRepository.findSinStockDTO();
     }
 
     /**
-     * Obtiene variantes con stock
+     * Obtiene las variantes con stock de un producto
      */
-    public List<ProductoVariante> obtenerVariantesConStock() {
-        return varianteRepository.findConStock();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> obtenerVariantesConStock(Integer productoId) {
+        return varianteRepository.findConStockDTOByProductoId(productoId);
     }
 
     /**
@@ -247,7 +268,8 @@ public class InventarioService {
      * Cuenta movimientos de hoy
      */
     public long contarMovimientosHoy() {
-        return movimientoRepository.countMovimientosHoy();
+        LocalDateTime inicio = LocalDate.now().atStartOfDay();
+        return movimientoRepository.countMovimientosEntre(inicio, inicio.plusDays(1));
     }
 
     /**
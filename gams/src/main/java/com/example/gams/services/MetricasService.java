@@ -0,0 +1,110 @@
+package com.example.gams.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de los caminos calientes (venta, caja, inventario, login facial),
+ * publicadas en /actuator/metrics y /actuator/prometheus. Todas empiezan con
+ * "gams." y llevan histograma (ver management.metrics.distribution.* en
+ * application.properties).
+ *
+ * Cada operación es un Timer con las etiquetas "resultado" (ok / error) y
+ * "error" (clase de la excepción, o "ninguno"): su cuenta por etiqueta es el
+ * contador de éxitos y fallos.
+ */
+@RequiredArgsConstructor
+@Service
+public class MetricasService {
+
+    public static final String SIN_ERROR = "ninguno";
+
+    private final MeterRegistry registry;
+
+    /** Ejecuta la operación y registra su duración y resultado en el timer "nombre" */
+    public <T> T medir(String nombre, Supplier<T> operacion, String... etiquetas) {
+        Timer.Sample muestra = iniciar();
+        try {
+            T resultado = operacion.get();
+            registrar(muestra, nombre, null, etiquetas);
+            return resultado;
+        } catch (RuntimeException e) {
+            registrar(muestra, nombre, e, etiquetas);
+            throw e;
+        }
+    }
+
+    public Timer.Sample iniciar() {
+        return Timer.start(registry);
+    }
+
+    /** Cierra la muestra en el timer "nombre"; error es null si la operación terminó bien */
+    public void registrar(Timer.Sample muestra, String nombre, Throwable error, String... etiquetas) {
+        muestra.stop(registry.timer(nombre, Tags.of(etiquetas).and(resultado(error))));
+    }
+
+    /** Suma uno al contador "nombre" */
+    public void contar(String nombre, String... etiquetas) {
+        registry.counter(nombre, etiquetas).increment();
+    }
+
+    /**
+     * Cronómetro por fases de una operación (bloqueo, validación, ...). Cada
+     * llamada a terminar() suma al tiempo de esa fase lo transcurrido desde la
+     * anterior; una fase puede repetirse. registrar(error) publica el total de
+     * cada fase como una muestra del timer "nombre" con la etiqueta "fase", y
+     * los valores anotados (p. ej. las líneas) en sus resúmenes, todo con el
+     * resultado de la operación: se llama en un finally, así que las que
+     * fallan también cuentan (con las fases que alcanzaron a terminar).
+     */
+    public Fases fases(String nombre, String... etiquetas) {
+        return new Fases(nombre, Tags.of(etiquetas));
+    }
+
+    public final class Fases {
+        private final String nombre;
+        private final Tags etiquetas;
+        private final Map<String, Long> nanosPorFase = new LinkedHashMap<>();
+        private final Map<String, Double> valores = new LinkedHashMap<>();
+        private long marca = System.nanoTime();
+
+        private Fases(String nombre, Tags etiquetas) {
+            this.nombre = nombre;
+            this.etiquetas = etiquetas;
+        }
+
+        public void terminar(String fase) {
+            long ahora = System.nanoTime();
+            nanosPorFase.merge(fase, ahora - marca, Long::sum);
+            marca = ahora;
+        }
+
+        /** Valor de la operación para el resumen "resumen", publicado con las fases */
+        public void anotar(String resumen, double valor) {
+            valores.put(resumen, valor);
+        }
+
+        public void registrar(Throwable error) {
+            Tags conResultado = etiquetas.and(resultado(error));
+            nanosPorFase.forEach((fase, nanos) -> registry.timer(nombre, conResultado.and("fase", fase))
+                    .record(nanos, TimeUnit.NANOSECONDS));
+            valores.forEach((resumen, valor) -> DistributionSummary.builder(resumen).tags(conResultado)
+                    .register(registry).record(valor));
+        }
+    }
+
+    // Etiquetas "resultado" (ok / error) y "error" (clase de la excepción)
+    private static Tags resultado(Throwable error) {
+        return Tags.of("resultado", error == null ? "ok" : "error",
+                "error", error == null ? SIN_ERROR : error.getClass().getSimpleName());
+    }
+}
@@ -1,25 +1,38 @@
 package com.example.gams.services;
 
+import com.example.gams.dto.CursorMovimiento;
+import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.dto.TotalesMovimiento;
 import com.example.gams.entities.MovimientoInventario;
 import com.example.gams.entities.ProductoVariante;
 import com.example.gams.entities.Usuario;
 import com.example.gams.repositories.MovimientoInventarioRepository;
-import com.example.gams.repositories.UsuarioRepository;
+import com.example.gams.repositories.MovimientoResumenDiarioRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @RequiredArgsConstructor
 @Service
 public class MovimientoInventarioService {
 
     private final MovimientoInventarioRepository movimientoRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final MovimientoResumenDiarioRepository resumenRepository;
+    private final UsuarioActualService usuarioActual;
+    private final DiarioMovimientosService diario;
+
+    // Movimientos por consulta al exportar
+    private static final int TAMANO_LOTE_EXPORTACION = 1000;
 
     /**
      * Registrar un movimiento de inventario automáticamente
@@ -35,7 +48,7 @@ public class MovimientoInventarioService {
             String referencia) {
 
         // Obtener usuario actual del contexto de seguridad
-        Usuario usuario = obtenerUsuarioActual();
+        Usuario usuario = usuarioActual.referencia();
 
         MovimientoInventario movimiento = new MovimientoInventario();
         movimiento.setVariante(variante);
@@ -48,12 +61,30 @@ public class MovimientoInventarioService {
         movimiento.setUsuario(usuario);
         
         // Guardar información desnormalizada para mantener historial aunque se elimine la variante
-        movimiento.setVarianteSku(variante.getSku());
-        movimiento.setProductoNombre(variante.getProducto().getNombre());
-        movimiento.setColorNombre(variante.getColor().getNombre());
-        movimiento.setTallaNombre(variante.getTalla().getNombre());
+        copiarDatosVariante(movimiento, variante);
+
+        return diario.registrar(movimiento);
+    }
+
+    /**
+     * Registrar varios movimientos de una sola vez (las líneas de una venta o
+     * de una anulación). Cada movimiento llega con variante, tipo, cantidades,
+     * motivo y referencia; si no trae usuario se toma el del contexto.
+     */
+    @Transactional
+    public List<MovimientoInventario> registrarMovimientos(List<MovimientoInventario> movimientos) {
+        Usuario usuario = null;
+        for (MovimientoInventario movimiento : movimientos) {
+            if (movimiento.getUsuario() == null) {
+                if (usuario == null) {
+                    usuario = usuarioActual.referencia();
+                }
+                movimiento.setUsuario(usuario);
+            }
+            copiarDatosVariante(movimiento, movimiento.getVariante());
+        }
 
-        return movimientoRepository.save(movimiento);
+        return diario.registrar(movimientos);
     }
 
     /**
@@ -139,7 +170,7 @@ public class MovimientoInventarioService {
         Integer stockActual = variante.getStock() != null ? variante.getStock() : 0;
         
         // Obtener usuario actual
-        Usuario usuario = obtenerUsuarioActual();
+        Usuario usuario = usuarioActual.referencia();
 
         MovimientoInventario movimiento = new MovimientoInventario();
         // CRÍTICO: NO asignar la variante para evitar FK constraint
@@ -158,75 +189,147 @@ public class MovimientoInventarioService {
         movimiento.setColorNombre(variante.getColor().getNombre());
         movimiento.setTallaNombre(variante.getTalla().getNombre());
 
-        MovimientoInventario saved = movimientoRepository.save(movimiento);
-        
-        System.out.println("✅ Movimiento SALIDA (eliminación) guardado con ID: " + saved.getId() + " (sin FK a variante)");
-        return saved;
+        return diario.registrar(movimiento);
     }
 
-    /**
-     * Obtener todos los movimientos ordenados por fecha descendente
-     */
-    public List<MovimientoInventario> listarTodosMovimientos() {
-        return movimientoRepository.findUltimosMovimientos();
-    }
+    // ==================== HISTORIAL ====================
 
     /**
-     * Obtener movimientos de hoy
+     * Hasta "limite" movimientos del filtro (null = sin filtro), del más
+     * reciente al más antiguo y a partir del cursor (null = desde el inicio)
      */
-    public List<MovimientoInventario> listarMovimientosHoy() {
-        return movimientoRepository.findMovimientosHoy();
+    @Transactional(readOnly = true)
+    public List<MovimientoDTO> buscarMovimientosDesde(Integer varianteId, Integer productoId, Integer usuarioId,
+                                                      MovimientoInventario.TipoMovimiento tipo,
+                                                      LocalDateTime desde, LocalDateTime hasta,
+                                                      CursorMovimiento cursor, int limite) {
+        return movimientoRepository.buscarMovimientosDTODesde(varianteId, productoId, usuarioId, tipo, null,
+                desde, hasta,
+                cursor != null ? cursor.getFecha() : null,
+                cursor != null ? cursor.getId() : null,
+                PageRequest.of(0, limite));
     }
 
-    /**
-     * Obtener movimientos de una variante específica
-     */
-    public List<MovimientoInventario> listarMovimientosPorVariante(Integer varianteId) {
-        return movimientoRepository.findByVarianteIdOrderByFechaDesc(varianteId);
+    /** Total de movimientos del filtro (para el contador del historial) */
+    @Transactional(readOnly = true)
+    public long contarMovimientos(Integer varianteId, Integer productoId, Integer usuarioId,
+                                  MovimientoInventario.TipoMovimiento tipo,
+                                  LocalDateTime desde, LocalDateTime hasta) {
+        return movimientoRepository.contarMovimientos(varianteId, productoId, usuarioId, tipo, null, desde, hasta);
     }
 
     /**
-     * Obtener movimientos de un producto (todas sus variantes)
+     * Movimientos y unidades de cada tipo en el rango (null = sin límite; los
+     * tipos sin movimientos quedan en 0). Los días que el rango cubre completos
+     * se leen del resumen diario, más los movimientos de esos días que aún no
+     * se le sumaron; solo los tramos sueltos de los extremos se cuentan sobre
+     * todos los movimientos
      */
-    public List<MovimientoInventario> listarMovimientosPorProducto(Integer productoId) {
-        return movimientoRepository.findByProductoId(productoId);
-    }
+    @Transactional(readOnly = true)
+    public Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> resumirPorTipo(LocalDateTime desde,
+                                                                                       LocalDateTime hasta) {
+        Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> porTipo =
+                new EnumMap<>(MovimientoInventario.TipoMovimiento.class);
+        for (MovimientoInventario.TipoMovimiento tipo : MovimientoInventario.TipoMovimiento.values()) {
+            porTipo.put(tipo, new TotalesMovimiento());
+        }
 
-    /**
-     * Obtener movimientos entre fechas
-     */
-    public List<MovimientoInventario> listarMovimientosPorFechas(
-            LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        return movimientoRepository.findByFechaBetweenOrderByFechaDesc(fechaInicio, fechaFin);
+        // Primer y último día completos del rango
+        LocalDate primerDia = desde == null ? null
+                : desde.toLocalTime().equals(LocalTime.MIDNIGHT) ? desde.toLocalDate() : desde.toLocalDate().plusDays(1);
+        LocalDate ultimoDia = hasta == null ? null
+                : hasta.toLocalTime().equals(LocalTime.MAX) ? hasta.toLocalDate() : hasta.toLocalDate().minusDays(1);
+
+        if (primerDia != null && ultimoDia != null && primerDia.isAfter(ultimoDia)) {
+            sumar(porTipo, movimientoRepository.resumirPorTipo(desde, hasta, null));
+            return porTipo;
+        }
+
+        sumar(porTipo, resumenRepository.resumirPorTipo(primerDia, ultimoDia));
+        sumar(porTipo, movimientoRepository.resumirPendientesPorTipo(
+                primerDia != null ? primerDia.atStartOfDay() : null,
+                ultimoDia != null ? ultimoDia.plusDays(1).atStartOfDay() : null));
+        if (primerDia != null && desde.isBefore(primerDia.atStartOfDay())) {
+            sumar(porTipo, movimientoRepository.resumirPorTipo(desde, null, primerDia.atStartOfDay()));
+        }
+        if (ultimoDia != null && hasta.isAfter(ultimoDia.atTime(LocalTime.MAX))) {
+            sumar(porTipo, movimientoRepository.resumirPorTipo(ultimoDia.plusDays(1).atStartOfDay(), hasta, null));
+        }
+        return porTipo;
     }
 
     /**
-     * Obtener movimientos por tipo
+     * Escribe en CSV todos los movimientos del filtro. Se leen por páginas de
+     * keyset y cada página se escribe y se suelta antes de pedir la siguiente:
+     * la memoria usada no depende del rango exportado
      */
-    public List<MovimientoInventario> listarMovimientosPorTipo(
-            MovimientoInventario.TipoMovimiento tipo) {
-        return movimientoRepository.findByTipoOrderByFechaDesc(tipo);
+    public void exportarCsv(Integer varianteId, Integer productoId, Integer usuarioId,
+                            MovimientoInventario.TipoMovimiento tipo,
+                            LocalDateTime desde, LocalDateTime hasta, Writer salida) throws IOException {
+        salida.write("id,fecha,tipo,sku,producto,color,talla,cantidad,stock_anterior,stock_nuevo,"
+                + "motivo,referencia,usuario\r\n");
+
+        CursorMovimiento cursor = null;
+        List<MovimientoDTO> pagina;
+        do {
+            pagina = buscarMovimientosDesde(varianteId, productoId, usuarioId, tipo, desde, hasta,
+                    cursor, TAMANO_LOTE_EXPORTACION);
+            for (MovimientoDTO m : pagina) {
+                salida.write(String.join(",",
+                        String.valueOf(m.getId()),
+                        String.valueOf(m.getFecha()),
+                        m.getTipo().name(),
+                        campoCsv(m.getVarianteSku()),
+                        campoCsv(m.getProductoNombre()),
+                        campoCsv(m.getColorNombre()),
+                        campoCsv(m.getTallaNombre()),
+                        String.valueOf(m.getCantidad()),
+                        String.valueOf(m.getStockAnterior()),
+                        String.valueOf(m.getStockNuevo()),
+                        campoCsv(m.getMotivo()),
+                        campoCsv(m.getReferencia()),
+                        campoCsv(m.getUsuarioNombre())));
+                salida.write("\r\n");
+            }
+            salida.flush();
+            if (!pagina.isEmpty()) {
+                cursor = CursorMovimiento.despuesDe(pagina.get(pagina.size() - 1));
+            }
+        } while (pagina.size() == TAMANO_LOTE_EXPORTACION);
     }
 
     /**
-     * Obtener movimientos por usuario
+     * Copiar SKU y nombres de la variante al movimiento (historial que
+     * sobrevive a la eliminación de la variante)
      */
-    public List<MovimientoInventario> listarMovimientosPorUsuario(Integer usuarioId) {
-        return movimientoRepository.findByUsuarioIdOrderByFechaDesc(usuarioId);
+    private void copiarDatosVariante(MovimientoInventario movimiento, ProductoVariante variante) {
+        movimiento.setVarianteSku(variante.getSku());
+        movimiento.setProductoNombre(variante.getProducto().getNombre());
+        movimiento.setColorNombre(variante.getColor().getNombre());
+        movimiento.setTallaNombre(variante.getTalla().getNombre());
     }
 
-    /**
-     * Obtener el usuario actual del contexto de seguridad
-     */
-    private Usuario obtenerUsuarioActual() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("No hay usuario autenticado");
+    // Filas (tipo, movimientos, unidades) de una consulta agrupada
+    private static void sumar(Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> porTipo,
+                              List<Object[]> filas) {
+        for (Object[] fila : filas) {
+            porTipo.get((MovimientoInventario.TipoMovimiento) fila[0])
+                    .sumar(((Number) fila[1]).longValue(), ((Number) fila[2]).longValue());
         }
+    }
 
-        String username = authentication.getName();
-        return usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
+    // Texto de un campo CSV: entre comillas si lleva separadores o comillas, y
+    // con apóstrofo delante si empieza como fórmula (Excel la ejecutaría)
+    private static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (!valor.isEmpty() && "=+-@".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
     }
 }
@@ -1,5 +1,9 @@
 package com.example.gams.services;
 
+import com.example.gams.dto.CursorProducto;
+import com.example.gams.dto.PaginaProductos;
+import com.example.gams.dto.ResumenStockProducto;
+import com.example.gams.dto.VarianteDTO;
 import com.example.gams.entities.Producto;
 import com.example.gams.entities.ProductoVariante;
 import com.example.gams.entities.Color;
@@ -9,13 +13,19 @@ import com.example.gams.repositories.ProductoVarianteRepository;
 import com.example.gams.repositories.ColorRepository;
 import com.example.gams.repositories.TallaRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
@@ -26,6 +36,8 @@ public class ProductoService {
     private final ProductoVarianteRepository varianteRepository;
     private final ColorRepository colorRepository;
     private final TallaRepository tallaRepository;
+    private final BuscadorProductosService buscador;
+    private final EscanerVariantesService escaner;
 
     // ============================================
     // PRODUCTOS
@@ -47,6 +59,7 @@ public class ProductoService {
         return productoRepository.findByActivoTrueOrderByPrecioVentaAsc();
     }
 
+    @Transactional(readOnly = true)
     public List<Producto> listarProductosRecientes() {
         return productoRepository.findRecientes();
     }
@@ -87,17 +100,76 @@ public class ProductoService {
         return productoRepository.findByPrecioVentaBetweenAndActivoTrue(precioMin, precioMax);
     }
 
+    /**
+     * Filtro combinado. Con término de búsqueda responde el índice en memoria
+     * (ver BuscadorProductosService); la BD solo mientras el índice se arma.
+     * Solo lectura: Hibernate carga los productos sin copia para el dirty checking
+     */
+    @Transactional(readOnly = true)
     public List<Producto> filtrarProductos(String buscar, Integer categoriaId, Integer marcaId, Boolean activo) {
         String buscarParam = (buscar != null && !buscar.isEmpty()) ? buscar : null;
+        if (buscarParam != null) {
+            Optional<List<Integer>> ids = buscador.buscar(buscarParam, categoriaId, marcaId, activo, false,
+                    null, Integer.MAX_VALUE);
+            if (ids.isPresent()) {
+                return productosEnOrden(ids.get());
+            }
+        }
         return productoRepository.filtrarProductos(buscarParam, categoriaId, marcaId, activo);
     }
 
+    /**
+     * Hasta "limite" productos del filtro, ordenados por (nombre, id) y a
+     * partir del cursor (null = desde el inicio). Un cursor sigue por el
+     * camino que lo emitió: el índice y la BD no ordenan el nombre igual, y
+     * mezclarlos podría saltar o repetir productos. Un cursor del índice que
+     * no puede seguir por el índice se rechaza
+     */
+    @Transactional(readOnly = true)
+    public PaginaProductos filtrarProductosDesde(String buscar, Integer categoriaId, Integer marcaId, Boolean activo,
+                                                 boolean soloConVariantes, CursorProducto cursor, int limite) {
+        String buscarParam = (buscar != null && !buscar.isEmpty()) ? buscar : null;
+        if (buscarParam != null && (cursor == null || cursor.isDelIndice())) {
+            Optional<List<Integer>> ids = buscador.buscar(buscarParam, categoriaId, marcaId, activo, soloConVariantes,
+                    cursor, limite);
+            if (ids.isPresent()) {
+                return new PaginaProductos(productosEnOrden(ids.get()), true);
+            }
+        }
+        // Un cursor del índice nunca sigue por la BD: llega a un nodo cuyo
+        // índice aún se está armando (o sin término de búsqueda). El cliente
+        // vuelve a pedir desde la primera página, que sale de la BD
+        if (cursor != null && cursor.isDelIndice()) {
+            throw new RuntimeException("El catálogo se está actualizando: vuelve a cargar la búsqueda desde el inicio");
+        }
+        return new PaginaProductos(productoRepository.filtrarProductosDesde(buscarParam, categoriaId, marcaId, activo,
+                soloConVariantes,
+                cursor != null ? cursor.getNombre() : null,
+                cursor != null ? cursor.getId() : null,
+                PageRequest.of(0, limite)), false);
+    }
+
     public Producto guardarProducto(@NonNull Producto producto) {
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        buscador.productoGuardado(guardado);
+        escaner.productoCambiado(guardado.getId());
+        return guardado;
     }
 
     public void eliminarProducto(@NonNull Integer id) {
         productoRepository.deleteById(id);
+        buscador.productoEliminado(id);
+        escaner.productoCambiado(id);
+    }
+
+    // Productos por id (una consulta), en el orden de la lista
+    private List<Producto> productosEnOrden(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Producto> porId = productoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     public boolean existeProductoPorCodigo(String codigo) {
@@ -124,12 +196,16 @@ public class ProductoService {
     // VARIANTES
     // ============================================
 
-    public List<ProductoVariante> listarVariantes() {
-        return varianteRepository.findAll();
+    // Los listados de variantes se proyectan directo a VarianteDTO, en una
+    // transacción de solo lectura (sin flush ni dirty checking al terminar)
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> listarVariantes() {
+        return varianteRepository.findTodasDTO();
     }
 
-    public List<ProductoVariante> listarVariantesActivas() {
-        return varianteRepository.findByActivoTrue();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> listarVariantesActivas() {
+        return varianteRepository.findActivasDTO();
     }
 
     public Optional<ProductoVariante> buscarVariantePorId(@NonNull Integer id) {
@@ -148,32 +224,37 @@ public class ProductoService {
         return varianteRepository.findBySkuOrCodigoBarras(codigo);
     }
 
-    public List<ProductoVariante> buscarVariantesPorProducto(Integer productoId) {
-        return varianteRepository.findByProductoIdAndActivoTrue(productoId);
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> buscarVariantesPorProducto(Integer productoId) {
+        return varianteRepository.findActivasDTOByProductoId(productoId);
     }
 
     public Optional<ProductoVariante> buscarVarianteEspecifica(Integer productoId, Integer colorId, Integer tallaId) {
         return varianteRepository.findByProductoIdAndColorIdAndTallaIdAndActivoTrue(productoId, colorId, tallaId);
     }
 
-    public List<ProductoVariante> buscarVariantesConStockBajo() {
-        return varianteRepository.findStockBajo();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> buscarVariantesConStockBajo() {
+        return varianteRepository.findStockBajoDTO();
     }
 
-    public List<ProductoVariante> buscarVariantesSinStock() {
-        return varianteRepository.findSinStock();
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> buscarVariantesSinStock() {
+        return varianteRepository.findSinStockDTO();
     }
 
     public List<ProductoVariante> buscarVariantesConStock() {
         return varianteRepository.findConStock();
     }
 
-    public List<ProductoVariante> buscarVariantesPorColor(Integer colorId) {
-        return varianteRepository.findByColorIdAndActivoTrue(colorId);
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> buscarVariantesPorColor(Integer colorId) {
+        return varianteRepository.findActivasDTOByColorId(colorId);
     }
 
-    public List<ProductoVariante> buscarVariantesPorTalla(Integer tallaId) {
-        return varianteRepository.findByTallaIdAndActivoTrue(tallaId);
+    @Transactional(readOnly = true)
+    public List<VarianteDTO> buscarVariantesPorTalla(Integer tallaId) {
+        return varianteRepository.findActivasDTOByTallaId(tallaId);
     }
 
     /**
@@ -253,11 +334,16 @@ public class ProductoService {
             throw new RuntimeException("Ya existe una variante con esa combinación de producto, color y talla");
         }
         
-        return varianteRepository.save(variante);
+        ProductoVariante guardada = varianteRepository.save(variante);
+        buscador.varianteGuardada(guardada);
+        escaner.varianteCambiada(guardada.getId());
+        return guardada;
     }
 
     public void eliminarVariante(@NonNull Integer id) {
         varianteRepository.deleteById(id);
+        buscador.varianteEliminada(id);
+        escaner.varianteCambiada(id);
     }
 
     public boolean existeVariantePorSku(String sku) {
@@ -280,18 +366,22 @@ public class ProductoService {
         return varianteRepository.countStockBajo();
     }
 
-    public long contarVariantesStockBajoPorProducto(Integer productoId) {
-        return varianteRepository.countStockBajoByProducto(productoId);
-    }
-
-    public long contarVariantesSinStockPorProducto(Integer productoId) {
-        return varianteRepository.countSinStockByProducto(productoId);
-    }
-
     public Long calcularStockTotalProducto(Integer productoId) {
         return varianteRepository.sumStockByProducto(productoId);
     }
 
+    /**
+     * Estadísticas de stock de varios productos en una sola consulta, por id
+     * de producto. Los productos sin variantes activas no están en el mapa.
+     */
+    public Map<Integer, ResumenStockProducto> resumirStockPorProducto(Collection<Integer> productoIds) {
+        if (productoIds.isEmpty()) {
+            return Map.of();
+        }
+        return varianteRepository.resumirStockPorProducto(productoIds).stream()
+                .collect(Collectors.toMap(ResumenStockProducto::getProductoId, Function.identity()));
+    }
+
     public Long calcularStockTotalSistema() {
         return varianteRepository.sumStockTotal();
     }
@@ -364,12 +454,15 @@ public class ProductoService {
             Producto producto = productoOpt.get();
             producto.setActivo(false);
             productoRepository.save(producto);
+            buscador.productoGuardado(producto);
+            escaner.productoCambiado(productoId);
             
             // Desactivar todas las variantes del producto
             List<ProductoVariante> variantes = varianteRepository.findByProductoIdAndActivoTrue(productoId);
             for (ProductoVariante variante : variantes) {
                 variante.setActivo(false);
                 varianteRepository.save(variante);
+                buscador.varianteGuardada(variante);
             }
         }
     }
@@ -383,11 +476,14 @@ public class ProductoService {
             Producto producto = productoOpt.get();
             producto.setActivo(true);
             productoRepository.save(producto);
+            buscador.productoGuardado(producto);
+            escaner.productoCambiado(productoId);
 
             List<ProductoVariante> variantes = varianteRepository.findByProductoId(productoId);
             for (ProductoVariante variante : variantes) {
                 variante.setActivo(true);
                 varianteRepository.save(variante);
+                buscador.varianteGuardada(variante);
             }
         }
     }
@@ -442,6 +538,9 @@ public class ProductoService {
             }
         }
         
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        buscador.productoGuardado(guardado);
+        escaner.productoCambiado(guardado.getId());
+        return guardado;
     }
 }
\ No newline at end of file
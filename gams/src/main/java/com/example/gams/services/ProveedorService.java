@@ -18,13 +18,23 @@ public class ProveedorService {
 
     private final ProveedorRepository proveedorRepository;
     private final ProductoRepository productoRepository;
+    private final CacheCatalogos cache;
+
+    private static final String PROVEEDORES = "proveedores";
+
+    // Lista cacheada con su ETag (todos, o solo los activos por nombre)
+    public CacheCatalogos.Lista<Proveedor> listaProveedores(boolean soloActivos) {
+        return soloActivos
+                ? cache.obtener(PROVEEDORES, "activos", proveedorRepository::findByActivoTrueOrderByNombreAsc)
+                : cache.obtener(PROVEEDORES, "todos", proveedorRepository::findAll);
+    }
 
     public List<Proveedor> listarProveedores() {
-        return proveedorRepository.findAll();
+        return listaProveedores(false).getDatos();
     }
 
     public List<Proveedor> listarProveedoresActivosOrdenados() {
-        return proveedorRepository.findByActivoTrueOrderByNombreAsc();
+        return listaProveedores(true).getDatos();
     }
 
     public Optional<Proveedor> buscarProveedorPorId(@NonNull Integer id) {
@@ -44,6 +54,7 @@ public class ProveedorService {
     }
 
     public Proveedor guardarProveedor(@NonNull Proveedor proveedor) {
+        cache.invalidar(PROVEEDORES);
         return proveedorRepository.save(proveedor);
     }
 
@@ -54,5 +65,6 @@ public class ProveedorService {
                 "No se puede eliminar: " + productosAsociados + " producto(s) usan este proveedor. Desactívalo en su lugar.");
         }
         proveedorRepository.deleteById(id);
+        cache.invalidar(PROVEEDORES);
     }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.RostroBiometrico;
+import com.example.gams.repositories.RostroBiometricoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Comparación del rostro del login contra los rostros registrados
+ * (rostros_biometricos), dentro de la JVM. El servicio Python solo calcula el
+ * encoding de la foto; antes además leía todos los encodings de MySQL y los
+ * comparaba en cada login.
+ *
+ * Los encodings viven en una GaleriaRostros que se carga al iniciar (desde el
+ * snapshot gams.facial.galeria.snapshot si existe, sin consultar la tabla
+ * completa) y luego se actualiza por partes:
+ * - registro y eliminación por FacialRecognitionController, y baja del usuario
+ *   por UsuarioController: solo las fotos de ese usuario;
+ * - cambios de otro nodo: cada gams.facial.indice.ttl-ms se agregan las fotos
+ *   con id mayor al último conocido; si además falta alguna (se eliminó en otro
+ *   nodo) la galería se vuelve a leer completa.
+ *
+ * Con galerías grandes la comparación exacta (todas las fotos en cada login)
+ * crece con la cantidad de fotos. Con gams.facial.hnsw.habilitado se mantiene
+ * además un IndiceHnsw con las mismas fotos y, desde
+ * gams.facial.hnsw.minimo-fotos, el login busca en el índice (aproximado);
+ * por debajo, o si el índice no encuentra ninguna, se compara contra todas.
+ */
+@Service
+public class ReconocimientoFacialService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconocimientoFacialService.class);
+
+    private final RostroBiometricoRepository rostroRepository;
+    private final long ttlMillis;
+    private final double umbral;
+    private final Path snapshot;
+    private final boolean hnswHabilitado;
+    private final int hnswMinimoFotos;
+    private final int hnswM;
+    private final int hnswEfConstruccion;
+    private final int hnswEfBusqueda;
+
+    private volatile GaleriaRostros galeria;
+    private volatile IndiceHnsw indice;
+    private volatile long sincronizadaEn;
+
+    public ReconocimientoFacialService(RostroBiometricoRepository rostroRepository,
+                                       @Value("${gams.facial.indice.ttl-ms:300000}") long ttlMillis,
+                                       @Value("${gams.facial.umbral:0.50}") double umbral,
+                                       @Value("${gams.facial.galeria.snapshot:}") String snapshot,
+                                       @Value("${gams.facial.hnsw.habilitado:false}") boolean hnswHabilitado,
+                                       @Value("${gams.facial.hnsw.minimo-fotos:20000}") int hnswMinimoFotos,
+                                       @Value("${gams.facial.hnsw.m:16}") int hnswM,
+                                       @Value("${gams.facial.hnsw.ef-construccion:200}") int hnswEfConstruccion,
+                                       @Value("${gams.facial.hnsw.ef-busqueda:64}") int hnswEfBusqueda) {
+        this.rostroRepository = rostroRepository;
+        this.ttlMillis = ttlMillis;
+        this.umbral = umbral;
+        this.snapshot = snapshot.isBlank() ? null : Path.of(snapshot);
+        this.hnswHabilitado = hnswHabilitado;
+        this.hnswMinimoFotos = hnswMinimoFotos;
+        this.hnswM = hnswM;
+        this.hnswEfConstruccion = hnswEfConstruccion;
+        this.hnswEfBusqueda = hnswEfBusqueda;
+    }
+
+    /**
+     * Rostro registrado más cercano al encoding, si está dentro del umbral.
+     * Devuelve null si no hay rostros registrados
+     */
+    public Resultado reconocer(float[] encoding) {
+        GaleriaRostros vigente = galeriaVigente();
+        IndiceHnsw actual = indice;
+        GaleriaRostros.Coincidencia coincidencia = null;
+        if (actual != null && vigente.tamano() >= hnswMinimoFotos) {
+            coincidencia = actual.masCercano(encoding, hnswEfBusqueda);
+        }
+        if (coincidencia == null) {
+            coincidencia = vigente.masCercano(encoding);
+        }
+        if (coincidencia == null) {
+            return null;
+        }
+        return new Resultado(coincidencia.distancia() <= umbral ? coincidencia.username() : null,
+                coincidencia.confianza(), coincidencia.distancia());
+    }
+
+    public double getUmbral() {
+        return umbral;
+    }
+
+    // ==================== ACTUALIZACIÓN ====================
+
+    /**
+     * Se registró una foto del usuario: se leen sus fotos y se agregan las que
+     * faltan (el registro solo agrega; quitar es usuarioEliminado)
+     */
+    public synchronized void usuarioRegistrado(String username) {
+        if (galeria == null) {
+            return;
+        }
+        for (RostroBiometrico rostro : rostroRepository.findByUsername(username)) {
+            agregar(rostro);
+        }
+    }
+
+    /** Se eliminaron las fotos del usuario */
+    public synchronized void usuarioEliminado(String username) {
+        if (galeria == null) {
+            return;
+        }
+        galeria.quitarUsuario(username);
+        if (indice != null) {
+            indice.quitarUsuario(username);
+            // Las fotos quitadas del índice siguen en el grafo: si ya son más
+            // que las vigentes, se arma de nuevo
+            if (indice.eliminados() > indice.tamano()) {
+                indice = armarIndice(galeria);
+            }
+        }
+    }
+
+    /** Carga inicial: desde el snapshot si hay uno, más lo registrado después */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargarAlIniciar() {
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                galeria = GaleriaRostros.leer(snapshot);
+                indice = armarIndice(galeria);
+                log.info("Galería de rostros: {} fotos leídas de {}", galeria.tamano(), snapshot);
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo leer el snapshot de rostros {}, se carga desde la BD", snapshot, e);
+            }
+        }
+        try {
+            sincronizar();
+        } catch (RuntimeException e) {
+            // Sin BD al arrancar: se reintenta en el primer login
+            log.warn("No se pudo cargar la galería de rostros al iniciar", e);
+        }
+    }
+
+    /** Al apagar se deja el snapshot para el próximo arranque */
+    @PreDestroy
+    public synchronized void guardarSnapshot() {
+        if (snapshot == null || galeria == null) {
+            return;
+        }
+        try {
+            galeria.guardar(snapshot);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el snapshot de rostros en {}", snapshot, e);
+        }
+    }
+
+    // ==================== UTILIDADES ====================
+
+    private GaleriaRostros galeriaVigente() {
+        GaleriaRostros actual = galeria;
+        if (actual != null && System.currentTimeMillis() - sincronizadaEn < ttlMillis) {
+            return actual;
+        }
+        synchronized (this) {
+            if (galeria == null || System.currentTimeMillis() - sincronizadaEn >= ttlMillis) {
+                sincronizar();
+            }
+            return galeria;
+        }
+    }
+
+    // Agrega a la galería lo registrado después de su último id; si la tabla
+    // tiene menos fotos de las esperadas, la vuelve a leer completa
+    private void sincronizar() {
+        if (galeria == null) {
+            cargarCompleta();
+            return;
+        }
+        for (RostroBiometrico rostro : rostroRepository.findByIdGreaterThanOrderByIdAsc(galeria.ultimoId())) {
+            agregar(rostro);
+        }
+        if (rostroRepository.count() != galeria.tamano()) {
+            cargarCompleta();
+            return;
+        }
+        sincronizadaEn = System.currentTimeMillis();
+    }
+
+    private void cargarCompleta() {
+        List<RostroBiometrico> rostros = rostroRepository.findAll();
+        GaleriaRostros nueva = new GaleriaRostros(rostros.size());
+        for (RostroBiometrico rostro : rostros) {
+            nueva.agregar(rostro.getId(), rostro.getUsername(), rostro.getEncoding());
+        }
+        galeria = nueva;
+        indice = armarIndice(nueva);
+        sincronizadaEn = System.currentTimeMillis();
+        log.info("Galería de rostros: {} fotos leídas de la BD", nueva.tamano());
+        guardarSnapshot();
+    }
+
+    private void agregar(RostroBiometrico rostro) {
+        galeria.agregar(rostro.getId(), rostro.getUsername(), rostro.getEncoding());
+        if (indice != null) {
+            indice.agregar(rostro.getId(), rostro.getUsername(), rostro.getEncoding());
+        }
+    }
+
+    // Índice HNSW con las fotos de la galería; null si no está habilitado
+    private IndiceHnsw armarIndice(GaleriaRostros origen) {
+        if (!hnswHabilitado) {
+            return null;
+        }
+        long inicio = System.currentTimeMillis();
+        IndiceHnsw nuevo = new IndiceHnsw(hnswM, hnswEfConstruccion);
+        origen.recorrer(nuevo::agregar);
+        log.info("Índice HNSW de rostros: {} fotos en {} ms", nuevo.tamano(), System.currentTimeMillis() - inicio);
+        return nuevo;
+    }
+
+    /** Resultado del reconocimiento: username null si el más cercano no alcanza el umbral */
+    public record Resultado(String username, double confianza, double distancia) {
+
+        public boolean reconocido() {
+            return username != null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.gams.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limita cuántas ventas (y anulaciones) tienen su transacción abierta a la vez:
+ * como mucho gams.ventas.max-concurrentes, que debe quedar por debajo del pool
+ * (spring.datasource.hikari.maximum-pool-size) para que las demás pantallas
+ * sigan teniendo conexión en un pico de cobros. Si se configura igual o mayor
+ * que el pool, se usa el pool menos una conexión y se avisa en el log.
+ *
+ * Cada venta usa una sola conexión del pool: los bloques de ids de detalles y
+ * movimientos se reservan por un pool aparte (ver GeneradorIdPorBloques).
+ *
+ * La venta que no consigue turno en gams.ventas.espera-turno-ms se rechaza con
+ * un mensaje para reintentar.
+ */
+@Service
+public class TurnosVentaService {
+
+    private static final Logger log = LoggerFactory.getLogger(TurnosVentaService.class);
+
+    private final MetricasService metricas;
+    private final Semaphore turnos;
+    private final long esperaTurnoMillis;
+
+    public TurnosVentaService(MetricasService metricas,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+                              @Value("${gams.ventas.max-concurrentes:8}") int maxConcurrentes,
+                              @Value("${gams.ventas.espera-turno-ms:5000}") long esperaTurnoMillis) {
+        int permitidas = Math.max(1, Math.min(maxConcurrentes, tamanoPool - 1));
+        if (permitidas != maxConcurrentes) {
+            log.warn("gams.ventas.max-concurrentes={} no entra en un pool de {} conexiones; se usan {} turnos",
+                    maxConcurrentes, tamanoPool, permitidas);
+        }
+        this.metricas = metricas;
+        this.turnos = new Semaphore(permitidas, true);
+        this.esperaTurnoMillis = esperaTurnoMillis;
+    }
+
+    /**
+     * Ejecuta la operación con un turno tomado; lo libera al terminar, confirme
+     * o falle. La espera por el turno queda en la fase "turno", lo consiga o no
+     */
+    public <T> T ejecutar(MetricasService.Fases fases, Supplier<T> operacion) {
+        boolean conTurno = tomarTurno();
+        fases.terminar("turno");
+        if (!conTurno) {
+            metricas.contar("gams.ventas.sin_turno");
+            throw new RuntimeException("Hay muchas ventas en curso. Intenta de nuevo en unos segundos.");
+        }
+        try {
+            return operacion.get();
+        } finally {
+            turnos.release();
+        }
+    }
+
+    private boolean tomarTurno() {
+        try {
+            return turnos.tryAcquire(esperaTurnoMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.Rol;
+import com.example.gams.entities.Usuario;
+import com.example.gams.repositories.UsuarioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Usuario autenticado de la petición en curso. Se busca en la BD una sola vez
+ * por petición HTTP (queda guardado como atributo de la petición) y los
+ * servicios lo asignan por referencia, sin volver a leer la fila ni sus roles.
+ *
+ * Fuera de una petición (tareas programadas, pruebas) no hay dónde guardarlo
+ * y cada llamada consulta la BD.
+ */
+@RequiredArgsConstructor
+@Service
+public class UsuarioActualService {
+
+    private static final String ATRIBUTO = UsuarioActualService.class.getName() + ".USUARIO";
+
+    private final UsuarioRepository usuarioRepository;
+
+    /** Id, username y roles del usuario autenticado */
+    public UsuarioActual obtener() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new RuntimeException("No hay usuario autenticado");
+        }
+
+        String username = authentication.getName();
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        if (peticion != null
+                && peticion.getAttribute(ATRIBUTO, RequestAttributes.SCOPE_REQUEST) instanceof UsuarioActual guardado
+                && guardado.getUsername().equals(username)) {
+            return guardado;
+        }
+
+        UsuarioActual actual = usuarioRepository.findByUsername(username)
+                .map(UsuarioActual::new)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
+
+        if (peticion != null) {
+            peticion.setAttribute(ATRIBUTO, actual, RequestAttributes.SCOPE_REQUEST);
+        }
+        return actual;
+    }
+
+    /**
+     * Referencia JPA al usuario autenticado, para asignarlo como vendedor,
+     * autor de un movimiento, etc. No ejecuta un SELECT: solo lleva el id.
+     */
+    public Usuario referencia() {
+        return usuarioRepository.getReferenceById(obtener().getId());
+    }
+
+    /** Datos del usuario autenticado que necesitan los servicios (inmutable) */
+    public static final class UsuarioActual {
+        private final Integer id;
+        private final String username;
+        private final Set<String> roles;
+
+        private UsuarioActual(Usuario usuario) {
+            this.id = usuario.getId();
+            this.username = usuario.getUsername();
+            this.roles = usuario.getRoles().stream()
+                    .map(Rol::getNombre)
+                    .map(String::toUpperCase)
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Set<String> getRoles() {
+            return roles;
+        }
+
+        public boolean tieneRol(String rol) {
+            return roles.contains(rol.toUpperCase());
+        }
+    }
+}
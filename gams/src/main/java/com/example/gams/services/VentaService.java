@@ -1,44 +1,53 @@
 package com.example.gams.services;
 
 import com.example.gams.dto.VentaDTO;
-import com.example.gams.entities.CajaSesion;
+import com.example.gams.dto.VentaResponseDTO;
 import com.example.gams.entities.Cliente;
 import com.example.gams.entities.DetalleVenta;
 import com.example.gams.entities.MovimientoInventario;
 import com.example.gams.entities.ProductoVariante;
 import com.example.gams.entities.Usuario;
 import com.example.gams.entities.Venta;
-import com.example.gams.repositories.CajaSesionRepository;
 import com.example.gams.repositories.ClienteRepository;
+import com.example.gams.repositories.DetalleVentaRepository;
 import com.example.gams.repositories.ProductoVarianteRepository;
-import com.example.gams.repositories.UsuarioRepository;
 import com.example.gams.repositories.VentaRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Year;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 public class VentaService {
 
     private final VentaRepository ventaRepository;
+    private final DetalleVentaRepository detalleRepository;
     private final ClienteRepository clienteRepository;
     private final ProductoVarianteRepository varianteRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final UsuarioActualService usuarioActual;
     private final MovimientoInventarioService movimientoService;
-    private final CajaSesionRepository cajaSesionRepository;
+    private final CajaActualService cajaActual;
+    private final CajaService cajaService;
+    private final CorrelativoVentaService correlativoService;
+    private final IdempotenciaVentaService idempotencia;
+    private final TurnosVentaService turnos;
+    private final MetricasService metricas;
+    private final TransactionTemplate transactionTemplate;
 
     // ==================== REGISTRO DE VENTA ====================
 
@@ -47,14 +56,85 @@ public class VentaService {
      * valida stock, crea cabecera y detalles, descuenta stock y
      * registra los movimientos de inventario (SALIDA).
      * Si algo falla, todo se revierte.
+     *
+     * El correlativo se toma ANTES de abrir la transacción: cuando hay que
+     * reservar un bloque nuevo, esa reserva usa su propia conexión, y no debe
+     * pedirla mientras la venta retiene otra (con el pool ocupado por ventas
+     * que esperan el correlativo, nadie avanzaría). Si la venta falla, su
+     * número queda como hueco.
      */
-    @Transactional
     public Venta registrarVenta(VentaDTO dto) {
+        return registrarVenta(dto, null);
+    }
+
+    /**
+     * Igual que registrarVenta(dto), con la clave de idempotencia del POS
+     * (cabecera Idempotency-Key; null si no la envió). Si la clave ya registró
+     * una venta, se devuelve esa venta tal cual, sin validar de nuevo ni
+     * bloquear variantes: así un doble clic o el reintento del navegador no
+     * venden dos veces.
+     */
+    public Venta registrarVenta(VentaDTO dto, String claveIdempotencia) {
+        return metricas.medir("gams.ventas.registro", () -> procesarVenta(dto, claveIdempotencia));
+    }
+
+    private Venta procesarVenta(VentaDTO dto, String claveIdempotencia) {
+        if (claveIdempotencia != null) {
+            Optional<Integer> registrada = idempotencia.ventaRegistrada(claveIdempotencia);
+            if (registrada.isPresent()) {
+                metricas.contar("gams.ventas.reintentos");
+                return obtenerPorId(registrada.get());
+            }
+        }
+
         // 0. Debe haber un turno de caja abierto: sin caja no hay control del efectivo
-        if (cajaSesionRepository.findFirstByEstado(CajaSesion.EstadoCaja.ABIERTA).isEmpty()) {
+        //    (se consulta en memoria; ver CajaActualService)
+        if (cajaActual.cajaAbierta().isEmpty()) {
             throw new RuntimeException("Debes abrir la caja antes de registrar ventas");
         }
 
+        String codigo = correlativoService.siguienteCodigo();
+
+        // Tiempo por fase (gams.ventas.fase) y líneas (gams.ventas.lineas), con
+        // el resultado de la venta: "turno" es la espera por un turno de venta,
+        // "bloqueo" la espera por las filas y "confirmacion" el commit
+        MetricasService.Fases fases = metricas.fases("gams.ventas.fase", "operacion", "registro");
+        if (dto.getItems() != null) {
+            fases.anotar("gams.ventas.lineas", dto.getItems().size());
+        }
+        RuntimeException error = null;
+        try {
+            return turnos.ejecutar(fases, () -> {
+                Venta guardada = transactionTemplate.execute(
+                        status -> guardarVenta(dto, codigo, claveIdempotencia, fases));
+                fases.terminar("confirmacion");
+                return guardada;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // El reintento llegó mientras la venta original aún estaba en curso:
+            // su clave ya está tomada y esa venta es la respuesta
+            error = e;
+            if (claveIdempotencia == null) {
+                throw e;
+            }
+            return idempotencia.ventaRegistrada(claveIdempotencia)
+                    .map(this::obtenerPorId)
+                    .orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            fases.registrar(error);
+        }
+    }
+
+    private Venta guardarVenta(VentaDTO dto, String codigo, String claveIdempotencia, MetricasService.Fases fases) {
+        // Primera escritura: reclamar la clave. Un reintento simultáneo espera
+        // aquí a la venta original, antes de bloquear ninguna variante
+        if (claveIdempotencia != null) {
+            idempotencia.reclamar(claveIdempotencia);
+        }
+
         // 1. Validaciones básicas del pedido
         if (dto.getItems() == null || dto.getItems().isEmpty()) {
             throw new RuntimeException("La venta debe tener al menos un producto");
@@ -68,9 +148,8 @@ public class VentaService {
         }
 
         // 2. Cabecera de la venta
-        Usuario vendedor = obtenerUsuarioActual();
+        Usuario vendedor = usuarioActual.referencia();
         Venta venta = new Venta();
-        venta.setCodigo(generarCodigo());
         venta.setVendedor(vendedor);
         venta.setMetodoPago(metodoPago);
         venta.setObservaciones(dto.getObservaciones());
@@ -81,25 +160,50 @@ public class VentaService {
             venta.setCliente(cliente);
         }
 
-        // 3. Líneas: validar stock con bloqueo de fila y congelar precios de BD
+        // 3. Líneas: bloquear de una vez todas las variantes del carrito y validar
+        //    el stock contra el total pedido por variante (puede repetirse en el carrito)
+        Map<Integer, Integer> cantidadesPorVariante = new TreeMap<>();
         for (VentaDTO.ItemVentaDTO item : dto.getItems()) {
+            if (item.getVarianteId() == null) {
+                throw new RuntimeException("Cada producto de la venta debe indicar su variante");
+            }
             if (item.getCantidad() == null || item.getCantidad() <= 0) {
                 throw new RuntimeException("La cantidad debe ser mayor a cero");
             }
+            cantidadesPorVariante.merge(item.getVarianteId(), item.getCantidad(), Integer::sum);
+        }
+        fases.terminar("validacion");
+
+        // Bloqueo pesimista en orden de id: evita que dos vendedores vendan la
+        // última unidad a la vez, y que dos carritos cruzados se bloqueen entre sí
+        Map<Integer, ProductoVariante> variantes = new HashMap<>();
+        for (ProductoVariante variante : varianteRepository.findAllByIdForUpdate(cantidadesPorVariante.keySet())) {
+            variantes.put(variante.getId(), variante);
+        }
+        // Producto, color y talla (precio y nombres del detalle y del kardex) en
+        // una lectura aparte: con JOIN FETCH el FOR UPDATE los bloquearía también
+        varianteRepository.findParaCobro(variantes.keySet());
+        fases.terminar("bloqueo");
 
-            // Bloqueo pesimista: evita que dos vendedores vendan la última unidad a la vez
-            ProductoVariante variante = varianteRepository.findByIdForUpdate(item.getVarianteId())
-                    .orElseThrow(() -> new RuntimeException("Variante no encontrada: " + item.getVarianteId()));
+        for (Map.Entry<Integer, Integer> pedido : cantidadesPorVariante.entrySet()) {
+            ProductoVariante variante = variantes.get(pedido.getKey());
+            if (variante == null) {
+                throw new RuntimeException("Variante no encontrada: " + pedido.getKey());
+            }
 
             if (!Boolean.TRUE.equals(variante.getActivo())) {
                 throw new RuntimeException("El producto " + variante.getSku() + " no está activo");
             }
 
-            if (variante.getStockActual() < item.getCantidad()) {
+            if (variante.getStockActual() < pedido.getValue()) {
                 throw new RuntimeException(String.format(
                         "Stock insuficiente para %s: disponible %d, solicitado %d",
-                        variante.getSku(), variante.getStockActual(), item.getCantidad()));
+                        variante.getSku(), variante.getStockActual(), pedido.getValue()));
             }
+        }
+
+        for (VentaDTO.ItemVentaDTO item : dto.getItems()) {
+            ProductoVariante variante = variantes.get(item.getVarianteId());
 
             // Precio congelado desde la BD (nunca se confía en el frontend)
             BigDecimal precio = variante.getProducto().getPrecioVenta();
@@ -122,7 +226,7 @@ public class VentaService {
         // Política de descuentos por rol: el ADMIN no tiene límite; el vendedor
         // tiene un tope según el monto de la venta (2 soles si supera S/40,
         // 5 soles si supera S/100, nada en ventas de S/40 o menos)
-        if (descuento.compareTo(BigDecimal.ZERO) > 0 && !esAdmin(vendedor)) {
+        if (descuento.compareTo(BigDecimal.ZERO) > 0 && !usuarioActual.obtener().tieneRol("ADMIN")) {
             BigDecimal maximo = descuentoMaximoVendedor(venta.getSubtotal());
             if (descuento.compareTo(maximo) > 0) {
                 if (maximo.compareTo(BigDecimal.ZERO) == 0) {
@@ -144,25 +248,51 @@ public class VentaService {
             venta.setMontoRecibido(recibido);
             venta.setVuelto(recibido.subtract(venta.getTotal()));
         }
+        fases.terminar("validacion");
 
         // 6. Guardar la venta (cabecera + detalles por cascada)
+        venta.setCodigo(codigo);
         Venta ventaGuardada = ventaRepository.save(venta);
 
-        // 7. Registrar movimientos SALIDA y descontar stock
-        //    (el movimiento se registra ANTES de modificar el stock porque
-        //    registrarSalida lee el stock actual como "stock anterior")
+        // 7. Descontar stock de todas las variantes en un solo UPDATE condicional
+        //    por lotes. Las filas ya están bloqueadas; el "stock_actual >= cantidad"
+        //    es la última barrera contra la sobreventa
+        List<Integer> sinStock = varianteRepository.descontarStock(cantidadesPorVariante);
+        if (!sinStock.isEmpty()) {
+            ProductoVariante variante = variantes.get(sinStock.get(0));
+            throw new RuntimeException("Stock insuficiente para " + variante.getSku());
+        }
+        fases.terminar("persistencia");
+
+        // 8. Movimientos SALIDA en un solo lote. Las entidades cargadas conservan
+        //    el stock previo a la venta; el stock se encadena por variante para
+        //    que dos líneas del mismo producto queden consecutivas
+        Map<Integer, Integer> stockEnCurso = new HashMap<>();
+        List<MovimientoInventario> movimientos = new ArrayList<>();
         for (DetalleVenta detalle : ventaGuardada.getDetalles()) {
             ProductoVariante variante = detalle.getVariante();
-            movimientoService.registrarSalida(
-                    variante,
-                    detalle.getCantidad(),
-                    "Venta " + ventaGuardada.getCodigo(),
-                    ventaGuardada.getCodigo());
-
-            variante.setStockActual(variante.getStockActual() - detalle.getCantidad());
-            varianteRepository.save(variante);
+            Integer stockAnterior = stockEnCurso.getOrDefault(variante.getId(), variante.getStockActual());
+            Integer stockNuevo = stockAnterior - detalle.getCantidad();
+            stockEnCurso.put(variante.getId(), stockNuevo);
+
+            MovimientoInventario movimiento = new MovimientoInventario(variante,
+                    MovimientoInventario.TipoMovimiento.SALIDA, detalle.getCantidad(),
+                    stockAnterior, stockNuevo, vendedor);
+            movimiento.setMotivo("Venta " + ventaGuardada.getCodigo());
+            movimiento.setReferencia(ventaGuardada.getCodigo());
+            movimientos.add(movimiento);
         }
+        movimientoService.registrarMovimientos(movimientos);
+        fases.terminar("movimientos");
 
+        // 9. Acumulados del turno de caja, en esta misma transacción (una
+        //    franja al azar: ver CajaService.acumularVenta)
+        cajaService.acumularVenta(ventaGuardada);
+
+        if (claveIdempotencia != null) {
+            idempotencia.asociar(claveIdempotencia, ventaGuardada.getId());
+        }
+        fases.terminar("persistencia");
         return ventaGuardada;
     }
 
@@ -172,10 +302,30 @@ public class VentaService {
      * Anula una venta: devuelve el stock (movimientos DEVOLUCION) y marca
      * la venta como ANULADA conservando toda la auditoría. Nunca se elimina.
      */
-    @Transactional
     public Venta anularVenta(Integer ventaId, String motivo) {
+        return metricas.medir("gams.ventas.anulacion", () -> {
+            // Mismas fases que la venta, registradas también si falla
+            MetricasService.Fases fases = metricas.fases("gams.ventas.fase", "operacion", "anulacion");
+            RuntimeException error = null;
+            try {
+                return turnos.ejecutar(fases, () -> {
+                    Venta anulada = transactionTemplate.execute(status -> anular(ventaId, motivo, fases));
+                    fases.terminar("confirmacion");
+                    return anulada;
+                });
+            } catch (RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                fases.registrar(error);
+            }
+        });
+    }
+
+    private Venta anular(Integer ventaId, String motivo, MetricasService.Fases fases) {
         Venta venta = ventaRepository.findById(ventaId)
                 .orElseThrow(() -> new RuntimeException("Venta no encontrada: " + ventaId));
+        fases.anotar("gams.ventas.lineas", venta.getDetalles().size());
 
         if (venta.esAnulada()) {
             throw new RuntimeException("La venta " + venta.getCodigo() + " ya está anulada");
@@ -193,42 +343,62 @@ public class VentaService {
             throw new RuntimeException("Debe indicar el motivo de la anulación");
         }
 
-        // Devolver stock de cada línea (si la variante aún existe)
+        Usuario usuario = usuarioActual.referencia();
+        fases.terminar("validacion");
+
+        // Devolver stock de cada línea (si la variante aún existe). Las filas se
+        // bloquean todas juntas y en orden de id, igual que al vender
+        Map<Integer, Integer> cantidadesPorVariante = new TreeMap<>();
         for (DetalleVenta detalle : venta.getDetalles()) {
-            ProductoVariante variante = detalle.getVariante();
-            if (variante == null) {
-                continue; // La variante fue eliminada: no hay stock que devolver
+            if (detalle.getVariante() != null) {
+                cantidadesPorVariante.merge(detalle.getVariante().getId(), detalle.getCantidad(), Integer::sum);
             }
+        }
 
-            // Bloquear la fila para actualizar stock de forma segura
-            variante = varianteRepository.findByIdForUpdate(variante.getId())
-                    .orElse(null);
-            if (variante == null) {
-                continue;
+        if (!cantidadesPorVariante.isEmpty()) {
+            Map<Integer, Integer> stockEnCurso = new HashMap<>();
+            for (ProductoVariante variante : varianteRepository.findAllByIdForUpdate(cantidadesPorVariante.keySet())) {
+                stockEnCurso.put(variante.getId(), variante.getStockActual());
             }
+            varianteRepository.findParaCobro(stockEnCurso.keySet());
+            fases.terminar("bloqueo");
+            // La variante fue eliminada: no hay stock que devolver
+            cantidadesPorVariante.keySet().retainAll(stockEnCurso.keySet());
+
+            List<MovimientoInventario> movimientos = new ArrayList<>();
+            for (DetalleVenta detalle : venta.getDetalles()) {
+                ProductoVariante variante = detalle.getVariante();
+                if (variante == null || !stockEnCurso.containsKey(variante.getId())) {
+                    continue;
+                }
 
-            Integer stockAnterior = variante.getStockActual();
-            Integer stockNuevo = stockAnterior + detalle.getCantidad();
+                Integer stockAnterior = stockEnCurso.get(variante.getId());
+                Integer stockNuevo = stockAnterior + detalle.getCantidad();
+                stockEnCurso.put(variante.getId(), stockNuevo);
 
-            movimientoService.registrarMovimiento(
-                    variante,
-                    MovimientoInventario.TipoMovimiento.DEVOLUCION,
-                    detalle.getCantidad(),
-                    stockAnterior,
-                    stockNuevo,
-                    "Anulación de venta " + venta.getCodigo() + ": " + motivo,
-                    venta.getCodigo());
+                MovimientoInventario movimiento = new MovimientoInventario(variante,
+                        MovimientoInventario.TipoMovimiento.DEVOLUCION, detalle.getCantidad(),
+                        stockAnterior, stockNuevo, usuario);
+                movimiento.setMotivo("Anulación de venta " + venta.getCodigo() + ": " + motivo);
+                movimiento.setReferencia(venta.getCodigo());
+                movimientos.add(movimiento);
+            }
 
-            variante.setStockActual(stockNuevo);
-            varianteRepository.save(variante);
+            varianteRepository.devolverStock(cantidadesPorVariante);
+            fases.terminar("persistencia");
+            movimientoService.registrarMovimientos(movimientos);
+            fases.terminar("movimientos");
         }
 
         venta.setEstado(Venta.EstadoVenta.ANULADA);
         venta.setFechaAnulacion(LocalDateTime.now());
-        venta.setUsuarioAnulacion(obtenerUsuarioActual());
+        venta.setUsuarioAnulacion(usuario);
         venta.setMotivoAnulacion(motivo);
-
-        return ventaRepository.save(venta);
+        Venta anulada = ventaRepository.save(venta);
+        // Si la venta es del turno abierto, sale de sus acumulados
+        cajaService.revertirVenta(anulada);
+        fases.terminar("persistencia");
+        return anulada;
     }
 
     // ==================== CONSULTAS ====================
@@ -251,11 +421,22 @@ public class VentaService {
      * Historial paginado con filtros opcionales (para que el POS no cargue
      * todas las ventas históricas de una sola vez)
      */
-    public Page<Venta> listarPaginado(LocalDateTime desde, LocalDateTime hasta,
-                                      Integer vendedorId, Venta.EstadoVenta estado,
-                                      int page, int size) {
-        return ventaRepository.buscarVentas(desde, hasta, vendedorId, estado,
+    @Transactional(readOnly = true)
+    public Page<VentaResponseDTO> listarPaginado(LocalDateTime desde, LocalDateTime hasta,
+                                                 Integer vendedorId, Venta.EstadoVenta estado,
+                                                 int page, int size) {
+        Page<VentaResponseDTO> pagina = ventaRepository.buscarVentasDTO(desde, hasta, vendedorId, estado,
                 PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), 100)));
+
+        // Las líneas de toda la página en una consulta más, repartidas por venta
+        List<Integer> ventaIds = pagina.map(VentaResponseDTO::getId).getContent();
+        if (!ventaIds.isEmpty()) {
+            Map<Integer, List<VentaResponseDTO.DetalleDTO>> porVenta = detalleRepository.findDTOByVentaIds(ventaIds)
+                    .stream()
+                    .collect(Collectors.groupingBy(VentaResponseDTO.DetalleDTO::getVentaId));
+            pagina.forEach(venta -> venta.setDetalles(porVenta.getOrDefault(venta.getId(), List.of())));
+        }
+        return pagina;
     }
 
     public List<Venta> listarPorFechas(LocalDateTime desde, LocalDateTime hasta) {
@@ -295,38 +476,6 @@ public class VentaService {
 
     // ==================== UTILIDADES ====================
 
-    /**
-     * Genera el correlativo interno: V-2026-00001, V-2026-00002...
-     * La numeración se reinicia cada año.
-     */
-    private String generarCodigo() {
-        int anioActual = Year.now().getValue();
-        int siguiente = 1;
-
-        Venta ultima = ventaRepository.findTopByOrderByIdDesc().orElse(null);
-        if (ultima != null && ultima.getCodigo() != null) {
-            // Formato esperado: V-AAAA-NNNNN
-            String[] partes = ultima.getCodigo().split("-");
-            if (partes.length == 3) {
-                try {
-                    int anioUltima = Integer.parseInt(partes[1]);
-                    if (anioUltima == anioActual) {
-                        siguiente = Integer.parseInt(partes[2]) + 1;
-                    }
-                } catch (NumberFormatException ignored) {
-                    // Código con formato inesperado: se reinicia la numeración
-                }
-            }
-        }
-
-        return String.format("V-%d-%05d", anioActual, siguiente);
-    }
-
-    private boolean esAdmin(Usuario usuario) {
-        return usuario.getRoles().stream()
-                .anyMatch(rol -> "ADMIN".equalsIgnoreCase(rol.getNombre()));
-    }
-
     /**
      * Tope de descuento para el rol VENDEDOR según el subtotal de la venta:
      * más de S/100 -> S/5, más de S/40 -> S/2, S/40 o menos -> sin descuento.
@@ -341,15 +490,4 @@ public class VentaService {
         return BigDecimal.ZERO;
     }
 
-    private Usuario obtenerUsuarioActual() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new RuntimeException("No hay usuario autenticado");
-        }
-
-        String username = authentication.getName();
-        return usuarioRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
-    }
 }
\ No newline at end of file
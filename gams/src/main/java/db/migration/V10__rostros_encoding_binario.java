@@ -0,0 +1,62 @@
+package db.migration;
+
+import com.example.gams.entities.EncodingRostroConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * rostros_biometricos.encoding pasa de JSON (texto) a binario
+ * (EncodingRostroConverter): se agrega la columna nueva, se llenan las filas
+ * por lotes en orden de id (sin leer la tabla completa de una vez) y al final
+ * la columna binaria reemplaza a la JSON.
+ */
+public class V10__rostros_encoding_binario extends BaseJavaMigration {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection conexion = context.getConnection();
+
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("ALTER TABLE rostros_biometricos ADD COLUMN encoding_bin VARBINARY("
+                    + EncodingRostroConverter.BYTES + ") NULL");
+        }
+
+        try (PreparedStatement lectura = conexion.prepareStatement(
+                     "SELECT id, encoding FROM rostros_biometricos WHERE id > ? ORDER BY id LIMIT " + TAMANO_LOTE);
+             PreparedStatement escritura = conexion.prepareStatement(
+                     "UPDATE rostros_biometricos SET encoding_bin = ? WHERE id = ?")) {
+            long ultimoId = 0;
+            int leidas;
+            do {
+                leidas = 0;
+                lectura.setLong(1, ultimoId);
+                try (ResultSet filas = lectura.executeQuery()) {
+                    while (filas.next()) {
+                        ultimoId = filas.getLong(1);
+                        float[] encoding = objectMapper.readValue(filas.getString(2), float[].class);
+                        escritura.setBytes(1, EncodingRostroConverter.codificar(encoding));
+                        escritura.setLong(2, ultimoId);
+                        escritura.addBatch();
+                        leidas++;
+                    }
+                }
+                escritura.executeBatch();
+            } while (leidas == TAMANO_LOTE);
+        }
+
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("ALTER TABLE rostros_biometricos DROP COLUMN encoding, "
+                    + "CHANGE COLUMN encoding_bin encoding VARBINARY(" + EncodingRostroConverter.BYTES + ") NOT NULL");
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Filas del outbox que el drenado no pudo leer: quedan marcadas con el error
+-- (para revisarlas a mano) y el drenado las salta. Son pocas o ninguna, así
+-- que los pendientes se siguen recorriendo por la PK sin otro índice.
+ALTER TABLE movimientos_outbox ADD COLUMN error VARCHAR(500) NULL;
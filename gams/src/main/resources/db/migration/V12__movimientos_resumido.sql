@@ -0,0 +1,10 @@
+-- Movimientos ya sumados a movimientos_resumen_diario. El cobro solo inserta
+-- el movimiento (resumido = FALSE) y un proceso aparte lo suma al resumen y
+-- lo marca, fuera de la transacción de la venta. Los movimientos que ya
+-- existen están todos en el resumen: se agregan como resumidos y recién
+-- después el valor por defecto pasa a FALSE. El índice encuentra los
+-- pendientes, que son pocos, sin recorrer la tabla.
+ALTER TABLE movimientos_inventario ADD COLUMN resumido BOOLEAN NOT NULL DEFAULT TRUE;
+ALTER TABLE movimientos_inventario ALTER COLUMN resumido SET DEFAULT FALSE;
+
+CREATE INDEX idx_movimientos_resumido ON movimientos_inventario (resumido);
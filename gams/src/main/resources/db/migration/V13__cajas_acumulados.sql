@@ -0,0 +1,45 @@
+-- Acumulados de la caja abierta repartidos en franjas (CajaAcumulado.FRANJAS,
+-- 16): cada venta suma en una franja al azar dentro de su transacción, en vez
+-- de que todas actualicen la misma fila de cajas_sesiones. Las columnas
+-- ventas_* de cajas_sesiones quedan con lo congelado al cerrar.
+CREATE TABLE cajas_acumulados (
+    id                   BIGINT        NOT NULL AUTO_INCREMENT,
+    caja_id              INT           NOT NULL,
+    franja               INT           NOT NULL,
+    ventas_cantidad      INT           NOT NULL DEFAULT 0,
+    ventas_total         DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ventas_efectivo      DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ventas_tarjeta       DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ventas_yape          DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ventas_plin          DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ventas_transferencia DECIMAL(12,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_cajas_acumulados (caja_id, franja),
+    CONSTRAINT fk_cajas_acumulados_caja FOREIGN KEY (caja_id) REFERENCES cajas_sesiones (id)
+) ENGINE = InnoDB;
+
+-- Franjas de la sesión abierta: la 0 con lo vendido desde la apertura (sumado
+-- de las ventas, como en V4) y las demás en cero
+INSERT INTO cajas_acumulados (caja_id, franja, ventas_cantidad, ventas_total, ventas_efectivo,
+                              ventas_tarjeta, ventas_yape, ventas_plin, ventas_transferencia)
+SELECT s.id, 0,
+       COUNT(v.id),
+       COALESCE(SUM(v.total), 0),
+       COALESCE(SUM(CASE WHEN v.metodo_pago = 'EFECTIVO' THEN v.total END), 0),
+       COALESCE(SUM(CASE WHEN v.metodo_pago = 'TARJETA' THEN v.total END), 0),
+       COALESCE(SUM(CASE WHEN v.metodo_pago = 'YAPE' THEN v.total END), 0),
+       COALESCE(SUM(CASE WHEN v.metodo_pago = 'PLIN' THEN v.total END), 0),
+       COALESCE(SUM(CASE WHEN v.metodo_pago = 'TRANSFERENCIA' THEN v.total END), 0)
+FROM cajas_sesiones s
+LEFT JOIN ventas v ON v.estado = 'COMPLETADA' AND v.fecha >= s.fecha_apertura
+WHERE s.estado = 'ABIERTA'
+GROUP BY s.id;
+
+INSERT INTO cajas_acumulados (caja_id, franja)
+SELECT s.id, f.franja
+FROM cajas_sesiones s
+JOIN (SELECT 1 AS franja UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8
+      UNION ALL SELECT 9 UNION ALL SELECT 10 UNION ALL SELECT 11 UNION ALL SELECT 12
+      UNION ALL SELECT 13 UNION ALL SELECT 14 UNION ALL SELECT 15) f
+WHERE s.estado = 'ABIERTA';
@@ -0,0 +1,16 @@
+-- Contador del correlativo de ventas por año (V-AAAA-NNNNN).
+-- Reemplaza la lectura de la última venta en cada cobro: los nodos reservan
+-- bloques de números sobre esta fila.
+CREATE TABLE secuencias_venta (
+    anio          INT    NOT NULL,
+    ultimo_numero BIGINT NOT NULL,
+    PRIMARY KEY (anio)
+) ENGINE = InnoDB;
+
+-- Sembrar con el mayor correlativo ya emitido en cada año
+INSERT INTO secuencias_venta (anio, ultimo_numero)
+SELECT CAST(SUBSTRING(codigo, 3, 4) AS UNSIGNED),
+       MAX(CAST(SUBSTRING(codigo, 8) AS UNSIGNED))
+FROM ventas
+WHERE codigo REGEXP '^V-[0-9]{4}-[0-9]+$'
+GROUP BY CAST(SUBSTRING(codigo, 3, 4) AS UNSIGNED);
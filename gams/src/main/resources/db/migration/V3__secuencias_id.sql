@@ -0,0 +1,17 @@
+-- Generador de ids por bloques (@TableGenerator) para detalles_venta y
+-- movimientos_inventario. Con IDENTITY Hibernate no puede agrupar los INSERT
+-- en batch; con esta tabla cada nodo reserva 50 ids por viaje a la BD.
+CREATE TABLE secuencias_id (
+    tabla        VARCHAR(64) NOT NULL,
+    siguiente_id BIGINT      NOT NULL,
+    PRIMARY KEY (tabla)
+) ENGINE = InnoDB;
+
+-- El optimizador "pooled" entrega los ids (valor - 49 .. valor] a partir del
+-- valor leído: sembrar con MAX(id) + 51 deja el primer bloque por encima de
+-- los ids que ya generó el AUTO_INCREMENT
+INSERT INTO secuencias_id (tabla, siguiente_id)
+SELECT 'detalles_venta', COALESCE(MAX(id), 0) + 51 FROM detalles_venta;
+
+INSERT INTO secuencias_id (tabla, siguiente_id)
+SELECT 'movimientos_inventario', COALESCE(MAX(id), 0) + 51 FROM movimientos_inventario;
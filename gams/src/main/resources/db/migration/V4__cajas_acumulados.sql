@@ -0,0 +1,35 @@
+-- Acumulados del turno en cajas_sesiones: las ventas y anulaciones los
+-- actualizan en su transacción; el estado de la caja y el cierre los leen
+-- directamente en vez de sumar las ventas del turno.
+ALTER TABLE cajas_sesiones
+    ADD COLUMN ventas_cantidad      INT           NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_total         DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_efectivo      DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_tarjeta       DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_yape          DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_plin          DECIMAL(12,2) NOT NULL DEFAULT 0,
+    ADD COLUMN ventas_transferencia DECIMAL(12,2) NOT NULL DEFAULT 0;
+
+-- Sembrar la sesión abierta con lo vendido desde su apertura
+UPDATE cajas_sesiones c
+JOIN (
+    SELECT s.id,
+           COUNT(v.id)                                                         AS cantidad,
+           COALESCE(SUM(v.total), 0)                                           AS total,
+           COALESCE(SUM(CASE WHEN v.metodo_pago = 'EFECTIVO' THEN v.total END), 0)      AS efectivo,
+           COALESCE(SUM(CASE WHEN v.metodo_pago = 'TARJETA' THEN v.total END), 0)       AS tarjeta,
+           COALESCE(SUM(CASE WHEN v.metodo_pago = 'YAPE' THEN v.total END), 0)          AS yape,
+           COALESCE(SUM(CASE WHEN v.metodo_pago = 'PLIN' THEN v.total END), 0)          AS plin,
+           COALESCE(SUM(CASE WHEN v.metodo_pago = 'TRANSFERENCIA' THEN v.total END), 0) AS transferencia
+    FROM cajas_sesiones s
+    LEFT JOIN ventas v ON v.estado = 'COMPLETADA' AND v.fecha >= s.fecha_apertura
+    WHERE s.estado = 'ABIERTA'
+    GROUP BY s.id
+) a ON a.id = c.id
+SET c.ventas_cantidad      = a.cantidad,
+    c.ventas_total         = a.total,
+    c.ventas_efectivo      = a.efectivo,
+    c.ventas_tarjeta       = a.tarjeta,
+    c.ventas_yape          = a.yape,
+    c.ventas_plin          = a.plin,
+    c.ventas_transferencia = a.transferencia;
@@ -0,0 +1,9 @@
+-- Outbox de movimientos de inventario (modo OUTBOX del diario): una fila por
+-- operación con sus movimientos en JSON; el drenado los pasa por lotes a
+-- movimientos_inventario.
+CREATE TABLE movimientos_outbox (
+    id        BIGINT   NOT NULL AUTO_INCREMENT,
+    fecha     DATETIME NOT NULL,
+    contenido TEXT     NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
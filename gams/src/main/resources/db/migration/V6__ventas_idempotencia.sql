@@ -0,0 +1,10 @@
+-- Claves de idempotencia de POST /api/ventas (cabecera Idempotency-Key): un
+-- reintento del POS con la misma clave devuelve la venta original. Las filas
+-- vencidas las borra la limpieza periódica de IdempotenciaVentaService.
+CREATE TABLE ventas_idempotencia (
+    clave          VARCHAR(100) NOT NULL,
+    venta_id       INT          NULL,
+    fecha_creacion DATETIME     NOT NULL,
+    PRIMARY KEY (clave),
+    KEY idx_ventas_idempotencia_fecha (fecha_creacion)
+) ENGINE = InnoDB;
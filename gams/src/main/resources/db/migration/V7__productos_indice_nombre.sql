@@ -0,0 +1,3 @@
+-- Catálogo paginado por keyset: el orden (nombre, id) y la condición del cursor
+-- se resuelven con este índice, leyendo solo las filas de la página pedida.
+CREATE INDEX idx_productos_nombre_id ON productos (nombre, id);
@@ -0,0 +1,21 @@
+-- Movimientos acumulados por (día, tipo, producto) para las estadísticas del
+-- historial: el diario de movimientos suma aquí en la misma transacción en
+-- que inserta en movimientos_inventario. producto_id = 0 agrupa los
+-- movimientos sin variante (variante eliminada).
+CREATE TABLE movimientos_resumen_diario (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    fecha       DATE        NOT NULL,
+    tipo        VARCHAR(20) NOT NULL,
+    producto_id INT         NOT NULL,
+    movimientos BIGINT      NOT NULL,
+    unidades    BIGINT      NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_movimientos_resumen_diario (fecha, tipo, producto_id)
+) ENGINE = InnoDB;
+
+-- Sembrar con el historial existente
+INSERT INTO movimientos_resumen_diario (fecha, tipo, producto_id, movimientos, unidades)
+SELECT DATE(m.fecha), m.tipo, COALESCE(v.producto_id, 0), COUNT(*), SUM(m.cantidad)
+FROM movimientos_inventario m
+LEFT JOIN productos_variantes v ON v.id = m.variante_id
+GROUP BY DATE(m.fecha), m.tipo, COALESCE(v.producto_id, 0);
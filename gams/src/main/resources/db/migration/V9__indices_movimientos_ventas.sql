@@ -0,0 +1,14 @@
+-- Índices para los filtros por fecha del historial y del dashboard. Todos
+-- terminan en fecha: el filtro por igualdad va primero y el rango de fechas
+-- (y el ORDER BY fecha) se resuelve dentro del mismo índice. InnoDB agrega el
+-- id al final de cada índice, así que el keyset (fecha, id) también lo usa.
+-- Los índices que empiezan con variante_id o vendedor_id sirven además a su
+-- FK: MySQL descarta el índice que había creado solo para ella.
+
+CREATE INDEX idx_movimientos_fecha ON movimientos_inventario (fecha);
+CREATE INDEX idx_movimientos_variante_fecha ON movimientos_inventario (variante_id, fecha);
+CREATE INDEX idx_movimientos_tipo_fecha ON movimientos_inventario (tipo, fecha);
+CREATE INDEX idx_movimientos_referencia ON movimientos_inventario (referencia);
+
+CREATE INDEX idx_ventas_estado_fecha ON ventas (estado, fecha);
+CREATE INDEX idx_ventas_vendedor_fecha ON ventas (vendedor_id, fecha);
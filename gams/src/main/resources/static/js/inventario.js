@@ -394,7 +394,7 @@ class InventarioManager {
             const response = await fetch(`/api/productos/variantes/buscar/${barcode}`);
 
             if (response.status === 404) {
-                this.showToast('error', 'No encontrado', `No se encontró ninguna variante con el código de barras: ${barcode}`);
+                this.showToast('error', 'No encontrado', `No hay ninguna variante activa con el código: ${barcode}. Las variantes desactivadas se ven desde su producto.`);
                 this.showLoading(false);
                 return;
             }
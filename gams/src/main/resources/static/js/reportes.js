@@ -7,6 +7,12 @@ class ReportesManager {
     constructor() {
         this.movimientos = [];
         this.movimientosFiltrados = [];
+        this.tamanoPagina = 50;
+        // Cursores de las páginas visitadas: cursores[i] abre la página i
+        this.cursores = [null];
+        this.pagina = 0;
+        this.siguienteCursor = null;
+        this.total = 0;
         this.init();
     }
 
@@ -40,33 +46,105 @@ class ReportesManager {
         
         // Botón refresh
         document.getElementById('btnRefresh').addEventListener('click', () => this.refrescar());
+
+        // Exportar a CSV todo el filtro actual (no solo la página visible)
+        document.getElementById('btnExportar').addEventListener('click', () => {
+            window.location.href = '/api/movimientos/exportar?' + this.parametrosFiltro().join('&');
+        });
+
+        // Paginación
+        document.getElementById('btnPrevPage').addEventListener('click', () => {
+            if (this.pagina > 0) this.cargarPagina(this.pagina - 1);
+        });
+        document.getElementById('btnNextPage').addEventListener('click', () => {
+            if (this.siguienteCursor) {
+                this.cursores[this.pagina + 1] = this.siguienteCursor;
+                this.cargarPagina(this.pagina + 1);
+            }
+        });
     }
 
     /**
-     * Cargar todos los movimientos
+     * Cargar la primera página de movimientos
      */
     async cargarMovimientos() {
+        this.cursores = [null];
         try {
-            const response = await fetch('/api/movimientos');
-            if (!response.ok) throw new Error('Error al cargar movimientos');
-            
-            const data = await response.json();
-            
-            if (data.success) {
-                this.movimientos = data.movimientos;
-                this.movimientosFiltrados = [...this.movimientos];
-                this.renderizarMovimientos();
-                console.log(`✅ ${data.total} movimientos cargados`);
-            } else {
-                throw new Error(data.message);
-            }
-            
+            await this.cargarPagina(0);
         } catch (error) {
             console.error('Error cargando movimientos:', error);
             this.mostrarError('No se pudieron cargar los movimientos');
         }
     }
 
+    /**
+     * Cargar una página del historial con los filtros actuales
+     */
+    async cargarPagina(pagina) {
+        const params = this.parametrosFiltro();
+        params.push(`tamano=${this.tamanoPagina}`);
+        if (this.cursores[pagina]) {
+            params.push(`cursor=${encodeURIComponent(this.cursores[pagina])}`);
+        }
+
+        const response = await fetch('/api/movimientos?' + params.join('&'));
+        if (!response.ok) throw new Error('Error al cargar movimientos');
+
+        const data = await response.json();
+        if (!data.success) throw new Error(data.message);
+
+        this.pagina = pagina;
+        this.movimientos = data.movimientos;
+        this.siguienteCursor = data.siguienteCursor;
+        this.total = data.total;
+
+        // La búsqueda local solo filtra la página cargada
+        const busqueda = document.getElementById('buscarMovimiento').value.trim();
+        if (busqueda) {
+            this.buscar(busqueda);
+        } else {
+            this.movimientosFiltrados = [...this.movimientos];
+            this.renderizarMovimientos();
+        }
+        this.actualizarPaginacion();
+    }
+
+    /**
+     * Parámetros de los filtros de período y tipo
+     */
+    parametrosFiltro() {
+        const periodo = document.getElementById('filtroPeriodo').value;
+        const tipo = document.getElementById('filtroTipo').value;
+        const params = [];
+
+        // Filtro por período
+        if (periodo === 'hoy') {
+            params.push('hoy=true');
+        } else if (periodo !== 'todos') {
+            const fechas = this.calcularFechas(periodo);
+            params.push(`fechaInicio=${fechas.inicio}`);
+            params.push(`fechaFin=${fechas.fin}`);
+        }
+
+        // Filtro por tipo
+        if (tipo) {
+            params.push(`tipo=${tipo}`);
+        }
+        return params;
+    }
+
+    /**
+     * Actualizar controles de paginación
+     */
+    actualizarPaginacion() {
+        const totalPaginas = Math.max(1, Math.ceil(this.total / this.tamanoPagina));
+        document.getElementById('paginationContainer').style.display = totalPaginas > 1 ? '' : 'none';
+        document.getElementById('pageInfo').textContent =
+            `Página ${this.pagina + 1} de ${totalPaginas} (${this.total} movimientos)`;
+        document.getElementById('btnPrevPage').disabled = this.pagina === 0;
+        document.getElementById('btnNextPage').disabled = !this.siguienteCursor;
+    }
+
     /**
      * Cargar estadísticas
      */
@@ -98,55 +176,13 @@ class ReportesManager {
     }
 
     /**
-     * Aplicar filtros
+     * Aplicar filtros (vuelve a la primera página)
      */
     async aplicarFiltros() {
-        const periodo = document.getElementById('filtroPeriodo').value;
-        const tipo = document.getElementById('filtroTipo').value;
-        const busqueda = document.getElementById('buscarMovimiento').value.trim();
-        
         try {
-            let url = '/api/movimientos?';
-            const params = [];
-            
-            // Filtro por período
-            if (periodo === 'hoy') {
-                params.push('hoy=true');
-            } else if (periodo !== 'todos') {
-                const fechas = this.calcularFechas(periodo);
-                params.push(`fechaInicio=${fechas.inicio}`);
-                params.push(`fechaFin=${fechas.fin}`);
-            }
-            
-            // Filtro por tipo
-            if (tipo) {
-                params.push(`tipo=${tipo}`);
-            }
-            
-            // Construir URL
-            if (params.length > 0) {
-                url += params.join('&');
-            }
-            
-            const response = await fetch(url);
-            if (!response.ok) throw new Error('Error al filtrar movimientos');
-            
-            const data = await response.json();
-            
-            if (data.success) {
-                this.movimientos = data.movimientos;
-                
-                // Aplicar búsqueda local si hay término
-                if (busqueda) {
-                    this.buscar(busqueda);
-                } else {
-                    this.movimientosFiltrados = [...this.movimientos];
-                    this.renderizarMovimientos();
-                }
-                
-                await this.cargarEstadisticas();
-            }
-            
+            this.cursores = [null];
+            await this.cargarPagina(0);
+            await this.cargarEstadisticas();
         } catch (error) {
             console.error('Error aplicando filtros:', error);
             this.mostrarError('Error al aplicar filtros');
@@ -186,11 +222,11 @@ class ReportesManager {
      */
     buscar(termino) {
         if (!termino || termino.trim() === '') {
-            // Si no hay término, mostrar todos los movimientos cargados
+            // Si no hay término, mostrar todos los movimientos de la página
             this.movimientosFiltrados = [...this.movimientos];
         } else {
             termino = termino.toLowerCase().trim();
-            // Buscar solo en los movimientos ya filtrados por período/tipo
+            // Buscar solo en la página cargada (ya filtrada por período/tipo)
             this.movimientosFiltrados = this.movimientos.filter(m => 
                 m.productoNombre.toLowerCase().includes(termino) ||
                 m.varianteSku.toLowerCase().includes(termino) ||
@@ -223,7 +259,7 @@ class ReportesManager {
         
         tbody.innerHTML = this.movimientosFiltrados.map((m, index) => `
             <tr>
-                <td>${index + 1}</td>
+                <td>${this.pagina * this.tamanoPagina + index + 1}</td>
                 <td>${this.formatearFecha(m.fecha)}</td>
                 <td>${this.renderBadgeTipo(m.tipo)}</td>
                 <td><strong>${m.productoNombre}</strong></td>
@@ -10,6 +10,8 @@ class PosManager {
         this.cliente = null;            // null = Cliente Varios
         this.metodoPago = 'EFECTIVO';
         this.productos = [];
+        this.catalogoCursor = null;     // Cursor de la siguiente página del catálogo (null = no hay más)
+        this.catalogoConsulta = 0;      // Sube en cada búsqueda: se ignoran respuestas viejas
         this.esAdmin = (document.body.dataset.userRole || '').toUpperCase().includes('ADMIN');
         this.searchTimer = null;
         this.ultimaVenta = null;
@@ -17,6 +19,7 @@ class PosManager {
         this.histSoloHoy = true;        // Filtro activo del historial
         this.cajaActual = null;         // Estado de la sesión de caja
         this.cartelCajaMostrado = false; // El cartelito de apertura se muestra una sola vez
+        this.cobroPendiente = null;     // {clave, cuerpo}: Idempotency-Key del cobro en curso
 
         this.bindEventos();
         this.restaurarCarrito();
@@ -45,6 +48,9 @@ class PosManager {
             clearTimeout(this.searchTimer);
             this.searchTimer = setTimeout(() => this.cargarProductos(search.value.trim()), 300);
         });
+        document.getElementById('btnCatalogoMas').addEventListener('click', () => {
+            this.cargarProductos(search.value.trim(), true);
+        });
         document.getElementById('btnClearSearch').addEventListener('click', () => {
             search.value = '';
             document.getElementById('btnClearSearch').classList.add('hidden');
@@ -177,11 +183,24 @@ class PosManager {
 
     // ==================== CATÁLOGO ====================
 
-    async cargarProductos(termino) {
+    /**
+     * Carga el catálogo por páginas (keyset): una búsqueda nueva trae la primera
+     * página; "Ver más" (continuar) agrega la siguiente a lo ya mostrado
+     */
+    async cargarProductos(termino, continuar = false) {
+        const consulta = ++this.catalogoConsulta;
         try {
-            const url = '/api/productos?activo=true' + (termino ? '&buscar=' + encodeURIComponent(termino) : '');
-            const resp = await fetch(url);
-            this.productos = await resp.json();
+            const params = new URLSearchParams({ activo: 'true', soloConVariantes: 'true', tamano: '40' });
+            if (termino) params.set('buscar', termino);
+            if (continuar && this.catalogoCursor) params.set('cursor', this.catalogoCursor);
+
+            const resp = await fetch('/api/productos/pagina?' + params);
+            const data = await resp.json();
+            // Mientras tanto el cajero siguió tecleando: esta respuesta ya no sirve
+            if (consulta !== this.catalogoConsulta) return;
+
+            this.productos = continuar ? this.productos.concat(data.productos) : data.productos;
+            this.catalogoCursor = data.siguienteCursor;
             this.renderCatalogo();
         } catch (e) {
             this.toast('No se pudo cargar el catálogo', 'error');
@@ -195,6 +214,7 @@ class PosManager {
 
         const visibles = this.productos.filter(p => (p.cantidadVariantes || 0) > 0);
         empty.classList.toggle('hidden', visibles.length > 0);
+        document.getElementById('btnCatalogoMas').classList.toggle('hidden', !this.catalogoCursor);
 
         visibles.forEach(p => {
             const stock = p.stockTotal || 0;
@@ -250,7 +270,7 @@ class PosManager {
                 this.focusBuscador();
             } else {
                 // No es un código: se queda como búsqueda por texto
-                this.toast('Código no encontrado, mostrando búsqueda por nombre', 'error');
+                this.toast('Código no encontrado (o variante desactivada), mostrando búsqueda por nombre', 'error');
             }
         } catch (e) {
             this.toast('Error al buscar el código', 'error');
@@ -548,14 +568,25 @@ class PosManager {
             return;
         }
 
+        // Misma clave mientras se reintenta el mismo cobro (p. ej. tras un error
+        // de conexión): si la venta ya se registró, el servidor la devuelve en
+        // vez de registrarla otra vez. Si el carrito cambió, es otro cobro
+        const cuerpo = JSON.stringify(payload);
+        if (!this.cobroPendiente || this.cobroPendiente.cuerpo !== cuerpo) {
+            this.cobroPendiente = { clave: this.nuevaClave(), cuerpo };
+        }
+
         const btn = document.getElementById('btnCobrar');
         btn.disabled = true;
 
         try {
             const resp = await fetch('/api/ventas', {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
-                body: JSON.stringify(payload)
+                headers: {
+                    'Content-Type': 'application/json',
+                    'Idempotency-Key': this.cobroPendiente.clave
+                },
+                body: cuerpo
             });
             const data = await resp.json();
 
@@ -609,7 +640,17 @@ class PosManager {
         }
     }
 
+    /** Clave única por cobro (randomUUID solo existe en contextos seguros) */
+    nuevaClave() {
+        if (window.crypto && typeof crypto.randomUUID === 'function') {
+            return crypto.randomUUID();
+        }
+        return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2)
+            + Math.random().toString(36).slice(2);
+    }
+
     resetVenta() {
+        this.cobroPendiente = null;
         this.carrito = [];
         this.setCliente(null);
         document.getElementById('ticketDescuento').value = '0';
@@ -0,0 +1,39 @@
+package com.example.gams;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las migraciones de Flyway (SQL en resources y Java en db.migration) se
+ * resuelven como al arrancar la aplicación: sin dos con la misma versión.
+ * Las pruebas con Spring corren con spring.flyway.enabled=false (el esquema sale
+ * de las entidades), así que sin esta prueba un choque de versiones solo
+ * aparecería al levantar la aplicación contra MySQL. Las migraciones no se
+ * ejecutan: están escritas para MySQL y parten del esquema de la versión 1.
+ */
+class MigracionesFlywayTest {
+
+	@Test
+	void lasVersionesNoSeRepiten() {
+		Flyway flyway = Flyway.configure()
+				.dataSource("jdbc:h2:mem:flyway-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "")
+				.locations("classpath:db/migration")
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load();
+
+		// Flyway rechaza aquí las versiones repetidas ("more than one migration with version")
+		MigrationInfo[] migraciones = flyway.info().all();
+
+		assertThat(migraciones).isNotEmpty();
+		assertThat(Arrays.stream(migraciones).map(m -> m.getVersion().getVersion()))
+				.doesNotHaveDuplicates()
+				.contains("2");
+	}
+}
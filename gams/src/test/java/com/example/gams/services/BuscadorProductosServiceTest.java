@@ -0,0 +1,53 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.Producto;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El índice en memoria encuentra productos sin importar tildes ni mayúsculas,
+ * y ve al instante lo que guarda ProductoService sin esperar la reconstrucción.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BuscadorProductosServiceTest {
+
+	@Autowired private BuscadorProductosService buscador;
+	@Autowired private ProductoService productoService;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	@Test
+	void buscaSinTildesYRecogeLosCambiosIncrementales() {
+		List<Integer> varianteIds = datos.variantes(2, 5);
+		Producto existente = productoService.buscarProductoPorId(
+				varianteRepository.findById(varianteIds.get(0)).orElseThrow().getProducto().getId()).orElseThrow();
+		Integer productoId = existente.getId();
+		buscador.reconstruir();
+
+		assertThat(buscador.buscar("POLO BASICO", null, null, true, true, null, Integer.MAX_VALUE))
+				.hasValueSatisfying(ids -> assertThat(ids).contains(productoId));
+
+		Producto nuevo = productoService.guardarProducto(new Producto("C-" + productoId, "Camisa Ñandú", existente.getCategoria(),
+				new BigDecimal("15.00"), new BigDecimal("30.00")));
+
+		assertThat(buscador.buscar("nandu", null, null, true, false, null, Integer.MAX_VALUE))
+				.hasValueSatisfying(ids -> assertThat(ids).containsExactly(nuevo.getId()));
+		// Sin variantes activas no aparece en el POS
+		assertThat(buscador.buscar("nandu", null, null, true, true, null, Integer.MAX_VALUE))
+				.hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+
+		productoService.eliminarProducto(nuevo.getId());
+		assertThat(buscador.buscar("nandu", null, null, null, false, null, Integer.MAX_VALUE))
+				.hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.CajaAcumulado;
+import com.example.gams.entities.CajaSesion;
+import com.example.gams.entities.Venta;
+import com.example.gams.repositories.CajaAcumuladoRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Los acumulados de la caja (en sus franjas) se mueven con cada venta y cada
+ * anulación en su misma transacción, el cierre los congela sin recorrer las
+ * ventas, una venta que llega con la caja ya cerrada se revierte completa y la
+ * conciliación corrige una franja desfasada.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CajaServiceAcumuladosTest {
+
+	private static final BigDecimal MONTO_INICIAL = new BigDecimal("100.00");
+
+	@Autowired private CajaService cajaService;
+	@Autowired private CajaActualService cajaActual;
+	@Autowired private VentaService ventaService;
+	@Autowired private CajaAcumuladoRepository acumuladoRepository;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	private Integer cajaId;
+
+	// Caja nueva para cada prueba: los acumulados arrancan en cero
+	@BeforeEach
+	void abrirCajaNueva() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		cajaService.cerrarCaja(BigDecimal.ZERO, null);
+		cajaId = cajaService.abrirCaja(MONTO_INICIAL).getId();
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void lasVentasYAnulacionesMuevenLosAcumuladosYElCierreLosCongela() {
+		List<Integer> varianteIds = datos.variantes(3, 10);
+		vender(varianteIds.get(0), 1, "EFECTIVO");                    // 20.00
+		Venta anulada = vender(varianteIds.get(1), 2, "YAPE");        // 40.00
+		vender(varianteIds.get(2), 3, "TARJETA");                     // 60.00
+		ventaService.anularVenta(anulada.getId(), "Prueba de acumulados");
+
+		Map<String, Object> estado = cajaService.estadoActual();
+		assertThat(estado.get("cantidadVentas")).isEqualTo(2);
+		assertThat((BigDecimal) estado.get("totalVentas")).isEqualByComparingTo("80.00");
+		assertThat((BigDecimal) estado.get("totalEfectivo")).isEqualByComparingTo("20.00");
+		assertThat((BigDecimal) estado.get("montoEsperado")).isEqualByComparingTo("120.00");
+		@SuppressWarnings("unchecked")
+		Map<String, BigDecimal> porMetodo = (Map<String, BigDecimal>) estado.get("porMetodoPago");
+		assertThat(porMetodo).containsOnlyKeys("EFECTIVO", "TARJETA");
+
+		CajaSesion cerrada = cajaService.cerrarCaja(new BigDecimal("118.00"), null);
+
+		assertThat(cerrada.getTotalVentas()).isEqualByComparingTo("80.00");
+		assertThat(cerrada.getTotalEfectivo()).isEqualByComparingTo("20.00");
+		assertThat(cerrada.getMontoEsperado()).isEqualByComparingTo("120.00");
+		assertThat(cerrada.getDiferencia()).isEqualByComparingTo("-2.00");
+		assertThat(cerrada.getVentasCantidad()).isEqualTo(2);
+		assertThat(cerrada.ventasPorMetodo(Venta.MetodoPago.YAPE)).isEqualByComparingTo("0.00");
+		assertThat(acumuladoRepository.findByCajaIdOrderByFranja(cajaId)).isEmpty();
+	}
+
+	@Test
+	void unaVentaQueLlegaConLaCajaCerradaSeRevierte() {
+		Integer varianteId = datos.variantes(1, 10).get(0);
+
+		// Como si otro nodo hubiera cerrado la caja mientras esta venta cobraba:
+		// la caja en memoria sigue abierta pero sus franjas ya no están
+		List<CajaAcumulado> franjas = acumuladoRepository.findByCajaIdOrderByFranja(cajaId);
+		acumuladoRepository.deleteAllInBatch(franjas);
+		try {
+			assertThat(cajaActual.cajaAbierta()).isPresent();
+			assertThatThrownBy(() -> vender(varianteId, 2, "YAPE"))
+					.hasMessageContaining("La caja se cerró");
+			assertThat(varianteRepository.findById(varianteId).orElseThrow().getStockActual()).isEqualTo(10);
+		} finally {
+			// Sin franjas no se puede vender: se cierra y la próxima prueba abre otra
+			cajaService.cerrarCaja(BigDecimal.ZERO, null);
+		}
+	}
+
+	@Test
+	void laConciliacionCorrigeUnaFranjaDesfasada() {
+		vender(datos.variantes(1, 10).get(0), 1, "PLIN");
+		CajaAcumulado franja = acumuladoRepository.findByCajaIdOrderByFranja(cajaId).get(5);
+		franja.setVentasCantidad(franja.getVentasCantidad() + 3);
+		franja.setVentasTotal(franja.getVentasTotal().add(new BigDecimal("7.00")));
+		franja.setVentasPorMetodo(Venta.MetodoPago.YAPE, new BigDecimal("7.00"));
+		acumuladoRepository.save(franja);
+		assertThat(cajaService.estadoActual().get("cantidadVentas")).isEqualTo(4);
+
+		cajaService.conciliarAcumulados();
+
+		Map<String, Object> estado = cajaService.estadoActual();
+		assertThat(estado.get("cantidadVentas")).isEqualTo(1);
+		assertThat((BigDecimal) estado.get("totalVentas")).isEqualByComparingTo("20.00");
+		@SuppressWarnings("unchecked")
+		Map<String, BigDecimal> porMetodo = (Map<String, BigDecimal>) estado.get("porMetodoPago");
+		assertThat(porMetodo).containsOnlyKeys("PLIN");
+		assertThat(porMetodo.get("PLIN")).isEqualByComparingTo("20.00");
+	}
+
+	private Venta vender(Integer varianteId, int cantidad, String metodoPago) {
+		VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+		item.setVarianteId(varianteId);
+		item.setCantidad(cantidad);
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago(metodoPago);
+		dto.setItems(List.of(item));
+		if ("EFECTIVO".equals(metodoPago)) {
+			dto.setMontoRecibido(new BigDecimal("100.00"));
+		}
+		return ventaService.registrarVenta(dto);
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.Categoria;
+import com.example.gams.support.ContadorSentencias;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las listas de catálogo se sirven desde memoria con el mismo ETag mientras no
+ * cambien, y guardar una categoría las invalida.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(ContadorSentencias.class)
+class CatalogoServiceCacheTest {
+
+	@Autowired private CatalogoService catalogoService;
+
+	@Test
+	void laListaSeReusaHastaQueElCatalogoCambia() {
+		String etag = catalogoService.listaCategorias(true).getEtag();
+
+		ContadorSentencias.reiniciar();
+		assertThat(catalogoService.listaCategorias(true).getEtag()).isEqualTo(etag);
+		// Solo las de categorías: las tareas programadas pueden consultar otras tablas
+		assertThat(ContadorSentencias.ejecutadas()).noneMatch(sql -> sql.contains("from categorias"));
+
+		String nombre = "Casacas " + UUID.randomUUID();
+		catalogoService.guardarCategoria(new Categoria(nombre, null));
+
+		CacheCatalogos.Lista<Categoria> nueva = catalogoService.listaCategorias(true);
+		assertThat(nueva.getEtag()).isNotEqualTo(etag);
+		assertThat(nueva.getDatos()).extracting(Categoria::getNombre).contains(nombre);
+	}
+}
@@ -0,0 +1,217 @@
+package com.example.gams.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El cliente del servicio Python contra un servidor HTTP local que simula sus
+ * respuestas: reutiliza la conexión, corta las respuestas lentas, abre el
+ * circuito tras varios 5xx (y lo cierra cuando el servicio vuelve), limita
+ * las llamadas simultáneas y falla al instante si el servicio está caído.
+ */
+class ClienteReconocimientoFacialTest {
+
+	private HttpServer servidor;
+	private ExecutorService hilosServidor;
+	private ClienteReconocimientoFacial cliente;
+
+	// Lo que hace el stub con cada llamada
+	private volatile int estado = 200;
+	private volatile long demoraMillis;
+	private volatile CountDownLatch bloqueo;
+	private final AtomicInteger llamadas = new AtomicInteger();
+	private final AtomicInteger enCurso = new AtomicInteger();
+	private final Set<Integer> puertosCliente = ConcurrentHashMap.newKeySet();
+
+	@BeforeEach
+	void iniciarServidor() throws IOException {
+		hilosServidor = Executors.newCachedThreadPool();
+		servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		servidor.setExecutor(hilosServidor);
+		servidor.createContext("/", this::responder);
+		servidor.start();
+	}
+
+	@AfterEach
+	void detenerServidor() {
+		if (cliente != null) {
+			cliente.cerrar();
+		}
+		servidor.stop(0);
+		hilosServidor.shutdownNow();
+	}
+
+	@Test
+	void respondeReutilizandoLaConexion() {
+		cliente = cliente(2000, 4, 5, 60_000);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(cliente.get("estado", "/status/ana")).containsEntry("success", true);
+		}
+		assertThat(llamadas.get()).isEqualTo(5);
+		assertThat(puertosCliente).hasSize(1);
+	}
+
+	@Test
+	void unaRespuestaLentaSeCortaEnElTimeout() {
+		cliente = cliente(300, 4, 5, 60_000);
+		demoraMillis = 3000;
+
+		long inicio = System.nanoTime();
+		assertThatThrownBy(() -> cliente.post("codificar", "/encode", Map.of("image", "x")))
+				.isInstanceOf(ClienteReconocimientoFacial.NoDisponibleException.class)
+				.hasMessageContaining("no responde");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(2000);
+	}
+
+	@Test
+	void variosErroresAbrenElCircuitoHastaQueElServicioVuelve() throws Exception {
+		cliente = cliente(2000, 4, 3, 300);
+		estado = 500;
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> cliente.get("estado", "/status/ana"))
+					.isInstanceOf(HttpServerErrorException.class);
+		}
+
+		// Circuito abierto: falla sin llamar al servicio
+		assertThatThrownBy(() -> cliente.get("estado", "/status/ana"))
+				.isInstanceOf(ClienteReconocimientoFacial.NoDisponibleException.class)
+				.hasMessageContaining("no está disponible");
+		assertThat(llamadas.get()).isEqualTo(3);
+
+		// Pasado abierto-ms, la llamada de prueba encuentra el servicio bien y lo cierra
+		estado = 200;
+		Thread.sleep(400);
+		assertThat(cliente.get("estado", "/status/ana")).containsEntry("success", true);
+		assertThat(cliente.get("estado", "/status/ana")).containsEntry("success", true);
+		assertThat(llamadas.get()).isEqualTo(5);
+	}
+
+	@Test
+	void unaRespuesta4xxNoEsUnFallo() {
+		cliente = cliente(2000, 4, 2, 60_000);
+		estado = 400;
+
+		for (int i = 0; i < 4; i++) {
+			assertThat(cliente.post("codificar", "/encode", Map.of("image", "x")))
+					.containsEntry("success", false)
+					.containsEntry("message", "Rostro no detectado");
+		}
+		assertThat(llamadas.get()).isEqualTo(4);
+	}
+
+	@Test
+	void lasLlamadasSimultaneasTienenTope() throws Exception {
+		cliente = cliente(5000, 2, 5, 60_000);
+		bloqueo = new CountDownLatch(1);
+
+		ExecutorService hilos = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<Map<String, Object>>> ocupadas = List.of(
+					hilos.submit(() -> cliente.get("estado", "/status/ana")),
+					hilos.submit(() -> cliente.get("estado", "/status/luis")));
+			while (enCurso.get() < 2) {
+				Thread.sleep(10);
+			}
+
+			long inicio = System.nanoTime();
+			assertThatThrownBy(() -> cliente.get("estado", "/status/eva"))
+					.isInstanceOf(ClienteReconocimientoFacial.NoDisponibleException.class)
+					.hasMessageContaining("ocupado");
+			assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(1000);
+
+			bloqueo.countDown();
+			for (Future<Map<String, Object>> ocupada : ocupadas) {
+				assertThat(ocupada.get(5, TimeUnit.SECONDS)).containsEntry("success", true);
+			}
+			assertThat(llamadas.get()).isEqualTo(2);
+		} finally {
+			hilos.shutdownNow();
+		}
+	}
+
+	@Test
+	void conElServicioCaidoFallaAlInstante() throws IOException {
+		int puertoLibre;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			puertoLibre = socket.getLocalPort();
+		}
+		cliente = new ClienteReconocimientoFacial(new MetricasService(new SimpleMeterRegistry()),
+				"http://localhost:" + puertoLibre, 500, 2000, 4, 100, 5, 60_000);
+
+		long inicio = System.nanoTime();
+		assertThatThrownBy(() -> cliente.post("codificar", "/encode", Map.of("image", "x")))
+				.isInstanceOf(ClienteReconocimientoFacial.NoDisponibleException.class)
+				.hasMessageContaining("no responde");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(1500);
+	}
+
+	private ClienteReconocimientoFacial cliente(long respuestaTimeoutMillis, int maxConcurrentes,
+												int fallosParaAbrir, long abiertoMillis) {
+		return new ClienteReconocimientoFacial(new MetricasService(new SimpleMeterRegistry()),
+				"http://localhost:" + servidor.getAddress().getPort(), 500, respuestaTimeoutMillis,
+				maxConcurrentes, 100, fallosParaAbrir, abiertoMillis);
+	}
+
+	// Responde como app.py: {success, message} con el estado configurado
+	private void responder(HttpExchange intercambio) throws IOException {
+		llamadas.incrementAndGet();
+		enCurso.incrementAndGet();
+		puertosCliente.add(intercambio.getRemoteAddress().getPort());
+		try {
+			intercambio.getRequestBody().readAllBytes();
+			if (bloqueo != null) {
+				bloqueo.await(5, TimeUnit.SECONDS);
+			}
+			if (demoraMillis > 0) {
+				Thread.sleep(demoraMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			enCurso.decrementAndGet();
+		}
+
+		String cuerpo = switch (estado) {
+			case 200 -> "{\"success\": true, \"message\": \"ok\"}";
+			case 400 -> "{\"success\": false, \"message\": \"Rostro no detectado\"}";
+			default -> "{\"success\": false, \"message\": \"Error interno\"}";
+		};
+		byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+		intercambio.getResponseHeaders().set("Content-Type", "application/json");
+		try {
+			intercambio.sendResponseHeaders(estado, bytes.length);
+			try (OutputStream salida = intercambio.getResponseBody()) {
+				salida.write(bytes);
+			}
+		} catch (IOException e) {
+			// El cliente ya cortó por timeout
+		}
+		intercambio.close();
+	}
+}
@@ -0,0 +1,152 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.Venta;
+import com.example.gams.support.ContadorSentencias;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Consultas por endpoint con las asociaciones LAZY: cada respuesta se arma con
+ * lo que trae el entity graph (o la proyección) de su consulta, sin un SELECT
+ * extra por producto, color, talla, usuario o detalle (antes: un SELECT por
+ * cada asociación EAGER de cada fila). Los listados se miden con varias filas:
+ * el número de consultas no crece con ellas.
+ */
+@SpringBootTest(properties = {
+		// Que ninguna tarea periódica consulte la BD durante la medición
+		"gams.inventario.diario.drenado-ms=3600000",
+		"gams.productos.buscador.reconstruccion-ms=3600000"
+})
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@Import(ContadorSentencias.class)
+class ConsultasPorEndpointTest {
+
+	private static final int LINEAS = 6;
+
+	@Autowired private MockMvc mockMvc;
+	@Autowired private VentaService ventaService;
+	@Autowired private ProductoService productoService;
+	@Autowired private DatosPrueba datos;
+
+	private List<Integer> varianteIds;
+	private Integer productoId;
+	private Venta venta;
+
+	@BeforeEach
+	void prepararDatos() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		varianteIds = datos.variantes(LINEAS, 50);
+		productoId = productoService.buscarVariantePorId(varianteIds.get(0)).orElseThrow().getProducto().getId();
+
+		venta = ventaService.registrarVenta(carrito());
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void detalleDeProductoConSuResumenDeStock() throws Exception {
+		// Producto con sus catálogos + resumen de stock agrupado
+		assertThat(selects("/api/productos/" + productoId)).isEqualTo(2);
+	}
+
+	@Test
+	void detalleDeVariante() throws Exception {
+		assertThat(selects("/api/productos/variantes/" + varianteIds.get(0))).isEqualTo(1);
+	}
+
+	@Test
+	void variantesDeUnProducto() throws Exception {
+		assertThat(selects("/api/productos/" + productoId + "/variantes")).isEqualTo(1);
+	}
+
+	@Test
+	void movimientosDeUnaVenta() throws Exception {
+		assertThat(selects("/api/inventario/movimientos?referencia=" + venta.getCodigo())).isEqualTo(1);
+	}
+
+	@Test
+	void comprobanteDeVenta() throws Exception {
+		// Cabecera, vendedor, cliente y detalles en una sola consulta
+		assertThat(selects("/api/ventas/" + venta.getId())).isEqualTo(1);
+	}
+
+	@Test
+	void listadoDeProductos() throws Exception {
+		// Productos con sus catálogos + un resumen de stock agrupado para todos
+		assertThat(selects("/api/productos")).isEqualTo(2);
+	}
+
+	@Test
+	void paginaDelCatalogo() throws Exception {
+		// Página llena (hay página siguiente): igual, sin consultas por fila
+		assertThat(selects("/api/productos/pagina?tamano=2")).isEqualTo(2);
+	}
+
+	@Test
+	void listadoDeVariantes() throws Exception {
+		// Proyección directa a VarianteDTO
+		assertThat(selects("/api/productos/variantes")).isEqualTo(1);
+	}
+
+	@Test
+	void historialDeVentasPaginado() throws Exception {
+		// Página, conteo del total y los detalles de la página por lote de ids
+		ventaService.registrarVenta(carrito());
+		assertThat(selects("/api/ventas?page=0&size=1")).isEqualTo(3);
+	}
+
+	@Test
+	void historialDeMovimientos() throws Exception {
+		// Página por cursor + total del filtro
+		assertThat(selects("/api/movimientos?tamano=2")).isEqualTo(2);
+	}
+
+	@Test
+	void estadoDeLaCaja() throws Exception {
+		// Sesión, sus franjas de acumulados y el usuario que la abrió (el
+		// endpoint es /api/caja/actual)
+		assertThat(selects("/api/caja/actual")).isEqualTo(3);
+	}
+
+	// SELECT ejecutados al atender el GET (la respuesta debe ser 200)
+	private long selects(String url) throws Exception {
+		ContadorSentencias.reiniciar();
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+		return ContadorSentencias.contar("select");
+	}
+
+	private VentaDTO carrito() {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(1);
+			items.add(item);
+		}
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("YAPE");
+		dto.setItems(items);
+		return dto;
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.MovimientoInventario;
+import com.example.gams.entities.MovimientoOutbox;
+import com.example.gams.entities.Venta;
+import com.example.gams.repositories.MovimientoInventarioRepository;
+import com.example.gams.repositories.MovimientoOutboxRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Modo OUTBOX: la venta deja una sola fila pendiente y el drenado la convierte
+ * en un movimiento por línea, sin perder ni duplicar ninguno. Una fila
+ * ilegible queda marcada y no frena a las siguientes.
+ */
+@SpringBootTest(properties = {
+		"gams.inventario.diario.modo=OUTBOX",
+		// El drenado se dispara a mano en la prueba
+		"gams.inventario.diario.drenado-ms=3600000",
+		// Lotes de una fila: una ilegible al frente ocuparía el lote completo
+		"gams.inventario.diario.tamano-lote=1"
+})
+@ActiveProfiles("test")
+class DiarioMovimientosServiceTest {
+
+	@Autowired private VentaService ventaService;
+	@Autowired private DiarioMovimientosService diario;
+	@Autowired private MovimientoOutboxRepository outboxRepository;
+	@Autowired private MovimientoInventarioRepository movimientoRepository;
+	@Autowired private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void laVentaPasaPorElOutboxYSeDrenaCompleta() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		List<Integer> varianteIds = datos.variantes(8, 10);
+		VentaDTO dto = venta(varianteIds);
+
+		long pendientesAntes = outboxRepository.count();
+		Venta venta = ventaService.registrarVenta(dto);
+
+		assertThat(outboxRepository.count()).isEqualTo(pendientesAntes + 1);
+		assertThat(movimientoRepository.findByReferenciaOrderByFechaDesc(venta.getCodigo())).isEmpty();
+
+		diario.drenarOutbox();
+		diario.drenarOutbox(); // Un segundo drenado no debe duplicar nada
+
+		List<MovimientoInventario> movimientos = movimientoRepository.findByReferenciaOrderByFechaDesc(venta.getCodigo());
+		assertThat(outboxRepository.count()).isZero();
+		assertThat(movimientos).hasSize(varianteIds.size());
+		assertThat(movimientos).allSatisfy(m -> {
+			assertThat(m.getTipo()).isEqualTo(MovimientoInventario.TipoMovimiento.SALIDA);
+			assertThat(m.getStockAnterior()).isEqualTo(10);
+			assertThat(m.getStockNuevo()).isEqualTo(8);
+			assertThat(m.getFecha()).isNotNull();
+		});
+	}
+
+	@Test
+	void unaFilaIlegibleSeMarcaYNoFrenaAlResto() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		MovimientoOutbox ilegible = outboxRepository.save(new MovimientoOutbox("{no es json"));
+		try {
+			Venta venta = ventaService.registrarVenta(venta(datos.variantes(2, 10)));
+
+			diario.drenarOutbox();
+
+			assertThat(movimientoRepository.findByReferenciaOrderByFechaDesc(venta.getCodigo())).hasSize(2);
+			assertThat(outboxRepository.findById(ilegible.getId())).get()
+					.satisfies(fila -> assertThat(fila.getError()).isNotBlank());
+			assertThat(outboxRepository.count()).isEqualTo(1);
+		} finally {
+			outboxRepository.deleteById(ilegible.getId());
+		}
+	}
+
+	private VentaDTO venta(List<Integer> varianteIds) {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(2);
+			items.add(item);
+		}
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("YAPE");
+		dto.setItems(items);
+		return dto;
+	}
+}
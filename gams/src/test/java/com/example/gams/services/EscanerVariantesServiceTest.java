@@ -0,0 +1,72 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VarianteDTO;
+import com.example.gams.entities.ProductoVariante;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La ficha del escáner queda en memoria pero el stock se lee en cada
+ * escaneo, y un cambio de la variante por ProductoService la descarta. Solo
+ * se encuentran variantes activas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class EscanerVariantesServiceTest {
+
+	@Autowired private EscanerVariantesService escaner;
+	@Autowired private ProductoService productoService;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	@Test
+	void elStockNuncaQuedaDesfasadoYLosCambiosInvalidan() {
+		Integer varianteId = datos.variantes(1, 10).get(0);
+		String sku = varianteRepository.findById(varianteId).orElseThrow().getSku();
+
+		assertThat(escaner.buscar(sku)).hasValueSatisfying(v -> assertThat(v.getStockActual()).isEqualTo(10));
+
+		// Cambio de stock por fuera de ProductoService (como una venta): sin invalidar
+		varianteRepository.devolverStock(Map.of(varianteId, 5));
+		assertThat(escaner.buscar(sku)).hasValueSatisfying(v -> assertThat(v.getStockActual()).isEqualTo(15));
+
+		ProductoVariante variante = varianteRepository.findById(varianteId).orElseThrow();
+		variante.setCodigoBarras("775" + varianteId);
+		variante.setUbicacion("Estante B");
+		// guardarVariante regenera el SKU
+		String skuNuevo = productoService.guardarVariante(variante).getSku();
+
+		VarianteDTO porSku = escaner.buscar(skuNuevo).orElseThrow();
+		assertThat(porSku.getUbicacion()).isEqualTo("Estante B");
+		assertThat(escaner.buscar("775" + varianteId)).hasValueSatisfying(v -> assertThat(v.getId()).isEqualTo(varianteId));
+
+		productoService.eliminarVariante(varianteId);
+		assertThat(escaner.buscar(skuNuevo)).isEmpty();
+	}
+
+	@Test
+	void unaVarianteDesactivadaNoSeEncuentra() {
+		Integer varianteId = datos.variantes(1, 10).get(0);
+		ProductoVariante variante = varianteRepository.findById(varianteId).orElseThrow();
+		String sku = variante.getSku();
+		assertThat(escaner.buscar(sku)).isPresent();
+
+		// Desactivada por fuera de ProductoService (como desde otro nodo): la
+		// ficha en memoria no la resucita
+		variante.setActivo(false);
+		varianteRepository.save(variante);
+		assertThat(escaner.buscar(sku)).isEmpty();
+
+		variante.setActivo(true);
+		varianteRepository.save(variante);
+		assertThat(escaner.buscar(sku)).isPresent();
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.gams.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * La búsqueda sobre la galería de encodings devuelve el mismo rostro y la
+ * misma distancia que calcularla fila por fila en double, también después de
+ * quitar usuarios y de pasar por el snapshot. El tiempo por búsqueda se mide
+ * aparte, en BusquedaRostrosBenchmark (perfil bench).
+ */
+class GaleriaRostrosTest {
+
+	private final Random random = new Random(42);
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void encuentraElRostroMasCercano() {
+		List<float[]> encodings = encodings(1000);
+		GaleriaRostros galeria = galeria(encodings);
+
+		for (int i = 0; i < 20; i++) {
+			int fila = random.nextInt(encodings.size());
+			assertThat(galeria.masCercano(cerca(encodings.get(fila))).username())
+					.isEqualTo(esperado(encodings, cerca(encodings.get(fila)), List.of()));
+		}
+	}
+
+	@Test
+	void quitarUnUsuarioNoAfectaAlResto() {
+		List<float[]> encodings = encodings(300);
+		GaleriaRostros galeria = galeria(encodings);
+
+		// Cada usuario tiene 3 fotos (ver galeria): se quitan 10 usuarios
+		List<String> quitados = new ArrayList<>();
+		for (int u = 0; u < 100; u += 10) {
+			galeria.quitarUsuario("usuario" + u);
+			quitados.add("usuario" + u);
+		}
+
+		assertThat(galeria.tamano()).isEqualTo(270);
+		for (int fila = 0; fila < encodings.size(); fila += 7) {
+			float[] sonda = cerca(encodings.get(fila));
+			assertThat(galeria.masCercano(sonda).username()).isEqualTo(esperado(encodings, sonda, quitados));
+		}
+	}
+
+	@Test
+	void elSnapshotConservaLaGaleria() throws Exception {
+		List<float[]> encodings = encodings(500);
+		GaleriaRostros galeria = galeria(encodings);
+		galeria.quitarUsuario("usuario3");
+
+		Path archivo = directorio.resolve("rostros.bin");
+		galeria.guardar(archivo);
+		GaleriaRostros leida = GaleriaRostros.leer(archivo);
+
+		assertThat(leida.tamano()).isEqualTo(galeria.tamano());
+		assertThat(leida.ultimoId()).isEqualTo(galeria.ultimoId());
+		for (int fila = 0; fila < encodings.size(); fila += 11) {
+			float[] sonda = cerca(encodings.get(fila));
+			GaleriaRostros.Coincidencia original = galeria.masCercano(sonda);
+			GaleriaRostros.Coincidencia restaurada = leida.masCercano(sonda);
+			assertThat(restaurada.username()).isEqualTo(original.username());
+			assertThat(restaurada.distancia()).isEqualTo(original.distancia());
+		}
+	}
+
+	@Test
+	void sinRostrosNoHayCoincidencia() {
+		assertThat(new GaleriaRostros(0).masCercano(new float[GaleriaRostros.DIMENSION])).isNull();
+	}
+
+	// Fila i = foto de "usuario" + i / 3, con id i + 1
+	private GaleriaRostros galeria(List<float[]> encodings) {
+		GaleriaRostros galeria = new GaleriaRostros(0);
+		for (int i = 0; i < encodings.size(); i++) {
+			galeria.agregar(i + 1, "usuario" + i / 3, encodings.get(i));
+		}
+		return galeria;
+	}
+
+	// Usuario de la foto más cercana, calculado en double y sin los usuarios quitados
+	private static String esperado(List<float[]> encodings, float[] sonda, List<String> quitados) {
+		String esperado = null;
+		double mejor = Double.MAX_VALUE;
+		for (int fila = 0; fila < encodings.size(); fila++) {
+			String username = "usuario" + fila / 3;
+			double distancia = distancia(encodings.get(fila), sonda);
+			if (!quitados.contains(username) && distancia < mejor) {
+				mejor = distancia;
+				esperado = username;
+			}
+		}
+		return esperado;
+	}
+
+	private List<float[]> encodings(int cantidad) {
+		List<float[]> encodings = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++) {
+			encodings.add(encoding());
+		}
+		return encodings;
+	}
+
+	// Valores del orden de los de face_recognition (aprox. -0.3 a 0.3)
+	private float[] encoding() {
+		float[] encoding = new float[GaleriaRostros.DIMENSION];
+		for (int i = 0; i < encoding.length; i++) {
+			encoding[i] = (float) (random.nextGaussian() * 0.1);
+		}
+		return encoding;
+	}
+
+	private static float[] cerca(float[] encoding) {
+		float[] sonda = encoding.clone();
+		sonda[0] += 0.01f;
+		return sonda;
+	}
+
+	private static double distancia(float[] a, float[] b) {
+		double suma = 0;
+		for (int i = 0; i < a.length; i++) {
+			double d = a[i] - b[i];
+			suma += d * d;
+		}
+		return Math.sqrt(suma);
+	}
+}
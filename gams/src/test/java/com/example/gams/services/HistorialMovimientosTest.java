@@ -0,0 +1,119 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.CursorMovimiento;
+import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.MovimientoInventario;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * El historial de movimientos recorrido por cursores devuelve cada movimiento
+ * una sola vez (los de una venta comparten fecha: el id desempata), el total
+ * coincide con el filtro y el CSV trae una línea por movimiento. Un tipo
+ * inválido en la exportación es un 400 con mensaje, no un CSV a medias.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class HistorialMovimientosTest {
+
+	private static final int LINEAS = 7;
+
+	@Autowired private MovimientoInventarioService movimientoService;
+	@Autowired private ProductoService productoService;
+	@Autowired private VentaService ventaService;
+	@Autowired private DatosPrueba datos;
+	@Autowired private MockMvc mockMvc;
+
+	private Integer productoId;
+
+	@BeforeEach
+	void prepararDatos() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		List<Integer> varianteIds = datos.variantes(LINEAS, 10);
+		productoId = productoService.buscarVariantePorId(varianteIds.get(0)).orElseThrow().getProducto().getId();
+
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(1);
+			items.add(item);
+		}
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("YAPE");
+		dto.setItems(items);
+		ventaService.registrarVenta(dto);
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void lasPaginasCubrenElFiltroSinRepetir() {
+		List<Integer> esperado = movimientoService.buscarMovimientosDesde(null, productoId, null, null, null, null,
+				null, 100).stream().map(MovimientoDTO::getId).toList();
+
+		List<Integer> recorrido = new ArrayList<>();
+		CursorMovimiento cursor = null;
+		List<MovimientoDTO> pagina;
+		do {
+			pagina = movimientoService.buscarMovimientosDesde(null, productoId, null, null, null, null, cursor, 3);
+			pagina.forEach(m -> recorrido.add(m.getId()));
+			if (!pagina.isEmpty()) {
+				cursor = CursorMovimiento.decodificar(CursorMovimiento.despuesDe(pagina.get(pagina.size() - 1)).codificar());
+			}
+		} while (pagina.size() == 3);
+
+		assertThat(esperado).hasSize(LINEAS);
+		assertThat(recorrido).containsExactlyElementsOf(esperado);
+		assertThat(movimientoService.contarMovimientos(null, productoId, null, null, null, null)).isEqualTo(LINEAS);
+		assertThat(movimientoService.contarMovimientos(null, productoId, null,
+				MovimientoInventario.TipoMovimiento.ENTRADA, null, null)).isZero();
+	}
+
+	@Test
+	void elCsvTraeUnaLineaPorMovimiento() throws Exception {
+		StringWriter salida = new StringWriter();
+		movimientoService.exportarCsv(null, productoId, null, null, null, null, salida);
+
+		String[] lineas = salida.toString().split("\r\n");
+		assertThat(lineas).hasSize(LINEAS + 1);
+		assertThat(lineas[0]).startsWith("id,fecha,tipo,sku");
+		assertThat(lineas[1]).contains(",SALIDA,");
+	}
+
+	@Test
+	void laExportacionValidaElTipoAntesDeEscribir() throws Exception {
+		mockMvc.perform(get("/api/movimientos/exportar?tipo=salida&productoId=" + productoId))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"));
+
+		mockMvc.perform(get("/api/movimientos/exportar?tipo=TRASLADO"))
+				.andExpect(status().isBadRequest())
+				.andExpect(header().doesNotExist("Content-Disposition"))
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.message").value("Error al exportar movimientos: Tipo de movimiento inválido: TRASLADO"));
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.gams.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El índice HNSW contra la búsqueda exacta de GaleriaRostros con las mismas
+ * fotos: con 2 000 y 20 000 fotos, el recall@1 (la foto que devuelve es la
+ * más cercana) no baja de 0.95. Cada usuario tiene 4 fotos parecidas entre sí
+ * y la sonda es otra foto suya, como en un login. La comparación de tiempos
+ * está en BusquedaRostrosBenchmark (perfil bench).
+ */
+class IndiceHnswTest {
+
+	private static final int FOTOS_POR_USUARIO = 4;
+	private static final int BUSQUEDAS = 300;
+	private static final int EF_BUSQUEDA = 64;
+
+	private final Random random = new Random(42);
+
+	@Test
+	void recallContraLaBusquedaExacta() {
+		for (int fotos : new int[] {2_000, 20_000}) {
+			float[][] centros = centros(fotos / FOTOS_POR_USUARIO);
+			GaleriaRostros galeria = galeria(centros, fotos);
+			IndiceHnsw indice = new IndiceHnsw(16, 200);
+			galeria.recorrer(indice::agregar);
+
+			int aciertos = 0;
+			for (int i = 0; i < BUSQUEDAS; i++) {
+				float[] sonda = foto(centros[random.nextInt(centros.length)]);
+				GaleriaRostros.Coincidencia esperada = galeria.masCercano(sonda);
+				GaleriaRostros.Coincidencia encontrada = indice.masCercano(sonda, EF_BUSQUEDA);
+				if (encontrada.username().equals(esperada.username())
+						&& Math.abs(encontrada.distancia() - esperada.distancia()) < 1e-6) {
+					aciertos++;
+				}
+			}
+
+			assertThat(aciertos / (double) BUSQUEDAS).as("recall@1 con %d fotos", fotos).isGreaterThanOrEqualTo(0.95);
+		}
+	}
+
+	@Test
+	void losUsuariosQuitadosNoSeDevuelven() {
+		float[][] centros = centros(250);
+		GaleriaRostros galeria = galeria(centros, 1000);
+		IndiceHnsw indice = new IndiceHnsw(16, 200);
+		galeria.recorrer(indice::agregar);
+
+		for (int u = 0; u < centros.length; u += 2) {
+			indice.quitarUsuario("usuario" + u);
+			galeria.quitarUsuario("usuario" + u);
+		}
+
+		assertThat(indice.tamano()).isEqualTo(500);
+		assertThat(indice.eliminados()).isEqualTo(500);
+		for (int u = 0; u < centros.length; u++) {
+			float[] sonda = foto(centros[u]);
+			assertThat(indice.masCercano(sonda, EF_BUSQUEDA).username())
+					.isEqualTo(galeria.masCercano(sonda).username());
+		}
+	}
+
+	@Test
+	void unaFotoAgregadaSeEncuentraAlInstante() {
+		float[][] centros = centros(250);
+		IndiceHnsw indice = new IndiceHnsw(16, 200);
+		galeria(centros, 1000).recorrer(indice::agregar);
+
+		float[] nueva = foto(centros(1)[0]);
+		indice.agregar(5000, "nuevo", nueva);
+		indice.agregar(5000, "nuevo", nueva);
+
+		assertThat(indice.tamano()).isEqualTo(1001);
+		assertThat(indice.masCercano(nueva, EF_BUSQUEDA).username()).isEqualTo("nuevo");
+	}
+
+	@Test
+	void sinRostrosNoHayCoincidencia() {
+		assertThat(new IndiceHnsw(16, 200).masCercano(new float[GaleriaRostros.DIMENSION], EF_BUSQUEDA)).isNull();
+	}
+
+	// Foto i = foto de "usuario" + (i % usuarios), con id i + 1
+	private GaleriaRostros galeria(float[][] centros, int fotos) {
+		GaleriaRostros galeria = new GaleriaRostros(fotos);
+		for (int i = 0; i < fotos; i++) {
+			galeria.agregar(i + 1, "usuario" + i % centros.length, foto(centros[i % centros.length]));
+		}
+		return galeria;
+	}
+
+	// Rostro "promedio" de cada usuario, del orden de los de face_recognition
+	private float[][] centros(int usuarios) {
+		float[][] centros = new float[usuarios][GaleriaRostros.DIMENSION];
+		for (float[] centro : centros) {
+			for (int j = 0; j < centro.length; j++) {
+				centro[j] = (float) (random.nextGaussian() * 0.09);
+			}
+		}
+		return centros;
+	}
+
+	// Otra foto del mismo rostro: el centro con algo de ruido
+	private float[] foto(float[] centro) {
+		float[] foto = new float[centro.length];
+		for (int j = 0; j < centro.length; j++) {
+			foto[j] = (float) (centro[j] + random.nextGaussian() * 0.03);
+		}
+		return foto;
+	}
+}
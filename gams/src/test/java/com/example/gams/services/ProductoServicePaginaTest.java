@@ -0,0 +1,98 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.CursorProducto;
+import com.example.gams.dto.PaginaProductos;
+import com.example.gams.entities.Producto;
+import com.example.gams.repositories.ProductoRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Recorrer el catálogo por cursores devuelve cada producto una sola vez y en
+ * el mismo orden que el listado completo, también cuando el índice en memoria
+ * y la BD ordenan distinto. Un cursor nunca sigue por el otro camino.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductoServicePaginaTest {
+
+	@Autowired private ProductoService productoService;
+	@Autowired private BuscadorProductosService buscador;
+	@Autowired private ProductoRepository productoRepository;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	@Test
+	void lasPaginasCubrenElCatalogoSinRepetir() {
+		// Todos los productos de prueba se llaman igual: el id desempata
+		for (int i = 0; i < 7; i++) {
+			datos.variantes(1, 5);
+		}
+		List<Integer> esperado = productoService.filtrarProductos(null, null, null, true).stream()
+				.map(Producto::getId)
+				.sorted()
+				.toList();
+
+		assertThat(recorrer(null, true, null)).containsExactlyElementsOf(esperado);
+	}
+
+	@Test
+	void elCursorSigueElCaminoQueLoEmitio() {
+		// Con el código de punto de H2 "Bata" va antes que "Ábaco"; sin tildes
+		// (el orden del índice) "abaco" va antes que "bata"
+		String termino = "Qz" + System.nanoTime();
+		Producto base = productoRepository.findById(varianteRepository.findById(datos.variantes(1, 5).get(0))
+				.orElseThrow().getProducto().getId()).orElseThrow();
+		Producto abaco = productoService.guardarProducto(new Producto("A-" + termino, "Ábaco " + termino,
+				base.getCategoria(), new BigDecimal("5.00"), new BigDecimal("9.00")));
+		Producto bata = productoService.guardarProducto(new Producto("B-" + termino, "Bata " + termino,
+				base.getCategoria(), new BigDecimal("5.00"), new BigDecimal("9.00")));
+		try {
+			buscador.reconstruir();
+
+			// Del índice: primero Ábaco
+			assertThat(recorrer(termino, false, null)).containsExactly(abaco.getId(), bata.getId());
+			// Un cursor de la BD (p. ej. emitido antes de construirse el índice)
+			// sigue por la BD, aunque el índice ya esté listo
+			CursorProducto deLaBd = new CursorProducto(bata.getNombre(), bata.getId(), false);
+			assertThat(recorrer(termino, false, deLaBd)).containsExactly(abaco.getId());
+			// Un cursor del índice no sigue por la BD (aquí, sin el término):
+			// se rechaza para que el cliente vuelva a la primera página
+			CursorProducto delIndice = new CursorProducto(abaco.getNombre(), abaco.getId(), true);
+			assertThatThrownBy(() -> productoService.filtrarProductosDesde(null, null, null, true, false, delIndice, 3))
+					.hasMessageContaining("desde el inicio");
+		} finally {
+			// Sin variantes y con otro nombre: no deben quedar para el recorrido del catálogo
+			productoService.eliminarProducto(abaco.getId());
+			productoService.eliminarProducto(bata.getId());
+		}
+	}
+
+	// Ids de todas las páginas (de a 3) desde el cursor
+	private List<Integer> recorrer(String termino, boolean soloConVariantes, CursorProducto desde) {
+		List<Integer> recorrido = new ArrayList<>();
+		CursorProducto cursor = desde;
+		PaginaProductos pagina;
+		do {
+			pagina = productoService.filtrarProductosDesde(termino, null, null, true, soloConVariantes, cursor, 3);
+			List<Producto> productos = pagina.getProductos();
+			productos.forEach(p -> recorrido.add(p.getId()));
+			if (!productos.isEmpty()) {
+				// El cursor viaja como token: se prueba también la ida y vuelta
+				cursor = CursorProducto.decodificar(pagina.cursorDespuesDe(productos.get(productos.size() - 1)).codificar());
+			}
+		} while (pagina.getProductos().size() == 3);
+		return recorrido;
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.ResumenStockProducto;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.ContadorSentencias;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las estadísticas de stock de todos los productos del listado salen de una
+ * sola consulta agrupada (antes: cuatro consultas por producto).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(ContadorSentencias.class)
+class ProductoServiceResumenStockTest {
+
+	@Autowired private ProductoService productoService;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	@Test
+	void resumeElStockDeVariosProductosEnUnaConsulta() {
+		Integer agotado = productoDe(datos.variantes(3, 0).get(0));
+		Integer conStock = productoDe(datos.variantes(2, 7).get(0));
+
+		ContadorSentencias.reiniciar();
+		Map<Integer, ResumenStockProducto> resumen = productoService.resumirStockPorProducto(List.of(agotado, conStock));
+
+		assertThat(ContadorSentencias.total()).isEqualTo(1);
+
+		assertThat(resumen.get(agotado).getStockTotal()).isZero();
+		assertThat(resumen.get(agotado).getCantidadVariantes()).isEqualTo(3);
+		assertThat(resumen.get(agotado).getVariantesSinStock()).isEqualTo(3);
+
+		assertThat(resumen.get(conStock).getStockTotal()).isEqualTo(14);
+		assertThat(resumen.get(conStock).getCantidadVariantes()).isEqualTo(2);
+		assertThat(resumen.get(conStock).getVariantesSinStock()).isZero();
+		assertThat(resumen.get(conStock).getVariantesConStockBajo()).isZero();
+	}
+
+	private Integer productoDe(Integer varianteId) {
+		return varianteRepository.findById(varianteId).orElseThrow().getProducto().getId();
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.MovimientoDTO;
+import com.example.gams.dto.VarianteDTO;
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.dto.VentaResponseDTO;
+import com.example.gams.entities.Venta;
+import com.example.gams.repositories.MovimientoInventarioRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los listados proyectados desde JPQL devuelven lo mismo que armar el DTO
+ * desde la entidad (VarianteDTO, MovimientoDTO y VentaResponseDTO).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProyeccionesDTOTest {
+
+	@Autowired private ProductoService productoService;
+	@Autowired private InventarioService inventarioService;
+	@Autowired private VentaService ventaService;
+	@Autowired private MovimientoInventarioRepository movimientoRepository;
+	@Autowired private DatosPrueba datos;
+
+	private List<Integer> varianteIds;
+	private Venta venta;
+
+	@BeforeEach
+	void prepararDatos() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		varianteIds = datos.variantes(3, 5);
+
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(2);
+			items.add(item);
+		}
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("YAPE");
+		dto.setItems(items);
+		venta = ventaService.registrarVenta(dto);
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void variantesDeUnProducto() {
+		Integer productoId = productoService.buscarVariantePorId(varianteIds.get(0)).orElseThrow()
+				.getProducto().getId();
+
+		List<VarianteDTO> esperadas = varianteIds.stream()
+				.map(id -> new VarianteDTO(productoService.buscarVariantePorId(id).orElseThrow()))
+				.collect(Collectors.toList());
+
+		assertThat(productoService.buscarVariantesPorProducto(productoId))
+				.usingRecursiveFieldByFieldElementComparator()
+				.containsExactlyInAnyOrderElementsOf(esperadas);
+	}
+
+	@Test
+	void movimientosDeUnaVenta() {
+		List<MovimientoDTO> esperados = movimientoRepository.findByReferenciaOrderByFechaDesc(venta.getCodigo())
+				.stream().map(MovimientoDTO::new).collect(Collectors.toList());
+
+		assertThat(esperados).hasSize(varianteIds.size());
+		assertThat(inventarioService.listarMovimientosPorReferencia(venta.getCodigo()))
+				.usingRecursiveFieldByFieldElementComparator()
+				.containsExactlyInAnyOrderElementsOf(esperados);
+	}
+
+	@Test
+	void historialDeVentasConSusDetalles() {
+		VentaResponseDTO esperada = new VentaResponseDTO(ventaService.obtenerPorId(venta.getId()));
+
+		VentaResponseDTO proyectada = ventaService.listarPaginado(null, null, null, null, 0, 100)
+				.getContent().stream()
+				.filter(v -> v.getId().equals(venta.getId()))
+				.findFirst().orElseThrow();
+
+		assertThat(proyectada.getDetalles()).hasSize(varianteIds.size());
+		assertThat(proyectada).usingRecursiveComparison()
+				.ignoringFields("detalles.ventaId")
+				.isEqualTo(esperada);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.gams.services;
+
+import com.example.gams.entities.RostroBiometrico;
+import com.example.gams.repositories.RostroBiometricoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los encodings se guardan en binario y vuelven idénticos; el rostro
+ * registrado se reconoce en cuanto se avisa su registro y deja de
+ * reconocerse al eliminarlo.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReconocimientoFacialServiceTest {
+
+	@Autowired private ReconocimientoFacialService reconocimiento;
+	@Autowired private RostroBiometricoRepository rostroRepository;
+
+	private final Random random = new Random(7);
+
+	@Test
+	void elEncodingSeGuardaEnBinarioSinPerderPrecision() {
+		float[] encoding = encoding();
+		Long id = guardar("binario" + System.nanoTime(), encoding).getId();
+
+		assertThat(rostroRepository.findById(id).orElseThrow().getEncoding()).containsExactly(encoding);
+	}
+
+	@Test
+	void reconoceAlUsuarioRegistradoHastaQueSeElimina() {
+		String username = "rostro" + System.nanoTime();
+		float[] encoding = encoding();
+		guardar(username, encoding);
+		reconocimiento.usuarioRegistrado(username);
+
+		float[] sonda = encoding.clone();
+		sonda[0] += 0.01f;
+		ReconocimientoFacialService.Resultado resultado = reconocimiento.reconocer(sonda);
+		assertThat(resultado.reconocido()).isTrue();
+		assertThat(resultado.username()).isEqualTo(username);
+
+		rostroRepository.deleteAll(rostroRepository.findByUsername(username));
+		reconocimiento.usuarioEliminado(username);
+		ReconocimientoFacialService.Resultado despues = reconocimiento.reconocer(sonda);
+		assertThat(despues == null || !username.equals(despues.username())).isTrue();
+	}
+
+	private RostroBiometrico guardar(String username, float[] encoding) {
+		RostroBiometrico rostro = new RostroBiometrico();
+		rostro.setUsername(username);
+		rostro.setFotoNumero(1);
+		rostro.setEncoding(encoding);
+		rostro.setFechaRegistro(LocalDateTime.now());
+		return rostroRepository.save(rostro);
+	}
+
+	private float[] encoding() {
+		float[] encoding = new float[GaleriaRostros.DIMENSION];
+		for (int i = 0; i < encoding.length; i++) {
+			encoding[i] = (float) (random.nextGaussian() * 0.1);
+		}
+		return encoding;
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.TotalesMovimiento;
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.MovimientoInventario;
+import com.example.gams.repositories.MovimientoInventarioRepository;
+import com.example.gams.repositories.MovimientoResumenDiarioRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las estadísticas armadas con el resumen diario (más los movimientos aún sin
+ * sumar y los tramos sueltos de los extremos) coinciden con agrupar
+ * directamente los movimientos del rango, antes y después de consolidar. La
+ * venta no escribe en el resumen.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ResumenMovimientosTest {
+
+	private static final int LINEAS = 4;
+	private static final int CANTIDAD = 2;
+
+	@Autowired private MovimientoInventarioService movimientoService;
+	@Autowired private MovimientoInventarioRepository movimientoRepository;
+	@Autowired private MovimientoResumenDiarioRepository resumenRepository;
+	@Autowired private DiarioMovimientosService diario;
+	@Autowired private VentaService ventaService;
+	@Autowired private DatosPrueba datos;
+
+	@BeforeEach
+	void autenticar() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void laVentaSumaAlResumenDelDia() {
+		LocalDateTime hoy = LocalDate.now().atStartOfDay();
+		TotalesMovimiento antes = movimientoService.resumirPorTipo(hoy, null).get(MovimientoInventario.TipoMovimiento.SALIDA);
+		long movimientosAntes = antes.getMovimientos();
+		long unidadesAntes = antes.getUnidades();
+
+		vender(datos.variantes(LINEAS, 10));
+
+		TotalesMovimiento despues = movimientoService.resumirPorTipo(hoy, null).get(MovimientoInventario.TipoMovimiento.SALIDA);
+		assertThat(despues.getMovimientos() - movimientosAntes).isEqualTo(LINEAS);
+		assertThat(despues.getUnidades() - unidadesAntes).isEqualTo(LINEAS * CANTIDAD);
+	}
+
+	@Test
+	void laVentaNoEscribeElResumenYLaConsolidacionNoCambiaLosTotales() {
+		diario.consolidarResumen();
+		long filasAntes = resumenRepository.count();
+		LocalDateTime hoy = LocalDate.now().atStartOfDay();
+
+		vender(datos.variantes(LINEAS, 10));
+
+		assertThat(resumenRepository.count()).isEqualTo(filasAntes);
+		Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> pendiente = movimientoService.resumirPorTipo(hoy, null);
+
+		diario.consolidarResumen();
+
+		assertThat(movimientoRepository.resumirPendientesPorTipo(null, null)).isEmpty();
+		Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> consolidado = movimientoService.resumirPorTipo(hoy, null);
+		for (MovimientoInventario.TipoMovimiento tipo : MovimientoInventario.TipoMovimiento.values()) {
+			assertThat(consolidado.get(tipo).getMovimientos()).isEqualTo(pendiente.get(tipo).getMovimientos());
+			assertThat(consolidado.get(tipo).getUnidades()).isEqualTo(pendiente.get(tipo).getUnidades());
+		}
+		comparar(hoy, null);
+	}
+
+	@Test
+	void coincideConAgruparLosMovimientos() {
+		vender(datos.variantes(LINEAS, 10));
+
+		LocalDateTime ahora = LocalDateTime.now();
+		LocalDateTime hoy = LocalDate.now().atStartOfDay();
+		// Solo resumen, solo movimientos, y resumen con tramos sueltos en los dos extremos
+		comparar(null, null);
+		comparar(hoy, hoy.plusDays(1).minusNanos(1));
+		comparar(ahora.minusHours(1), ahora.plusHours(1));
+		comparar(hoy.minusHours(12), hoy.plusDays(1).plusHours(12));
+
+		// Lo mismo con parte de los movimientos ya en el resumen
+		diario.consolidarResumen();
+		vender(datos.variantes(LINEAS, 10));
+		comparar(null, null);
+		comparar(hoy, hoy.plusDays(1).minusNanos(1));
+	}
+
+	private void comparar(LocalDateTime desde, LocalDateTime hasta) {
+		Map<MovimientoInventario.TipoMovimiento, TotalesMovimiento> resumen = movimientoService.resumirPorTipo(desde, hasta);
+
+		List<Object[]> filas = movimientoRepository.resumirPorTipo(desde, hasta, null);
+		assertThat(filas).isNotEmpty();
+		for (Object[] fila : filas) {
+			TotalesMovimiento totales = resumen.get((MovimientoInventario.TipoMovimiento) fila[0]);
+			assertThat(totales.getMovimientos()).isEqualTo(((Number) fila[1]).longValue());
+			assertThat(totales.getUnidades()).isEqualTo(((Number) fila[2]).longValue());
+		}
+		assertThat(resumen.values().stream().mapToLong(TotalesMovimiento::getMovimientos).sum())
+				.isEqualTo(filas.stream().mapToLong(fila -> ((Number) fila[1]).longValue()).sum());
+	}
+
+	private void vender(List<Integer> varianteIds) {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(CANTIDAD);
+			items.add(item);
+		}
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("YAPE");
+		dto.setItems(items);
+		ventaService.registrarVenta(dto);
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.repositories.MovimientoInventarioRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 50 ventas simultáneas con carritos que comparten variantes en distinto
+ * orden: no debe haber deadlocks ni sobreventa.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VentaServiceConcurrenciaTest {
+
+	private static final int HILOS = 50;
+	private static final int VARIANTES = 5;
+	private static final int STOCK_INICIAL = 25;
+
+	@Autowired private VentaService ventaService;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private MovimientoInventarioRepository movimientoRepository;
+	@Autowired private DatosPrueba datos;
+
+	private String username;
+	private List<Integer> varianteIds;
+
+	@BeforeEach
+	void prepararDatos() {
+		username = datos.vendedorConCajaAbierta();
+		varianteIds = datos.variantes(VARIANTES, STOCK_INICIAL);
+	}
+
+	@Test
+	void ventasConcurrentesSinDeadlockNiSobreventa() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch largada = new CountDownLatch(1);
+
+		AtomicInteger rechazadasPorStock = new AtomicInteger();
+		Map<Integer, Integer> vendidoPorVariante = new ConcurrentHashMap<>();
+		Map<Integer, Integer> lineasPorVariante = new ConcurrentHashMap<>();
+		List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+
+		for (int hilo = 0; hilo < HILOS; hilo++) {
+			VentaDTO dto = carrito(hilo);
+			pool.submit(() -> {
+				DatosPrueba.autenticar(username);
+				try {
+					largada.await();
+					ventaService.registrarVenta(dto);
+					for (VentaDTO.ItemVentaDTO item : dto.getItems()) {
+						vendidoPorVariante.merge(item.getVarianteId(), item.getCantidad(), Integer::sum);
+						lineasPorVariante.merge(item.getVarianteId(), 1, Integer::sum);
+					}
+				} catch (RuntimeException e) {
+					if (e.getMessage() != null && e.getMessage().startsWith("Stock insuficiente")) {
+						rechazadasPorStock.incrementAndGet();
+					} else {
+						errores.add(e);
+					}
+				} catch (Throwable e) {
+					errores.add(e);
+				} finally {
+					SecurityContextHolder.clearContext();
+				}
+			});
+		}
+
+		largada.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(60, TimeUnit.SECONDS)).as("las ventas terminaron").isTrue();
+
+		assertThat(errores).as("errores distintos a falta de stock (deadlocks, timeouts)").isEmpty();
+		// La demanda supera al stock: algunas ventas deben rechazarse
+		assertThat(rechazadasPorStock.get()).isPositive();
+
+		for (Integer id : varianteIds) {
+			int vendido = vendidoPorVariante.getOrDefault(id, 0);
+			int stockFinal = varianteRepository.findById(id).orElseThrow().getStockActual();
+
+			assertThat(stockFinal).as("stock de la variante %d", id).isGreaterThanOrEqualTo(0);
+			assertThat(stockFinal).as("stock de la variante %d", id).isEqualTo(STOCK_INICIAL - vendido);
+			assertThat(movimientoRepository.findByVarianteIdOrderByFechaDesc(id))
+					.as("movimientos SALIDA de la variante %d", id)
+					.hasSize(lineasPorVariante.getOrDefault(id, 0));
+		}
+	}
+
+	/**
+	 * Tres variantes consecutivas (circularmente) desde la posición del hilo;
+	 * los hilos impares las piden en orden inverso para cruzar los bloqueos.
+	 */
+	private VentaDTO carrito(int hilo) {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(varianteIds.get((hilo + i) % VARIANTES));
+			item.setCantidad(i == 0 ? 2 : 1);
+			items.add(item);
+		}
+		if (hilo % 2 == 1) {
+			Collections.reverse(items);
+		}
+
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("TARJETA");
+		dto.setItems(items);
+		return dto;
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.Venta;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Un reintento con la misma Idempotency-Key devuelve la venta original y no
+ * descuenta el stock otra vez; una clave distinta es otra venta.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VentaServiceIdempotenciaTest {
+
+	@Autowired private VentaService ventaService;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+	@Autowired private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void elReintentoDevuelveLaVentaOriginal() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		Integer varianteId = datos.variantes(1, 10).get(0);
+		String clave = UUID.randomUUID().toString();
+
+		Venta original = ventaService.registrarVenta(carrito(varianteId), clave);
+		Venta reintento = ventaService.registrarVenta(carrito(varianteId), clave);
+
+		assertThat(reintento.getId()).isEqualTo(original.getId());
+		assertThat(reintento.getCodigo()).isEqualTo(original.getCodigo());
+		assertThat(stock(varianteId)).isEqualTo(7);
+
+		Venta otra = ventaService.registrarVenta(carrito(varianteId), UUID.randomUUID().toString());
+		assertThat(otra.getId()).isNotEqualTo(original.getId());
+		assertThat(stock(varianteId)).isEqualTo(4);
+	}
+
+	@Test
+	void unaVentaRechazadaLiberaLaClave() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		Integer varianteId = datos.variantes(1, 2).get(0);
+		String clave = UUID.randomUUID().toString();
+
+		VentaDTO excedida = carrito(varianteId);
+		excedida.getItems().get(0).setCantidad(5);
+		assertThatThrownBy(() -> ventaService.registrarVenta(excedida, clave))
+				.hasMessageContaining("Stock insuficiente");
+
+		VentaDTO corregida = carrito(varianteId);
+		corregida.getItems().get(0).setCantidad(2);
+		Venta venta = ventaService.registrarVenta(corregida, clave);
+
+		assertThat(venta.getId()).isNotNull();
+		assertThat(stock(varianteId)).isZero();
+	}
+
+	private Integer stock(Integer varianteId) {
+		return varianteRepository.findById(varianteId).orElseThrow().getStockActual();
+	}
+
+	private VentaDTO carrito(Integer varianteId) {
+		VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+		item.setVarianteId(varianteId);
+		item.setCantidad(3);
+
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("TARJETA");
+		dto.setItems(new ArrayList<>(List.of(item)));
+		return dto;
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.support.DatosPrueba;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Una venta deja su tiempo total (con resultado y error), el de cada fase y
+ * su cantidad de líneas en el registro de métricas; la que falla también,
+ * con las fases que alcanzó a terminar.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VentaServiceMetricasTest {
+
+	private static final List<String> FASES = List.of("turno", "validacion", "bloqueo", "persistencia",
+			"movimientos", "confirmacion");
+	// La segunda venta falla por stock después de bloquear las variantes
+	private static final List<String> FASES_CON_ERROR = List.of("turno", "validacion", "bloqueo");
+
+	@Autowired private VentaService ventaService;
+	@Autowired private MeterRegistry registry;
+	@Autowired private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void laVentaRegistraTiempoPorFaseYLineas() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		List<Integer> varianteIds = datos.variantes(3, 1);
+
+		// El registro es del contexto de Spring, compartido con otras pruebas:
+		// se compara contra lo que había antes de vender
+		long okAntes = ventas("ok", null);
+		long errorAntes = ventas("error", "RuntimeException");
+		Map<String, Long> fasesAntes = new HashMap<>();
+		for (String fase : FASES) {
+			fasesAntes.put(fase, fase(fase, "ok"));
+			fasesAntes.put(fase + "/error", fase(fase, "error"));
+		}
+		double lineasAntes = lineas("ok");
+		double lineasConErrorAntes = lineas("error");
+
+		ventaService.registrarVenta(carrito(varianteIds, 1));
+		assertThatThrownBy(() -> ventaService.registrarVenta(carrito(varianteIds, 1)))
+				.hasMessageContaining("Stock insuficiente");
+
+		assertThat(ventas("ok", null) - okAntes).isEqualTo(1);
+		assertThat(ventas("error", "RuntimeException") - errorAntes).isEqualTo(1);
+		for (String fase : FASES) {
+			assertThat(fase(fase, "ok") - fasesAntes.get(fase)).as(fase).isEqualTo(1);
+			assertThat(fase(fase, "error") - fasesAntes.get(fase + "/error")).as(fase + " con error")
+					.isEqualTo(FASES_CON_ERROR.contains(fase) ? 1 : 0);
+		}
+		assertThat(lineas("ok") - lineasAntes).isEqualTo(3);
+		assertThat(lineas("error") - lineasConErrorAntes).isEqualTo(3);
+	}
+
+	private long ventas(String resultado, String error) {
+		Search busqueda = registry.find("gams.ventas.registro").tag("resultado", resultado);
+		if (error != null) {
+			busqueda = busqueda.tag("error", error);
+		}
+		Timer timer = busqueda.timer();
+		return timer != null ? timer.count() : 0;
+	}
+
+	// Suma de las series de la etiqueta "error" (una por clase de excepción)
+	private long fase(String fase, String resultado) {
+		return registry.find("gams.ventas.fase").tag("operacion", "registro").tag("fase", fase)
+				.tag("resultado", resultado).timers().stream().mapToLong(Timer::count).sum();
+	}
+
+	private double lineas(String resultado) {
+		return registry.find("gams.ventas.lineas").tag("operacion", "registro").tag("resultado", resultado)
+				.summaries().stream().mapToDouble(DistributionSummary::totalAmount).sum();
+	}
+
+	private VentaDTO carrito(List<Integer> varianteIds, int cantidad) {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(cantidad);
+			items.add(item);
+		}
+
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("TARJETA");
+		dto.setItems(items);
+		return dto;
+	}
+}
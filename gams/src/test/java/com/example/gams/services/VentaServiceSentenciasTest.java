@@ -0,0 +1,126 @@
+package com.example.gams.services;
+
+import com.example.gams.dto.VentaDTO;
+import com.example.gams.entities.Venta;
+import com.example.gams.support.ContadorSentencias;
+import com.example.gams.support.DatosPrueba;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sentencias SQL por venta de 15 líneas, antes y después de agrupar los INSERT.
+ * Antes: un INSERT por fila de detalles_venta y de movimientos_inventario (lo
+ * que hacían los ids IDENTITY, aquí con el batch JDBC apagado en la sesión).
+ * Después, con los ids por bloques y el batch de Hibernate: un INSERT por
+ * tabla. El resto de la venta envía las mismas sentencias en los dos casos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(ContadorSentencias.class)
+class VentaServiceSentenciasTest {
+
+	private static final int LINEAS = 15;
+
+	@Autowired private VentaService ventaService;
+	@Autowired private DatosPrueba datos;
+	@Autowired private PlatformTransactionManager transactionManager;
+	@PersistenceContext private EntityManager entityManager;
+
+	private TransactionTemplate transaccion;
+
+	private List<Integer> varianteIds;
+
+	@BeforeEach
+	void prepararDatos() {
+		DatosPrueba.autenticar(datos.vendedorConCajaAbierta());
+		transaccion = new TransactionTemplate(transactionManager);
+		varianteIds = datos.variantes(LINEAS, 100);
+
+		// Venta de calentamiento: reserva el bloque de correlativos y de ids
+		// para que la medición sea la de una venta típica
+		ventaService.registrarVenta(carrito());
+	}
+
+	@AfterEach
+	void limpiarSesion() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void registrarVentaAgrupaLosInserts() {
+		ContadorSentencias.reiniciar();
+		sinBatch(() -> ventaService.registrarVenta(carrito()));
+
+		assertThat(ContadorSentencias.contar("insert into detalles_venta (")).isEqualTo(LINEAS);
+		assertThat(ContadorSentencias.contar("insert into movimientos_inventario (")).isEqualTo(LINEAS);
+		int antes = ContadorSentencias.total();
+
+		ContadorSentencias.reiniciar();
+		ventaService.registrarVenta(carrito());
+
+		assertThat(ContadorSentencias.contar("insert into detalles_venta (")).isEqualTo(1);
+		assertThat(ContadorSentencias.contar("insert into movimientos_inventario (")).isEqualTo(1);
+		assertThat(ContadorSentencias.contar("update productos_variantes")).isEqualTo(1);
+		assertThat(ContadorSentencias.contar("insert into ventas (")).isEqualTo(1);
+		assertThat(antes - ContadorSentencias.total()).isEqualTo(2 * (LINEAS - 1));
+	}
+
+	@Test
+	void anularVentaAgrupaLosInserts() {
+		Venta primera = ventaService.registrarVenta(carrito());
+		Venta segunda = ventaService.registrarVenta(carrito());
+
+		ContadorSentencias.reiniciar();
+		sinBatch(() -> ventaService.anularVenta(primera.getId(), "Prueba de sentencias"));
+
+		assertThat(ContadorSentencias.contar("insert into movimientos_inventario (")).isEqualTo(LINEAS);
+		int antes = ContadorSentencias.total();
+
+		ContadorSentencias.reiniciar();
+		ventaService.anularVenta(segunda.getId(), "Prueba de sentencias");
+
+		assertThat(ContadorSentencias.contar("insert into movimientos_inventario (")).isEqualTo(1);
+		assertThat(ContadorSentencias.contar("update productos_variantes")).isEqualTo(1);
+		assertThat(antes - ContadorSentencias.total()).isEqualTo(LINEAS - 1);
+	}
+
+	// Corre la operación en una transacción cuya sesión no agrupa sentencias:
+	// la venta (o anulación) se une a ella y escribe fila por fila
+	private void sinBatch(Runnable operacion) {
+		transaccion.executeWithoutResult(status -> {
+			entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+			operacion.run();
+		});
+	}
+
+	private VentaDTO carrito() {
+		List<VentaDTO.ItemVentaDTO> items = new ArrayList<>();
+		for (Integer id : varianteIds) {
+			VentaDTO.ItemVentaDTO item = new VentaDTO.ItemVentaDTO();
+			item.setVarianteId(id);
+			item.setCantidad(1);
+			items.add(item);
+		}
+
+		VentaDTO dto = new VentaDTO();
+		dto.setMetodoPago("TARJETA");
+		dto.setItems(items);
+		return dto;
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.gams.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cuenta los viajes a la BD: envuelve el DataSource y registra cada
+ * execute / executeQuery / executeUpdate / executeBatch con su SQL. Un batch
+ * JDBC cuenta como UNA sentencia, igual que lo envía el driver de MySQL con
+ * rewriteBatchedStatements.
+ *
+ * Uso: {@code @Import(ContadorSentencias.class)} en la prueba, luego
+ * {@link #reiniciar()} antes de la operación a medir. Solo se cuentan las
+ * sentencias del hilo que llamó a reiniciar(): las tareas programadas
+ * (drenado del diario, reconstrucción del buscador) usan la misma BD.
+ */
+@TestConfiguration
+public class ContadorSentencias {
+
+	private static final List<String> EJECUTADAS = new ArrayList<>();
+	private static Thread medido;
+
+	@Bean
+	static BeanPostProcessor contadorSentenciasDataSource() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource ? envolver(bean, DataSource.class, null) : bean;
+			}
+		};
+	}
+
+	public static synchronized void reiniciar() {
+		EJECUTADAS.clear();
+		medido = Thread.currentThread();
+	}
+
+	public static synchronized List<String> ejecutadas() {
+		return new ArrayList<>(EJECUTADAS);
+	}
+
+	public static synchronized int total() {
+		return EJECUTADAS.size();
+	}
+
+	// Sentencias ejecutadas que empiezan con el prefijo dado (p.ej. "insert into detalles_venta")
+	public static synchronized long contar(String prefijo) {
+		String buscado = prefijo.toLowerCase(Locale.ROOT);
+		return EJECUTADAS.stream().filter(sql -> sql.startsWith(buscado)).count();
+	}
+
+	private static synchronized void registrar(String sql) {
+		if (Thread.currentThread() != medido) {
+			return;
+		}
+		EJECUTADAS.add(String.valueOf(sql).trim().toLowerCase(Locale.ROOT));
+	}
+
+	private static Object envolver(Object destino, Class<?> tipo, String sql) {
+		return Proxy.newProxyInstance(ContadorSentencias.class.getClassLoader(), new Class<?>[] { tipo },
+				(proxy, metodo, args) -> {
+					Object resultado;
+					try {
+						resultado = metodo.invoke(destino, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+
+					String sqlArgumento = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+					if (metodo.getName().startsWith("execute")) {
+						registrar(sqlArgumento != null ? sqlArgumento : sql);
+					}
+
+					Class<?> retorno = metodo.getReturnType();
+					if (resultado != null && (retorno == Connection.class || Statement.class.isAssignableFrom(retorno))) {
+						return envolver(resultado, retorno, sqlArgumento);
+					}
+					return resultado;
+				});
+	}
+}
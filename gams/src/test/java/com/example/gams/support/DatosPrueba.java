@@ -0,0 +1,89 @@
+package com.example.gams.support;
+
+import com.example.gams.entities.CajaAcumulado;
+import com.example.gams.entities.CajaSesion;
+import com.example.gams.entities.Categoria;
+import com.example.gams.entities.Color;
+import com.example.gams.entities.Producto;
+import com.example.gams.entities.ProductoVariante;
+import com.example.gams.entities.Talla;
+import com.example.gams.entities.Usuario;
+import com.example.gams.repositories.CajaAcumuladoRepository;
+import com.example.gams.repositories.CajaSesionRepository;
+import com.example.gams.repositories.CategoriaRepository;
+import com.example.gams.repositories.ColorRepository;
+import com.example.gams.repositories.ProductoRepository;
+import com.example.gams.repositories.ProductoVarianteRepository;
+import com.example.gams.repositories.TallaRepository;
+import com.example.gams.repositories.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Datos mínimos para las pruebas de ventas: un vendedor con la caja abierta y
+ * un producto con N variantes. Cada llamada usa nombres únicos para no chocar
+ * con lo creado por otras pruebas del mismo contexto.
+ */
+@Component
+public class DatosPrueba {
+
+	// Única dentro de la JVM, que es donde vive la BD H2 de las pruebas. Corta a
+	// propósito: el SKU generado (código-color-talla) la repite tres veces y
+	// movimientos_inventario.variante_sku admite 50 caracteres
+	private static final AtomicLong SECUENCIA = new AtomicLong();
+
+	@Autowired private UsuarioRepository usuarioRepository;
+	@Autowired private CajaSesionRepository cajaSesionRepository;
+	@Autowired private CajaAcumuladoRepository cajaAcumuladoRepository;
+	@Autowired private CategoriaRepository categoriaRepository;
+	@Autowired private ColorRepository colorRepository;
+	@Autowired private TallaRepository tallaRepository;
+	@Autowired private ProductoRepository productoRepository;
+	@Autowired private ProductoVarianteRepository varianteRepository;
+
+	/**
+	 * Crea un vendedor y abre la caja si no hay una abierta.
+	 * Devuelve el username para autenticarse con {@link #autenticar}.
+	 */
+	public String vendedorConCajaAbierta() {
+		String username = "vendedor" + SECUENCIA.incrementAndGet();
+		Usuario vendedor = usuarioRepository.save(
+				new Usuario(username, username + "@gams.test", "x", "Vendedor", "Prueba"));
+
+		if (cajaSesionRepository.findFirstByEstado(CajaSesion.EstadoCaja.ABIERTA).isEmpty()) {
+			CajaSesion caja = cajaSesionRepository.save(new CajaSesion(vendedor, BigDecimal.ZERO));
+			cajaAcumuladoRepository.saveAll(CajaAcumulado.franjasDe(caja));
+		}
+		return username;
+	}
+
+	// Un producto (S/ 20.00) con una variante por talla; devuelve los ids de variante
+	public List<Integer> variantes(int cantidad, int stockInicial) {
+		String sufijo = Long.toString(SECUENCIA.incrementAndGet());
+
+		Categoria categoria = categoriaRepository.save(new Categoria("Polos " + sufijo, null));
+		Color color = colorRepository.save(new Color("Negro " + sufijo, "#000000"));
+		Producto producto = productoRepository.save(new Producto("P" + sufijo, "Polo básico", categoria,
+				new BigDecimal("10.00"), new BigDecimal("20.00")));
+
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			Talla talla = tallaRepository.save(new Talla("T" + i + "-" + sufijo, Talla.TipoTalla.ROPA, i));
+			ids.add(varianteRepository.save(new ProductoVariante(producto, color, talla, stockInicial)).getId());
+		}
+		return ids;
+	}
+
+	public static void autenticar(String username) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				username, null, List.of(new SimpleGrantedAuthority("ROLE_VENDEDOR"))));
+	}
+}